@@ -2,7 +2,9 @@ package attini.deploy.origin;
 
 import static java.util.Objects.requireNonNull;
 
+import java.util.List;
 import java.util.Map;
+import java.util.stream.Collectors;
 import jakarta.inject.Inject;
 import jakarta.inject.Named;
 
@@ -10,28 +12,70 @@ import org.jboss.logging.Logger;
 import com.amazonaws.services.lambda.runtime.Context;
 import com.amazonaws.services.lambda.runtime.RequestHandler;
 
+import attini.deploy.origin.InitDeployEventProcessor.RecordResult;
+import attini.deploy.origin.lifecycle.ExpiredDeployDataHandler;
+import attini.deploy.origin.lifecycle.RetentionSweeper;
+
 @Named("app")
 public class App implements RequestHandler<Map<String, Object>, String> {
 
     private static final Logger logger = Logger.getLogger(App.class);
-    private final InitDeployService initDeployService;
+    private final InitDeployEventProcessor initDeployEventProcessor;
     private final InitDeployEventFactory initDeployEventFactory;
+    private final RetentionSweeper retentionSweeper;
+    private final ExpiredDeployDataHandler expiredDeployDataHandler;
 
     @Inject
-    public App(InitDeployService initDeployService, InitDeployEventFactory initDeployEventFactory) {
-        this.initDeployService = requireNonNull(initDeployService, "initDeployService");
+    public App(InitDeployEventProcessor initDeployEventProcessor,
+               InitDeployEventFactory initDeployEventFactory,
+               RetentionSweeper retentionSweeper,
+               ExpiredDeployDataHandler expiredDeployDataHandler) {
+        this.initDeployEventProcessor = requireNonNull(initDeployEventProcessor, "initDeployEventProcessor");
         this.initDeployEventFactory = requireNonNull(initDeployEventFactory, "initDeployEventFactory");
+        this.retentionSweeper = requireNonNull(retentionSweeper, "retentionSweeper");
+        this.expiredDeployDataHandler = requireNonNull(expiredDeployDataHandler, "expiredDeployDataHandler");
     }
 
 
     @Override
     public String handleRequest(Map<String, Object> input, Context context) {
 
+        if (isScheduledEvent(input)) {
+            logger.info("Starting retention sweep");
+            retentionSweeper.sweep(context::getRemainingTimeInMillis);
+            return "Success";
+        }
+
+        if (ExpiredDeployDataHandler.isStreamEvent(input)) {
+            logger.info("Removing artifacts of expired deploy data");
+            expiredDeployDataHandler.handle(input);
+            return "Success";
+        }
+
         logger.info("Starting to handle event");
-        InitDeployEvent initDeployEvent = initDeployEventFactory.create(input);
+        List<RecordResult> results = initDeployEventProcessor.process(initDeployEventFactory.create(input));
 
-        initDeployService.initDeploy(initDeployEvent);
+        return toResponse(results);
+    }
+
+    /**
+     * Reports the records that failed in the response, since a failed record does not fail an event with several
+     * records.
+     */
+    private static String toResponse(List<RecordResult> results) {
+        List<RecordResult> failures = results.stream().filter(result -> !result.isSuccess()).toList();
+        if (failures.isEmpty()) {
+            return "Success";
+        }
+        return "Failed %d of %d records: %s".formatted(failures.size(),
+                                                       results.size(),
+                                                       failures.stream()
+                                                               .map(failure -> failure.record() + " (" + failure.error()
+                                                                                                                .getMessage() + ")")
+                                                               .collect(Collectors.joining(", ")));
+    }
 
-        return "Success";
+    private static boolean isScheduledEvent(Map<String, Object> input) {
+        return "aws.events".equals(input.get("source")) && "Scheduled Event".equals(input.get("detail-type"));
     }
 }
@@ -9,6 +9,7 @@ import static java.util.Objects.requireNonNull;
 
 import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
 
 import attini.deploy.origin.config.AttiniConfig;
 
@@ -17,13 +18,25 @@ public class DistributionData {
     private final AttiniConfig attiniConfig;
     private final String artifactPath;
     private final String templateMd5Hex;
+    private final Set<String> templateParameterKeys;
 
     public DistributionData(AttiniConfig attiniConfig,
                             String artifactPath,
                             String templateMd5Hex) {
+        this(attiniConfig, artifactPath, templateMd5Hex, null);
+    }
+
+    /**
+     * @param templateParameterKeys the parameters declared by the init stack template, null if they are unknown
+     */
+    public DistributionData(AttiniConfig attiniConfig,
+                            String artifactPath,
+                            String templateMd5Hex,
+                            Set<String> templateParameterKeys) {
         this.attiniConfig = requireNonNull(attiniConfig, "attiniConfig");
         this.artifactPath = requireNonNull(artifactPath, "artifactPath");
         this.templateMd5Hex = templateMd5Hex;
+        this.templateParameterKeys = templateParameterKeys == null ? null : Set.copyOf(templateParameterKeys);
     }
 
     public AttiniConfig getAttiniConfig() {
@@ -38,6 +51,10 @@ public class DistributionData {
         return Optional.ofNullable(templateMd5Hex);
     }
 
+    public Optional<Set<String>> getTemplateParameterKeys() {
+        return Optional.ofNullable(templateParameterKeys);
+    }
+
 
     @Override
     public boolean equals(Object o) {
@@ -47,12 +64,12 @@ public class DistributionData {
         return Objects.equals(attiniConfig, that.attiniConfig) && Objects.equals(artifactPath,
                                                                                  that.artifactPath) && Objects.equals(
                 templateMd5Hex,
-                that.templateMd5Hex);
+                that.templateMd5Hex) && Objects.equals(templateParameterKeys, that.templateParameterKeys);
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(attiniConfig, artifactPath, templateMd5Hex);
+        return Objects.hash(attiniConfig, artifactPath, templateMd5Hex, templateParameterKeys);
     }
 
     @Override
@@ -61,6 +78,7 @@ public class DistributionData {
                "attiniConfig=" + attiniConfig +
                ", artifactPath='" + artifactPath + '\'' +
                ", templateMd5Hex='" + templateMd5Hex + '\'' +
+               ", templateParameterKeys=" + templateParameterKeys +
                '}';
     }
 }
@@ -3,14 +3,18 @@ package attini.deploy.origin;
 import static java.util.Objects.requireNonNull;
 import static java.util.stream.Collectors.toMap;
 
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 import org.jboss.logging.Logger;
 
 import attini.deploy.origin.config.AttiniConfig;
+import attini.deploy.origin.system.DynamoBatchGet;
 import attini.deploy.origin.system.EnvironmentVariables;
 import attini.domain.DistributionId;
 import attini.domain.DistributionName;
@@ -103,29 +107,56 @@ public class DistributionDataFacade {
 
         GetItemResponse response = dynamoDbClient.getItem(GetItemRequest.builder()
                                                                         .tableName(environmentVariables.getResourceStatesTableName())
-                                                                        .key(Map.of("resourceType",
-                                                                                    AttributeValue.builder()
-                                                                                                  .s("Distribution")
-                                                                                                  .build(),
-                                                                                    "name",
-                                                                                    AttributeValue.builder()
-                                                                                                  .s(environment.asString() + "-" + distName.asString())
-                                                                                                  .build()))
+                                                                        .key(distributionKey(distName, environment))
                                                                         .build());
         if (response.hasItem()) {
-            String outputUrl = response.item().containsKey("outputUrl") ? response.item()
-                                                                                  .get("outputUrl")
-                                                                                  .s() : null;
-            Version version = response.item().containsKey("version") ? Version.of(response.item()
-                                                                                          .get("version")
-                                                                                          .s()) : null;
-            return Optional.of(new Distribution(DistributionName.of(response.item().get("distributionName").s()),
-                                                DistributionId.of(response.item().get("distributionId").s()),
-                                                outputUrl,
-                                                version));
+            return Optional.of(toDistribution(response.item()));
         }
 
         return Optional.empty();
     }
 
+    /**
+     * Reads all the given distributions with as few requests as possible, distributions that are not present in the
+     * environment are left out of the result.
+     */
+    public Map<DistributionName, Distribution> getDistributions(Collection<DistributionName> distNames,
+                                                                Environment environment) {
+        if (distNames.isEmpty()) {
+            return Map.of();
+        }
+        List<Map<String, AttributeValue>> keys = distNames.stream()
+                                                          .distinct()
+                                                          .map(distName -> distributionKey(distName, environment))
+                                                          .toList();
+
+        return DynamoBatchGet.getItems(dynamoDbClient,
+                                       environmentVariables.getResourceStatesTableName(),
+                                       keys,
+                                       "#name, #id, #url, #version",
+                                       Map.of("#name", "distributionName",
+                                              "#id", "distributionId",
+                                              "#url", "outputUrl",
+                                              "#version", "version"))
+                             .stream()
+                             .map(DistributionDataFacade::toDistribution)
+                             .collect(toMap(Distribution::getDistributionName, Function.identity()));
+    }
+
+    private static Map<String, AttributeValue> distributionKey(DistributionName distName, Environment environment) {
+        return Map.of("resourceType",
+                      AttributeValue.builder().s("Distribution").build(),
+                      "name",
+                      AttributeValue.builder().s(environment.asString() + "-" + distName.asString()).build());
+    }
+
+    private static Distribution toDistribution(Map<String, AttributeValue> item) {
+        String outputUrl = item.containsKey("outputUrl") ? item.get("outputUrl").s() : null;
+        Version version = item.containsKey("version") ? Version.of(item.get("version").s()) : null;
+        return new Distribution(DistributionName.of(item.get("distributionName").s()),
+                                DistributionId.of(item.get("distributionId").s()),
+                                outputUrl,
+                                version);
+    }
+
 }
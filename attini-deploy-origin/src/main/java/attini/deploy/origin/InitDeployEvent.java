@@ -2,6 +2,8 @@ package attini.deploy.origin;
 
 import static java.util.Objects.requireNonNull;
 
+import java.util.Optional;
+
 import attini.domain.Environment;
 import attini.domain.ObjectIdentifier;
 
@@ -39,6 +41,18 @@ public class InitDeployEvent {
         return objectIdentifier;
     }
 
+    /**
+     * Returns the version id from the object identifier, empty if the identifier has no version.
+     */
+    public Optional<String> getS3ObjectVersion() {
+        String identifier = objectIdentifier.asString();
+        int separator = identifier.lastIndexOf("#");
+        if (separator == -1 || separator == identifier.length() - 1) {
+            return Optional.empty();
+        }
+        return Optional.of(identifier.substring(separator + 1));
+    }
+
     public String getUserIdentity() {
         return userIdentity;
     }
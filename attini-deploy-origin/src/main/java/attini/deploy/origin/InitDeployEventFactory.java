@@ -2,13 +2,14 @@ package attini.deploy.origin;
 
 import static java.util.Objects.requireNonNull;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 
 import org.jboss.logging.Logger;
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
+import attini.deploy.origin.S3EventNotification.EventRecord;
 import attini.domain.ObjectIdentifier;
 
 public class InitDeployEventFactory {
@@ -21,73 +22,88 @@ public class InitDeployEventFactory {
         this.mapper = requireNonNull(objectMapper, "objectMapper");
     }
 
-    public InitDeployEvent create(Map<String, Object> input) {
-
-        String inputString = writeMapAsJsonString(input);
-        logger.info("Got event: " + inputString);
-
-        JsonNode s3EventJson = getS3EventJson(inputString);
-        String s3Key = getS3ObjectKey(s3EventJson);
-
-        return new InitDeployEvent(getS3BucketName(s3EventJson),
-                                   s3Key,
-                                   ObjectIdentifier.of(s3Key + "#" + getS3ObjectVersion(s3EventJson)),
-                                   getUserIdentity(s3EventJson));
-    }
-
-    private String writeMapAsJsonString(Map<String, Object> input) {
-        try {
-            return mapper.writeValueAsString(input);
-        } catch (JsonProcessingException e) {
-            logger.fatal("Could not parse the given input to init deploy as a json", e);
-            throw new RuntimeException(e);
+    /**
+     * Creates one event per record, in the order the records were delivered. A record that can not be converted does
+     * not fail the others, it is returned with the reason instead.
+     *
+     * @throws IllegalArgumentException if the input is not an s3 event or has no records
+     */
+    public List<ConvertedRecord> create(Map<String, Object> input) {
+
+        S3EventNotification notification = toNotification(input);
+        if (notification.records() == null || notification.records().isEmpty()) {
+            logger.fatal("The event has no records, make sure its a valid s3_put event");
+            throw new IllegalArgumentException("No records in init deploy event");
         }
-    }
-
-    private JsonNode getS3EventJson(String input) {
-        try {
-            return mapper.readTree(input);
-        } catch (JsonProcessingException e) {
-            logger.fatal("Could not process the input string from init deploy event as json", e);
-            throw new RuntimeException(e);
+        logger.info("Got event with " + notification.records().size() + " records");
+
+        List<ConvertedRecord> records = new ArrayList<>(notification.records().size());
+        for (int i = 0; i < notification.records().size(); i++) {
+            String record = "record " + (i + 1);
+            try {
+                InitDeployEvent event = toInitDeployEvent(mapper.convertValue(notification.records().get(i),
+                                                                              EventRecord.class));
+                records.add(ConvertedRecord.of(event));
+            } catch (RuntimeException e) {
+                logger.error("Could not convert " + record + " of the event to an init deploy event", e);
+                records.add(new ConvertedRecord(record, null, e));
+            }
         }
+        return records;
     }
 
-    private static String getS3ObjectKey(JsonNode jsonNode) {
+    private S3EventNotification toNotification(Map<String, Object> input) {
         try {
-            return jsonNode.get("Records").get(0).get("s3").get("object").get("key").asText();
-        } catch (NullPointerException e) {
-            logger.fatal("Could not find the s3 object key in the event, make sure its a valid s3_put event");
+            return mapper.convertValue(input, S3EventNotification.class);
+        } catch (IllegalArgumentException e) {
+            logger.fatal("Could not parse the given input to init deploy as an s3 event", e);
             throw e;
         }
     }
 
-    private static String getUserIdentity(JsonNode jsonNode) {
-        try {
-            return jsonNode.get("Records").get(0).get("userIdentity").get("principalId").asText();
-        } catch (NullPointerException e) {
-            logger.fatal("Could not find the user identity in the event, make sure its a valid s3_put event");
-            throw e;
+    private static InitDeployEvent toInitDeployEvent(EventRecord record) {
+        if (record == null) {
+            logger.fatal("Got an empty record in the event, make sure its a valid s3_put event");
+            throw new IllegalArgumentException("Empty record in init deploy event");
         }
-    }
-
-    private static String getS3ObjectVersion(JsonNode jsonNode) {
-        try {
-            return jsonNode.get("Records").get(0).get("s3").get("object").get("versionId").asText();
-        } catch (NullPointerException e) {
+        if (record.s3() == null || record.s3().object() == null || record.s3().object().key() == null) {
+            logger.fatal("Could not find the s3 object key in the event, make sure its a valid s3_put event");
+            throw new IllegalArgumentException("No s3 object key in init deploy event");
+        }
+        if (record.s3().object().versionId() == null) {
             logger.fatal("Could not find the s3 object version in the event, make sure its a valid s3_put event");
-            throw e;
+            throw new IllegalArgumentException("No s3 object version in init deploy event");
+        }
+        if (record.s3().bucket() == null || record.s3().bucket().name() == null) {
+            logger.fatal("Could not find the s3 bucket name in the event, make sure its a valid s3_put event");
+            throw new IllegalArgumentException("No s3 bucket name in init deploy event");
+        }
+        if (record.userIdentity() == null || record.userIdentity().principalId() == null) {
+            logger.fatal("Could not find the user identity in the event, make sure its a valid s3_put event");
+            throw new IllegalArgumentException("No user identity in init deploy event");
         }
+
+        String s3Key = record.s3().object().key();
+        logger.info("Got record for s3 key " + s3Key + " with version " + record.s3().object().versionId());
+        return new InitDeployEvent(record.s3().bucket().name(),
+                                   s3Key,
+                                   ObjectIdentifier.of(s3Key + "#" + record.s3().object().versionId()),
+                                   record.userIdentity().principalId());
     }
 
+    /**
+     * @param record identifies the record, the object identifier if the record could be converted
+     * @param event  the init deploy event of the record, null if it could not be converted
+     * @param error  the reason the record could not be converted, null if it could
+     */
+    public record ConvertedRecord(String record, InitDeployEvent event, RuntimeException error) {
 
-    private static String getS3BucketName(JsonNode jsonNode) {
-        try {
-            return jsonNode.get("Records").get(0).get("s3").get("bucket").get("name").asText();
-        } catch (NullPointerException e) {
-            logger.fatal("Could not find the s3 bucket name in the event, make sure its a valid s3_put event");
-            throw e;
+        public static ConvertedRecord of(InitDeployEvent event) {
+            return new ConvertedRecord(event.getObjectIdentifier().asString(), event, null);
         }
-    }
 
+        public boolean isConverted() {
+            return error == null;
+        }
+    }
 }
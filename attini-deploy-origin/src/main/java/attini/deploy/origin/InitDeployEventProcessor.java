@@ -0,0 +1,109 @@
+package attini.deploy.origin;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+import org.jboss.logging.Logger;
+
+import attini.deploy.origin.InitDeployEventFactory.ConvertedRecord;
+
+/**
+ * Runs the init deploy for every record of an event. Records for different distributions are deployed
+ * concurrently, records for the same distribution and environment are deployed one at a time in the order they
+ * were delivered. The concurrency is bounded by the given executor.
+ *
+ * <p>An event with a single record fails with the error of its conversion or its init deploy. When an event has
+ * several records a failed record does not fail the others, the result of every record is returned instead.
+ */
+public class InitDeployEventProcessor {
+
+    private static final Logger logger = Logger.getLogger(InitDeployEventProcessor.class);
+
+    private final InitDeployService initDeployService;
+    private final Executor executor;
+
+    public InitDeployEventProcessor(InitDeployService initDeployService, Executor executor) {
+        this.initDeployService = requireNonNull(initDeployService, "initDeployService");
+        this.executor = requireNonNull(executor, "executor");
+    }
+
+    public List<RecordResult> process(List<ConvertedRecord> records) {
+        if (records.size() == 1) {
+            // A single record keeps failing with the exception from the conversion or the init deploy
+            ConvertedRecord record = records.get(0);
+            if (!record.isConverted()) {
+                throw record.error();
+            }
+            initDeployService.initDeploy(record.event());
+            return List.of(RecordResult.of(record.event(), null));
+        }
+
+        List<RecordResult> results = new ArrayList<>();
+        List<InitDeployEvent> events = new ArrayList<>();
+        for (ConvertedRecord record : records) {
+            if (record.isConverted()) {
+                events.add(record.event());
+            } else {
+                results.add(new RecordResult(record.record(), null, record.error()));
+            }
+        }
+
+        Map<String, List<InitDeployEvent>> byDistribution = new LinkedHashMap<>();
+        events.forEach(event -> byDistribution.computeIfAbsent(distributionKey(event), key -> new ArrayList<>())
+                                              .add(event));
+
+        List<CompletableFuture<List<RecordResult>>> groups =
+                byDistribution.values()
+                              .stream()
+                              .map(group -> CompletableFuture.supplyAsync(() -> processInOrder(group), executor))
+                              .toList();
+
+        groups.forEach(group -> results.addAll(group.join()));
+
+        // Failing the invocation would make a retry deploy the records that succeeded a second time, so failed
+        // records are logged and returned. A failed init deploy has also saved its error to the deploy data
+        results.stream()
+               .filter(result -> !result.isSuccess())
+               .forEach(failure -> logger.error("Init deploy failed for " + failure.record(), failure.error()));
+        return results;
+    }
+
+    private List<RecordResult> processInOrder(List<InitDeployEvent> events) {
+        List<RecordResult> results = new ArrayList<>(events.size());
+        for (InitDeployEvent event : events) {
+            try {
+                initDeployService.initDeploy(event);
+                results.add(RecordResult.of(event, null));
+            } catch (RuntimeException e) {
+                results.add(RecordResult.of(event, e));
+            }
+        }
+        return results;
+    }
+
+    private static String distributionKey(InitDeployEvent event) {
+        return event.getEnvironmentName().asString() + "/" + event.getFolderName();
+    }
+
+    /**
+     * @param record identifies the record, the object identifier if the record could be converted
+     * @param event  the init deploy event of the record, null if the record could not be converted
+     * @param error  the reason the conversion or the init deploy failed, null if it succeeded
+     */
+    public record RecordResult(String record, InitDeployEvent event, RuntimeException error) {
+
+        static RecordResult of(InitDeployEvent event, RuntimeException error) {
+            return new RecordResult(event.getObjectIdentifier().asString(), event, error);
+        }
+
+        public boolean isSuccess() {
+            return error == null;
+        }
+    }
+}
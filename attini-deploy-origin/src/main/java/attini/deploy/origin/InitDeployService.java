@@ -7,8 +7,11 @@ package attini.deploy.origin;
 
 import static java.util.Objects.requireNonNull;
 
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 
 import org.jboss.logging.Logger;
 import com.vdurmont.semver4j.Semver;
@@ -17,6 +20,7 @@ import attini.deploy.origin.appdeployment.AppDeploymentFacade;
 import attini.deploy.origin.config.AttiniConfig;
 import attini.deploy.origin.config.DistributionDependency;
 import attini.deploy.origin.config.InitDeployStackConfig;
+import attini.deploy.origin.deploystack.DeployData;
 import attini.deploy.origin.deploystack.DeployDataFacade;
 import attini.deploy.origin.deploystack.DeployDataFacade.SaveDeploymentDataRequest;
 import attini.deploy.origin.deploystack.DeployInitStackException;
@@ -24,15 +28,19 @@ import attini.deploy.origin.deploystack.DeployInitStackService;
 import attini.deploy.origin.deploystack.DynamoInitDeployStackFacade;
 import attini.deploy.origin.deploystack.InitDeployError;
 import attini.deploy.origin.lifecycle.LifeCycleService;
+import attini.deploy.origin.metrics.EmfMetricsPublisher;
+import attini.deploy.origin.metrics.StageMetrics;
 import attini.deploy.origin.stepguard.StepGuardFacade;
 import attini.domain.DistributionContext;
 import attini.domain.DistributionContextImpl;
+import attini.domain.DistributionName;
 import attini.domain.Environment;
 import attini.domain.Version;
 
 public class InitDeployService {
 
     private static final Logger logger = Logger.getLogger(InitDeployService.class);
+    private static final String CLEANUP_STAGE = "cleanup";
 
     private final PublishArtifactService publishArtifactService;
     private final DeployInitStackService deployInitStackService;
@@ -45,6 +53,8 @@ public class InitDeployService {
     private final StepGuardFacade stepGuardFacade;
     private final DistributionDataFacade distributionDataFacade;
     private final AppDeploymentFacade appDeploymentFacade;
+    private final Executor stageExecutor;
+    private final EmfMetricsPublisher metricsPublisher;
 
     public InitDeployService(PublishArtifactService publishArtifactService,
                              DeployInitStackService deployInitStackService,
@@ -55,7 +65,10 @@ public class InitDeployService {
                              MonitoringFacade monitoringFacade,
                              SystemClockFacade systemClockFacade,
                              StepGuardFacade stepGuardFacade,
-                             DistributionDataFacade distributionDataFacade, AppDeploymentFacade appDeploymentFacade) {
+                             DistributionDataFacade distributionDataFacade,
+                             AppDeploymentFacade appDeploymentFacade,
+                             Executor stageExecutor,
+                             EmfMetricsPublisher metricsPublisher) {
         this.publishArtifactService = requireNonNull(publishArtifactService, "publishArtifactService");
         this.deployInitStackService = requireNonNull(deployInitStackService, "deployInitStackService");
         this.deployDataFacade = requireNonNull(deployDataFacade, "deployDataFacade");
@@ -68,68 +81,91 @@ public class InitDeployService {
         this.stepGuardFacade = requireNonNull(stepGuardFacade, "stepGuardFacade");
         this.distributionDataFacade = requireNonNull(distributionDataFacade, "distributionDataFacade");
         this.appDeploymentFacade = requireNonNull(appDeploymentFacade, "appDeploymentFacade");
+        this.stageExecutor = requireNonNull(stageExecutor, "stageExecutor");
+        this.metricsPublisher = requireNonNull(metricsPublisher, "metricsPublisher");
     }
 
     public void initDeploy(InitDeployEvent initDeployEvent) {
 
         long deployTime = systemClockFacade.getCurrentTime();
+        StageMetrics stageMetrics = new StageMetrics(initDeployEvent.getEnvironmentName(),
+                                                     DistributionName.of(initDeployEvent.getFolderName()));
 
         try {
 
-            DistributionData distributionData = publishArtifactService.publishDistribution(initDeployEvent);
+            DistributionData distributionData = publishArtifactService.publishDistribution(initDeployEvent,
+                                                                                           stageMetrics);
 
             AttiniConfig attiniConfig = distributionData.getAttiniConfig();
-
-            CompletableFuture<Void> cleanup = lifeCycleService.cleanup(attiniConfig.getAttiniDistributionName(),
-                                                                       initDeployEvent.getEnvironmentName(),
-                                                                       initDeployEvent.getS3Bucket());
-
-
-            putLatestDistributionReferenceParameter.putParameter(attiniConfig, initDeployEvent.getEnvironmentName());
-
-
-            distributionDataFacade.saveDistributionData(attiniConfig,
-                                                        initDeployEvent,
-                                                        distributionData.getArtifactPath());
-
-
-
-
-
-
-            attiniConfig.getAppConfig()
-                        .ifPresent(appConfig -> appDeploymentFacade.runAppDeploymentPlan(appConfig,
-                                                                                     createDistributionContext(initDeployEvent, attiniConfig),
-                                                                                     distributionData, deployTime));
-
-
-            attiniConfig.getAttiniInitDeployStackConfig()
-                        .ifPresentOrElse(initDeployStackConfig ->
-                                                 handelInitDeployStack(createDistributionContext(initDeployEvent,
-                                                                                                 attiniConfig),
-                                                                       deployTime,
-                                                                       distributionData,
-                                                                       initDeployStackConfig),
-                                         () -> {
-                                             if (attiniConfig.getAppConfig().isEmpty()){
-                                                 deployDataFacade.savePlatformDeployment(SaveDeploymentDataRequest.builder()
-                                                                                                                  .distributionData(
-                                                                                                        distributionData)
-                                                                                                                  .distributionContext(
-                                                                                                        createDistributionContext(
-                                                                                                                initDeployEvent,
-                                                                                                                attiniConfig))
-                                                                                                                  .deployTime(deployTime)
-                                                                                                                  .isUnchanged(false)
-                                                                                                                  .build());
-                                             }
-                                             validateDependencies(initDeployEvent.getEnvironmentName(), attiniConfig);
-                                         }
-                        );
-
-
-            monitoringFacade.sendInitDeployEvent(distributionData, initDeployEvent.getEnvironmentName());
-            cleanup.join();
+            Environment environment = initDeployEvent.getEnvironmentName();
+            DistributionContext distributionContext = createDistributionContext(initDeployEvent, attiniConfig);
+
+            StageGraph stages = new StageGraph(stageExecutor, stageMetrics);
+
+            // A stage like any other, so that it has completed and been recorded before the metrics are published
+            // even if another stage fails
+            stages.stage(CLEANUP_STAGE,
+                         () -> lifeCycleService.cleanupAfterDeploy(attiniConfig.getAttiniDistributionName(),
+                                                                   environment,
+                                                                   initDeployEvent.getS3Bucket())
+                                               .join());
+
+            CompletableFuture<Void> latestReference =
+                    stages.stage("putLatestDistributionReference",
+                                 () -> putLatestDistributionReferenceParameter.putParameter(attiniConfig, environment));
+
+            CompletableFuture<Void> distributionSaved =
+                    stages.stage("saveDistributionData",
+                                 () -> distributionDataFacade.saveDistributionData(attiniConfig,
+                                                                                   initDeployEvent,
+                                                                                   distributionData.getArtifactPath()));
+
+            CompletableFuture<Void> dependenciesValidated =
+                    stages.stage("validateDependencies", () -> validateDependencies(environment, attiniConfig));
+
+            Optional<InitDeployStackConfig> initDeployStackConfig = attiniConfig.getAttiniInitDeployStackConfig();
+
+            CompletableFuture<Boolean> shouldDeployNewStack =
+                    stages.stage("compareInitDeployStack",
+                                 () -> initDeployStackConfig.map(config -> shouldDeployNewsStack(distributionData, config))
+                                                            .orElse(false));
+
+            CompletableFuture<Void> appDeploymentPlan =
+                    attiniConfig.getAppConfig()
+                                .map(appConfig -> stages.stage("runAppDeploymentPlan",
+                                                               () -> appDeploymentFacade.runAppDeploymentPlan(appConfig,
+                                                                                                              distributionContext,
+                                                                                                              distributionData,
+                                                                                                              deployTime),
+                                                               latestReference,
+                                                               distributionSaved))
+                                .orElseGet(() -> CompletableFuture.completedFuture(null));
+
+            // The app deployment plan saves a deploy record with the same keys, the platform deployment is saved
+            // after it so that it is the record that is kept
+            CompletableFuture<Void> deploymentSaved =
+                    stages.stage("savePlatformDeployment",
+                                 () -> savePlatformDeployment(distributionContext,
+                                                              deployTime,
+                                                              distributionData,
+                                                              shouldDeployNewStack.join()),
+                                 shouldDeployNewStack,
+                                 appDeploymentPlan);
+
+            initDeployStackConfig.ifPresent(config -> stages.stage("handleInitDeployStack",
+                                                                   () -> handelInitDeployStack(distributionContext,
+                                                                                               deployTime,
+                                                                                               distributionData,
+                                                                                               config,
+                                                                                               shouldDeployNewStack.join()),
+                                                                   latestReference,
+                                                                   distributionSaved,
+                                                                   dependenciesValidated,
+                                                                   deploymentSaved));
+
+            stages.awaitAll();
+
+            monitoringFacade.sendInitDeployEvent(distributionData, environment);
         } catch (PublishDistributionException e) {
             logger.error("There was an error publishing distribution", e);
             deployDataFacade.savePlatformDeployment(SaveDeploymentDataRequest.builder()
@@ -142,6 +178,8 @@ public class InitDeployService {
                                                                              .build());
             throw new InitDeployException("Failed to publish distribution", e);
 
+        } finally {
+            metricsPublisher.publish(stageMetrics);
         }
     }
 
@@ -165,22 +203,28 @@ public class InitDeployService {
                                       .build();
     }
 
-    private void handelInitDeployStack(DistributionContext distributionContext,
-                                       long deployTime,
-                                       DistributionData distributionData,
-                                       InitDeployStackConfig initDeployStackConfig) {
-
-        boolean shouldDeployNewsStack = shouldDeployNewsStack(distributionData,
-                                                              initDeployStackConfig);
-
+    private void savePlatformDeployment(DistributionContext distributionContext,
+                                        long deployTime,
+                                        DistributionData distributionData,
+                                        boolean shouldDeployNewStack) {
+        AttiniConfig attiniConfig = distributionData.getAttiniConfig();
+        if (attiniConfig.getAttiniInitDeployStackConfig().isEmpty() && attiniConfig.getAppConfig().isPresent()) {
+            return;
+        }
+        boolean isUnchanged = attiniConfig.getAttiniInitDeployStackConfig().isPresent() && !shouldDeployNewStack;
         deployDataFacade.savePlatformDeployment(SaveDeploymentDataRequest.builder()
                                                                          .deployTime(deployTime)
                                                                          .distributionContext(distributionContext)
-                                                                         .isUnchanged(!shouldDeployNewsStack)
+                                                                         .isUnchanged(isUnchanged)
                                                                          .distributionData(distributionData)
                                                                          .build());
+    }
 
-        validateDependencies(distributionContext.getEnvironment(), distributionData.getAttiniConfig());
+    private void handelInitDeployStack(DistributionContext distributionContext,
+                                       long deployTime,
+                                       DistributionData distributionData,
+                                       InitDeployStackConfig initDeployStackConfig,
+                                       boolean shouldDeployNewsStack) {
 
         if (shouldDeployNewsStack) {
 
@@ -204,53 +248,67 @@ public class InitDeployService {
 
     private void validateDependencies(Environment environment,
                                       AttiniConfig attiniConfig) {
-        for (DistributionDependency dependency : attiniConfig.getDependencies()) {
-
-            Distribution distribution =
-                    distributionDataFacade.getDistribution(dependency.distributionName(), environment)
-                                          .orElseThrow(() -> new PublishDistributionException(
-                                                  attiniConfig.getAttiniDistributionName(),
-                                                  attiniConfig.getAttiniDistributionId(),
-                                                  "Failed to publish distribution. Unsatisfied dependency = " + dependency.distributionName()
-                                                                                                                          .asString() + ", distribution is not present in current environment"));
-
-            if (dependency.version() != null) {
-                String requiredVersion = distribution.getVersion()
-                                                     .map(Version::asString)
-                                                     .orElseThrow(() -> new PublishDistributionException(
-                                                             attiniConfig.getAttiniDistributionName(),
-                                                             attiniConfig.getAttiniDistributionId(),
-                                                             "Failed to publish distribution. Unsatisfied dependency = %s, dependency is present in environment but has no version".formatted(
-                                                                     dependency.distributionName()
-                                                                               .asString())));
-
-                Semver semver = new Semver(requiredVersion, Semver.SemverType.NPM);
-
-                boolean satisfies = semver.satisfies(dependency.version());
-
-                if (!satisfies) {
-                    throw new PublishDistributionException(
-                            attiniConfig.getAttiniDistributionName(),
-                            attiniConfig.getAttiniDistributionId(),
-                            "Failed to publish distribution. Unsatisfied dependency = %s, dependency is present in environment but but does not match version. Version requirement = %s, deployed version = %s".formatted(
-                                    dependency.distributionName()
-                                              .asString(),
-                                    dependency.version(),
-                                    requiredVersion));
-                }
+        List<DistributionDependency> dependencies = attiniConfig.getDependencies();
+        if (dependencies.isEmpty()) {
+            return;
+        }
+        List<DistributionName> dependencyNames = dependencies.stream()
+                                                             .map(DistributionDependency::distributionName)
+                                                             .toList();
+
+        // The distributions and their latest deploys live in different tables, both are read in one batch each
+        CompletableFuture<Map<DistributionName, DeployData>> latestDeploys =
+                CompletableFuture.supplyAsync(() -> deployDataFacade.getLatestDeployData(dependencyNames, environment),
+                                               stageExecutor);
+        Map<DistributionName, Distribution> distributions = distributionDataFacade.getDistributions(dependencyNames,
+                                                                                                    environment);
+        Map<DistributionName, DeployData> latestDeployData = latestDeploys.join();
+
+        List<String> unsatisfied = dependencies.stream()
+                                               .map(dependency -> validateDependency(dependency,
+                                                                                     distributions.get(dependency.distributionName()),
+                                                                                     latestDeployData.get(dependency.distributionName())))
+                                               .flatMap(Optional::stream)
+                                               .toList();
+
+        if (!unsatisfied.isEmpty()) {
+            throw new PublishDistributionException(attiniConfig.getAttiniDistributionName(),
+                                                   attiniConfig.getAttiniDistributionId(),
+                                                   "Failed to publish distribution. " + String.join(". ", unsatisfied));
+        }
+    }
+
+    private static Optional<String> validateDependency(DistributionDependency dependency,
+                                                       Distribution distribution,
+                                                       DeployData latestDeployData) {
+        String dependencyName = dependency.distributionName().asString();
+        if (distribution == null) {
+            return Optional.of("Unsatisfied dependency = " + dependencyName + ", distribution is not present in current environment");
+        }
+
+        if (dependency.version() != null) {
+            Optional<String> deployedVersion = distribution.getVersion().map(Version::asString);
+            if (deployedVersion.isEmpty()) {
+                return Optional.of("Unsatisfied dependency = %s, dependency is present in environment but has no version".formatted(
+                        dependencyName));
             }
 
-            deployDataFacade.getLatestDeployData(dependency.distributionName(), environment)
-                            .getErrorMessage()
-                            .ifPresent(s -> {
-                                throw new PublishDistributionException(attiniConfig.getAttiniDistributionName(),
-                                                                       attiniConfig.getAttiniDistributionId(),
-                                                                       "Failed to publish distribution. Unsatisfied dependency = " + dependency.distributionName()
-                                                                                                                                               .asString() + ", latest deployment of dependency failed with message = " + s);
-                            });
+            Semver semver = new Semver(deployedVersion.get(), Semver.SemverType.NPM);
 
+            if (!semver.satisfies(dependency.version())) {
+                return Optional.of(
+                        "Unsatisfied dependency = %s, dependency is present in environment but but does not match version. Version requirement = %s, deployed version = %s".formatted(
+                                dependencyName,
+                                dependency.version(),
+                                deployedVersion.get()));
+            }
+        }
 
+        if (latestDeployData != null && latestDeployData.getErrorMessage().isPresent()) {
+            return Optional.of("Unsatisfied dependency = " + dependencyName + ", latest deployment of dependency failed with message = " + latestDeployData.getErrorMessage()
+                                                                                                                                                              .get());
         }
+        return Optional.empty();
     }
 
     private boolean shouldDeployNewsStack(DistributionData distributionData,
@@ -275,7 +333,8 @@ public class InitDeployService {
             deployInitStackService.deployInitStack(distributionContext,
                                                    initDeployStackConfig,
                                                    distributionData.getArtifactPath(),
-                                                   distributionData.getAttiniConfig().getAttiniDistributionTags());
+                                                   distributionData.getAttiniConfig().getAttiniDistributionTags(),
+                                                   distributionData.getTemplateParameterKeys());
 
         } catch (DeployInitStackException e) {
             dynamoInitDeployStackFacade.setInitDeployError(initDeployStackConfig, e.getAwsErrorMessage());
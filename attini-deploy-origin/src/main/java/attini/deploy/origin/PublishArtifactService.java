@@ -7,12 +7,22 @@ package attini.deploy.origin;
 
 import static java.util.Objects.requireNonNull;
 
-import java.io.FileInputStream;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
 import java.text.MessageFormat;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.Callable;
 import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 import org.apache.commons.codec.digest.DigestUtils;
@@ -21,74 +31,183 @@ import org.jboss.logging.Logger;
 
 import attini.deploy.origin.config.AttiniConfig;
 import attini.deploy.origin.config.AttiniConfigFactory;
+import attini.deploy.origin.config.ConfigFileResolver;
 import attini.deploy.origin.config.InitDeployStackConfig;
+import attini.deploy.origin.deploystack.TemplateParameterParser;
+import attini.deploy.origin.manifest.DistributionManifest;
+import attini.deploy.origin.manifest.DistributionManifestFacade;
+import attini.deploy.origin.metrics.StageMetrics;
 import attini.deploy.origin.s3.S3Facade;
 import attini.deploy.origin.s3.TagOriginObjectService;
+import attini.deploy.origin.s3.UploadScheduler;
 import attini.deploy.origin.system.EnvironmentVariables;
+import attini.deploy.origin.zip.ContentDigest;
+import attini.deploy.origin.zip.ExtractionResult;
+import attini.deploy.origin.zip.FileDigest;
+import attini.deploy.origin.zip.IndexedFile;
+import attini.deploy.origin.zip.TailCachingZipRangeReader;
+import attini.deploy.origin.zip.ZipCentralDirectory;
+import attini.deploy.origin.zip.ZipDirectoryEntry;
+import attini.deploy.origin.zip.ZipRangeReader;
 import attini.deploy.origin.zip.ZipUtil;
 import attini.domain.DistributionId;
 import attini.domain.DistributionName;
+import software.amazon.awssdk.core.ResponseInputStream;
+import software.amazon.awssdk.services.s3.model.GetObjectResponse;
 
 public class PublishArtifactService {
 
     private static final Logger logger = Logger.getLogger(InitDeployService.class);
-
+    private static final int MAX_BUFFERED_ENTRY_SIZE = 4 * 1024 * 1024;
+    private static final String DOWNLOAD_STAGE = "download";
+    private static final String UNZIP_STAGE = "unzip";
+    private static final String PARSE_CONFIG_STAGE = "parseConfig";
+    private static final String TAG_STAGE = "tagOrigin";
+    private static final String UPLOAD_STAGE = "uploadDirectory";
+    private static final String COPY_DISTRIBUTION_STAGE = "copyDistributionZip";
 
     private final S3Facade s3Facade;
     private final AttiniConfigFactory attiniConfigFactory;
     private final EnvironmentVariables environmentVariables;
     private final TagOriginObjectService tagOriginObjectService;
+    private final ConfigFileResolver configFileResolver;
+    private final DistributionDataFacade distributionDataFacade;
+    private final DistributionManifestFacade distributionManifestFacade;
+    private final PublishModeSelector publishModeSelector;
 
     public PublishArtifactService(S3Facade s3Facade,
                                   AttiniConfigFactory attiniConfigFactory,
                                   EnvironmentVariables environmentVariables,
-                                  TagOriginObjectService tagOriginObjectService) {
+                                  TagOriginObjectService tagOriginObjectService,
+                                  ConfigFileResolver configFileResolver,
+                                  DistributionDataFacade distributionDataFacade,
+                                  DistributionManifestFacade distributionManifestFacade,
+                                  PublishModeSelector publishModeSelector) {
         this.s3Facade = requireNonNull(s3Facade, "s3Facade");
         this.attiniConfigFactory = requireNonNull(attiniConfigFactory, "attiniConfigFactory");
         this.environmentVariables = requireNonNull(environmentVariables, "environmentVariables");
         this.tagOriginObjectService = requireNonNull(tagOriginObjectService, "tagOriginObjectService");
+        this.configFileResolver = requireNonNull(configFileResolver, "configFileResolver");
+        this.distributionDataFacade = requireNonNull(distributionDataFacade, "distributionDataFacade");
+        this.distributionManifestFacade = requireNonNull(distributionManifestFacade, "distributionManifestFacade");
+        this.publishModeSelector = requireNonNull(publishModeSelector, "publishModeSelector");
     }
 
-    public DistributionData publishDistribution(InitDeployEvent initDeployEvent) {
+    /**
+     * @param stageMetrics records the duration and size of every publish stage
+     */
+    public DistributionData publishDistribution(InitDeployEvent initDeployEvent, StageMetrics stageMetrics) {
 
-        byte[] file = s3Facade.downloadS3File(initDeployEvent.getS3Bucket(), initDeployEvent.getS3Key());
+        Optional<PublishMode> configuredMode = environmentVariables.getPublishMode();
+        if (configuredMode.filter(PublishArtifactService::extractsToDisk).isPresent()) {
+            logger.info("Publishing distribution using configured publish mode " + configuredMode.get());
+            return publishExtracted(initDeployEvent, configuredMode.get(), stageMetrics);
+        }
 
-        Path zipDir = ZipUtil.unzip(file);
-        try {
+        TailCachingZipRangeReader rangeReader = new TailCachingZipRangeReader(s3Facade.rangeReader(initDeployEvent.getS3Bucket(),
+                                                                                                   initDeployEvent.getS3Key(),
+                                                                                                   initDeployEvent.getS3ObjectVersion()));
+        Optional<ZipCentralDirectory> centralDirectory = readCentralDirectory(rangeReader);
+        if (centralDirectory.isEmpty()) {
+            // Extracting with a zip stream does not depend on the central directory
+            logger.info("Publishing distribution using publish mode " + PublishMode.STAGED);
+            return publishExtracted(initDeployEvent, PublishMode.STAGED, stageMetrics);
+        }
+
+        if (configuredMode.isPresent()) {
+            logger.info("Publishing distribution using configured publish mode " + configuredMode.get());
+            return publishEntries(initDeployEvent,
+                                  configuredMode.get(),
+                                  rangeReader,
+                                  centralDirectory.get(),
+                                  stageMetrics);
+        }
 
-            AttiniConfig attiniConfig = attiniConfigFactory.createAttiniConfig(zipDir, initDeployEvent);
+        try (PublishModeSelector.Reservation reservation = publishModeSelector.select(rangeReader.size(),
+                                                                                      centralDirectory.get())) {
+            PublishMode publishMode = reservation.getPublishMode();
+            logger.info("Publishing distribution using publish mode " + publishMode);
+            return extractsToDisk(publishMode)
+                   ? publishExtracted(initDeployEvent, publishMode, stageMetrics)
+                   : publishEntries(initDeployEvent, publishMode, rangeReader, centralDirectory.get(), stageMetrics);
+        }
+    }
 
-            logger.info("Attini config successfully created");
-            logger.info(attiniConfig);
+    /**
+     * Publishes the entries straight from the archive, either held in memory or streamed from S3.
+     */
+    private DistributionData publishEntries(InitDeployEvent initDeployEvent,
+                                            PublishMode publishMode,
+                                            TailCachingZipRangeReader rangeReader,
+                                            ZipCentralDirectory centralDirectory,
+                                            StageMetrics stageMetrics) {
+        if (publishMode == PublishMode.DIRECT) {
+            return publishEntries(initDeployEvent,
+                                  rangeReader,
+                                  centralDirectory,
+                                  () -> s3Facade.openS3File(initDeployEvent.getS3Bucket(),
+                                                            initDeployEvent.getS3Key(),
+                                                            initDeployEvent.getS3ObjectVersion()),
+                                  stageMetrics);
+        }
+        // The end of the archive has already been read together with the central directory
+        byte[] distribution = stageMetrics.measure(DOWNLOAD_STAGE, rangeReader::readAll);
+        stageMetrics.recordBytes(DOWNLOAD_STAGE, distribution.length);
+        return publishEntries(initDeployEvent,
+                              ZipRangeReader.of(distribution),
+                              centralDirectory,
+                              () -> new ByteArrayInputStream(distribution),
+                              stageMetrics);
+    }
 
-            tagOriginObjectService.tagOriginObject(initDeployEvent, attiniConfig);
+    private static boolean extractsToDisk(PublishMode publishMode) {
+        return publishMode == PublishMode.STAGED || publishMode == PublishMode.PARALLEL;
+    }
 
-            String artifactPath = MessageFormat.format("{0}/{1}/{2}/{3}",
-                                                       initDeployEvent.getEnvironmentName().asString(),
-                                                       attiniConfig.getAttiniDistributionName().asString(),
-                                                       attiniConfig.getAttiniDistributionId().asString(),
-                                                       "distribution-origin");
-            logger.info("Beginning to upload distribution files to artifact store");
-            s3Facade.uploadDirectory(
-                    zipDir,
-                    environmentVariables.getArtifactBucket(),
-                    artifactPath, attiniConfig.getAttiniDistributionName(), attiniConfig.getAttiniDistributionId());
+    private static Optional<ZipCentralDirectory> readCentralDirectory(ZipRangeReader rangeReader) {
+        try {
+            return Optional.of(ZipCentralDirectory.read(rangeReader));
+        } catch (RuntimeException e) {
+            logger.warn("Could not read the central directory of the distribution, falling back to publish mode " + PublishMode.STAGED,
+                        e);
+            return Optional.empty();
+        }
+    }
 
-            logger.info("Done uploading distribution files to artifact store");
-            logger.info("Beginning to upload distribution zip to artifact store");
+    private DistributionData publishExtracted(InitDeployEvent initDeployEvent,
+                                              PublishMode publishMode,
+                                              StageMetrics stageMetrics) {
+        ExtractionResult extraction = publishMode == PublishMode.PARALLEL
+                                      ? unzipDistributionParallel(initDeployEvent, stageMetrics)
+                                      : stageMetrics.measure(UNZIP_STAGE, () -> unzipDistribution(initDeployEvent));
+        recordFiles(stageMetrics, UNZIP_STAGE, extraction);
+        return publishAndCleanUp(initDeployEvent,
+                                 extraction.getDirectory(),
+                                 () -> publishDirectory(initDeployEvent, extraction, stageMetrics));
+    }
 
-            s3Facade.uploadFile(file,
-                                environmentVariables.getArtifactBucket(),
-                                artifactPath,
-                                initDeployEvent.getFileName());
+    private DistributionData publishEntries(InitDeployEvent initDeployEvent,
+                                            ZipRangeReader rangeReader,
+                                            ZipCentralDirectory centralDirectory,
+                                            Supplier<InputStream> distribution,
+                                            StageMetrics stageMetrics) {
+        Path localDir = createTempDirectory();
+        return publishAndCleanUp(initDeployEvent,
+                                 localDir,
+                                 () -> publishZipEntries(initDeployEvent,
+                                                         localDir,
+                                                         rangeReader,
+                                                         centralDirectory,
+                                                         distribution,
+                                                         stageMetrics));
+    }
 
-            logger.info("Done uploading distribution zip to artifact store");
+    private DistributionData publishAndCleanUp(InitDeployEvent initDeployEvent,
+                                               Path directory,
+                                               Callable<DistributionData> publish) {
+        try {
 
-            return new DistributionData(attiniConfig,
-                                        artifactPath,
-                                        attiniConfig.getAttiniInitDeployStackConfig()
-                                                    .map(createMd5Hex(initDeployEvent, zipDir))
-                                                    .orElse(null));
+            return publish.call();
 
         } catch (AttiniConfigException e) {
             throw new PublishDistributionException(e.getDistributionName(), e.getDistributionId(), e);
@@ -97,11 +216,322 @@ public class PublishArtifactService {
                                                    DistributionId.of("undefined"),
                                                    e);
         } finally {
-            cleanUp(zipDir);
+            cleanUp(directory);
         }
     }
 
-    private Function<InitDeployStackConfig, String> createMd5Hex(InitDeployEvent initDeployEvent, Path zipDir) {
+    private DistributionData publishDirectory(InitDeployEvent initDeployEvent,
+                                              ExtractionResult extraction,
+                                              StageMetrics stageMetrics) {
+
+        AttiniConfig attiniConfig = createAttiniConfig(initDeployEvent, extraction, stageMetrics);
+        String artifactPath = createArtifactPath(initDeployEvent, attiniConfig);
+
+        Optional<DistributionManifest> previousManifest = getPreviousManifest(initDeployEvent, attiniConfig);
+
+        logger.info("Beginning to upload distribution files to artifact store");
+        int retries = stageMetrics.measure(UPLOAD_STAGE, () -> s3Facade.uploadDirectory(
+                extraction,
+                environmentVariables.getArtifactBucket(),
+                artifactPath, attiniConfig.getAttiniDistributionName(), attiniConfig.getAttiniDistributionId(),
+                previousManifest));
+        recordFiles(stageMetrics, UPLOAD_STAGE, extraction);
+        stageMetrics.recordRetries(UPLOAD_STAGE, retries);
+
+        logger.info("Done uploading distribution files to artifact store");
+
+        return completePublish(initDeployEvent, attiniConfig, artifactPath, extraction, stageMetrics);
+    }
+
+    /**
+     * Uploads every zip entry to the artifact store while the zip is decoded. The central directory is read up front
+     * so that the attini-config can be resolved before the artifact path is known, only the attini-config and the
+     * init stack template are written to the local directory.
+     */
+    private DistributionData publishZipEntries(InitDeployEvent initDeployEvent,
+                                               Path localDir,
+                                               ZipRangeReader rangeReader,
+                                               ZipCentralDirectory centralDirectory,
+                                               Supplier<InputStream> distribution,
+                                               StageMetrics stageMetrics) throws IOException {
+
+        Map<String, IndexedFile> configFiles = new HashMap<>();
+        for (ZipDirectoryEntry entry : centralDirectory.getEntries()) {
+            ZipUtil.validateEntryName(entry.name());
+            if (!entry.isDirectory() && configFileResolver.isAttiniConfigFile(entry.name())) {
+                try (InputStream content = ZipCentralDirectory.openEntry(rangeReader, entry);
+                     OutputStream outputStream = Files.newOutputStream(localDir.resolve(entry.name()))) {
+                    configFiles.put(entry.name(),
+                                    IndexedFile.of(entry.name(),
+                                                   ContentDigest.copy(content, outputStream),
+                                                   configFileResolver::isAttiniConfigFile));
+                }
+            }
+        }
+
+        AttiniConfig attiniConfig = createAttiniConfig(initDeployEvent,
+                                                       new ExtractionResult(localDir, configFiles),
+                                                       stageMetrics);
+        String artifactPath = createArtifactPath(initDeployEvent, attiniConfig);
+
+        Map<String, Long> entrySizes = centralDirectory.getEntries()
+                                                       .stream()
+                                                       .filter(entry -> !entry.isDirectory())
+                                                       .collect(Collectors.toMap(ZipDirectoryEntry::name,
+                                                                                 ZipDirectoryEntry::size,
+                                                                                 (first, second) -> second));
+        s3Facade.validateFileNames(entrySizes.keySet(),
+                                   attiniConfig.getAttiniDistributionName(),
+                                   attiniConfig.getAttiniDistributionId());
+
+        Optional<Path> templatePath = attiniConfig.getAttiniInitDeployStackConfig()
+                                                  .map(InitDeployStackConfig::getAttiniInitDeployTemplatePath)
+                                                  .map(PublishArtifactService::toEntryPath);
+
+        Optional<DistributionManifest> previousManifest = getPreviousManifest(initDeployEvent, attiniConfig);
+
+        logger.info("Beginning to upload distribution entries to artifact store");
+        long start = System.currentTimeMillis();
+        ExtractionResult extraction = uploadZipEntries(distribution,
+                                                       localDir,
+                                                       artifactPath,
+                                                       entrySizes,
+                                                       templatePath,
+                                                       previousManifest,
+                                                       stageMetrics);
+        // Download, unzip and upload overlap in this mode so they are reported as a single stage
+        stageMetrics.recordDuration(UPLOAD_STAGE, System.currentTimeMillis() - start);
+        recordFiles(stageMetrics, UPLOAD_STAGE, extraction);
+        logger.info("Done uploading distribution entries to artifact store");
+
+        return completePublish(initDeployEvent, attiniConfig, artifactPath, extraction, stageMetrics);
+    }
+
+    /**
+     * Entries that are too large to be buffered are spooled to the local directory so that their digest is known
+     * before they are submitted. A spooled file is removed as soon as its upload is done, so the upload window also
+     * bounds the disk used for them.
+     */
+    private ExtractionResult uploadZipEntries(Supplier<InputStream> distributionSupplier,
+                                              Path localDir,
+                                              String artifactPath,
+                                              Map<String, Long> entrySizes,
+                                              Optional<Path> templatePath,
+                                              Optional<DistributionManifest> previousManifest,
+                                              StageMetrics stageMetrics) throws IOException {
+        String artifactBucket = environmentVariables.getArtifactBucket();
+        UploadScheduler uploadScheduler = s3Facade.createUploadScheduler();
+        Map<String, IndexedFile> files = new HashMap<>();
+
+        try (InputStream distribution = distributionSupplier.get()) {
+            ZipUtil.forEachFile(distribution, (zipEntry, content) -> {
+                String name = zipEntry.getName();
+                if (!entrySizes.containsKey(name)) {
+                    // The config and the artifact path were resolved from the central directory
+                    throw new IOException("Entry is not listed in the central directory: " + name);
+                }
+                String key = artifactPath + "/" + name;
+                long size = entrySizes.get(name);
+
+                if (templatePath.filter(toEntryPath(name)::equals).isPresent()) {
+                    Path templateFile = localDir.resolve(name);
+                    Files.createDirectories(templateFile.getParent());
+                    FileDigest digest;
+                    try (OutputStream outputStream = Files.newOutputStream(templateFile)) {
+                        digest = ContentDigest.copy(content, outputStream);
+                    }
+                    addFile(files, name, digest);
+                    s3Facade.submitArtifact(uploadScheduler,
+                                            artifactBucket,
+                                            key,
+                                            digest.size(),
+                                            findUnchangedKey(previousManifest, name, digest),
+                                            () -> s3Facade.uploadFile(templateFile, artifactBucket, key, digest));
+                } else if (size >= 0 && size <= MAX_BUFFERED_ENTRY_SIZE) {
+                    byte[] bytes = content.readAllBytes();
+                    FileDigest digest = ContentDigest.of(bytes);
+                    addFile(files, name, digest);
+                    s3Facade.submitArtifact(uploadScheduler,
+                                            artifactBucket,
+                                            key,
+                                            bytes.length,
+                                            findUnchangedKey(previousManifest, name, digest),
+                                            () -> s3Facade.uploadBytes(bytes, artifactBucket, key, digest));
+                } else {
+                    Path spoolFile = Files.createTempFile(localDir, "entry", null);
+                    FileDigest digest;
+                    try (OutputStream outputStream = Files.newOutputStream(spoolFile)) {
+                        digest = ContentDigest.copy(content, outputStream);
+                    }
+                    addFile(files, name, digest);
+                    s3Facade.submitArtifact(uploadScheduler,
+                                            artifactBucket,
+                                            key,
+                                            digest.size(),
+                                            findUnchangedKey(previousManifest, name, digest),
+                                            () -> s3Facade.uploadFile(spoolFile, artifactBucket, key, digest),
+                                            () -> FileUtils.deleteQuietly(spoolFile.toFile()));
+                }
+            });
+        }
+        uploadScheduler.awaitCompletion();
+        stageMetrics.recordRetries(UPLOAD_STAGE, uploadScheduler.getRetries());
+        return new ExtractionResult(localDir, files);
+    }
+
+    private void addFile(Map<String, IndexedFile> files, String name, FileDigest digest) {
+        String path = ExtractionResult.toRelativePath(name);
+        files.put(path, IndexedFile.of(path, digest, configFileResolver::isAttiniConfigFile));
+    }
+
+    private static Optional<String> findUnchangedKey(Optional<DistributionManifest> previousManifest,
+                                                     String path,
+                                                     FileDigest digest) {
+        return previousManifest.flatMap(manifest -> manifest.findUnchangedKey(ExtractionResult.toRelativePath(path),
+                                                                               digest.sha256Hex(),
+                                                                               digest.size()));
+    }
+
+    private Optional<DistributionManifest> getPreviousManifest(InitDeployEvent initDeployEvent,
+                                                               AttiniConfig attiniConfig) {
+        return distributionDataFacade.getDistribution(attiniConfig.getAttiniDistributionName(),
+                                                      initDeployEvent.getEnvironmentName())
+                                     .flatMap(distribution -> distributionManifestFacade.getManifest(
+                                             environmentVariables.getArtifactBucket(),
+                                             DistributionManifest.manifestKey(initDeployEvent.getEnvironmentName(),
+                                                                              distribution.getDistributionName(),
+                                                                              distribution.getDistributionId())));
+    }
+
+    private AttiniConfig createAttiniConfig(InitDeployEvent initDeployEvent,
+                                            ExtractionResult extraction,
+                                            StageMetrics stageMetrics) {
+        AttiniConfig attiniConfig = stageMetrics.measure(PARSE_CONFIG_STAGE,
+                                                         () -> attiniConfigFactory.createAttiniConfig(extraction,
+                                                                                                      initDeployEvent));
+        stageMetrics.setDistributionName(attiniConfig.getAttiniDistributionName());
+
+        logger.info("Attini config successfully created");
+        logger.info(attiniConfig);
+
+        stageMetrics.measure(TAG_STAGE, () -> tagOriginObjectService.tagOriginObject(initDeployEvent, attiniConfig));
+        return attiniConfig;
+    }
+
+    private static void recordFiles(StageMetrics stageMetrics, String stage, ExtractionResult extraction) {
+        stageMetrics.recordObjects(stage, extraction.getFiles().size());
+        stageMetrics.recordBytes(stage, extraction.getFiles().values().stream().mapToLong(IndexedFile::size).sum());
+    }
+
+    private static String createArtifactPath(InitDeployEvent initDeployEvent, AttiniConfig attiniConfig) {
+        return MessageFormat.format("{0}/{1}/{2}/{3}",
+                                    initDeployEvent.getEnvironmentName().asString(),
+                                    attiniConfig.getAttiniDistributionName().asString(),
+                                    attiniConfig.getAttiniDistributionId().asString(),
+                                    "distribution-origin");
+    }
+
+    private DistributionData completePublish(InitDeployEvent initDeployEvent,
+                                             AttiniConfig attiniConfig,
+                                             String artifactPath,
+                                             ExtractionResult extraction,
+                                             StageMetrics stageMetrics) {
+        logger.info("Beginning to copy distribution zip to artifact store");
+
+        String distributionKey = artifactPath + "/" + initDeployEvent.getFileName();
+        long distributionSize = stageMetrics.measure(COPY_DISTRIBUTION_STAGE,
+                                                     () -> copyDistributionZip(initDeployEvent, distributionKey));
+        stageMetrics.recordBytes(COPY_DISTRIBUTION_STAGE, distributionSize);
+        stageMetrics.recordObjects(COPY_DISTRIBUTION_STAGE, 1);
+
+        logger.info("Done copying distribution zip to artifact store");
+
+        distributionManifestFacade.saveManifest(environmentVariables.getArtifactBucket(),
+                                                DistributionManifest.manifestKey(initDeployEvent.getEnvironmentName(),
+                                                                                 attiniConfig.getAttiniDistributionName(),
+                                                                                 attiniConfig.getAttiniDistributionId()),
+                                                DistributionManifest.of(artifactPath,
+                                                                        distributionKey,
+                                                                        extraction.getFiles().values()));
+
+        return new DistributionData(attiniConfig,
+                                    artifactPath,
+                                    attiniConfig.getAttiniInitDeployStackConfig()
+                                                .map(createMd5Hex(initDeployEvent, extraction))
+                                                .orElse(null),
+                                    attiniConfig.getAttiniInitDeployStackConfig()
+                                                .flatMap(stackConfig -> parseTemplateParameterKeys(extraction,
+                                                                                                   stackConfig))
+                                                .orElse(null));
+    }
+
+    /**
+     * The template is still on local disk at this point, reading its parameters here saves the init stack deploy
+     * from asking CloudFormation for them.
+     */
+    private static Optional<Set<String>> parseTemplateParameterKeys(ExtractionResult extraction,
+                                                                    InitDeployStackConfig initDeployStackConfig) {
+        Path template = extraction.getDirectory()
+                                  .resolve(ExtractionResult.toRelativePath(initDeployStackConfig.getAttiniInitDeployTemplatePath()));
+        if (!Files.isRegularFile(template)) {
+            return Optional.empty();
+        }
+        return TemplateParameterParser.parseParameterKeys(template);
+    }
+
+    private static Path toEntryPath(String name) {
+        return Path.of("/", name).normalize();
+    }
+
+    private static Path createTempDirectory() {
+        try {
+            return Files.createTempDirectory("");
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private ExtractionResult unzipDistribution(InitDeployEvent initDeployEvent) {
+        try (ResponseInputStream<GetObjectResponse> distribution = s3Facade.openS3File(initDeployEvent.getS3Bucket(),
+                                                                                       initDeployEvent.getS3Key(),
+                                                                                       initDeployEvent.getS3ObjectVersion())) {
+            return ZipUtil.unzip(distribution, configFileResolver::isAttiniConfigFile);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private ExtractionResult unzipDistributionParallel(InitDeployEvent initDeployEvent, StageMetrics stageMetrics) {
+        Path downloadDir = createTempDirectory();
+        try {
+            Path zipFile = downloadDir.resolve(initDeployEvent.getFileName());
+            stageMetrics.measure(DOWNLOAD_STAGE,
+                                 () -> s3Facade.downloadS3File(initDeployEvent.getS3Bucket(),
+                                                               initDeployEvent.getS3Key(),
+                                                               initDeployEvent.getS3ObjectVersion(),
+                                                               zipFile));
+            stageMetrics.recordBytes(DOWNLOAD_STAGE, zipFile.toFile().length());
+            return stageMetrics.measure(UNZIP_STAGE,
+                                        () -> ZipUtil.unzipParallel(zipFile,
+                                                                    Math.max(2,
+                                                                             Runtime.getRuntime()
+                                                                                    .availableProcessors()),
+                                                                    configFileResolver::isAttiniConfigFile));
+        } finally {
+            cleanUp(downloadDir);
+        }
+    }
+
+    private long copyDistributionZip(InitDeployEvent initDeployEvent, String distributionKey) {
+        return s3Facade.copyFile(initDeployEvent.getS3Bucket(),
+                          initDeployEvent.getS3Key(),
+                          initDeployEvent.getS3ObjectVersion(),
+                          environmentVariables.getArtifactBucket(),
+                          distributionKey);
+    }
+
+    private Function<InitDeployStackConfig, String> createMd5Hex(InitDeployEvent initDeployEvent,
+                                                                 ExtractionResult extraction) {
         return attiniInitDeployStackConfig -> {
 
             String params = attiniInitDeployStackConfig
@@ -125,7 +555,7 @@ public class PublishArtifactService {
                     .map(entry -> entry.getKey() + entry.getValue()).sorted()
                     .collect(Collectors.joining());
 
-            String templateMd5Hex = createTemplateMd5Hex(zipDir,
+            String templateMd5Hex = createTemplateMd5Hex(extraction,
                                                          attiniInitDeployStackConfig);
 
             return DigestUtils.md5Hex(params + tags + variables + environmentVariables.getAttiniVersion()) + templateMd5Hex;
@@ -133,19 +563,11 @@ public class PublishArtifactService {
         };
     }
 
-    private String createTemplateMd5Hex(Path zipDir, InitDeployStackConfig initDeployStackConfig) {
-        try {
-            Path of = createTemplatePath(zipDir, initDeployStackConfig);
-
-            return DigestUtils.md5Hex(new FileInputStream(of.toFile()));
-        } catch (IOException e) {
-            throw new UncheckedIOException(e);
-        }
-    }
-
-    private Path createTemplatePath(Path zipDir, InitDeployStackConfig initDeployStackConfig) {
-        return Path.of(zipDir + "/" + initDeployStackConfig
-                .getAttiniInitDeployTemplatePath());
+    private String createTemplateMd5Hex(ExtractionResult extraction, InitDeployStackConfig initDeployStackConfig) {
+        String templatePath = initDeployStackConfig.getAttiniInitDeployTemplatePath();
+        return extraction.getDigest(templatePath)
+                         .map(FileDigest::md5Hex)
+                         .orElseThrow(() -> new UncheckedIOException(new NoSuchFileException(templatePath)));
     }
 
 
@@ -0,0 +1,23 @@
+package attini.deploy.origin;
+
+public enum PublishMode {
+    /**
+     * Download the distribution to memory and upload every entry as it is decoded, like {@link #DIRECT}. Needs room
+     * for the zip and the buffered entries on the heap.
+     */
+    IN_MEMORY,
+    /**
+     * Extract the distribution to a temporary directory and upload the directory.
+     */
+    STAGED,
+    /**
+     * Download the distribution to a temporary file and extract the entries concurrently, then upload the directory.
+     * Needs room for both the zip and the extracted files on ephemeral storage.
+     */
+    PARALLEL,
+    /**
+     * Upload every zip entry as it is decoded. Only the attini-config, the init stack template and entries too large
+     * to be buffered are written to disk, the latter only until they are uploaded.
+     */
+    DIRECT
+}
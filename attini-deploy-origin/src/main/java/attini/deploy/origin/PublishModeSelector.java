@@ -0,0 +1,124 @@
+package attini.deploy.origin;
+
+import static java.util.Objects.requireNonNull;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.function.LongSupplier;
+
+import org.jboss.logging.Logger;
+
+import attini.deploy.origin.zip.ZipCentralDirectory;
+import attini.deploy.origin.zip.ZipDirectoryEntry;
+
+/**
+ * Picks the publish mode for a distribution from the totals in its central directory. Distributions that fit in the
+ * memory budget are published without touching ephemeral storage, larger ones are extracted to disk if there is room
+ * for them and everything else is streamed.
+ *
+ * <p>Several distributions can be published at the same time by the same function instance, so the memory and disk
+ * a publish needs is reserved until the returned {@link Reservation} is closed and is not available to the publishes
+ * selected meanwhile. The usable temp space is read when selecting, so files that a running publish has already
+ * written are subtracted both from it and from the reservations. That errs on the side of not running out of disk.
+ */
+public class PublishModeSelector {
+
+    private static final Logger logger = Logger.getLogger(PublishModeSelector.class);
+
+    // Leaves room for files that are not part of the distribution, such as the attini-config copies and logs
+    private static final double USABLE_TEMP_SPACE_RATIO = 0.9;
+
+    // The whole archive is held in a byte array when published in memory
+    private static final long MAX_IN_MEMORY_ARCHIVE_SIZE = Integer.MAX_VALUE - 8;
+
+    private final long memoryBudget;
+    private final LongSupplier usableTempSpace;
+    private long reservedMemory;
+    private long reservedTempSpace;
+
+    public PublishModeSelector(long memoryBudget, LongSupplier usableTempSpace) {
+        this.memoryBudget = memoryBudget;
+        this.usableTempSpace = requireNonNull(usableTempSpace, "usableTempSpace");
+    }
+
+    /**
+     * Selects the publish mode and reserves the memory or disk it needs. The reservation has to be closed once the
+     * distribution has been published.
+     */
+    public synchronized Reservation select(long archiveSize, ZipCentralDirectory centralDirectory) {
+        long extractedSize = centralDirectory.getEntries().stream().mapToLong(ZipDirectoryEntry::size).sum();
+        long availableMemory = memoryBudget - reservedMemory;
+        long availableTempSpace = (long) (usableTempSpace.getAsLong() * USABLE_TEMP_SPACE_RATIO) - reservedTempSpace;
+
+        Reservation reservation;
+        if (archiveSize + extractedSize <= availableMemory && archiveSize <= MAX_IN_MEMORY_ARCHIVE_SIZE) {
+            reservation = new Reservation(PublishMode.IN_MEMORY, archiveSize + extractedSize, 0);
+        } else if (archiveSize + extractedSize <= availableTempSpace) {
+            reservation = new Reservation(PublishMode.PARALLEL, 0, archiveSize + extractedSize);
+        } else if (extractedSize <= availableTempSpace) {
+            reservation = new Reservation(PublishMode.STAGED, 0, extractedSize);
+        } else {
+            reservation = new Reservation(PublishMode.DIRECT, 0, 0);
+        }
+        reservedMemory += reservation.memory;
+        reservedTempSpace += reservation.tempSpace;
+
+        logger.info("Selected publish mode %s for a distribution with %d entries, %d bytes compressed and %d bytes extracted, available memory budget is %d bytes and available temp space is %d bytes"
+                            .formatted(reservation.publishMode,
+                                       centralDirectory.getEntries().size(),
+                                       archiveSize,
+                                       extractedSize,
+                                       availableMemory,
+                                       availableTempSpace));
+        return reservation;
+    }
+
+    private synchronized void release(Reservation reservation) {
+        reservedMemory -= reservation.memory;
+        reservedTempSpace -= reservation.tempSpace;
+    }
+
+    /**
+     * The selected publish mode together with the memory and temp space reserved for it.
+     */
+    public final class Reservation implements AutoCloseable {
+
+        private final PublishMode publishMode;
+        private final long memory;
+        private final long tempSpace;
+        private boolean released;
+
+        private Reservation(PublishMode publishMode, long memory, long tempSpace) {
+            this.publishMode = publishMode;
+            this.memory = memory;
+            this.tempSpace = tempSpace;
+        }
+
+        public PublishMode getPublishMode() {
+            return publishMode;
+        }
+
+        /**
+         * Releases the reserved memory and temp space, closing the reservation more than once has no effect.
+         */
+        @Override
+        public void close() {
+            synchronized (PublishModeSelector.this) {
+                if (!released) {
+                    released = true;
+                    release(this);
+                }
+            }
+        }
+    }
+
+    public static long usableTempSpace() {
+        try {
+            return Files.getFileStore(Path.of(System.getProperty("java.io.tmpdir"))).getUsableSpace();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
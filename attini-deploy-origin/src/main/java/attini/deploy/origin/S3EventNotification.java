@@ -0,0 +1,37 @@
+package attini.deploy.origin;
+
+import java.util.List;
+import java.util.Map;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * The parts of an S3 event notification that the init deploy needs, every other field of the event is ignored. The
+ * records are kept as maps and converted to {@link EventRecord} one at a time, so that a malformed record does not
+ * fail the conversion of the others.
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public record S3EventNotification(@JsonProperty("Records") List<Map<String, Object>> records) {
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public record EventRecord(@JsonProperty("s3") S3Entity s3,
+                              @JsonProperty("userIdentity") UserIdentity userIdentity) {
+    }
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public record S3Entity(@JsonProperty("bucket") Bucket bucket, @JsonProperty("object") S3Object object) {
+    }
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public record Bucket(@JsonProperty("name") String name) {
+    }
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public record S3Object(@JsonProperty("key") String key, @JsonProperty("versionId") String versionId) {
+    }
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public record UserIdentity(@JsonProperty("principalId") String principalId) {
+    }
+}
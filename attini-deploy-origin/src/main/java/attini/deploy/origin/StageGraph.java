@@ -0,0 +1,90 @@
+/*
+ * Copyright (c) 2023 Attini Cloud Solutions International AB.
+ * All Rights Reserved
+ */
+
+package attini.deploy.origin;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.function.Supplier;
+
+import org.jboss.logging.Logger;
+
+import attini.deploy.origin.metrics.StageMetrics;
+
+/**
+ * Runs the stages of an init deploy on an executor. A stage starts as soon as all the stages it depends on have
+ * completed, stages without a dependency between them run concurrently. A stage is never started if one of its
+ * dependencies failed. The duration of every stage that is started is recorded in the stage metrics.
+ */
+class StageGraph {
+
+    private static final Logger logger = Logger.getLogger(StageGraph.class);
+
+    private final Executor executor;
+    private final StageMetrics stageMetrics;
+    private final List<CompletableFuture<?>> stages = new ArrayList<>();
+
+    StageGraph(Executor executor, StageMetrics stageMetrics) {
+        this.executor = requireNonNull(executor, "executor");
+        this.stageMetrics = requireNonNull(stageMetrics, "stageMetrics");
+    }
+
+    CompletableFuture<Void> stage(String name, Runnable action, CompletableFuture<?>... dependencies) {
+        return stage(name, () -> {
+            action.run();
+            return null;
+        }, dependencies);
+    }
+
+    <T> CompletableFuture<T> stage(String name, Supplier<T> action, CompletableFuture<?>... dependencies) {
+        CompletableFuture<T> stage = CompletableFuture.allOf(dependencies)
+                                                      .thenApplyAsync(ignored -> {
+                                                          long start = System.currentTimeMillis();
+                                                          T result = stageMetrics.measure(name, action);
+                                                          logger.debugf("Stage %s completed in %d ms",
+                                                                        name,
+                                                                        System.currentTimeMillis() - start);
+                                                          return result;
+                                                      }, executor);
+        stages.add(stage);
+        return stage;
+    }
+
+    /**
+     * Waits for every stage to complete, including the ones that are still running when another stage fails, so
+     * that no stage writes anything after this method returns. If one or more stages failed the error of the first
+     * failed stage, in the order they were added, is rethrown.
+     */
+    void awaitAll() {
+        CompletableFuture.allOf(stages.toArray(CompletableFuture[]::new))
+                         .exceptionally(throwable -> null)
+                         .join();
+
+        for (CompletableFuture<?> stage : stages) {
+            if (stage.isCompletedExceptionally()) {
+                throw rethrow(stage.handle((result, throwable) -> throwable).join());
+            }
+        }
+    }
+
+    private static RuntimeException rethrow(Throwable throwable) {
+        Throwable cause = throwable;
+        while (cause instanceof CompletionException && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        if (cause instanceof RuntimeException runtimeException) {
+            return runtimeException;
+        }
+        if (cause instanceof Error error) {
+            throw error;
+        }
+        return new CompletionException(cause);
+    }
+}
@@ -2,12 +2,16 @@ package attini.deploy.origin.appdeployment;
 
 import static java.util.Objects.requireNonNull;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
 import org.jboss.logging.Logger;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 
 import attini.deploy.origin.DistributionData;
 import attini.deploy.origin.deploystack.DeployDataFacade;
+import attini.deploy.origin.deploystack.DeploymentPlanSteps;
 import attini.domain.DistributionContext;
 import software.amazon.awssdk.services.sfn.SfnClient;
 import software.amazon.awssdk.services.sfn.model.StartExecutionRequest;
@@ -19,15 +23,18 @@ public class AppDeploymentFacade {
     private final AppDeploymentDataFacade appDeploymentDataFacade;
     private final ObjectMapper objectMapper;
     private final DeployDataFacade deployDataFacade;
+    private final Executor executor;
 
     public AppDeploymentFacade(SfnClient sfnClient,
                                AppDeploymentDataFacade appDeploymentDataFacade,
                                ObjectMapper objectMapper,
-                               DeployDataFacade deployDataFacade) {
+                               DeployDataFacade deployDataFacade,
+                               Executor executor) {
         this.sfnClient = requireNonNull(sfnClient, "sfnClient");
         this.appDeploymentDataFacade = requireNonNull(appDeploymentDataFacade, "appDeploymentDataFacade");
         this.objectMapper = requireNonNull(objectMapper, "objectMapper");
         this.deployDataFacade = requireNonNull(deployDataFacade, "deployDataFacade");
+        this.executor = requireNonNull(executor, "executor");
     }
 
     public void runAppDeploymentPlan(AppConfig appConfig,
@@ -50,6 +57,10 @@ public class AppDeploymentFacade {
         objectNode.put("platformDistributionIdentifier", appDeploymentData.sourceObjectIdentifier().asString());
 
 
+        CompletableFuture<DeploymentPlanSteps> deploymentPlanSteps =
+                CompletableFuture.supplyAsync(() -> deployDataFacade.getDeploymentPlanSteps(appDeploymentData.sfnArn()),
+                                               executor);
+
         sfnClient.startExecution(StartExecutionRequest.builder()
                                                       .input(objectNode.toString())
                                                       .stateMachineArn(appDeploymentData.sfnArn())
@@ -66,7 +77,7 @@ public class AppDeploymentFacade {
                                                                                      .isUnchanged(false)
                                                                                      .build(),
                                            appDeploymentData.stackName(),
-                                           appDeploymentData.sfnArn());
+                                           deploymentPlanSteps.join());
 
 
     }
@@ -3,18 +3,23 @@ package attini.deploy.origin.bean.config;
 
 import java.net.URI;
 import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import attini.deploy.origin.appdeployment.AppDeploymentDataFacade;
 import attini.deploy.origin.appdeployment.AppDeploymentFacade;
 import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.inject.Disposes;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 
 import attini.deploy.origin.DistributionDataFacade;
 import attini.deploy.origin.InitDeployEventFactory;
+import attini.deploy.origin.InitDeployEventProcessor;
 import attini.deploy.origin.InitDeployService;
 import attini.deploy.origin.MonitoringFacade;
 import attini.deploy.origin.PublishArtifactService;
+import attini.deploy.origin.PublishModeSelector;
 import attini.deploy.origin.PutLatestDistributionReferenceParameter;
 import attini.deploy.origin.SystemClockFacade;
 import attini.deploy.origin.config.AttiniConfigFactory;
@@ -25,6 +30,14 @@ import attini.deploy.origin.deploystack.DeployInitStackService;
 import attini.deploy.origin.deploystack.DynamoDeployDataFacade;
 import attini.deploy.origin.deploystack.DynamoInitDeployStackFacade;
 import attini.deploy.origin.lifecycle.LifeCycleService;
+import attini.deploy.origin.lifecycle.ExpiredDeployDataHandler;
+import attini.deploy.origin.lifecycle.RetentionSweepFacade;
+import attini.deploy.origin.lifecycle.RetentionSweeper;
+import attini.deploy.origin.lifecycle.S3BatchDeleter;
+import attini.deploy.origin.manifest.DistributionManifestFacade;
+import attini.deploy.origin.metrics.EmfMetricsPublisher;
+import attini.deploy.origin.s3.AimdConcurrencyLimit;
+import attini.deploy.origin.s3.ConcurrencyLimit;
 import attini.deploy.origin.s3.S3Facade;
 import attini.deploy.origin.s3.TagOriginObjectService;
 import attini.deploy.origin.stepguard.StepGuardFacade;
@@ -33,6 +46,7 @@ import attini.domain.CustomAwsClient;
 import software.amazon.awssdk.auth.credentials.EnvironmentVariableCredentialsProvider;
 import software.amazon.awssdk.core.client.config.ClientOverrideConfiguration;
 import software.amazon.awssdk.core.retry.RetryPolicy;
+import software.amazon.awssdk.http.async.SdkAsyncHttpClient;
 import software.amazon.awssdk.http.nio.netty.NettyNioAsyncHttpClient;
 import software.amazon.awssdk.http.urlconnection.UrlConnectionHttpClient;
 import software.amazon.awssdk.regions.Region;
@@ -49,12 +63,18 @@ import software.amazon.awssdk.services.ssm.SsmClient;
 @ApplicationScoped
 public class BeanConfig {
 
+    private static final int INITIAL_UPLOAD_CONCURRENCY = 32;
+    private static final int INIT_DEPLOY_STAGE_THREADS = 8;
+    private static final int MAX_CONCURRENT_INIT_DEPLOYS = 4;
+    private static final int MAX_CONCURRENT_DELETE_REQUESTS = 16;
+
 
     @ApplicationScoped
     InitDeployParameterService initDeployParameterService(DistributionDataFacade distributionDataFacade,
                                                           S3Facade s3Facade,
-                                                          EnvironmentVariables environmentVariables) {
-        return new InitDeployParameterService(distributionDataFacade, s3Facade, environmentVariables);
+                                                          EnvironmentVariables environmentVariables,
+                                                          @StageExecutor ExecutorService stageExecutor) {
+        return new InitDeployParameterService(distributionDataFacade, s3Facade, environmentVariables, stageExecutor);
     }
 
     @ApplicationScoped
@@ -68,6 +88,22 @@ public class BeanConfig {
         return new InitDeployEventFactory(objectMapper);
     }
 
+    @ApplicationScoped
+    InitDeployEventProcessor initDeployEventProcessor(InitDeployService initDeployService,
+                                                      @InitDeployExecutor ExecutorService initDeployExecutor) {
+        return new InitDeployEventProcessor(initDeployService, initDeployExecutor);
+    }
+
+    @InitDeployExecutor
+    @ApplicationScoped
+    public ExecutorService initDeployExecutor() {
+        return Executors.newFixedThreadPool(MAX_CONCURRENT_INIT_DEPLOYS, new DaemonThreadFactory("init-deploy"));
+    }
+
+    void shutdownInitDeployExecutor(@Disposes @InitDeployExecutor ExecutorService initDeployExecutor) {
+        initDeployExecutor.shutdown();
+    }
+
 
     @ApplicationScoped
     public EnvironmentVariables environmentVariables() {
@@ -75,10 +111,14 @@ public class BeanConfig {
     }
 
     @ApplicationScoped
-    public AttiniConfigFactory attiniConfigFactory(EnvironmentVariables environmentVariables,
+    public ConfigFileResolver configFileResolver(EnvironmentVariables environmentVariables) {
+        return new ConfigFileResolver(environmentVariables);
+    }
+
+    @ApplicationScoped
+    public AttiniConfigFactory attiniConfigFactory(ConfigFileResolver configFileResolver,
                                                    InitDeployParameterService initDeployParameterService) {
-        return new AttiniConfigFactory(new ConfigFileResolver(
-                environmentVariables), initDeployParameterService);
+        return new AttiniConfigFactory(configFileResolver, initDeployParameterService);
     }
 
     @ApplicationScoped
@@ -102,19 +142,47 @@ public class BeanConfig {
     }
 
     @ApplicationScoped
-    public S3Facade s3Facade(@CustomAwsClient S3Client s3Client, @CustomAwsClient S3AsyncClient s3AsyncClient) {
-        return new S3Facade(s3Client, s3AsyncClient);
+    public S3Facade s3Facade(@CustomAwsClient S3Client s3Client,
+                             @UploadAwsClient S3AsyncClient s3AsyncClient,
+                             EnvironmentVariables environmentVariables,
+                             ConcurrencyLimit uploadConcurrencyLimit) {
+        return new S3Facade(s3Client, s3AsyncClient, environmentVariables, uploadConcurrencyLimit);
+    }
+
+    @ApplicationScoped
+    public ConcurrencyLimit uploadConcurrencyLimit(EnvironmentVariables environmentVariables) {
+        return new AimdConcurrencyLimit(INITIAL_UPLOAD_CONCURRENCY, 1, environmentVariables.getUploadMaxInFlightRequests());
     }
 
     @ApplicationScoped
     public PublishArtifactService publishArtifactService(S3Facade s3Facade,
                                                          AttiniConfigFactory attiniConfigFactory,
                                                          EnvironmentVariables environmentVariables,
-                                                         TagOriginObjectService tagOriginObjectService) {
+                                                         TagOriginObjectService tagOriginObjectService,
+                                                         ConfigFileResolver configFileResolver,
+                                                         DistributionDataFacade distributionDataFacade,
+                                                         DistributionManifestFacade distributionManifestFacade,
+                                                         PublishModeSelector publishModeSelector) {
         return new PublishArtifactService(s3Facade,
                                           attiniConfigFactory,
                                           environmentVariables,
-                                          tagOriginObjectService);
+                                          tagOriginObjectService,
+                                          configFileResolver,
+                                          distributionDataFacade,
+                                          distributionManifestFacade,
+                                          publishModeSelector);
+    }
+
+    @ApplicationScoped
+    public PublishModeSelector publishModeSelector(EnvironmentVariables environmentVariables) {
+        return new PublishModeSelector(environmentVariables.getInMemoryPublishMaxBytes(),
+                                       PublishModeSelector::usableTempSpace);
+    }
+
+    @ApplicationScoped
+    public DistributionManifestFacade distributionManifestFacade(@CustomAwsClient S3Client s3Client,
+                                                                 ObjectMapper objectMapper) {
+        return new DistributionManifestFacade(s3Client, objectMapper);
     }
 
     @ApplicationScoped
@@ -139,11 +207,15 @@ public class BeanConfig {
     public LifeCycleService lifeCycleService(EnvironmentVariables environmentVariables,
                                              DeployDataFacade deployDataFacade,
                                              @CustomAwsClient S3AsyncClient s3AsyncClient,
-                                             @CustomAwsClient DynamoDbAsyncClient dynamoDbAsyncClient) {
+                                             @CustomAwsClient DynamoDbAsyncClient dynamoDbAsyncClient,
+                                             DistributionManifestFacade distributionManifestFacade,
+                                             @StageExecutor ExecutorService stageExecutor) {
         return new LifeCycleService(environmentVariables,
                                     deployDataFacade,
                                     dynamoDbAsyncClient,
-                                    s3AsyncClient);
+                                    new S3BatchDeleter(s3AsyncClient, MAX_CONCURRENT_DELETE_REQUESTS),
+                                    distributionManifestFacade,
+                                    stageExecutor);
     }
 
     @ApplicationScoped
@@ -161,8 +233,26 @@ public class BeanConfig {
     @ApplicationScoped
     public AppDeploymentFacade appDeploymentFacade(@CustomAwsClient SfnClient sfnClient,
                                                    AppDeploymentDataFacade appDeploymentDataFacade,
-                                                   ObjectMapper objectMapper, DeployDataFacade deployDataFacade) {
-        return new AppDeploymentFacade(sfnClient, appDeploymentDataFacade, objectMapper, deployDataFacade);
+                                                   ObjectMapper objectMapper, DeployDataFacade deployDataFacade,
+                                                   @StageExecutor ExecutorService stageExecutor) {
+        return new AppDeploymentFacade(sfnClient, appDeploymentDataFacade, objectMapper, deployDataFacade,
+                                       stageExecutor);
+    }
+
+    @ApplicationScoped
+    public RetentionSweeper retentionSweeper(LifeCycleService lifeCycleService,
+                                             EnvironmentVariables environmentVariables,
+                                             @CustomAwsClient DynamoDbClient dynamoDbClient) {
+        return new RetentionSweeper(lifeCycleService,
+                                    new RetentionSweepFacade(dynamoDbClient, environmentVariables),
+                                    environmentVariables);
+    }
+
+    @ApplicationScoped
+    public ExpiredDeployDataHandler expiredDeployDataHandler(LifeCycleService lifeCycleService,
+                                                             EnvironmentVariables environmentVariables,
+                                                             ObjectMapper objectMapper) {
+        return new ExpiredDeployDataHandler(lifeCycleService, environmentVariables, objectMapper);
     }
 
     @ApplicationScoped
@@ -174,7 +264,9 @@ public class BeanConfig {
                                                MonitoringFacade monitoringFacade,
                                                StepGuardFacade stepGuardFacade,
                                                DistributionDataFacade distributionDataFacade,
-                                               @CustomAwsClient SsmClient ssmClient, AppDeploymentFacade appDeploymentFacade) {
+                                               @CustomAwsClient SsmClient ssmClient, AppDeploymentFacade appDeploymentFacade,
+                                               EmfMetricsPublisher emfMetricsPublisher,
+                                               @StageExecutor ExecutorService stageExecutor) {
         return new InitDeployService(publishArtifactService,
                                      deployInitStackService,
                                      deployDataFacade,
@@ -184,7 +276,25 @@ public class BeanConfig {
                                      new SystemClockFacade(),
                                      stepGuardFacade,
                                      distributionDataFacade,
-                                     appDeploymentFacade);
+                                     appDeploymentFacade,
+                                     stageExecutor,
+                                     emfMetricsPublisher);
+    }
+
+    @StageExecutor
+    @ApplicationScoped
+    public ExecutorService stageExecutor() {
+        return Executors.newFixedThreadPool(INIT_DEPLOY_STAGE_THREADS, new DaemonThreadFactory("init-deploy-stage"));
+    }
+
+    void shutdownStageExecutor(@Disposes @StageExecutor ExecutorService stageExecutor) {
+        stageExecutor.shutdown();
+    }
+
+    @ApplicationScoped
+    public EmfMetricsPublisher emfMetricsPublisher(ObjectMapper objectMapper) {
+        // Lambda sends every line on stdout to CloudWatch Logs as a log event of its own
+        return new EmfMetricsPublisher(objectMapper, System.out::println);
     }
 
     @CustomAwsClient
@@ -238,13 +348,7 @@ public class BeanConfig {
         return S3AsyncClient.builder()
                             .region(Region.of(environmentVariables.getAwsRegion()))
                             .credentialsProvider(EnvironmentVariableCredentialsProvider.create())
-                            .httpClient(NettyNioAsyncHttpClient.builder()
-                                                               .maxConcurrency(800)
-                                                               .connectionMaxIdleTime(Duration.ofSeconds(800))
-                                                               .connectionTimeout(Duration.ofSeconds(800))
-                                                               .connectionAcquisitionTimeout(Duration.ofSeconds(20))
-                                                               .maxPendingConnectionAcquires(10_000)
-                                                               .build())
+                            .httpClient(s3AsyncHttpClient())
                             .overrideConfiguration(defaultClientOverride())
                             .endpointOverride(
                                     getAwsServiceEndpoint("s3", environmentVariables.getAwsRegion())
@@ -252,6 +356,32 @@ public class BeanConfig {
                             .build();
     }
 
+    @UploadAwsClient
+    @ApplicationScoped
+    public S3AsyncClient uploadS3AsyncClient(EnvironmentVariables environmentVariables) {
+        return S3AsyncClient.builder()
+                            .region(Region.of(environmentVariables.getAwsRegion()))
+                            .credentialsProvider(EnvironmentVariableCredentialsProvider.create())
+                            .httpClient(s3AsyncHttpClient())
+                            .overrideConfiguration(defaultClientOverride().toBuilder()
+                                                                          .retryPolicy(RetryPolicy.none())
+                                                                          .build())
+                            .endpointOverride(
+                                    getAwsServiceEndpoint("s3", environmentVariables.getAwsRegion())
+                            )
+                            .build();
+    }
+
+    private static SdkAsyncHttpClient s3AsyncHttpClient() {
+        return NettyNioAsyncHttpClient.builder()
+                                      .maxConcurrency(800)
+                                      .connectionMaxIdleTime(Duration.ofSeconds(800))
+                                      .connectionTimeout(Duration.ofSeconds(800))
+                                      .connectionAcquisitionTimeout(Duration.ofSeconds(20))
+                                      .maxPendingConnectionAcquires(10_000)
+                                      .build();
+    }
+
     @CustomAwsClient
     @ApplicationScoped
     public DynamoDbClient dynamoDbClient(EnvironmentVariables environmentVariables) {
@@ -0,0 +1,21 @@
+package attini.deploy.origin.bean.config;
+
+import static java.lang.annotation.ElementType.FIELD;
+import static java.lang.annotation.ElementType.METHOD;
+import static java.lang.annotation.ElementType.PARAMETER;
+import static java.lang.annotation.ElementType.TYPE;
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+import jakarta.inject.Qualifier;
+
+/**
+ * The client used to upload and copy artifacts. Failed requests are retried by the upload scheduler instead of the
+ * SDK, so that throttling and latency are seen by the upload concurrency limit.
+ */
+@Qualifier
+@Retention(RUNTIME)
+@Target({TYPE, METHOD, FIELD, PARAMETER})
+public @interface UploadAwsClient {
+}
@@ -14,10 +14,8 @@ import java.util.Optional;
 import java.util.UUID;
 import java.util.stream.Collectors;
 
-import org.apache.commons.text.StringSubstitutor;
 import org.checkerframework.checker.units.qual.A;
 import org.jboss.logging.Logger;
-import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -26,6 +24,7 @@ import com.fasterxml.jackson.dataformat.yaml.YAMLFactory;
 import attini.deploy.origin.AttiniConfigException;
 import attini.deploy.origin.InitDeployEvent;
 import attini.deploy.origin.appdeployment.AppConfig;
+import attini.deploy.origin.zip.ExtractionResult;
 import attini.domain.DistributionId;
 import attini.domain.DistributionName;
 import attini.domain.Environment;
@@ -55,10 +54,11 @@ public class AttiniConfigFactory {
         this.mapper = new ObjectMapper(new YAMLFactory());
     }
 
-    public AttiniConfig createAttiniConfig(Path zipDir, InitDeployEvent event) {
-
-
-        List<String> configFiles = configFileResolver.getAttiniConfigFiles(zipDir);
+    /**
+     * Resolves the attini-config files from the extraction index instead of listing the extraction directory.
+     */
+    public AttiniConfig createAttiniConfig(ExtractionResult extraction, InitDeployEvent event) {
+        List<String> configFiles = configFileResolver.getAttiniConfigFiles(extraction);
 
         Map<String, Object> configMap;
         if (configFiles.size() > 1) {
@@ -68,7 +68,7 @@ public class AttiniConfigFactory {
             logger.info("No attini-config file present in distribution, will create default");
             configMap = new HashMap<>();
         } else {
-            configMap = getConfigMap(zipDir, configFiles);
+            configMap = getConfigMap(extraction.getDirectory(), configFiles);
         }
 
         DistributionId distributionId = createDistributionId(configMap);
@@ -198,25 +198,14 @@ public class AttiniConfigFactory {
                                                       DistributionId distributionId,
                                                       DistributionName distributionName) {
 
-        try {
-            Map<String, String> variableMap = new HashMap<>();
-            variableMap.put("environment", environmentName.asString());
-            variableMap.put(ATTINI_DISTRIBUTION_NAME_KEY,
-                            distributionName.asString());
-            variableMap.put(ATTINI_DISTRIBUTION_ID_KEY,
-                            distributionId.asString());
-
-            StringSubstitutor sub = new StringSubstitutor(variableMap);
-            ObjectMapper objectMapper = new ObjectMapper();
-
-            String configString = sub.replace(objectMapper.writeValueAsString(config));
-            return objectMapper.readValue(configString, new TypeReference<>() {
-            });
-
+        Map<String, String> variableMap = new HashMap<>();
+        variableMap.put("environment", environmentName.asString());
+        variableMap.put(ATTINI_DISTRIBUTION_NAME_KEY,
+                        distributionName.asString());
+        variableMap.put(ATTINI_DISTRIBUTION_ID_KEY,
+                        distributionId.asString());
 
-        } catch (JsonProcessingException e) {
-            throw new IllegalStateException("Invalid attini-config format");
-        }
+        return new ConfigVariableSubstitutor(variableMap).apply(config);
     }
 
     private Optional<InitDeployStackConfig> extractAttiniInitDeployStackConfig(Map<String, Object> attiniConfigFile,
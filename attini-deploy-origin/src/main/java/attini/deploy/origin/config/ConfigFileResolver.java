@@ -7,15 +7,13 @@ package attini.deploy.origin.config;
 
 import static java.util.Objects.requireNonNull;
 
-import java.nio.file.Path;
-import java.util.Arrays;
 import java.util.List;
 import java.util.Set;
-import java.util.stream.Collectors;
 
 import org.jboss.logging.Logger;
 
 import attini.deploy.origin.system.EnvironmentVariables;
+import attini.deploy.origin.zip.ExtractionResult;
 
 public class ConfigFileResolver {
 
@@ -27,14 +25,16 @@ public class ConfigFileResolver {
         this.environmentVariables = requireNonNull(environmentVariables, "environmentVariables");
     }
 
-    public List<String> getAttiniConfigFiles(Path zipDir) {
+    public List<String> getAttiniConfigFiles(ExtractionResult extraction) {
+        List<String> configFiles = extraction.getAttiniConfigFiles();
+        configFiles.forEach(s -> logger.info("found attini-config file: " + s));
+        return configFiles;
+    }
+
+    public boolean isAttiniConfigFile(String fileName) {
         String attiniConfigFile = environmentVariables.getAttiniConfigFile();
-        Set<String> validConfigNames = Set.of(attiniConfigFile + ".yml",
-                                              attiniConfigFile + ".yaml",
-                                              attiniConfigFile + ".json");
-        return Arrays.stream(requireNonNull(zipDir.toFile().list()))
-                     .filter(validConfigNames::contains)
-                     .peek(s -> logger.info("found attini-config file: " + s))
-                     .collect(Collectors.toList());
+        return Set.of(attiniConfigFile + ".yml",
+                      attiniConfigFile + ".yaml",
+                      attiniConfigFile + ".json").contains(fileName);
     }
 }
@@ -0,0 +1,72 @@
+package attini.deploy.origin.config;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.Map;
+
+import org.apache.commons.text.StringSubstitutor;
+
+/**
+ * Replaces ${variable} placeholders in a parsed attini-config. The config tree is walked once and only the strings
+ * that contain a placeholder are replaced, everything else is left as parsed. Since the substitution is done on the
+ * parsed values a variable can never break the structure of the config.
+ */
+class ConfigVariableSubstitutor {
+
+    private static final String PLACEHOLDER_PREFIX = "${";
+
+    private final StringSubstitutor substitutor;
+
+    ConfigVariableSubstitutor(Map<String, String> variables) {
+        this.substitutor = new StringSubstitutor(variables);
+    }
+
+    /**
+     * Substitutes the variables in the given config, the config is updated in place and returned.
+     */
+    Map<String, Object> apply(Map<String, Object> config) {
+        return substituteMap(config);
+    }
+
+    @SuppressWarnings("unchecked")
+    private Object substitute(Object value) {
+        if (value instanceof String string) {
+            return string.contains(PLACEHOLDER_PREFIX) ? substitutor.replace(string) : string;
+        }
+        if (value instanceof Map<?, ?> map) {
+            return substituteMap((Map<String, Object>) map);
+        }
+        if (value instanceof List<?> list) {
+            ListIterator<Object> iterator = ((List<Object>) list).listIterator();
+            while (iterator.hasNext()) {
+                Object element = iterator.next();
+                Object substituted = substitute(element);
+                if (substituted != element) {
+                    iterator.set(substituted);
+                }
+            }
+        }
+        return value;
+    }
+
+    private Map<String, Object> substituteMap(Map<String, Object> map) {
+        boolean keysHavePlaceholders = false;
+        for (Map.Entry<String, Object> entry : map.entrySet()) {
+            keysHavePlaceholders |= entry.getKey() != null && entry.getKey().contains(PLACEHOLDER_PREFIX);
+            Object substituted = substitute(entry.getValue());
+            if (substituted != entry.getValue()) {
+                entry.setValue(substituted);
+            }
+        }
+        if (!keysHavePlaceholders) {
+            return map;
+        }
+
+        // Keys are rarely templated, the map is only rebuilt when one of them is
+        Map<String, Object> substitutedKeys = new LinkedHashMap<>();
+        map.forEach((key, value) -> substitutedKeys.put(key != null && key.contains(PLACEHOLDER_PREFIX) ? substitutor.replace(
+                key) : key, value));
+        return substitutedKeys;
+    }
+}
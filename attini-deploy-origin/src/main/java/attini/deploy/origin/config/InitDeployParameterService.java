@@ -5,9 +5,15 @@ import static java.util.Objects.requireNonNull;
 import java.io.UncheckedIOException;
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.function.Function;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
 import java.util.stream.Collectors;
 import java.util.stream.StreamSupport;
 
@@ -30,27 +36,98 @@ import attini.domain.json.AttiniJsonProvider;
 
 public class InitDeployParameterService {
 
+    private static final Configuration JSON_PATH_CONFIGURATION = Configuration.builder()
+                                                                              .jsonProvider(new AttiniJsonProvider())
+                                                                              .build();
 
     private final ObjectMapper objectMapper;
     private final DistributionDataFacade distributionDataFacade;
     private final S3Facade s3Facade;
     private final EnvironmentVariables environmentVariables;
+    private final Executor executor;
 
     public InitDeployParameterService(DistributionDataFacade distributionDataFacade,
                                       S3Facade s3Facade,
-                                      EnvironmentVariables environmentVariables) {
+                                      EnvironmentVariables environmentVariables,
+                                      Executor executor) {
         this.objectMapper = new ObjectMapper(new YAMLFactory());
         this.distributionDataFacade = requireNonNull(distributionDataFacade, "distributionDataFacade");
         this.s3Facade = requireNonNull(s3Facade, "s3Facade");
         this.environmentVariables = requireNonNull(environmentVariables, "environmentVariables");
+        this.executor = requireNonNull(executor, "executor");
     }
 
     public Map<String, String> resolveParameters(JsonNode jsonNode, Environment environment,
                                                  Set<DistributionName> dependencies) {
 
-        return StreamSupport.stream(toIterable(jsonNode, environment).spliterator(), false)
-                            .collect(Collectors.toMap(Map.Entry::getKey,
-                                                      getParameterValue(environment, dependencies)));
+        List<Map.Entry<String, JsonNode>> parameters = StreamSupport.stream(toIterable(jsonNode, environment).spliterator(),
+                                                                            false)
+                                                                    .toList();
+
+        Map<DistributionName, DocumentContext> outputs = getDistributionOutputs(parameters, environment, dependencies);
+
+        return parameters.stream()
+                         .collect(Collectors.toMap(Map.Entry::getKey, entry -> getParameterValue(entry, outputs)));
+    }
+
+    /**
+     * Downloads and parses the output of every distribution referenced by the parameters once, no matter how many
+     * parameters that reference it. The outputs of different distributions are downloaded concurrently.
+     */
+    private Map<DistributionName, DocumentContext> getDistributionOutputs(List<Map.Entry<String, JsonNode>> parameters,
+                                                                          Environment environment,
+                                                                          Set<DistributionName> dependencies) {
+        Set<DistributionName> distributionNames = new LinkedHashSet<>();
+        for (Map.Entry<String, JsonNode> entry : parameters) {
+            JsonNode value = entry.getValue();
+            if (value.isObject()) {
+                if (!"Distribution".equals(value.path("sourceType").asText())) {
+                    throw new IllegalArgumentException("Invalid type for init parameter: " + entry.getKey());
+                }
+                validateDistParam(value, entry.getKey(), dependencies);
+                distributionNames.add(DistributionName.of(value.path("source").path("name").textValue()));
+            }
+        }
+        if (distributionNames.isEmpty()) {
+            return Map.of();
+        }
+
+        Map<DistributionName, Distribution> distributions = distributionDataFacade.getDistributions(distributionNames,
+                                                                                                    environment);
+        Map<DistributionName, CompletableFuture<DocumentContext>> outputs = new LinkedHashMap<>();
+        for (DistributionName distributionName : distributionNames) {
+            String outputUrl = getOutputUrl(distributions.get(distributionName), distributionName);
+            outputs.put(distributionName, CompletableFuture.supplyAsync(() -> parseOutput(outputUrl), executor));
+        }
+
+        Map<DistributionName, DocumentContext> parsedOutputs = new HashMap<>();
+        outputs.forEach((distributionName, output) -> parsedOutputs.put(distributionName, join(output)));
+        return parsedOutputs;
+    }
+
+    private static String getOutputUrl(Distribution distribution, DistributionName distributionName) {
+        if (distribution == null) {
+            throw new IllegalArgumentException("Distribution: " + distributionName.asString() + " not found in environment");
+        }
+        return distribution.getOutputUrl()
+                           .orElseThrow(() -> new IllegalArgumentException(
+                                   "No output found for distribution: " + distributionName.asString()));
+    }
+
+    private DocumentContext parseOutput(String outputUrl) {
+        byte[] bytes = s3Facade.downloadS3File(environmentVariables.getArtifactBucket(), getKey(outputUrl));
+        return JsonPath.using(JSON_PATH_CONFIGURATION).parse(new String(bytes));
+    }
+
+    private static DocumentContext join(CompletableFuture<DocumentContext> output) {
+        try {
+            return output.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
     }
 
     private Iterable<Map.Entry<String, JsonNode>> toIterable(JsonNode jsonNode, Environment environment) {
@@ -77,45 +154,19 @@ public class InitDeployParameterService {
         return objectMapper.createObjectNode();
     }
 
-    private Function<Map.Entry<String, JsonNode>, String> getParameterValue(Environment environment,
-                                                                            Set<DistributionName> dependencies) {
-        return entry -> {
-            JsonNode value = entry.getValue();
-            if (value.isObject()) {
-                if ("Distribution".equals(value.get("sourceType").asText())) {
-                    validateDistParam(value, entry.getKey(), dependencies);
-                    String distributionName = value.path("source").path("name").textValue();
-                    Distribution distribution = distributionDataFacade.getDistribution(DistributionName.of(
-                                                                              distributionName), environment)
-                                                                      .orElseThrow(() -> new IllegalArgumentException(
-                                                                              "Distribution: " + distributionName + " not found in environment"));
-
-                    String outputUrl = distribution.getOutputUrl()
-                                                   .orElseThrow(() -> new IllegalArgumentException(
-                                                           "No output found for distribution: " + distributionName));
-
-                    byte[] bytes = s3Facade.downloadS3File(environmentVariables.getArtifactBucket(), getKey(outputUrl));
-
-                    Configuration configuration = Configuration.builder()
-                                                               .jsonProvider(new AttiniJsonProvider())
-                                                               .build();
-
-                    DocumentContext context = JsonPath.using(configuration).parse(new String(bytes));
-
-                    try {
-                        return context.read(value.path("source").path("mapping").textValue());
-                    } catch (PathNotFoundException e) {
-                        throw new IllegalArgumentException("Could not read init parameter: " + entry.getKey()+". " + e.getMessage());
-                    }
-                    
-                } else {
-                    throw new IllegalArgumentException("Invalid type for init parameter: " + entry.getKey());
-                }
-
-            }
-
+    private static String getParameterValue(Map.Entry<String, JsonNode> entry,
+                                            Map<DistributionName, DocumentContext> outputs) {
+        JsonNode value = entry.getValue();
+        if (!value.isObject()) {
             return value.asText();
-        };
+        }
+
+        DocumentContext output = outputs.get(DistributionName.of(value.path("source").path("name").textValue()));
+        try {
+            return output.read(value.path("source").path("mapping").textValue());
+        } catch (PathNotFoundException e) {
+            throw new IllegalArgumentException("Could not read init parameter: " + entry.getKey() + ". " + e.getMessage());
+        }
     }
 
     private static void validateDistParam(JsonNode jsonNode, String key, Set<DistributionName> dependencies) {
@@ -1,7 +1,9 @@
 package attini.deploy.origin.deploystack;
 
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 import attini.deploy.origin.DistributionData;
@@ -18,13 +20,26 @@ public interface DeployDataFacade {
     void savePlatformDeployment(SaveDeploymentDataRequest request);
 
     void saveAppDeployment(SaveDeploymentDataRequest request,
-              String stackName, String sfnArn);
+              String stackName, DeploymentPlanSteps deploymentPlanSteps);
 
-    int countDeployDataAfterDate(DistributionName distributionName, Environment environment, LocalDate from);
+    DeploymentPlanSteps getDeploymentPlanSteps(String sfnArn);
 
-    DeployData getLatestDeployData(DistributionName distributionName, Environment environment);
 
-    List<DeployData> getDeployData(DistributionName distributionName, Environment environment, LocalDate to);
+    /**
+     * Returns the latest deploy of each of the given distributions, distributions that have never been deployed are
+     * left out of the result.
+     */
+    Map<DistributionName, DeployData> getLatestDeployData(Collection<DistributionName> distributionNames,
+                                                          Environment environment);
+
+    /**
+     * Returns the deploys made before the cut off date that are not needed to keep the given number of versions,
+     * newest first.
+     */
+    List<DeployData> getExpiredDeployData(DistributionName distributionName,
+                                          Environment environment,
+                                          LocalDate cutOffDate,
+                                          int retainVersions);
 
     @Builder
     @EqualsAndHashCode
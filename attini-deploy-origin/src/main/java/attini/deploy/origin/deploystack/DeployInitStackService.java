@@ -1,15 +1,14 @@
 package attini.deploy.origin.deploystack;
 
 import static java.util.Objects.requireNonNull;
-import static java.util.stream.Collectors.toList;
 import static java.util.stream.Collectors.toSet;
 
+import java.time.Duration;
 import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
 import java.util.UUID;
-import java.util.concurrent.TimeUnit;
 import java.util.function.Predicate;
 
 import org.apache.commons.codec.digest.DigestUtils;
@@ -18,12 +17,17 @@ import org.jboss.logging.Logger;
 import attini.deploy.origin.config.InitDeployStackConfig;
 import attini.deploy.origin.system.EnvironmentVariables;
 import attini.domain.DistributionContext;
+import software.amazon.awssdk.awscore.exception.AwsErrorDetails;
 import software.amazon.awssdk.awscore.exception.AwsServiceException;
+import software.amazon.awssdk.core.exception.SdkClientException;
+import software.amazon.awssdk.core.retry.backoff.EqualJitterBackoffStrategy;
+import software.amazon.awssdk.core.waiters.WaiterOverrideConfiguration;
 import software.amazon.awssdk.services.cloudformation.CloudFormationClient;
 import software.amazon.awssdk.services.cloudformation.model.AlreadyExistsException;
 import software.amazon.awssdk.services.cloudformation.model.CloudFormationException;
 import software.amazon.awssdk.services.cloudformation.model.CreateStackRequest;
 import software.amazon.awssdk.services.cloudformation.model.DeleteStackRequest;
+import software.amazon.awssdk.services.cloudformation.model.DescribeStacksRequest;
 import software.amazon.awssdk.services.cloudformation.model.GetTemplateSummaryRequest;
 import software.amazon.awssdk.services.cloudformation.model.GetTemplateSummaryResponse;
 import software.amazon.awssdk.services.cloudformation.model.Parameter;
@@ -41,6 +45,15 @@ public class DeployInitStackService {
     private static final String ATTINI_DISTRIBUTION_ID_KEY = "AttiniDistributionId";
     private static final String ATTINI_RANDOM_STRING_KEY = "AttiniRandomString";
     private static final String ATTINI_RESOURCE_TYPE = "AttiniResourceType";
+    private static final WaiterOverrideConfiguration STACK_DELETE_WAITER_CONFIGURATION =
+            WaiterOverrideConfiguration.builder()
+                                       .backoffStrategy(EqualJitterBackoffStrategy.builder()
+                                                                                  .baseDelay(Duration.ofSeconds(1))
+                                                                                  .maxBackoffTime(Duration.ofSeconds(15))
+                                                                                  .build())
+                                       .maxAttempts(Integer.MAX_VALUE)
+                                       .waitTimeout(Duration.ofMinutes(7))
+                                       .build();
     private final CloudFormationClient cloudFormationClient;
     private final EnvironmentVariables environmentVariables;
 
@@ -54,7 +67,8 @@ public class DeployInitStackService {
     public void deployInitStack(DistributionContext distributionContext,
                                 InitDeployStackConfig attiniInitDeployStackConfig,
                                 String deployPrefix,
-                                Map<String, String> distributionTags) {
+                                Map<String, String> distributionTags,
+                                Optional<Set<String>> templateParameterKeys) {
 
 
         String templateURL = createTemplateUrl(deployPrefix, attiniInitDeployStackConfig);
@@ -63,7 +77,10 @@ public class DeployInitStackService {
 
         Set<Tag> tags = createTags(distributionContext, distributionTags, attiniInitDeployStackConfig);
 
-        Set<Parameter> parameters = createParameters(distributionContext, attiniInitDeployStackConfig, templateURL);
+        Set<Parameter> parameters = createParameters(distributionContext,
+                                                     attiniInitDeployStackConfig,
+                                                     templateParameterKeys.orElseGet(() -> getTemplateParameterKeys(
+                                                             templateURL)));
 
         deployCfnStack(attiniInitDeployStackConfig.getInitDeployStackName(),
                        templateURL,
@@ -131,20 +148,34 @@ public class DeployInitStackService {
                                                                   .build();
         cloudFormationClient.deleteStack(deleteStackRequest);
 
-        for (int i = 1; i < 21; ++i) {
-            waitBeforeRetry();
-            try {
-                logger.info("Trying to re-create the stack");
-                createCfnStack(stackName, templateUrl, tags, parameters, objectIdentifier);
-                break;
-            } catch (CloudFormationException e) {
-                if (e.awsErrorDetails().errorMessage().contains("ROLLBACK_COMPLETE ") ||
-                    e.awsErrorDetails().errorMessage().contains("DELETE_IN_PROGRESS")) {
-                    logger.info(String.format(
-                            "Tried to recreate the stack after %s seconds but the deletion was not finished",
-                            i));
-                }
-            }
+        waitForStackDeletion(stackName);
+        logger.info("Deleted the stack, re-creating it");
+        createCfnStack(stackName, templateUrl, tags, parameters, objectIdentifier);
+    }
+
+    /**
+     * Polls the stack status with an exponential backoff, so a quick delete is noticed within seconds while a slow
+     * one does not cost more than a handful of requests.
+     */
+    private void waitForStackDeletion(String stackName) {
+        try {
+            cloudFormationClient.waiter()
+                                .waitUntilStackDeleteComplete(DescribeStacksRequest.builder()
+                                                                                   .stackName(stackName)
+                                                                                   .build(),
+                                                              STACK_DELETE_WAITER_CONFIGURATION);
+        } catch (SdkClientException e) {
+            logger.error("Stack " + stackName + " was not deleted", e);
+            throw new DeployInitStackException(CloudFormationException.builder()
+                                                                      .message(e.getMessage())
+                                                                      .awsErrorDetails(AwsErrorDetails.builder()
+                                                                                                      .errorCode(
+                                                                                                              "InitStackDeleteFailed")
+                                                                                                      .errorMessage(
+                                                                                                              "Could not re-create stack " + stackName + ", the stack in ROLLBACK_COMPLETE state was not deleted. " + e.getMessage())
+                                                                                                      .build())
+                                                                      .cause(e)
+                                                                      .build());
         }
     }
 
@@ -229,7 +260,9 @@ public class DeployInitStackService {
     }
 
 
-    public Set<Parameter> createParameters(DistributionContext distributionContext, InitDeployStackConfig attiniInitDeployStackConfig, String templateUrl) {
+    public Set<Parameter> createParameters(DistributionContext distributionContext,
+                                           InitDeployStackConfig attiniInitDeployStackConfig,
+                                           Set<String> cfnParametersKeys) {
 
 
 
@@ -242,12 +275,6 @@ public class DeployInitStackService {
         finalParameters.put(ATTINI_RANDOM_STRING_KEY, UUID.randomUUID().toString());
 
 
-        List<String> cfnParametersKeys = getTemplateSummaryResult(templateUrl).parameters()
-                                                                              .stream()
-                                                                              .map(ParameterDeclaration::parameterKey)
-                                                                              .collect(toList());
-
-
         return finalParameters.entrySet()
                               .stream()
                               .filter(isPresentInList(cfnParametersKeys))
@@ -261,7 +288,15 @@ public class DeployInitStackService {
     }
 
 
-    private static Predicate<Map.Entry<String, String>> isPresentInList(List<String> cfnParametersKeys) {
+    private Set<String> getTemplateParameterKeys(String templateUrl) {
+        logger.info("Template parameters are not known, reading them from CloudFormation");
+        return getTemplateSummaryResult(templateUrl).parameters()
+                                                    .stream()
+                                                    .map(ParameterDeclaration::parameterKey)
+                                                    .collect(toSet());
+    }
+
+    private static Predicate<Map.Entry<String, String>> isPresentInList(Set<String> cfnParametersKeys) {
         return entry -> {
             boolean isPresent = cfnParametersKeys.contains(entry.getKey());
             if (!isPresent) {
@@ -278,13 +313,4 @@ public class DeployInitStackService {
                              deployPrefix,
                              initDeployStackConfig.getAttiniInitDeployTemplatePath());
     }
-
-    private static void waitBeforeRetry() {
-        try {
-            TimeUnit.SECONDS.sleep(2);
-        } catch (InterruptedException e) {
-            throw new RuntimeException(e);
-        }
-    }
 }
-
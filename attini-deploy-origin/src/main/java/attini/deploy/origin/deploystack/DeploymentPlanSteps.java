@@ -0,0 +1,10 @@
+package attini.deploy.origin.deploystack;
+
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+
+/**
+ * The attini steps of a deployment plan as they are stored on the plan's resource state item. The value is copied
+ * as is to the deploy data of app deployments, {@code attiniSteps} is null if the plan has no steps saved.
+ */
+public record DeploymentPlanSteps(AttributeValue attiniSteps) {
+}
@@ -2,15 +2,17 @@
 package attini.deploy.origin.deploystack;
 
 import static java.util.Objects.requireNonNull;
-import static java.util.stream.Collectors.toList;
 
+import java.time.Duration;
 import java.time.Instant;
 import java.time.LocalDate;
 import java.time.ZoneId;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 
@@ -18,24 +20,42 @@ import org.jboss.logging.Logger;
 
 import attini.deploy.origin.config.AttiniConfig;
 import attini.deploy.origin.config.DistributionType;
+import attini.deploy.origin.lifecycle.RetentionMode;
+import attini.deploy.origin.system.DynamoBatchGet;
 import attini.deploy.origin.system.EnvironmentVariables;
+import attini.deploy.origin.system.IllegalEnvironmentVariableException;
 import attini.domain.DistributionContext;
 import attini.domain.DistributionId;
 import attini.domain.DistributionName;
 import attini.domain.Environment;
 import attini.domain.ObjectIdentifier;
+import software.amazon.awssdk.core.exception.SdkException;
 import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
 import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.ConditionalCheckFailedException;
 import software.amazon.awssdk.services.dynamodb.model.GetItemRequest;
-import software.amazon.awssdk.services.dynamodb.model.GetItemResponse;
-import software.amazon.awssdk.services.dynamodb.model.PutItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.Put;
 import software.amazon.awssdk.services.dynamodb.model.QueryRequest;
-import software.amazon.awssdk.services.dynamodb.model.QueryResponse;
 import software.amazon.awssdk.services.dynamodb.model.Select;
+import software.amazon.awssdk.services.dynamodb.model.TransactWriteItem;
+import software.amazon.awssdk.services.dynamodb.model.TransactWriteItemsRequest;
+import software.amazon.awssdk.services.dynamodb.model.UpdateItemRequest;
 
 public class DynamoDeployDataFacade implements DeployDataFacade {
 
     private final static Logger logger = Logger.getLogger(DeployInitStackService.class);
+
+    /**
+     * The attributes needed to remove an old distribution, the rest of the deploy data is never read for retention.
+     */
+    private static final String HISTORY_PROJECTION = "#name, #time, #distId, #objectId, #source.#bucket";
+    private static final Map<String, String> HISTORY_ATTRIBUTE_NAMES = Map.of("#name", "deploymentName",
+                                                                              "#time", "deploymentTime",
+                                                                              "#distId", "distributionId",
+                                                                              "#objectId", "objectIdentifier",
+                                                                              "#source", "deploymentSource",
+                                                                              "#bucket", "deploymentSourceBucket");
+    private static final String EXPIRES_AT = "expiresAt";
     private final DynamoDbClient dynamoDbClient;
     private final EnvironmentVariables environmentVariables;
 
@@ -53,15 +73,30 @@ public class DynamoDeployDataFacade implements DeployDataFacade {
 
     @Override
     public void saveAppDeployment(SaveDeploymentDataRequest request,
-                     String stackName,
-                     String sfnArn) {
-        save(request, stackName, DistributionType.APP, sfnArn);
+                                  String stackName,
+                                  DeploymentPlanSteps deploymentPlanSteps) {
+        save(request, stackName, DistributionType.APP, deploymentPlanSteps);
+    }
+
+    @Override
+    public DeploymentPlanSteps getDeploymentPlanSteps(String sfnArn) {
+        AttributeValue attributeValue = dynamoDbClient.getItem(GetItemRequest.builder()
+                                                                             .tableName(environmentVariables.getResourceStatesTableName())
+                                                                             .key(Map.of("resourceType",
+                                                                                         AttributeValue.builder()
+                                                                                                       .s("DeploymentPlan")
+                                                                                                       .build(),
+                                                                                         "name",
+                                                                                         AttributeValue.builder().s(sfnArn).build()))
+                                                                             .projectionExpression("attiniSteps")
+                                                                             .build()).item().get("attiniSteps");
+        return new DeploymentPlanSteps(attributeValue);
     }
 
     private void save(SaveDeploymentDataRequest request,
                      String stackName,
                      DistributionType distributionType,
-                     String sfnArn) {
+                     DeploymentPlanSteps deploymentPlanSteps) {
 
         logger.info("Saving deployment plan source data");
         Map<String, AttributeValue> deployData = new HashMap<>();
@@ -89,15 +124,7 @@ public class DynamoDeployDataFacade implements DeployDataFacade {
                                                                               .getInitDeployStackName())));
             } else {
 
-                AttributeValue attributeValue = dynamoDbClient.getItem(GetItemRequest.builder()
-                                                                                     .tableName(environmentVariables.getResourceStatesTableName())
-                                                                                     .key(Map.of("resourceType",
-                                                                                                 AttributeValue.builder()
-                                                                                                               .s("DeploymentPlan")
-                                                                                                               .build(),
-                                                                                                 "name",
-                                                                                                 AttributeValue.builder().s(sfnArn).build()))
-                                                                                     .build()).item().get("attiniSteps");
+                AttributeValue attributeValue = deploymentPlanSteps.attiniSteps();
 
                 if (attributeValue != null && attributeValue.hasL()){
                     deployData.put("attiniSteps",attributeValue);
@@ -142,91 +169,222 @@ public class DynamoDeployDataFacade implements DeployDataFacade {
         });
 
 
-        dynamoDbClient.putItem(PutItemRequest.builder()
-                                             .tableName(environmentVariables.getDeployDataTableName())
-                                             .item(deployData)
-                                             .build());
+        Map<String, AttributeValue> timestampedDeployData = new HashMap<>(deployData);
+        timestampedDeployData.replace("deploymentTime", toAttribute(request.getDeployTime()));
 
-        deployData.replace("deploymentTime", toAttribute(request.getDeployTime()));
+        Optional<UpdateItemRequest> expiryUpdate = Optional.empty();
+        try {
+            if (environmentVariables.getRetentionMode() == RetentionMode.TTL) {
+                expiryUpdate = expireBeyondRetention(deployData.get("deploymentName").s(),
+                                                     request.getDeployTime(),
+                                                     timestampedDeployData);
+            }
+        } catch (IllegalEnvironmentVariableException e) {
+            logger.error("Could not set expiry on deploy data due to illegal environmental variables", e);
+        } catch (SdkException e) {
+            // Failing to read the retained versions must not fail the deploy, see expire
+            logger.error("Could not read the retained versions of " + deployData.get("deploymentName")
+                                                                               .s() + ", no deploy is expired by this deploy",
+                         e);
+        }
+
+        // The latest pointer (deploymentTime 0) and the timestamped record are written in one transaction so that
+        // readers never see one of them updated without the other.
+        dynamoDbClient.transactWriteItems(TransactWriteItemsRequest.builder()
+                                                                   .transactItems(toPut(deployData),
+                                                                                  toPut(timestampedDeployData))
+                                                                   .build());
 
-        dynamoDbClient.putItem(PutItemRequest.builder()
-                                             .tableName(environmentVariables.getDeployDataTableName())
-                                             .item(deployData)
-                                             .build());
+        // The expiry is written outside of the transaction so that a deploy that has already been removed can not
+        // fail the save of the new deploy.
+        expiryUpdate.ifPresent(this::expire);
     }
 
-    @Override
-    public int countDeployDataAfterDate(DistributionName distributionName, Environment environment, LocalDate from) {
-
-        long toTimeStamp = from.atStartOfDay().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
-
-        QueryRequest request = QueryRequest.builder()
-                                           .select(Select.COUNT)
-                                           .tableName(environmentVariables.getDeployDataTableName())
-                                           .keyConditionExpression(
-                                                   "deploymentName=:v_deployName and deploymentTime > :v_from")
-                                           .expressionAttributeValues(Map.of(
-                                                   ":v_deployName",
-                                                   AttributeValue.builder()
-                                                                 .s(getDeployName(distributionName, environment))
-                                                                 .build(),
-                                                   ":v_from",
-                                                   AttributeValue.builder()
-                                                                 .n(String.valueOf(toTimeStamp))
-                                                                 .build()))
-                                           .build();
-
-        return dynamoDbClient.queryPaginator(request)
-                             .stream()
-                             .map(QueryResponse::count)
-                             .reduce(0, Integer::sum);
+    /**
+     * Writes the expiry of a deploy pushed out of the retained versions. The new deploy has already been saved at
+     * this point, so a failure is logged and tolerated. A deploy that fails to get its expiry is not expired by a
+     * later deploy either and is kept, together with its artifacts, until it is removed manually.
+     */
+    private void expire(UpdateItemRequest expiryUpdate) {
+        try {
+            dynamoDbClient.updateItem(expiryUpdate);
+        } catch (ConditionalCheckFailedException e) {
+            logger.info("Deploy pushed out of the retained versions has already been removed");
+        } catch (SdkException e) {
+            logger.error("Could not set expiry on deploy " + expiryUpdate.key() + ", it will not be removed by the deploy data expiry",
+                         e);
+        }
     }
 
-    private static String getDeployName(DistributionName distributionName, Environment environment) {
-        return environment.asString() + "-" + distributionName.asString();
+    /**
+     * Stamps the expiry attribute used by the table TTL. If only days are retained the new record gets its expiry
+     * directly. If versions are retained, the deploy that the new record pushes out of the retained versions is
+     * stamped instead, which only needs the keys of the retained versions to be read. The update is conditional on
+     * the deploy still existing so that it never recreates a deploy that has been removed.
+     */
+    private Optional<UpdateItemRequest> expireBeyondRetention(String deployName,
+                                                              long deployTime,
+                                                              Map<String, AttributeValue> timestampedDeployData) {
+        int retainVersions = environmentVariables.getRetainDistributionVersions();
+        long retainMillis = Duration.ofDays(environmentVariables.getRetainDistributionDays()).toMillis();
+
+        if (retainMillis == 0 && retainVersions == 0) {
+            return Optional.empty();
+        }
+
+        if (retainVersions == 0) {
+            timestampedDeployData.put(EXPIRES_AT, toAttribute(toEpochSeconds(deployTime + retainMillis)));
+            return Optional.empty();
+        }
+
+        List<Map<String, AttributeValue>> olderDeploys = dynamoDbClient.query(QueryRequest.builder()
+                                                                                          .tableName(environmentVariables.getDeployDataTableName())
+                                                                                          .keyConditionExpression(
+                                                                                                  "deploymentName=:v_deployName and deploymentTime between :v_from and :v_to")
+                                                                                          .expressionAttributeValues(
+                                                                                                  Map.of(":v_deployName",
+                                                                                                         toAttribute(
+                                                                                                                 deployName),
+                                                                                                         ":v_from",
+                                                                                                         toAttribute(1),
+                                                                                                         ":v_to",
+                                                                                                         toAttribute(
+                                                                                                                 deployTime - 1)))
+                                                                                          .projectionExpression(
+                                                                                                  "deploymentName, deploymentTime")
+                                                                                          .scanIndexForward(false)
+                                                                                          .limit(retainVersions)
+                                                                                          .build())
+                                                                       .items();
+
+        // The new record is one of the retained versions, so the oldest of the fetched deploys is the one that is no
+        // longer retained by version.
+        if (olderDeploys.size() < retainVersions) {
+            return Optional.empty();
+        }
+        Map<String, AttributeValue> expiredKey = olderDeploys.get(retainVersions - 1);
+        long expiredDeployTime = Long.parseLong(expiredKey.get("deploymentTime").n());
+        long expiresAt = toEpochSeconds(Math.max(expiredDeployTime + retainMillis, deployTime));
+
+        return Optional.of(UpdateItemRequest.builder()
+                                            .tableName(environmentVariables.getDeployDataTableName())
+                                            .key(expiredKey)
+                                            .updateExpression("SET #expiresAt = :v_expiresAt")
+                                            .conditionExpression("attribute_exists(deploymentName)")
+                                            .expressionAttributeNames(Map.of("#expiresAt", EXPIRES_AT))
+                                            .expressionAttributeValues(Map.of(":v_expiresAt",
+                                                                              toAttribute(expiresAt)))
+                                            .build());
     }
 
-    @Override
-    public DeployData getLatestDeployData(DistributionName distributionName, Environment environment) {
-
-        GetItemResponse item = dynamoDbClient.getItem(GetItemRequest.builder()
-                                                                    .tableName(environmentVariables.getDeployDataTableName())
-                                                                    .key(Map.of("deploymentName",
-                                                                                toAttribute(getDeployName(
-                                                                                        distributionName,
-                                                                                        environment)),
-                                                                                "deploymentTime",
-                                                                                toAttribute(0)))
-                                                                    .build());
-
-        return toDeploySource().apply(item.item());
+    private static long toEpochSeconds(long epochMillis) {
+        return Duration.ofMillis(epochMillis).toSeconds();
+    }
+
+    private TransactWriteItem toPut(Map<String, AttributeValue> item) {
+        return TransactWriteItem.builder()
+                                .put(Put.builder()
+                                        .tableName(environmentVariables.getDeployDataTableName())
+                                        .item(item)
+                                        .build())
+                                .build();
     }
 
     @Override
-    public List<DeployData> getDeployData(DistributionName distributionName, Environment environment, LocalDate to) {
+    public List<DeployData> getExpiredDeployData(DistributionName distributionName,
+                                                 Environment environment,
+                                                 LocalDate cutOffDate,
+                                                 int retainVersions) {
+
+        long cutOffTime = cutOffDate.atStartOfDay().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        String deployName = getDeployName(distributionName, environment);
+
+        int retainedAfterCutOff = countDeploysAfter(deployName, cutOffTime, retainVersions);
+        int skipVersions = retainVersions - retainedAfterCutOff;
 
-        long toTimeStamp = to.atStartOfDay().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        logger.info("Nr of deploys after cut off date = " + retainedAfterCutOff + ", will skip " + skipVersions + " versions");
 
         QueryRequest queryRequest = QueryRequest.builder()
                                                 .tableName(environmentVariables.getDeployDataTableName())
                                                 .keyConditionExpression(
-                                                        "deploymentName=:v_deployName and deploymentTime < :v_to")
+                                                        "deploymentName=:v_deployName and deploymentTime between :v_from and :v_to")
                                                 .expressionAttributeValues(Map.of(
                                                         ":v_deployName",
-                                                        AttributeValue.builder()
-                                                                      .s(getDeployName(distributionName, environment))
-                                                                      .build(),
+                                                        toAttribute(deployName),
+                                                        ":v_from",
+                                                        toAttribute(1),
                                                         ":v_to",
-                                                        AttributeValue.builder()
-                                                                      .n(String.valueOf(toTimeStamp))
-                                                                      .build()))
+                                                        toAttribute(cutOffTime - 1)))
+                                                .projectionExpression(HISTORY_PROJECTION)
+                                                .expressionAttributeNames(HISTORY_ATTRIBUTE_NAMES)
+                                                .scanIndexForward(false)
                                                 .build();
 
-        return dynamoDbClient.query(queryRequest)
+        return dynamoDbClient.queryPaginator(queryRequest)
                              .items()
                              .stream()
+                             .skip(skipVersions)
+                             .map(toDeploySource())
+                             .toList();
+    }
+
+    /**
+     * Counts the deploys made after the cut off time, but stops counting once the retained number of versions is
+     * reached since any deploy beyond that does not change which deploys are expired. That keeps the cost of the
+     * count flat no matter how long the history is.
+     */
+    private int countDeploysAfter(String deployName, long cutOffTime, int retainVersions) {
+        if (retainVersions == 0) {
+            return 0;
+        }
+        return dynamoDbClient.query(QueryRequest.builder()
+                                                .select(Select.COUNT)
+                                                .tableName(environmentVariables.getDeployDataTableName())
+                                                .keyConditionExpression(
+                                                        "deploymentName=:v_deployName and deploymentTime > :v_from")
+                                                .expressionAttributeValues(Map.of(
+                                                        ":v_deployName",
+                                                        toAttribute(deployName),
+                                                        ":v_from",
+                                                        toAttribute(cutOffTime)))
+                                                .limit(retainVersions)
+                                                .build())
+                             .count();
+    }
+
+    private static String getDeployName(DistributionName distributionName, Environment environment) {
+        return environment.asString() + "-" + distributionName.asString();
+    }
+
+    @Override
+    public Map<DistributionName, DeployData> getLatestDeployData(Collection<DistributionName> distributionNames,
+                                                                 Environment environment) {
+        if (distributionNames.isEmpty()) {
+            return Map.of();
+        }
+        Map<String, DistributionName> byDeployName = distributionNames.stream()
+                                                                      .distinct()
+                                                                      .collect(Collectors.toMap(distributionName -> getDeployName(
+                                                                                                        distributionName,
+                                                                                                        environment),
+                                                                                                Function.identity()));
+        List<Map<String, AttributeValue>> keys = byDeployName.keySet()
+                                                             .stream()
+                                                             .map(deployName -> Map.of("deploymentName",
+                                                                                       toAttribute(deployName),
+                                                                                       "deploymentTime",
+                                                                                       toAttribute(0)))
+                                                             .toList();
+
+        return DynamoBatchGet.getItems(dynamoDbClient,
+                                       environmentVariables.getDeployDataTableName(),
+                                       keys,
+                                       HISTORY_PROJECTION + ", errorMessage",
+                                       HISTORY_ATTRIBUTE_NAMES)
+                             .stream()
                              .map(toDeploySource())
-                             .collect(toList());
+                             .collect(Collectors.toMap(deployData -> byDeployName.get(deployData.getDeployName()),
+                                                       Function.identity()));
     }
 
     private Function<Map<String, AttributeValue>, DeployData> toDeploySource() {
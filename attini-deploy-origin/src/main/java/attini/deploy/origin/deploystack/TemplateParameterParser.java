@@ -0,0 +1,57 @@
+package attini.deploy.origin.deploystack;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashSet;
+import java.util.Optional;
+import java.util.Set;
+
+import org.jboss.logging.Logger;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.yaml.YAMLFactory;
+
+/**
+ * Reads the parameter declarations from a local CloudFormation template, so that the template does not have to be
+ * sent to CloudFormation only to learn which parameters it declares. Short form intrinsic functions such as !Ref
+ * are read as plain values, which is enough since only the keys of the Parameters section are used.
+ */
+public final class TemplateParameterParser {
+
+    private static final Logger logger = Logger.getLogger(TemplateParameterParser.class);
+    private static final ObjectMapper JSON_MAPPER = new ObjectMapper();
+    private static final ObjectMapper YAML_MAPPER = new ObjectMapper(new YAMLFactory());
+
+    private TemplateParameterParser() {
+    }
+
+    /**
+     * @return the declared parameter keys, empty if the template could not be parsed
+     */
+    public static Optional<Set<String>> parseParameterKeys(Path template) {
+        try {
+            String content = Files.readString(template);
+            JsonNode root = content.stripLeading().startsWith("{") ? JSON_MAPPER.readTree(content) : YAML_MAPPER.readTree(
+                    content);
+            if (root == null || !root.isObject()) {
+                logger.warn("Template " + template.getFileName() + " is not a CloudFormation template object");
+                return Optional.empty();
+            }
+            JsonNode parameters = root.path("Parameters");
+            if (parameters.isMissingNode() || parameters.isNull()) {
+                return Optional.of(Set.of());
+            }
+            if (!parameters.isObject()) {
+                logger.warn("Parameters section of template " + template.getFileName() + " is not an object");
+                return Optional.empty();
+            }
+            Set<String> keys = new LinkedHashSet<>();
+            parameters.fieldNames().forEachRemaining(keys::add);
+            return Optional.of(keys);
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Could not parse template " + template.getFileName() + " locally", e);
+            return Optional.empty();
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package attini.deploy.origin.lifecycle;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import attini.deploy.origin.lifecycle.DeletionResult.DeletionFailure;
+
+public class ArtifactDeletionException extends RuntimeException {
+
+    private static final int MAX_KEYS_IN_MESSAGE = 10;
+
+    private final List<DeletionFailure> failures;
+
+    public ArtifactDeletionException(List<DeletionFailure> failures) {
+        super(createMessage(failures));
+        this.failures = failures;
+    }
+
+    public List<DeletionFailure> getFailures() {
+        return failures;
+    }
+
+    private static String createMessage(List<DeletionFailure> failures) {
+        String keys = failures.stream()
+                              .limit(MAX_KEYS_IN_MESSAGE)
+                              .map(failure -> failure.key() + " (" + failure.message() + ")")
+                              .collect(Collectors.joining(", "));
+        String more = failures.size() > MAX_KEYS_IN_MESSAGE ? " and " + (failures.size() - MAX_KEYS_IN_MESSAGE) + " more" : "";
+        return "Failed to delete " + failures.size() + " artifact(s) of expired deploys: " + keys + more;
+    }
+}
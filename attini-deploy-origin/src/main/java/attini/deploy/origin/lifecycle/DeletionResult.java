@@ -0,0 +1,33 @@
+package attini.deploy.origin.lifecycle;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The outcome of deleting a set of S3 objects. Failures are reported per key, a failed list call is reported with
+ * the listed prefix as key.
+ */
+public record DeletionResult(int deleted, List<DeletionFailure> failures) {
+
+    public DeletionResult {
+        failures = List.copyOf(failures);
+    }
+
+    public static DeletionResult empty() {
+        return new DeletionResult(0, List.of());
+    }
+
+    public boolean isComplete() {
+        return failures.isEmpty();
+    }
+
+    public DeletionResult plus(DeletionResult other) {
+        List<DeletionFailure> allFailures = new ArrayList<>(failures);
+        allFailures.addAll(other.failures());
+        return new DeletionResult(deleted + other.deleted(), allFailures);
+    }
+
+    public record DeletionFailure(String key, String versionId, String message) {
+
+    }
+}
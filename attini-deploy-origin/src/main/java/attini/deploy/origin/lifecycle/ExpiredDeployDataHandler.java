@@ -0,0 +1,119 @@
+package attini.deploy.origin.lifecycle;
+
+import static java.util.Objects.requireNonNull;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import org.jboss.logging.Logger;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import attini.deploy.origin.deploystack.DeployData;
+import attini.deploy.origin.system.EnvironmentVariables;
+import attini.domain.DistributionId;
+import attini.domain.DistributionName;
+import attini.domain.Environment;
+import attini.domain.ObjectIdentifier;
+
+/**
+ * Removes the artifacts of deploy data rows that have been removed from the deploy data table by the TTL. The rows
+ * are read from the old images on the table stream, only the removals made by the TTL are handled.
+ */
+public class ExpiredDeployDataHandler {
+
+    private static final Logger logger = Logger.getLogger(ExpiredDeployDataHandler.class);
+
+    private final LifeCycleService lifeCycleService;
+    private final EnvironmentVariables environmentVariables;
+    private final ObjectMapper objectMapper;
+
+    public ExpiredDeployDataHandler(LifeCycleService lifeCycleService,
+                                    EnvironmentVariables environmentVariables,
+                                    ObjectMapper objectMapper) {
+        this.lifeCycleService = requireNonNull(lifeCycleService, "lifeCycleService");
+        this.environmentVariables = requireNonNull(environmentVariables, "environmentVariables");
+        this.objectMapper = requireNonNull(objectMapper, "objectMapper");
+    }
+
+    public static boolean isStreamEvent(Map<String, Object> input) {
+        if (!(input.get("Records") instanceof List<?> records) || records.isEmpty()) {
+            return false;
+        }
+        return records.get(0) instanceof Map<?, ?> record && "aws:dynamodb".equals(record.get("eventSource"));
+    }
+
+    /**
+     * Removes the artifacts of all expired deploys in the batch.
+     *
+     * @throws ArtifactDeletionException if any artifact could not be removed, so that the stream retries the batch.
+     *                                   Deleting the artifacts that were already removed again is a no-op.
+     */
+    public DeletionResult handle(Map<String, Object> input) {
+        Map<DistributionKey, List<DeployData>> expired = new LinkedHashMap<>();
+
+        for (JsonNode record : objectMapper.valueToTree(input).path("Records")) {
+            if (!"REMOVE".equals(record.path("eventName").asText())) {
+                continue;
+            }
+            JsonNode oldImage = record.path("dynamodb").path("OldImage");
+            toExpiredDeploy(oldImage).ifPresent(expiredDeploy -> expired.computeIfAbsent(expiredDeploy.key(),
+                                                                                          key -> new ArrayList<>())
+                                                                         .add(expiredDeploy.deployData()));
+        }
+
+        logger.info("Got " + expired.values().stream().mapToInt(List::size).sum() + " expired deploys");
+
+        DeletionResult result = DeletionResult.empty();
+        for (Map.Entry<DistributionKey, List<DeployData>> entry : expired.entrySet()) {
+            result = result.plus(lifeCycleService.deleteArtifacts(entry.getValue(),
+                                                                  entry.getKey().environment(),
+                                                                  entry.getKey().distributionName(),
+                                                                  environmentVariables.getDeploymentOriginBucket()));
+        }
+        if (!result.isComplete()) {
+            throw new ArtifactDeletionException(result.failures());
+        }
+        return result;
+    }
+
+    private static Optional<ExpiredDeploy> toExpiredDeploy(JsonNode image) {
+        long deployTime = image.path("deploymentTime").path("N").asLong(0);
+        String distributionId = image.path("distributionId").path("S").asText(null);
+        String objectIdentifier = image.path("objectIdentifier").path("S").asText(null);
+        String sourceBucket = image.path("deploymentSource")
+                                   .path("M")
+                                   .path("deploymentSourceBucket")
+                                   .path("S")
+                                   .asText(null);
+        String environment = image.path("environment").path("S").asText(null);
+        String distributionName = image.path("distributionName").path("S").asText(null);
+
+        // The latest pointer is never stamped with an expiry, rows missing any of the attributes can not be cleaned up
+        if (deployTime == 0 || distributionId == null || objectIdentifier == null || sourceBucket == null || environment == null || distributionName == null) {
+            logger.warn("Skipping removed deploy data without the attributes needed to remove its artifacts");
+            return Optional.empty();
+        }
+
+        DeployData deployData = DeployData.builder()
+                                          .setDeployName(image.path("deploymentName").path("S").asText())
+                                          .setDeployTime(Instant.ofEpochMilli(deployTime))
+                                          .setDistributionId(DistributionId.of(distributionId))
+                                          .setDeploymentSourceBucket(sourceBucket)
+                                          .setObjectIdentifier(ObjectIdentifier.of(objectIdentifier))
+                                          .build();
+        return Optional.of(new ExpiredDeploy(new DistributionKey(Environment.of(environment),
+                                                                 DistributionName.of(distributionName)),
+                                             deployData));
+    }
+
+    private record DistributionKey(Environment environment, DistributionName distributionName) {
+    }
+
+    private record ExpiredDeploy(DistributionKey key, DeployData deployData) {
+    }
+}
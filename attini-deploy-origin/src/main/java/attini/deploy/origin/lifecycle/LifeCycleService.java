@@ -1,22 +1,23 @@
 package attini.deploy.origin.lifecycle;
 
 import static java.util.Objects.requireNonNull;
-import static java.util.stream.Collectors.toList;
 
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
-import java.util.Collections;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.CompletionStage;
-import java.util.function.BiFunction;
-import java.util.function.Function;
+import java.util.concurrent.Executor;
 
 import org.jboss.logging.Logger;
 
 import attini.deploy.origin.deploystack.DeployData;
 import attini.deploy.origin.deploystack.DeployDataFacade;
+import attini.deploy.origin.manifest.DistributionManifest;
+import attini.deploy.origin.manifest.DistributionManifestFacade;
 import attini.deploy.origin.system.EnvironmentVariables;
 import attini.deploy.origin.system.IllegalEnvironmentVariableException;
 import attini.domain.DistributionName;
@@ -24,19 +25,7 @@ import attini.domain.Environment;
 import software.amazon.awssdk.services.dynamodb.DynamoDbAsyncClient;
 import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
 import software.amazon.awssdk.services.dynamodb.model.DeleteItemRequest;
-import software.amazon.awssdk.services.dynamodb.model.DeleteItemResponse;
-import software.amazon.awssdk.services.s3.S3AsyncClient;
-import software.amazon.awssdk.services.s3.model.Delete;
-import software.amazon.awssdk.services.s3.model.DeleteObjectRequest;
-import software.amazon.awssdk.services.s3.model.DeleteObjectResponse;
-import software.amazon.awssdk.services.s3.model.DeleteObjectsRequest;
-import software.amazon.awssdk.services.s3.model.ListObjectVersionsRequest;
-import software.amazon.awssdk.services.s3.model.ListObjectVersionsResponse;
-import software.amazon.awssdk.services.s3.model.ListObjectsRequest;
-import software.amazon.awssdk.services.s3.model.ListObjectsResponse;
 import software.amazon.awssdk.services.s3.model.ObjectIdentifier;
-import software.amazon.awssdk.services.s3.model.ObjectVersion;
-import software.amazon.awssdk.services.s3.model.S3Object;
 
 public class LifeCycleService {
 
@@ -46,16 +35,46 @@ public class LifeCycleService {
     private final EnvironmentVariables environmentVariables;
     private final DeployDataFacade deployDataFacade;
     private final DynamoDbAsyncClient dynamoDbAsyncClient;
-    private final S3AsyncClient s3AsyncClient;
+    private final S3BatchDeleter s3BatchDeleter;
+    private final DistributionManifestFacade distributionManifestFacade;
+    private final Executor executor;
 
     public LifeCycleService(EnvironmentVariables environmentVariables,
                             DeployDataFacade deployDataFacade,
                             DynamoDbAsyncClient dynamoDbAsyncClient,
-                            S3AsyncClient s3AsyncClient) {
+                            S3BatchDeleter s3BatchDeleter,
+                            DistributionManifestFacade distributionManifestFacade,
+                            Executor executor) {
         this.environmentVariables = requireNonNull(environmentVariables, "environmentVariables");
         this.deployDataFacade = requireNonNull(deployDataFacade, "deployDataFacade");
         this.dynamoDbAsyncClient = requireNonNull(dynamoDbAsyncClient, "dynamoDbAsyncClient");
-        this.s3AsyncClient = requireNonNull(s3AsyncClient, "s3AsyncClient");
+        this.s3BatchDeleter = requireNonNull(s3BatchDeleter, "s3BatchDeleter");
+        this.distributionManifestFacade = requireNonNull(distributionManifestFacade, "distributionManifestFacade");
+        this.executor = requireNonNull(executor, "executor");
+    }
+
+    /**
+     * Removes expired distributions as part of a deploy, unless retention is handled by the scheduled sweep or by
+     * the deploy data expiry.
+     */
+    public CompletableFuture<Void> cleanupAfterDeploy(DistributionName distributionName,
+                                                      Environment environment,
+                                                      String deployOriginBucket) {
+        try {
+            RetentionMode retentionMode = environmentVariables.getRetentionMode();
+            if (retentionMode == RetentionMode.SWEEPER) {
+                logger.info("Life cycle management is handled by the retention sweep, skipping");
+                return CompletableFuture.allOf();
+            }
+            if (retentionMode == RetentionMode.TTL) {
+                logger.info("Life cycle management is handled by the deploy data expiry, skipping");
+                return CompletableFuture.allOf();
+            }
+        } catch (IllegalEnvironmentVariableException e) {
+            logger.error("Could not perform life cycle management due to illegal environmental variables", e);
+            return CompletableFuture.allOf();
+        }
+        return cleanup(distributionName, environment, deployOriginBucket);
     }
 
     public CompletableFuture<Void> cleanup(DistributionName distributionName, Environment environment, String deployOriginBucket) {
@@ -74,32 +93,22 @@ public class LifeCycleService {
 
             logger.info("Life cycle configured to remove artifact before " + toDate.format(DateTimeFormatter.ISO_DATE));
 
-            int count = deployDataFacade.countDeployDataAfterDate(distributionName, environment, toDate);
-
-            logger.info("Nr of deploys after cut off date = " + count);
-
-            int skipVersions = count < retainDistributionVersions ? retainDistributionVersions - count : 0;
-
-            logger.info("Will skip " + skipVersions + " versions");
-
-
-            List<DeployData> deployDataList = deployDataFacade.getDeployData(distributionName, environment, toDate)
-                                                              .stream()
-                                                              .filter(deployData -> deployData.getDeployTime()
-                                                                                              .toEpochMilli() != 0)
-                                                              .sorted((o1, o2) -> o2.getDeployTime()
-                                                                                    .compareTo(o1.getDeployTime()))
-                                                              .skip(skipVersions).toList();
-
+            List<DeployData> deployDataList = deployDataFacade.getExpiredDeployData(distributionName,
+                                                                                   environment,
+                                                                                   toDate,
+                                                                                   retainDistributionVersions);
 
             logger.info("Will remove " + deployDataList.size() + " distributions");
 
-            return CompletableFuture.allOf(deployDataList.stream()
-                                                         .map(deployData -> delete(deployData,
-                                                                                   environment,
-                                                                                   distributionName,
-                                                                                   deployOriginBucket))
-                                                         .toArray(CompletableFuture[]::new));
+            if (deployDataList.isEmpty()) {
+                return CompletableFuture.allOf();
+            }
+
+            return CompletableFuture.runAsync(() -> delete(deployDataList,
+                                                           environment,
+                                                           distributionName,
+                                                           deployOriginBucket),
+                                             executor);
         } catch (IllegalEnvironmentVariableException e) {
             logger.error("Could not perform life cycle management due to illegal environmental variables", e);
             return CompletableFuture.allOf();
@@ -112,152 +121,143 @@ public class LifeCycleService {
     }
 
 
-    private CompletableFuture<Void> delete(DeployData deployData,
-                                           Environment environment,
-                                           DistributionName distributionName,
-                                           String deployOriginBucket) {
-
-        String prefix = environment.asString() + "/" + distributionName.asString() + "/" + deployData.getDistributionId().asString();
-
-        logger.info("removing with prefix " + prefix);
-
-        return s3AsyncClient.listObjects(ListObjectsRequest.builder()
-                                                           .bucket(deployData.getDeploymentSourceBucket())
-                                                           .prefix(prefix)
-                                                           .build())
-                            .handleAsync(handleListObjectsError())
-                            .thenComposeAsync(deleteObjectsFromDeploymentSource(deployData))
-                            .thenComposeAsync(deleteDeploymentOriginVersion(deployData, deployOriginBucket))
-                            .handleAsync(handleDeleteObjectError())
-                            .thenComposeAsync(deleteDynamoObject(deployData))
-                            .thenComposeAsync(deleteItemResponse -> deleteAttiniS3Resources(deployData,
-                                                                                            environment,
-                                                                                            distributionName))
-                            .thenAcceptAsync(unused -> logger.info("deleted distribution id = " + deployData.getDistributionId().asString()));
-
-    }
-
-    private CompletableFuture<Void> deleteAttiniS3Resources(DeployData deployData,
-                                                            Environment environment,
-                                                            DistributionName distributionName) {
+    private void delete(List<DeployData> deployDataList,
+                        Environment environment,
+                        DistributionName distributionName,
+                        String deployOriginBucket) {
+        try {
+            DeletionResult result = deleteDistributionArtifacts(deployDataList,
+                                                                environment,
+                                                                distributionName,
+                                                                deployOriginBucket);
 
-        String prefix = "attini/deployment/" + environment.asString() + "/" + distributionName.asString() + "/" + deployData.getDistributionId().asString();
+            CompletableFuture.allOf(deployDataList.stream()
+                                                  .map(this::deleteDynamoObject)
+                                                  .toArray(CompletableFuture[]::new))
+                             .join();
 
-        logger.info("removing with prefix " + prefix);
+            result = result.plus(deleteDeploymentArtifacts(deployDataList, environment, distributionName));
 
-        return s3AsyncClient.listObjectVersions(ListObjectVersionsRequest.builder()
-                                                                         .bucket(deployData.getDeploymentSourceBucket())
-                                                                         .prefix(prefix)
-                                                                         .build())
-                            .handleAsync(handleListObjectVersionsError())
-                            .thenComposeAsync(deleteAttiniResourceObjects(deployData));
+            logResult(result);
+        } catch (Exception e) {
+            logger.error(
+                    "There was an exception during life cycle management, this should be investigated but the deploy will continue.",
+                    e);
+        }
     }
 
-
-    private Function<CompletableFuture<Void>, CompletionStage<DeleteItemResponse>> deleteDynamoObject(
-            DeployData deployData) {
-        return response -> dynamoDbAsyncClient.deleteItem(DeleteItemRequest.builder()
-                                                                           .tableName(
-                                                                                   environmentVariables
-                                                                                           .getDeployDataTableName())
-                                                                           .key(createKey(
-                                                                                   deployData))
-                                                                           .build());
+    /**
+     * Removes the S3 objects of distributions whose deploy data has already been removed from the table.
+     *
+     * @param deployOriginBucket the bucket the distributions were uploaded to, the uploaded versions are kept if null
+     */
+    public DeletionResult deleteArtifacts(List<DeployData> deployDataList,
+                                          Environment environment,
+                                          DistributionName distributionName,
+                                          String deployOriginBucket) {
+        DeletionResult result = deleteDistributionArtifacts(deployDataList,
+                                                            environment,
+                                                            distributionName,
+                                                            deployOriginBucket)
+                .plus(deleteDeploymentArtifacts(deployDataList, environment, distributionName));
+        logResult(result);
+        return result;
     }
 
-
-    private BiFunction<DeleteObjectResponse, Throwable, CompletableFuture<Void>> handleDeleteObjectError() {
-        return (deleteObjectResponse, throwable) -> {
-            if (throwable != null) {
-                logger.warn("Could not delete deploymentOrigin version, will continue with execution chain", throwable);
+    /**
+     * Distributions with a manifest are removed by deleting exactly the keys in it, the prefix is only listed for
+     * distributions published without a complete manifest.
+     */
+    private DeletionResult deleteDistributionArtifacts(List<DeployData> deployDataList,
+                                                       Environment environment,
+                                                       DistributionName distributionName,
+                                                       String deployOriginBucket) {
+        DeletionResult result = DeletionResult.empty();
+        Map<String, List<ObjectIdentifier>> manifestObjects = new LinkedHashMap<>();
+
+        for (DeployData deployData : deployDataList) {
+            String bucket = deployData.getDeploymentSourceBucket();
+            String manifestKey = DistributionManifest.manifestKey(environment,
+                                                                  distributionName,
+                                                                  deployData.getDistributionId());
+            Optional<List<String>> objectKeys = distributionManifestFacade.getManifest(bucket, manifestKey)
+                                                                          .flatMap(DistributionManifest::objectKeys);
+            if (objectKeys.isPresent()) {
+                logger.info("removing " + objectKeys.get().size() + " objects listed in " + manifestKey);
+                List<ObjectIdentifier> objects = manifestObjects.computeIfAbsent(bucket, key -> new ArrayList<>());
+                objectKeys.get().forEach(key -> objects.add(ObjectIdentifier.builder().key(key).build()));
+                objects.add(ObjectIdentifier.builder().key(manifestKey).build());
+                continue;
             }
-            return CompletableFuture.allOf();
-        };
-    }
-
-    private Function<Void, CompletionStage<DeleteObjectResponse>> deleteDeploymentOriginVersion(DeployData deployData,
-                                                                                                String deployOriginBucket) {
-        return deleteItemResponse -> {
-            String[] split = deployData.getObjectIdentifier().asString().split("#");
-            return s3AsyncClient.deleteObject(DeleteObjectRequest.builder()
-                                                                 .key(split[0])
-                                                                 .versionId(split[1])
-                                                                 .bucket(deployOriginBucket)
-                                                                 .build());
-        };
-    }
+            String prefix = environment.asString() + "/" + distributionName.asString() + "/" + deployData.getDistributionId()
+                                                                                                          .asString();
+            logger.info("removing with prefix " + prefix);
+            result = result.plus(s3BatchDeleter.deletePrefix(bucket, prefix));
+        }
 
-    private Function<List<String>, CompletionStage<Void>> deleteObjectsFromDeploymentSource(DeployData deployData) {
-        return response -> {
-            if (response.isEmpty()) {
-                return CompletableFuture.allOf();
-            }
+        for (Map.Entry<String, List<ObjectIdentifier>> entry : manifestObjects.entrySet()) {
+            result = result.plus(s3BatchDeleter.deleteObjects(entry.getKey(), entry.getValue()));
+        }
 
-            return s3AsyncClient.deleteObjects(DeleteObjectsRequest.builder()
-                                                                   .bucket(deployData
-                                                                                   .getDeploymentSourceBucket())
-                                                                   .delete(toDeleteRequest(response))
-                                                                   .build())
-                                .thenApply(response1 -> null);
-        };
+        if (deployOriginBucket != null) {
+            result = result.plus(s3BatchDeleter.deleteObjects(deployOriginBucket, toOriginVersions(deployDataList)));
+        }
+        return result;
     }
 
-    private Function<List<ObjectVersion>, CompletionStage<Void>> deleteAttiniResourceObjects(DeployData deployData) {
-        return response -> {
-            if (response.isEmpty()) {
-                return CompletableFuture.allOf();
-            }
-
-            return s3AsyncClient.deleteObjects(DeleteObjectsRequest.builder()
-                                                                   .bucket(deployData
-                                                                                   .getDeploymentSourceBucket())
-                                                                   .delete(toDeleteVersionRequest(response))
-                                                                   .build())
-                                .thenApply(response1 -> null);
-        };
+    private DeletionResult deleteDeploymentArtifacts(List<DeployData> deployDataList,
+                                                     Environment environment,
+                                                     DistributionName distributionName) {
+        DeletionResult result = DeletionResult.empty();
+        for (DeployData deployData : deployDataList) {
+            String prefix = "attini/deployment/" + environment.asString() + "/" + distributionName.asString() + "/" + deployData.getDistributionId()
+                                                                                                                               .asString();
+            logger.info("removing with prefix " + prefix);
+            result = result.plus(s3BatchDeleter.deleteAllVersions(deployData.getDeploymentSourceBucket(), prefix));
+            logger.info("deleted distribution id = " + deployData.getDistributionId().asString());
+        }
+        return result;
     }
 
-    private BiFunction<ListObjectsResponse, Throwable, List<String>> handleListObjectsError() {
-        return (response, throwable) -> {
-            if (throwable != null) {
-                logger.warn("Could not list objects, will continue with execution chain", throwable);
-                return Collections.emptyList();
-            } else {
-                return response.contents().stream().map(S3Object::key).collect(toList());
-            }
-        };
+    private CompletableFuture<Void> deleteDynamoObject(DeployData deployData) {
+        return dynamoDbAsyncClient.deleteItem(DeleteItemRequest.builder()
+                                                               .tableName(environmentVariables.getDeployDataTableName())
+                                                               .key(createKey(deployData))
+                                                               .build())
+                                  .handle((response, throwable) -> {
+                                      if (throwable != null) {
+                                          logger.warn("Could not delete deploy data for distribution id = " + deployData.getDistributionId()
+                                                                                                                      .asString(),
+                                                      throwable);
+                                      }
+                                      return null;
+                                  });
     }
 
-    private BiFunction<ListObjectVersionsResponse, Throwable, List<ObjectVersion>> handleListObjectVersionsError() {
-        return (response, throwable) -> {
-            if (throwable != null) {
-                logger.warn("Could not list objects, will continue with execution chain", throwable);
-                return Collections.emptyList();
-            } else {
-                return response.versions();
+    private static List<ObjectIdentifier> toOriginVersions(List<DeployData> deployDataList) {
+        List<ObjectIdentifier> originVersions = new ArrayList<>();
+        for (DeployData deployData : deployDataList) {
+            String[] split = deployData.getObjectIdentifier().asString().split("#");
+            if (split.length != 2) {
+                logger.warn("Could not delete deploymentOrigin version, object identifier has no version = " + deployData.getObjectIdentifier()
+                                                                                                                           .asString());
+                continue;
             }
-        };
-    }
-
-    private Delete toDeleteRequest(List<String> key) {
-        return Delete.builder()
-                     .objects(
-                             key.stream()
-                                .map(s -> ObjectIdentifier.builder().key(s).build())
-                                .collect(toList()))
-                     .build();
+            originVersions.add(ObjectIdentifier.builder().key(split[0]).versionId(split[1]).build());
+        }
+        return originVersions;
     }
 
-    private Delete toDeleteVersionRequest(List<ObjectVersion> key) {
-        return Delete.builder()
-                     .objects(
-                             key.stream()
-                                .map(objectVersion -> ObjectIdentifier.builder()
-                                                                      .key(objectVersion.key())
-                                                                      .versionId(objectVersion.versionId())
-                                                                      .build())
-                                .collect(toList()))
-                     .build();
+    private static void logResult(DeletionResult result) {
+        if (result.isComplete()) {
+            logger.info("Deleted " + result.deleted() + " objects");
+            return;
+        }
+        logger.warn("Deleted " + result.deleted() + " objects, failed to delete " + result.failures()
+                                                                                          .size() + " objects. First failures = " + result.failures()
+                                                                                                                                        .stream()
+                                                                                                                                        .limit(10)
+                                                                                                                                        .toList());
     }
 
     private static Map<String, AttributeValue> createKey(DeployData deployData) {
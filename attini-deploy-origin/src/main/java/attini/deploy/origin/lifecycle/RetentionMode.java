@@ -0,0 +1,20 @@
+package attini.deploy.origin.lifecycle;
+
+public enum RetentionMode {
+
+    /**
+     * Expired distributions are removed by the init deploy, the deploy waits for the cleanup to finish.
+     */
+    INLINE,
+
+    /**
+     * Expired distributions are only removed by the scheduled retention sweep, deploys never wait for a cleanup.
+     */
+    SWEEPER,
+
+    /**
+     * Deploys stamp an expiry on the deploy data rows that fall outside of the retention, DynamoDB TTL removes the
+     * rows and the artifacts are removed when the removal shows up on the table stream.
+     */
+    TTL
+}
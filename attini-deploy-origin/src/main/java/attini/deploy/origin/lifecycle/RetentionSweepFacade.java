@@ -0,0 +1,122 @@
+package attini.deploy.origin.lifecycle;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import attini.deploy.origin.system.EnvironmentVariables;
+import attini.domain.DistributionName;
+import attini.domain.Environment;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.DeleteItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.GetItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.GetItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.PutItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.QueryRequest;
+import software.amazon.awssdk.services.dynamodb.model.QueryResponse;
+
+/**
+ * Reads the distributions to sweep from the resource states table and keeps the sweep checkpoint there. The
+ * checkpoint is the name of the last distribution item that was fully swept.
+ */
+public class RetentionSweepFacade {
+
+    private static final int PAGE_SIZE = 100;
+    private static final String DISTRIBUTION_RESOURCE_TYPE = "Distribution";
+    private static final Map<String, AttributeValue> CHECKPOINT_KEY = Map.of("resourceType",
+                                                                             AttributeValue.fromS("RetentionSweep"),
+                                                                             "name",
+                                                                             AttributeValue.fromS("checkpoint"));
+
+    private final DynamoDbClient dynamoDbClient;
+    private final EnvironmentVariables environmentVariables;
+
+    public RetentionSweepFacade(DynamoDbClient dynamoDbClient, EnvironmentVariables environmentVariables) {
+        this.dynamoDbClient = requireNonNull(dynamoDbClient, "dynamoDbClient");
+        this.environmentVariables = requireNonNull(environmentVariables, "environmentVariables");
+    }
+
+    public DistributionPage getDistributions(String startAfter) {
+        QueryRequest.Builder request = QueryRequest.builder()
+                                                   .tableName(environmentVariables.getResourceStatesTableName())
+                                                   .keyConditionExpression("resourceType = :v_type")
+                                                   .expressionAttributeValues(Map.of(":v_type",
+                                                                                     AttributeValue.fromS(
+                                                                                             DISTRIBUTION_RESOURCE_TYPE)))
+                                                   .projectionExpression(
+                                                           "#name, distributionName, environment, sourceS3Bucket")
+                                                   .expressionAttributeNames(Map.of("#name", "name"))
+                                                   .limit(PAGE_SIZE);
+        if (startAfter != null) {
+            request.exclusiveStartKey(distributionKey(startAfter));
+        }
+
+        QueryResponse response = dynamoDbClient.query(request.build());
+
+        List<SweepTarget> targets = response.items()
+                                            .stream()
+                                            .filter(item -> item.containsKey("sourceS3Bucket"))
+                                            .map(item -> new SweepTarget(item.get("name").s(),
+                                                                         DistributionName.of(item.get("distributionName")
+                                                                                                 .s()),
+                                                                         Environment.of(item.get("environment").s()),
+                                                                         item.get("sourceS3Bucket").s()))
+                                            .toList();
+        String lastEvaluated = response.hasLastEvaluatedKey() ? response.lastEvaluatedKey().get("name").s() : null;
+        return new DistributionPage(targets, lastEvaluated);
+    }
+
+    public Optional<String> getCheckpoint() {
+        GetItemResponse response = dynamoDbClient.getItem(GetItemRequest.builder()
+                                                                        .tableName(environmentVariables.getResourceStatesTableName())
+                                                                        .key(CHECKPOINT_KEY)
+                                                                        .consistentRead(true)
+                                                                        .build());
+        if (!response.hasItem() || !response.item().containsKey("lastDistribution")) {
+            return Optional.empty();
+        }
+        return Optional.of(response.item().get("lastDistribution").s());
+    }
+
+    public void saveCheckpoint(String lastDistribution) {
+        Map<String, AttributeValue> item = new HashMap<>(CHECKPOINT_KEY);
+        item.put("lastDistribution", AttributeValue.fromS(lastDistribution));
+        item.put("updated", AttributeValue.fromN(String.valueOf(System.currentTimeMillis())));
+        dynamoDbClient.putItem(PutItemRequest.builder()
+                                             .tableName(environmentVariables.getResourceStatesTableName())
+                                             .item(item)
+                                             .build());
+    }
+
+    public void clearCheckpoint() {
+        dynamoDbClient.deleteItem(DeleteItemRequest.builder()
+                                                   .tableName(environmentVariables.getResourceStatesTableName())
+                                                   .key(CHECKPOINT_KEY)
+                                                   .build());
+    }
+
+    private static Map<String, AttributeValue> distributionKey(String name) {
+        return Map.of("resourceType", AttributeValue.fromS(DISTRIBUTION_RESOURCE_TYPE),
+                      "name", AttributeValue.fromS(name));
+    }
+
+    /**
+     * @param lastEvaluated the name to continue after, null if this was the last page
+     */
+    public record DistributionPage(List<SweepTarget> targets, String lastEvaluated) {
+
+        public boolean hasMore() {
+            return lastEvaluated != null;
+        }
+    }
+
+    public record SweepTarget(String name,
+                              DistributionName distributionName,
+                              Environment environment,
+                              String deployOriginBucket) {
+    }
+}
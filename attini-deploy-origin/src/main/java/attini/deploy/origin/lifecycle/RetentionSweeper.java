@@ -0,0 +1,87 @@
+package attini.deploy.origin.lifecycle;
+
+import static java.util.Objects.requireNonNull;
+
+import java.time.Duration;
+import java.util.function.LongSupplier;
+
+import org.jboss.logging.Logger;
+
+import attini.deploy.origin.lifecycle.RetentionSweepFacade.DistributionPage;
+import attini.deploy.origin.lifecycle.RetentionSweepFacade.SweepTarget;
+import attini.deploy.origin.system.EnvironmentVariables;
+import attini.deploy.origin.system.IllegalEnvironmentVariableException;
+
+/**
+ * Removes expired distributions for every distribution in the account, one distribution at a time. The sweep is
+ * started on a schedule and picks up where the previous invocation stopped, it stops by itself when the remaining
+ * invocation time gets too short to clean up another distribution. The sweep only runs in the
+ * {@link RetentionMode#SWEEPER} retention mode, in the other modes expired distributions are removed by the deploys
+ * or by the deploy data expiry.
+ */
+public class RetentionSweeper {
+
+    private static final Logger logger = Logger.getLogger(RetentionSweeper.class);
+    static final long STOP_MARGIN_MILLIS = Duration.ofSeconds(90).toMillis();
+
+    private final LifeCycleService lifeCycleService;
+    private final RetentionSweepFacade retentionSweepFacade;
+    private final EnvironmentVariables environmentVariables;
+
+    public RetentionSweeper(LifeCycleService lifeCycleService,
+                            RetentionSweepFacade retentionSweepFacade,
+                            EnvironmentVariables environmentVariables) {
+        this.lifeCycleService = requireNonNull(lifeCycleService, "lifeCycleService");
+        this.retentionSweepFacade = requireNonNull(retentionSweepFacade, "retentionSweepFacade");
+        this.environmentVariables = requireNonNull(environmentVariables, "environmentVariables");
+    }
+
+    /**
+     * @param remainingTimeMillis the time left of the current invocation
+     */
+    public SweepResult sweep(LongSupplier remainingTimeMillis) {
+        try {
+            RetentionMode retentionMode = environmentVariables.getRetentionMode();
+            if (retentionMode != RetentionMode.SWEEPER) {
+                logger.info("Life cycle management is handled in retention mode " + retentionMode + ", skipping retention sweep");
+                return new SweepResult(0, true);
+            }
+        } catch (IllegalEnvironmentVariableException e) {
+            logger.error("Could not perform retention sweep due to illegal environmental variables", e);
+            return new SweepResult(0, true);
+        }
+
+        String startAfter = retentionSweepFacade.getCheckpoint().orElse(null);
+        logger.info(startAfter == null ? "Starting a new retention sweep" : "Resuming retention sweep after " + startAfter);
+
+        int swept = 0;
+        DistributionPage page;
+        do {
+            page = retentionSweepFacade.getDistributions(startAfter);
+            for (SweepTarget target : page.targets()) {
+                if (remainingTimeMillis.getAsLong() < STOP_MARGIN_MILLIS) {
+                    logger.info("Stopping retention sweep due to time limit after " + swept + " distributions");
+                    if (startAfter != null) {
+                        retentionSweepFacade.saveCheckpoint(startAfter);
+                    }
+                    return new SweepResult(swept, false);
+                }
+                lifeCycleService.cleanup(target.distributionName(), target.environment(), target.deployOriginBucket())
+                                .join();
+                startAfter = target.name();
+                retentionSweepFacade.saveCheckpoint(startAfter);
+                swept++;
+            }
+            if (page.hasMore()) {
+                startAfter = page.lastEvaluated();
+            }
+        } while (page.hasMore());
+
+        retentionSweepFacade.clearCheckpoint();
+        logger.info("Retention sweep completed, swept " + swept + " distributions");
+        return new SweepResult(swept, true);
+    }
+
+    public record SweepResult(int swept, boolean complete) {
+    }
+}
@@ -0,0 +1,177 @@
+package attini.deploy.origin.lifecycle;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.jboss.logging.Logger;
+
+import attini.deploy.origin.lifecycle.DeletionResult.DeletionFailure;
+import software.amazon.awssdk.services.s3.S3AsyncClient;
+import software.amazon.awssdk.services.s3.model.Delete;
+import software.amazon.awssdk.services.s3.model.DeleteObjectsRequest;
+import software.amazon.awssdk.services.s3.model.DeleteObjectsResponse;
+import software.amazon.awssdk.services.s3.model.ListObjectVersionsRequest;
+import software.amazon.awssdk.services.s3.model.ListObjectVersionsResponse;
+import software.amazon.awssdk.services.s3.model.ListObjectsV2Request;
+import software.amazon.awssdk.services.s3.model.ListObjectsV2Response;
+import software.amazon.awssdk.services.s3.model.ObjectIdentifier;
+
+/**
+ * Deletes S3 objects in DeleteObjects batches of up to 1000 keys while the next page is still being listed. The
+ * number of delete requests in flight is capped for all callers sharing the deleter, so a large cleanup does not
+ * get the artifact bucket throttled. The methods block until every batch has completed.
+ */
+public class S3BatchDeleter {
+
+    private static final Logger logger = Logger.getLogger(S3BatchDeleter.class);
+    static final int MAX_KEYS_PER_REQUEST = 1000;
+
+    private final S3AsyncClient s3AsyncClient;
+    private final Semaphore requestPermits;
+
+    public S3BatchDeleter(S3AsyncClient s3AsyncClient, int maxConcurrentRequests) {
+        this.s3AsyncClient = requireNonNull(s3AsyncClient, "s3AsyncClient");
+        if (maxConcurrentRequests < 1) {
+            throw new IllegalArgumentException("maxConcurrentRequests must be at least 1");
+        }
+        this.requestPermits = new Semaphore(maxConcurrentRequests);
+    }
+
+    public DeletionResult deletePrefix(String bucket, String prefix) {
+        Batch batch = new Batch(bucket);
+        String continuationToken = null;
+        try {
+            do {
+                ListObjectsV2Response response = s3AsyncClient.listObjectsV2(ListObjectsV2Request.builder()
+                                                                                                 .bucket(bucket)
+                                                                                                 .prefix(prefix)
+                                                                                                 .continuationToken(
+                                                                                                         continuationToken)
+                                                                                                 .build())
+                                                              .join();
+                response.contents()
+                        .forEach(s3Object -> batch.add(ObjectIdentifier.builder().key(s3Object.key()).build()));
+                continuationToken = Boolean.TRUE.equals(response.isTruncated()) ? response.nextContinuationToken() : null;
+            } while (continuationToken != null);
+        } catch (RuntimeException e) {
+            logger.warn("Could not list objects with prefix " + prefix + ", will delete the objects listed so far", e);
+            batch.failed(prefix, null, e);
+        }
+        return batch.complete();
+    }
+
+    /**
+     * Deletes every version and delete marker under the prefix.
+     */
+    public DeletionResult deleteAllVersions(String bucket, String prefix) {
+        Batch batch = new Batch(bucket);
+        String keyMarker = null;
+        String versionIdMarker = null;
+        try {
+            boolean truncated;
+            do {
+                ListObjectVersionsResponse response = s3AsyncClient.listObjectVersions(ListObjectVersionsRequest.builder()
+                                                                                                                .bucket(bucket)
+                                                                                                                .prefix(prefix)
+                                                                                                                .keyMarker(keyMarker)
+                                                                                                                .versionIdMarker(
+                                                                                                                        versionIdMarker)
+                                                                                                                .build())
+                                                                   .join();
+                response.versions()
+                        .forEach(version -> batch.add(toIdentifier(version.key(), version.versionId())));
+                response.deleteMarkers()
+                        .forEach(marker -> batch.add(toIdentifier(marker.key(), marker.versionId())));
+                truncated = Boolean.TRUE.equals(response.isTruncated());
+                keyMarker = response.nextKeyMarker();
+                versionIdMarker = response.nextVersionIdMarker();
+            } while (truncated);
+        } catch (RuntimeException e) {
+            logger.warn("Could not list object versions with prefix " + prefix + ", will delete the versions listed so far",
+                        e);
+            batch.failed(prefix, null, e);
+        }
+        return batch.complete();
+    }
+
+    public DeletionResult deleteObjects(String bucket, Collection<ObjectIdentifier> objects) {
+        Batch batch = new Batch(bucket);
+        objects.forEach(batch::add);
+        return batch.complete();
+    }
+
+    private static ObjectIdentifier toIdentifier(String key, String versionId) {
+        return ObjectIdentifier.builder().key(key).versionId(versionId).build();
+    }
+
+    private class Batch {
+        private final String bucket;
+        private final List<CompletableFuture<Void>> requests = new ArrayList<>();
+        private final List<DeletionFailure> failures = new CopyOnWriteArrayList<>();
+        private final AtomicInteger deleted = new AtomicInteger();
+        private List<ObjectIdentifier> objects = new ArrayList<>(MAX_KEYS_PER_REQUEST);
+
+        private Batch(String bucket) {
+            this.bucket = bucket;
+        }
+
+        void add(ObjectIdentifier object) {
+            objects.add(object);
+            if (objects.size() == MAX_KEYS_PER_REQUEST) {
+                flush();
+            }
+        }
+
+        void failed(String key, String versionId, Throwable throwable) {
+            failures.add(new DeletionFailure(key, versionId, String.valueOf(throwable.getMessage())));
+        }
+
+        DeletionResult complete() {
+            flush();
+            CompletableFuture.allOf(requests.toArray(CompletableFuture[]::new)).join();
+            return new DeletionResult(deleted.get(), failures);
+        }
+
+        private void flush() {
+            if (objects.isEmpty()) {
+                return;
+            }
+            List<ObjectIdentifier> toDelete = objects;
+            objects = new ArrayList<>(MAX_KEYS_PER_REQUEST);
+
+            requestPermits.acquireUninterruptibly();
+            CompletableFuture<DeleteObjectsResponse> request;
+            try {
+                request = s3AsyncClient.deleteObjects(DeleteObjectsRequest.builder()
+                                                                          .bucket(bucket)
+                                                                          .delete(Delete.builder()
+                                                                                        .objects(toDelete)
+                                                                                        .quiet(true)
+                                                                                        .build())
+                                                                          .build());
+            } catch (RuntimeException e) {
+                request = CompletableFuture.failedFuture(e);
+            }
+            requests.add(request.handle((response, throwable) -> {
+                requestPermits.release();
+                if (throwable != null) {
+                    toDelete.forEach(object -> failed(object.key(), object.versionId(), throwable));
+                    return null;
+                }
+                response.errors()
+                        .forEach(error -> failures.add(new DeletionFailure(error.key(),
+                                                                           error.versionId(),
+                                                                           error.code() + ": " + error.message())));
+                deleted.addAndGet(toDelete.size() - response.errors().size());
+                return null;
+            }));
+        }
+    }
+}
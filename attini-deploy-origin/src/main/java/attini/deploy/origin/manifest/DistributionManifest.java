@@ -0,0 +1,88 @@
+package attini.deploy.origin.manifest;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import attini.deploy.origin.zip.IndexedFile;
+import attini.domain.DistributionId;
+import attini.domain.DistributionName;
+import attini.domain.Environment;
+
+/**
+ * The content of a published distribution, keyed on the path of the file relative to the artifact prefix. Used to
+ * find files that are unchanged since the previous distribution so that they can be copied instead of uploaded, and
+ * to remove exactly the objects of the distribution once it has expired.
+ *
+ * @param distributionKey the key of the copied distribution zip, missing in manifests written by older versions
+ * @param totalBytes      the size of all files in the distribution, not counting the distribution zip
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public record DistributionManifest(@JsonProperty("artifactPrefix") String artifactPrefix,
+                                   @JsonProperty("distributionKey") String distributionKey,
+                                   @JsonProperty("totalBytes") long totalBytes,
+                                   @JsonProperty("files") Map<String, ManifestEntry> files) {
+
+    private static final String MANIFEST_FILE_NAME = "distribution-manifest.json";
+
+    public DistributionManifest {
+        files = files == null ? Map.of() : Collections.unmodifiableMap(new TreeMap<>(files));
+    }
+
+    public static DistributionManifest of(String artifactPrefix,
+                                          String distributionKey,
+                                          Collection<IndexedFile> files) {
+        return new DistributionManifest(artifactPrefix,
+                                        distributionKey,
+                                        files.stream().mapToLong(IndexedFile::size).sum(),
+                                        files.stream()
+                                             .collect(Collectors.toMap(IndexedFile::path,
+                                                                       file -> new ManifestEntry(file.digest().sha256Hex(),
+                                                                                                 file.size()))));
+    }
+
+    /**
+     * Returns the keys of every object that was published for the distribution, except the manifest itself. Empty if
+     * the manifest was written by an older version that did not record all of them.
+     */
+    public Optional<List<String>> objectKeys() {
+        if (distributionKey == null) {
+            return Optional.empty();
+        }
+        Set<String> keys = new LinkedHashSet<>();
+        files.keySet().forEach(path -> keys.add(artifactPrefix + "/" + path));
+        keys.add(distributionKey);
+        return Optional.of(List.copyOf(keys));
+    }
+
+    /**
+     * Returns the key of the file in the artifact store if a file with the same path and content is part of this
+     * manifest.
+     */
+    public Optional<String> findUnchangedKey(String path, String sha256, long size) {
+        ManifestEntry entry = files.get(path);
+        if (entry != null && entry.size() == size && entry.sha256().equals(sha256)) {
+            return Optional.of(artifactPrefix + "/" + path);
+        }
+        return Optional.empty();
+    }
+
+    public static String manifestKey(Environment environment,
+                                     DistributionName distributionName,
+                                     DistributionId distributionId) {
+        return environment.asString() + "/" + distributionName.asString() + "/" + distributionId.asString() + "/" + MANIFEST_FILE_NAME;
+    }
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public record ManifestEntry(@JsonProperty("sha256") String sha256, @JsonProperty("size") long size) {
+    }
+}
@@ -0,0 +1,65 @@
+package attini.deploy.origin.manifest;
+
+import static java.util.Objects.requireNonNull;
+
+import java.io.IOException;
+import java.util.Optional;
+
+import org.jboss.logging.Logger;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import software.amazon.awssdk.core.exception.SdkException;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.core.sync.ResponseTransformer;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+import software.amazon.awssdk.services.s3.model.NoSuchKeyException;
+import software.amazon.awssdk.services.s3.model.PutObjectRequest;
+
+public class DistributionManifestFacade {
+
+    private static final Logger logger = Logger.getLogger(DistributionManifestFacade.class);
+
+    private final S3Client s3Client;
+    private final ObjectMapper objectMapper;
+
+    public DistributionManifestFacade(S3Client s3Client, ObjectMapper objectMapper) {
+        this.s3Client = requireNonNull(s3Client, "s3Client");
+        this.objectMapper = requireNonNull(objectMapper, "objectMapper");
+    }
+
+    /**
+     * A missing or unreadable manifest is not an error, callers fall back to uploading or listing all files.
+     */
+    public Optional<DistributionManifest> getManifest(String bucket, String key) {
+        try {
+            byte[] manifest = s3Client.getObject(GetObjectRequest.builder()
+                                                                 .bucket(bucket)
+                                                                 .key(key)
+                                                                 .build(),
+                                                 ResponseTransformer.toBytes())
+                                      .asByteArray();
+            return Optional.of(objectMapper.readValue(manifest, DistributionManifest.class));
+        } catch (NoSuchKeyException e) {
+            logger.info("No distribution manifest found at " + key);
+            return Optional.empty();
+        } catch (IOException | SdkException e) {
+            logger.warn("Could not read distribution manifest at " + key, e);
+            return Optional.empty();
+        }
+    }
+
+    public void saveManifest(String bucket, String key, DistributionManifest manifest) {
+        try {
+            s3Client.putObject(PutObjectRequest.builder()
+                                               .bucket(bucket)
+                                               .key(key)
+                                               .contentType("application/json")
+                                               .build(),
+                               RequestBody.fromBytes(objectMapper.writeValueAsBytes(manifest)));
+        } catch (IOException | SdkException e) {
+            logger.warn("Could not save distribution manifest at " + key + ", the next publish will upload all files", e);
+        }
+    }
+}
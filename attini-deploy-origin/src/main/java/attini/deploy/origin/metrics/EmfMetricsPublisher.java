@@ -0,0 +1,86 @@
+package attini.deploy.origin.metrics;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import org.jboss.logging.Logger;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Writes stage metrics as CloudWatch Embedded Metric Format documents, one per stage. CloudWatch turns every document
+ * written to the function log into metrics, so no calls to CloudWatch are made during the deploy.
+ */
+public class EmfMetricsPublisher {
+
+    private static final Logger logger = Logger.getLogger(EmfMetricsPublisher.class);
+    static final String NAMESPACE = "Attini/DeployOrigin";
+
+    private final ObjectMapper objectMapper;
+    private final Consumer<String> sink;
+
+    /**
+     * @param sink receives every document as a single line, CloudWatch only parses documents that are a log event
+     *             of their own
+     */
+    public EmfMetricsPublisher(ObjectMapper objectMapper, Consumer<String> sink) {
+        this.objectMapper = requireNonNull(objectMapper, "objectMapper");
+        this.sink = requireNonNull(sink, "sink");
+    }
+
+    /**
+     * Failing to publish metrics never fails the deploy.
+     */
+    public void publish(StageMetrics stageMetrics) {
+        long timestamp = System.currentTimeMillis();
+        for (StageMeasurement measurement : stageMetrics.getMeasurements()) {
+            try {
+                sink.accept(objectMapper.writeValueAsString(toDocument(stageMetrics, measurement, timestamp)));
+            } catch (JsonProcessingException | RuntimeException e) {
+                logger.warn("Could not publish metrics for stage " + measurement.stage(), e);
+            }
+        }
+    }
+
+    private static Map<String, Object> toDocument(StageMetrics stageMetrics,
+                                                  StageMeasurement measurement,
+                                                  long timestamp) {
+        Map<String, Object> document = new LinkedHashMap<>();
+        List<Map<String, String>> metrics = new ArrayList<>();
+
+        document.put("Environment", stageMetrics.getEnvironment().asString());
+        document.put("DistributionName", stageMetrics.getDistributionName().asString());
+        document.put("Stage", measurement.stage());
+        addMetric(document, metrics, "Duration", "Milliseconds", measurement.durationMillis());
+        addMetric(document, metrics, "Bytes", "Bytes", measurement.bytes());
+        addMetric(document, metrics, "Objects", "Count", measurement.objects());
+        addMetric(document, metrics, "Retries", "Count", measurement.retries());
+
+        document.put("_aws",
+                     Map.of("Timestamp", timestamp,
+                            "CloudWatchMetrics", List.of(Map.of("Namespace", NAMESPACE,
+                                                                "Dimensions",
+                                                                List.of(List.of("Environment",
+                                                                                "DistributionName",
+                                                                                "Stage")),
+                                                                "Metrics", metrics))));
+        return document;
+    }
+
+    private static void addMetric(Map<String, Object> document,
+                                  List<Map<String, String>> metrics,
+                                  String name,
+                                  String unit,
+                                  Long value) {
+        if (value != null) {
+            document.put(name, value);
+            metrics.add(Map.of("Name", name, "Unit", unit));
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package attini.deploy.origin.metrics;
+
+/**
+ * What was measured for one stage of a deploy. Values that were never recorded for the stage are null so that they
+ * are left out of the published metrics instead of being reported as zero.
+ */
+public record StageMeasurement(String stage, Long durationMillis, Long bytes, Long objects, Long retries) {
+
+    StageMeasurement plus(StageMeasurement other) {
+        return new StageMeasurement(stage,
+                                    sum(durationMillis, other.durationMillis()),
+                                    sum(bytes, other.bytes()),
+                                    sum(objects, other.objects()),
+                                    sum(retries, other.retries()));
+    }
+
+    private static Long sum(Long first, Long second) {
+        if (first == null) {
+            return second;
+        }
+        return second == null ? first : first + second;
+    }
+}
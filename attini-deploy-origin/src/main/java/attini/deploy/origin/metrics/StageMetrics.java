@@ -0,0 +1,89 @@
+package attini.deploy.origin.metrics;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import attini.domain.DistributionName;
+import attini.domain.Environment;
+
+/**
+ * Collects the duration, size, object count and retries of every stage of one deploy. Stages may be recorded from
+ * several threads, values recorded for the same stage more than once are added up.
+ */
+public class StageMetrics {
+
+    private final Environment environment;
+    private final Map<String, StageMeasurement> measurements = new LinkedHashMap<>();
+    private DistributionName distributionName;
+
+    public StageMetrics(Environment environment, DistributionName distributionName) {
+        this.environment = requireNonNull(environment, "environment");
+        this.distributionName = requireNonNull(distributionName, "distributionName");
+    }
+
+    public Environment getEnvironment() {
+        return environment;
+    }
+
+    public synchronized DistributionName getDistributionName() {
+        return distributionName;
+    }
+
+    /**
+     * The distribution name is only known for sure once the attini-config has been read.
+     */
+    public synchronized void setDistributionName(DistributionName distributionName) {
+        this.distributionName = requireNonNull(distributionName, "distributionName");
+    }
+
+    /**
+     * Runs the action and records how long it took, also if it failed.
+     */
+    public <T> T measure(String stage, Supplier<T> action) {
+        long start = System.nanoTime();
+        try {
+            return action.get();
+        } finally {
+            recordDuration(stage, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        }
+    }
+
+    public void measure(String stage, Runnable action) {
+        measure(stage, () -> {
+            action.run();
+            return null;
+        });
+    }
+
+    public void recordDuration(String stage, long durationMillis) {
+        add(new StageMeasurement(stage, durationMillis, null, null, null));
+    }
+
+    public void recordBytes(String stage, long bytes) {
+        add(new StageMeasurement(stage, null, bytes, null, null));
+    }
+
+    public void recordObjects(String stage, long objects) {
+        add(new StageMeasurement(stage, null, null, objects, null));
+    }
+
+    public void recordRetries(String stage, long retries) {
+        add(new StageMeasurement(stage, null, null, null, retries));
+    }
+
+    /**
+     * Returns the stages in the order they were first recorded.
+     */
+    public synchronized List<StageMeasurement> getMeasurements() {
+        return List.copyOf(measurements.values());
+    }
+
+    private synchronized void add(StageMeasurement measurement) {
+        measurements.merge(measurement.stage(), measurement, StageMeasurement::plus);
+    }
+}
@@ -0,0 +1,112 @@
+package attini.deploy.origin.s3;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import org.jboss.logging.Logger;
+
+/**
+ * Additive increase, multiplicative decrease limit for uploads to the artifact bucket.
+ * <p>
+ * Latencies are collected in windows of at least as many samples as the current limit. After every window the limit
+ * is doubled while no backoff has happened yet and increased by one after that. The limit is halved when S3 throttles
+ * (503 SlowDown) or when the p99 latency of a window rises above twice the best p99 seen so far. Throttling only
+ * causes one decrease per window so that a burst of SlowDown responses from the same window does not collapse the
+ * limit.
+ * <p>
+ * Only uploads are sampled, server side copies take a time that depends on the size of the source and not on the
+ * load on the bucket. The latency of an upload is divided by {@code 1 + size / 1 MiB}, which treats the latency of
+ * small objects as request overhead and of large objects as transfer time, so that a window of large objects does
+ * not look slower than a window of small ones.
+ * <p>
+ * The limit is kept between invocations of a warm Lambda so that it settles near the capacity of the bucket.
+ */
+public class AimdConcurrencyLimit implements ConcurrencyLimit {
+
+    private static final Logger logger = Logger.getLogger(AimdConcurrencyLimit.class);
+    private static final int MIN_WINDOW_SIZE = 20;
+    private static final double BACKOFF_RATIO = 0.5;
+    private static final double LATENCY_TOLERANCE = 2.0;
+    private static final double BASELINE_DRIFT = 1.05;
+    private static final double LATENCY_REFERENCE_BYTES = 1024 * 1024;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private double limit;
+    private boolean slowStart = true;
+    private boolean throttledInWindow;
+    private double baselineP99Nanos = Double.NaN;
+    private long[] samples = new long[MIN_WINDOW_SIZE];
+    private int sampleCount;
+
+    public AimdConcurrencyLimit(int initialLimit, int minLimit, int maxLimit) {
+        if (minLimit < 1 || maxLimit < minLimit) {
+            throw new IllegalArgumentException("Invalid concurrency limit range " + minLimit + "-" + maxLimit);
+        }
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.limit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+    }
+
+    @Override
+    public synchronized int getLimit() {
+        return (int) limit;
+    }
+
+    @Override
+    public synchronized void onSuccess(long latencyNanos, long bytes) {
+        if (bytes <= 0) {
+            return;
+        }
+        if (sampleCount == samples.length) {
+            samples = Arrays.copyOf(samples, samples.length * 2);
+        }
+        samples[sampleCount++] = (long) (latencyNanos / (1 + bytes / LATENCY_REFERENCE_BYTES));
+        if (sampleCount >= Math.max(MIN_WINDOW_SIZE, (int) limit)) {
+            evaluateWindow();
+        }
+    }
+
+    @Override
+    public synchronized void onThrottle() {
+        if (!throttledInWindow) {
+            throttledInWindow = true;
+            decrease("throttled by S3");
+        }
+    }
+
+    private void evaluateWindow() {
+        Arrays.sort(samples, 0, sampleCount);
+        long p99 = samples[Math.min(sampleCount - 1, (int) Math.ceil(sampleCount * 0.99) - 1)];
+        boolean throttled = throttledInWindow;
+        sampleCount = 0;
+        throttledInWindow = false;
+
+        if (throttled) {
+            return;
+        }
+        if (!Double.isNaN(baselineP99Nanos) && p99 > baselineP99Nanos * LATENCY_TOLERANCE) {
+            decrease("p99 latency rose to " + toMillis(p99) + " ms from a baseline of " + toMillis((long) baselineP99Nanos) + " ms");
+            return;
+        }
+        baselineP99Nanos = Double.isNaN(baselineP99Nanos) ? p99 : Math.min(p99, baselineP99Nanos * BASELINE_DRIFT);
+        setLimit(slowStart ? limit * 2 : limit + 1, "p99 latency healthy at " + toMillis(p99) + " ms");
+    }
+
+    private void decrease(String reason) {
+        slowStart = false;
+        setLimit(limit * BACKOFF_RATIO, reason);
+    }
+
+    private void setLimit(double newLimit, String reason) {
+        int oldLimit = (int) limit;
+        limit = Math.max(minLimit, Math.min(maxLimit, newLimit));
+        if ((int) limit != oldLimit) {
+            logger.info("Upload concurrency limit changed from " + oldLimit + " to " + (int) limit + ", " + reason);
+        }
+    }
+
+    private static long toMillis(long nanos) {
+        return TimeUnit.NANOSECONDS.toMillis(nanos);
+    }
+}
@@ -0,0 +1,58 @@
+package attini.deploy.origin.s3;
+
+/**
+ * Decides how many uploads are allowed to be in flight at the same time.
+ */
+public interface ConcurrencyLimit {
+
+    int getLimit();
+
+    /**
+     * @param bytes the size of the uploaded object, 0 for requests that do not upload anything such as server side
+     *              copies
+     */
+    void onSuccess(long latencyNanos, long bytes);
+
+    void onThrottle();
+
+    /**
+     * Returns a limit that never allows more than the given number of requests in flight but otherwise follows, and
+     * feeds, this limit.
+     */
+    default ConcurrencyLimit cappedAt(int max) {
+        ConcurrencyLimit limit = this;
+        return new ConcurrencyLimit() {
+            @Override
+            public int getLimit() {
+                return Math.min(limit.getLimit(), max);
+            }
+
+            @Override
+            public void onSuccess(long latencyNanos, long bytes) {
+                limit.onSuccess(latencyNanos, bytes);
+            }
+
+            @Override
+            public void onThrottle() {
+                limit.onThrottle();
+            }
+        };
+    }
+
+    static ConcurrencyLimit fixed(int limit) {
+        return new ConcurrencyLimit() {
+            @Override
+            public int getLimit() {
+                return limit;
+            }
+
+            @Override
+            public void onSuccess(long latencyNanos, long bytes) {
+            }
+
+            @Override
+            public void onThrottle() {
+            }
+        };
+    }
+}
@@ -1,42 +1,68 @@
 package attini.deploy.origin.s3;
 
-import java.io.IOException;
-import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.Paths;
+import java.util.Collection;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
-import java.util.function.Function;
-import java.util.stream.Stream;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Supplier;
 
-import org.apache.commons.lang3.StringUtils;
 import org.jboss.logging.Logger;
-import com.google.common.collect.Lists;
 
 import attini.deploy.origin.PublishDistributionException;
+import attini.deploy.origin.manifest.DistributionManifest;
+import attini.deploy.origin.system.EnvironmentVariables;
+import attini.deploy.origin.zip.ExtractionResult;
+import attini.deploy.origin.zip.FileDigest;
+import attini.deploy.origin.zip.IndexedFile;
+import attini.deploy.origin.zip.ZipRangeReader;
 import attini.domain.DistributionId;
 import attini.domain.DistributionName;
 import software.amazon.awssdk.core.ResponseBytes;
+import software.amazon.awssdk.core.ResponseInputStream;
 import software.amazon.awssdk.core.async.AsyncRequestBody;
-import software.amazon.awssdk.core.sync.RequestBody;
 import software.amazon.awssdk.core.sync.ResponseTransformer;
 import software.amazon.awssdk.services.s3.S3AsyncClient;
 import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.AbortMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CompleteMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CompletedMultipartUpload;
+import software.amazon.awssdk.services.s3.model.CompletedPart;
+import software.amazon.awssdk.services.s3.model.CopyObjectRequest;
+import software.amazon.awssdk.services.s3.model.CopyObjectResponse;
+import software.amazon.awssdk.services.s3.model.CreateMultipartUploadRequest;
 import software.amazon.awssdk.services.s3.model.GetObjectRequest;
 import software.amazon.awssdk.services.s3.model.GetObjectResponse;
+import software.amazon.awssdk.services.s3.model.HeadObjectRequest;
+import software.amazon.awssdk.services.s3.model.HeadObjectResponse;
 import software.amazon.awssdk.services.s3.model.PutObjectRequest;
 import software.amazon.awssdk.services.s3.model.PutObjectResponse;
+import software.amazon.awssdk.services.s3.model.TaggingDirective;
+import software.amazon.awssdk.services.s3.model.UploadPartCopyRequest;
 
 public class S3Facade {
 
     private static final Logger logger = Logger.getLogger(S3Facade.class);
-    private static final String ILLEGAL_CHARS = "*[#%{}`~<>|^ &;?$,+=@]";
+    private static final int MAX_UPLOAD_ATTEMPTS = 3;
+    private static final long MAX_SINGLE_COPY_SIZE = 256L * 1024 * 1024;
+    private static final long MULTIPART_COPY_PART_SIZE = 128L * 1024 * 1024;
+    private static final int MAX_COPY_PARTS_IN_FLIGHT = 8;
+    private static final long MAX_PARTS = 10_000;
     private final S3Client s3Client;
     private final S3AsyncClient s3AsyncClient;
+    private final EnvironmentVariables environmentVariables;
+    private final ConcurrencyLimit uploadConcurrencyLimit;
 
-    public S3Facade(S3Client s3Client, S3AsyncClient s3AsyncClient) {
+    public S3Facade(S3Client s3Client,
+                    S3AsyncClient s3AsyncClient,
+                    EnvironmentVariables environmentVariables,
+                    ConcurrencyLimit uploadConcurrencyLimit) {
         this.s3Client = s3Client;
         this.s3AsyncClient = s3AsyncClient;
+        this.environmentVariables = environmentVariables;
+        this.uploadConcurrencyLimit = uploadConcurrencyLimit;
     }
 
     public byte[] downloadS3File(String bucket, String key) {
@@ -54,66 +80,304 @@ public class S3Facade {
 
     }
 
-    public void uploadDirectory(Path localPath,
+    /**
+     * Downloads the given version of the object to the given path, the file must not already exist.
+     *
+     * @param versionId the version to download, the current version if empty
+     */
+    public void downloadS3File(String bucket, String key, Optional<String> versionId, Path destination) {
+        logger.info(String.format("Downloading distribution from s3 %s/%s to %s", bucket, key, destination));
+        s3Client.getObject(GetObjectRequest.builder()
+                                           .bucket(bucket)
+                                           .key(key)
+                                           .versionId(versionId.orElse(null))
+                                           .build(),
+                           ResponseTransformer.toFile(destination));
+    }
+
+    /**
+     * Opens the given version of the object as a stream so that it can be consumed while it is downloaded. The caller
+     * is responsible for closing the stream.
+     *
+     * @param versionId the version to open, the current version if empty
+     */
+    public ResponseInputStream<GetObjectResponse> openS3File(String bucket, String key, Optional<String> versionId) {
+        logger.info(String.format("Streaming distribution from s3 %s/%s", bucket, key));
+        return s3Client.getObject(GetObjectRequest.builder()
+                                                  .bucket(bucket)
+                                                  .key(key)
+                                                  .versionId(versionId.orElse(null))
+                                                  .build());
+    }
+
+    /**
+     * Reads byte ranges of the given version of the object. The reads are also pinned to the ETag of that version, so
+     * that all reads see the same content even if no version is given.
+     *
+     * @param versionId the version to read, the current version if empty
+     */
+    public ZipRangeReader rangeReader(String bucket, String key, Optional<String> versionId) {
+        HeadObjectResponse head = s3Client.headObject(HeadObjectRequest.builder()
+                                                                       .bucket(bucket)
+                                                                       .key(key)
+                                                                       .versionId(versionId.orElse(null))
+                                                                       .build());
+        return new ZipRangeReader() {
+            @Override
+            public long size() {
+                return head.contentLength();
+            }
+
+            @Override
+            public byte[] read(long offset, int length) {
+                return s3Client.getObject(GetObjectRequest.builder()
+                                                          .bucket(bucket)
+                                                          .key(key)
+                                                          .versionId(versionId.orElse(null))
+                                                          .ifMatch(head.eTag())
+                                                          .range("bytes=%d-%d".formatted(offset, offset + length - 1))
+                                                          .build(),
+                                          ResponseTransformer.toBytes()).asByteArray();
+            }
+        };
+    }
+
+    public void validateFileNames(Collection<String> files,
+                                  DistributionName distributionName,
+                                  DistributionId distributionId) {
+        files.forEach(s -> {
+            if (IndexedFile.hasIllegalCharacters(s)) {
+                throw new PublishDistributionException(distributionName, distributionId,
+                                                       "Could not publish artifact, illegal character in file = " + s);
+            }
+        });
+    }
+
+    /**
+     * Uploads all extracted files. Files that are unchanged since the previous manifest are copied server side
+     * instead of uploaded.
+     *
+     * @return the number of upload attempts that had to be retried
+     */
+    public int uploadDirectory(ExtractionResult extraction,
                                 String s3Bucket,
                                 String s3Prefix,
                                 DistributionName distributionName,
-                                DistributionId distributionId) {
-        try (Stream<Path> walk = Files.walk(localPath)) {
-            List<String> files = walk.filter(Files::isRegularFile)
-                                     .map(Path::toString)
-                                     .toList();
-
-            files.forEach(s -> {
-                if (StringUtils.containsAny(s, ILLEGAL_CHARS)) {
-                    throw new PublishDistributionException(distributionName, distributionId,
-                                                           "Could not publish artifact, illegal character in file = " + s);
-                }
-            });
-
-            List<List<String>> partitions = Lists.partition(files, 700);
-
-            logger.info("Uploading distribution to artifact store");
-
-            for (List<String> partition : partitions){
-                partition.parallelStream()
-                     .map(uploadDistribution(localPath, s3Bucket, s3Prefix))
-                     .reduce((f1, f2) -> f1.thenCombine(f2, (unused, unused2) -> unused))
-                     .ifPresent(CompletableFuture::join);
-                logger.info("Uploaded distribution partition to artifact store");
-            }
+                                DistributionId distributionId,
+                                Optional<DistributionManifest> previousManifest) {
+
+        extraction.getFilesWithIllegalCharacters().stream().findFirst().ifPresent(file -> {
+            throw new PublishDistributionException(distributionName, distributionId,
+                                                   "Could not publish artifact, illegal character in file = " + file);
+        });
 
-            logger.info("Done Uploading distribution to artifact store");
+        logger.info("Uploading distribution to artifact store");
 
+        UploadScheduler uploadScheduler = createUploadScheduler();
+        extraction.getFiles().values().forEach(file -> {
+            Path path = extraction.getDirectory().resolve(file.path());
+            String key = s3Prefix + "/" + file.path();
+            submitArtifact(uploadScheduler,
+                           s3Bucket,
+                           key,
+                           file.size(),
+                           previousManifest.flatMap(manifest -> manifest.findUnchangedKey(file.path(),
+                                                                                          file.digest().sha256Hex(),
+                                                                                          file.size())),
+                           () -> uploadFile(path, s3Bucket, key, file.digest()));
+        });
+        uploadScheduler.awaitCompletion();
+
+        logger.info("Done Uploading distribution to artifact store");
+        return uploadScheduler.getRetries();
+    }
 
-        } catch (IOException e) {
-            throw new RuntimeException(e);
+    /**
+     * Copies the object server side so that no bytes pass through the Lambda. Objects larger than the single copy
+     * limit are copied with a multipart upload so that no single request has to copy more than a part within the
+     * request timeout. The parts are copied through an {@link UploadScheduler} that keeps a bounded number of parts in
+     * flight and retries failed parts. Tags are not copied.
+     *
+     * @param sourceVersionId the version of the source object to copy, the current version if empty
+     * @return the size of the copied object
+     */
+    public long copyFile(String sourceBucket,
+                         String sourceKey,
+                         Optional<String> sourceVersionId,
+                         String destinationBucket,
+                         String destinationKey) {
+        long size = s3Client.headObject(HeadObjectRequest.builder()
+                                                         .bucket(sourceBucket)
+                                                         .key(sourceKey)
+                                                         .versionId(sourceVersionId.orElse(null))
+                                                         .build())
+                            .contentLength();
+
+        if (size <= MAX_SINGLE_COPY_SIZE) {
+            s3Client.copyObject(CopyObjectRequest.builder()
+                                                 .sourceBucket(sourceBucket)
+                                                 .sourceKey(sourceKey)
+                                                 .sourceVersionId(sourceVersionId.orElse(null))
+                                                 .destinationBucket(destinationBucket)
+                                                 .destinationKey(destinationKey)
+                                                 .taggingDirective(TaggingDirective.REPLACE)
+                                                 .build());
+        } else {
+            multipartCopy(sourceBucket, sourceKey, sourceVersionId.orElse(null), destinationBucket, destinationKey, size);
         }
+        return size;
     }
 
+    private void multipartCopy(String sourceBucket,
+                               String sourceKey,
+                               String sourceVersionId,
+                               String destinationBucket,
+                               String destinationKey,
+                               long size) {
+        long partSize = Math.max(MULTIPART_COPY_PART_SIZE, (size + MAX_PARTS - 1) / MAX_PARTS);
+        int partCount = (int) ((size + partSize - 1) / partSize);
+        logger.info("Copying " + sourceKey + " using multipart copy with " + partCount + " parts");
 
+        String uploadId = s3Client.createMultipartUpload(CreateMultipartUploadRequest.builder()
+                                                                                     .bucket(destinationBucket)
+                                                                                     .key(destinationKey)
+                                                                                     .build())
+                                  .uploadId();
+        try {
+            AtomicReferenceArray<CompletedPart> parts = new AtomicReferenceArray<>(partCount);
+            UploadScheduler uploadScheduler = new UploadScheduler(uploadConcurrencyLimit.cappedAt(MAX_COPY_PARTS_IN_FLIGHT),
+                                                                  Long.MAX_VALUE,
+                                                                  MAX_UPLOAD_ATTEMPTS);
+            for (int partNumber = 1; partNumber <= partCount; partNumber++) {
+                long firstByte = (partNumber - 1) * partSize;
+                long lastByte = Math.min(firstByte + partSize, size) - 1;
+                int currentPart = partNumber;
+                // Submitted without a size since no bytes are uploaded, the scheduler only limits the parts in flight
+                uploadScheduler.submit(sourceKey + " part " + currentPart,
+                                       0,
+                                       () -> s3AsyncClient.uploadPartCopy(UploadPartCopyRequest.builder()
+                                                                                               .sourceBucket(sourceBucket)
+                                                                                               .sourceKey(sourceKey)
+                                                                                               .sourceVersionId(sourceVersionId)
+                                                                                               .destinationBucket(destinationBucket)
+                                                                                               .destinationKey(destinationKey)
+                                                                                               .uploadId(uploadId)
+                                                                                               .partNumber(currentPart)
+                                                                                               .copySourceRange("bytes=" + firstByte + "-" + lastByte)
+                                                                                               .build())
+                                                          .thenAccept(response -> parts.set(currentPart - 1,
+                                                                                            CompletedPart.builder()
+                                                                                                         .partNumber(currentPart)
+                                                                                                         .eTag(response.copyPartResult()
+                                                                                                                       .eTag())
+                                                                                                         .build())));
+            }
+            uploadScheduler.awaitCompletion();
 
-    public void uploadFile(byte[] file, String s3Bucket, String s3Prefix, String fileName) {
-        s3Client.putObject(PutObjectRequest.builder()
-                                           .bucket(s3Bucket)
-                                           .key(s3Prefix + "/" + fileName)
-                                           .build(),
-                           RequestBody.fromBytes(file));
+            List<CompletedPart> completedParts = new ArrayList<>(partCount);
+            for (int i = 0; i < partCount; i++) {
+                completedParts.add(parts.get(i));
+            }
+            s3Client.completeMultipartUpload(CompleteMultipartUploadRequest.builder()
+                                                                           .bucket(destinationBucket)
+                                                                           .key(destinationKey)
+                                                                           .uploadId(uploadId)
+                                                                           .multipartUpload(CompletedMultipartUpload.builder()
+                                                                                                                    .parts(completedParts)
+                                                                                                                    .build())
+                                                                           .build());
+        } catch (RuntimeException e) {
+            logger.error("Multipart copy of " + sourceKey + " failed, aborting upload", e);
+            s3Client.abortMultipartUpload(AbortMultipartUploadRequest.builder()
+                                                                     .bucket(destinationBucket)
+                                                                     .key(destinationKey)
+                                                                     .uploadId(uploadId)
+                                                                     .build());
+            throw e;
+        }
+    }
 
+    public CompletableFuture<PutObjectResponse> uploadBytes(byte[] content,
+                                                            String s3Bucket,
+                                                            String key,
+                                                            FileDigest digest) {
+        return s3AsyncClient.putObject(putObjectRequest(s3Bucket, key, digest), AsyncRequestBody.fromBytes(content));
     }
 
-    private Function<String, CompletableFuture<PutObjectResponse>> uploadDistribution(Path localPath,
-                                                String s3Bucket,
-                                                String s3Prefix) {
-        return path -> {
-            String fileName = path.substring(localPath.toString().length());
+    /**
+     * Creates a scheduler for a single batch of uploads. The byte window is configured by environment variables and the
+     * request window follows the shared upload concurrency limit.
+     */
+    public UploadScheduler createUploadScheduler() {
+        return new UploadScheduler(uploadConcurrencyLimit,
+                                   environmentVariables.getUploadMaxInFlightBytes(),
+                                   MAX_UPLOAD_ATTEMPTS);
+    }
 
-            return s3AsyncClient.putObject(
-                    PutObjectRequest.builder()
-                                    .bucket(s3Bucket)
-                                    .key(s3Prefix + fileName)
-                                    .build(),
-                    AsyncRequestBody.fromFile(Paths.get(path)));
-        };
+    /**
+     * Submits an artifact to the scheduler. If the content is unchanged since the previous distribution the object is
+     * copied server side, falling back to an upload if the copy fails. If the unchanged object already has the same key
+     * nothing is done.
+     */
+    public void submitArtifact(UploadScheduler uploadScheduler,
+                               String s3Bucket,
+                               String key,
+                               long size,
+                               Optional<String> unchangedSourceKey,
+                               Supplier<CompletableFuture<?>> upload) {
+        submitArtifact(uploadScheduler, s3Bucket, key, size, unchangedSourceKey, upload, () -> {
+        });
+    }
+
+    /**
+     * Same as {@link #submitArtifact(UploadScheduler, String, String, long, Optional, Supplier)} but runs the given
+     * callback once the artifact is done, also when nothing had to be done.
+     */
+    public void submitArtifact(UploadScheduler uploadScheduler,
+                               String s3Bucket,
+                               String key,
+                               long size,
+                               Optional<String> unchangedSourceKey,
+                               Supplier<CompletableFuture<?>> upload,
+                               Runnable onDone) {
+        if (unchangedSourceKey.isEmpty()) {
+            uploadScheduler.submit(key, size, upload, onDone);
+        } else if (!unchangedSourceKey.get().equals(key)) {
+            String sourceKey = unchangedSourceKey.get();
+            uploadScheduler.submit(key, 0, () -> copyObject(s3Bucket, sourceKey, key)
+                    .<Object>thenApply(response -> response)
+                    .exceptionallyCompose(throwable -> {
+                        logger.warn("Could not copy unchanged object " + sourceKey + ", will upload it instead. Cause: " + throwable.getMessage());
+                        return upload.get().thenApply(response -> response);
+                    }), onDone);
+        } else {
+            onDone.run();
+        }
+    }
+
+    public CompletableFuture<CopyObjectResponse> copyObject(String s3Bucket, String sourceKey, String destinationKey) {
+        return s3AsyncClient.copyObject(CopyObjectRequest.builder()
+                                                         .sourceBucket(s3Bucket)
+                                                         .sourceKey(sourceKey)
+                                                         .destinationBucket(s3Bucket)
+                                                         .destinationKey(destinationKey)
+                                                         .build());
+    }
+
+    public CompletableFuture<PutObjectResponse> uploadFile(Path path, String s3Bucket, String key, FileDigest digest) {
+        return s3AsyncClient.putObject(putObjectRequest(s3Bucket, key, digest), AsyncRequestBody.fromFile(path));
+    }
+
+    /**
+     * The digests were computed when the content was decoded, sending them lets S3 verify that the object was
+     * stored intact.
+     */
+    private static PutObjectRequest putObjectRequest(String s3Bucket, String key, FileDigest digest) {
+        return PutObjectRequest.builder()
+                               .bucket(s3Bucket)
+                               .key(key)
+                               .contentMD5(digest.md5Base64())
+                               .checksumSHA256(digest.sha256Base64())
+                               .build();
     }
 }
@@ -0,0 +1,29 @@
+package attini.deploy.origin.s3;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+public class UploadFailedException extends RuntimeException {
+
+    private static final int MAX_KEYS_IN_MESSAGE = 10;
+
+    private final List<UploadScheduler.UploadFailure> failures;
+
+    public UploadFailedException(List<UploadScheduler.UploadFailure> failures) {
+        super(createMessage(failures));
+        this.failures = failures;
+    }
+
+    public List<UploadScheduler.UploadFailure> getFailures() {
+        return failures;
+    }
+
+    private static String createMessage(List<UploadScheduler.UploadFailure> failures) {
+        String keys = failures.stream()
+                              .limit(MAX_KEYS_IN_MESSAGE)
+                              .map(failure -> failure.key() + " (" + failure.cause().getMessage() + ")")
+                              .collect(Collectors.joining(", "));
+        String more = failures.size() > MAX_KEYS_IN_MESSAGE ? " and " + (failures.size() - MAX_KEYS_IN_MESSAGE) + " more" : "";
+        return "Failed to upload " + failures.size() + " object(s) to the artifact store: " + keys + more;
+    }
+}
@@ -0,0 +1,173 @@
+package attini.deploy.origin.s3;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import org.jboss.logging.Logger;
+
+import software.amazon.awssdk.services.s3.model.S3Exception;
+
+/**
+ * Keeps a window of in-flight uploads full. A new upload is started as soon as a previous one completes, and
+ * {@link #submit(String, long, Supplier)} blocks while the window is full so that the producer can not run ahead
+ * of the uploads. The window is limited both on the number of requests and on the number of bytes. Failed uploads
+ * are retried individually and objects that still fail are reported when the scheduler is awaited. The number of
+ * requests in flight follows the {@link ConcurrencyLimit}, which is fed with the latency of every attempt.
+ */
+public class UploadScheduler {
+
+    private static final Logger logger = Logger.getLogger(UploadScheduler.class);
+    private static final long RETRY_BASE_DELAY_MILLIS = 200;
+
+    private final ConcurrencyLimit concurrencyLimit;
+    private final long maxInFlightBytes;
+    private final int maxAttempts;
+    private final List<UploadFailure> failures = new ArrayList<>();
+    private int inFlightRequests;
+    private long inFlightBytes;
+    private int completedUploads;
+    private int retries;
+
+    public UploadScheduler(int maxInFlightRequests, long maxInFlightBytes, int maxAttempts) {
+        this(ConcurrencyLimit.fixed(maxInFlightRequests), maxInFlightBytes, maxAttempts);
+    }
+
+    public UploadScheduler(ConcurrencyLimit concurrencyLimit, long maxInFlightBytes, int maxAttempts) {
+        if (concurrencyLimit.getLimit() < 1 || maxInFlightBytes < 1 || maxAttempts < 1) {
+            throw new IllegalArgumentException("Upload window and attempts must be greater then zero");
+        }
+        this.concurrencyLimit = concurrencyLimit;
+        this.maxInFlightBytes = maxInFlightBytes;
+        this.maxAttempts = maxAttempts;
+    }
+
+    /**
+     * Starts the upload as soon as it fits in the window. An object larger than the byte window is started once
+     * nothing else is in flight. The supplier is called again for every retry so it has to create a new request.
+     */
+    public void submit(String key, long bytes, Supplier<CompletableFuture<?>> upload) {
+        submit(key, bytes, upload, () -> {
+        });
+    }
+
+    /**
+     * Same as {@link #submit(String, long, Supplier)} but also runs the given callback once the object has been
+     * uploaded or has failed its last attempt, for example to remove a file that every attempt reads from.
+     */
+    public void submit(String key, long bytes, Supplier<CompletableFuture<?>> upload, Runnable onDone) {
+        acquire(bytes);
+        start(key, bytes, upload, onDone, 1);
+    }
+
+    /**
+     * Waits for all submitted uploads to finish.
+     *
+     * @throws UploadFailedException if any object could not be uploaded within the max number of attempts
+     */
+    public void awaitCompletion() {
+        List<UploadFailure> result;
+        synchronized (this) {
+            while (inFlightRequests > 0) {
+                waitForRelease();
+            }
+            result = List.copyOf(failures);
+            logger.info("Uploaded " + completedUploads + " objects, " + result.size() + " failed");
+        }
+        if (!result.isEmpty()) {
+            result.forEach(failure -> logger.error("Failed to upload object " + failure.key(), failure.cause()));
+            throw new UploadFailedException(result);
+        }
+    }
+
+    /**
+     * Returns the number of upload attempts that have been retried so far.
+     */
+    public synchronized int getRetries() {
+        return retries;
+    }
+
+    private void start(String key, long bytes, Supplier<CompletableFuture<?>> upload, Runnable onDone, int attempt) {
+        long startTime = System.nanoTime();
+        CompletableFuture<?> future;
+        try {
+            future = upload.get();
+        } catch (RuntimeException e) {
+            future = CompletableFuture.failedFuture(e);
+        }
+        future.whenComplete((unused, throwable) -> {
+            if (throwable == null) {
+                concurrencyLimit.onSuccess(System.nanoTime() - startTime, bytes);
+                finish(bytes, null, onDone);
+                return;
+            }
+            if (isThrottled(unwrap(throwable))) {
+                concurrencyLimit.onThrottle();
+            }
+            if (attempt < maxAttempts) {
+                logger.warn("Upload of object " + key + " failed on attempt " + attempt + ", will retry. Cause: " + unwrap(
+                        throwable).getMessage());
+                countRetry();
+                CompletableFuture.delayedExecutor(RETRY_BASE_DELAY_MILLIS << (attempt - 1), TimeUnit.MILLISECONDS)
+                                 .execute(() -> start(key, bytes, upload, onDone, attempt + 1));
+            } else {
+                finish(bytes, new UploadFailure(key, unwrap(throwable)), onDone);
+            }
+        });
+    }
+
+    private void finish(long bytes, UploadFailure failure, Runnable onDone) {
+        try {
+            onDone.run();
+        } catch (RuntimeException e) {
+            logger.warn("Cleanup after upload failed", e);
+        }
+        release(bytes, failure);
+    }
+
+    private synchronized void acquire(long bytes) {
+        while (inFlightRequests >= concurrencyLimit.getLimit() || (inFlightRequests > 0 && inFlightBytes + bytes > maxInFlightBytes)) {
+            waitForRelease();
+        }
+        inFlightRequests++;
+        inFlightBytes += bytes;
+    }
+
+    private synchronized void release(long bytes, UploadFailure failure) {
+        inFlightRequests--;
+        inFlightBytes -= bytes;
+        if (failure == null) {
+            completedUploads++;
+        } else {
+            failures.add(failure);
+        }
+        notifyAll();
+    }
+
+    private synchronized void countRetry() {
+        retries++;
+    }
+
+    private void waitForRelease() {
+        try {
+            wait();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for uploads to complete", e);
+        }
+    }
+
+    private static boolean isThrottled(Throwable throwable) {
+        return throwable instanceof S3Exception s3Exception && s3Exception.statusCode() == 503;
+    }
+
+    private static Throwable unwrap(Throwable throwable) {
+        return throwable instanceof CompletionException && throwable.getCause() != null ? throwable.getCause() : throwable;
+    }
+
+    public record UploadFailure(String key, Throwable cause) {
+    }
+}
@@ -0,0 +1,83 @@
+package attini.deploy.origin.system;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.jboss.logging.Logger;
+
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.BatchGetItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.BatchGetItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.KeysAndAttributes;
+
+/**
+ * Reads items by key with BatchGetItem, 100 keys per request. Keys that DynamoDB leaves unprocessed are retried with
+ * a backoff, items that do not exist are left out of the result.
+ */
+public final class DynamoBatchGet {
+
+    private static final Logger logger = Logger.getLogger(DynamoBatchGet.class);
+    static final int MAX_KEYS_PER_REQUEST = 100;
+    private static final int MAX_ATTEMPTS = 8;
+    private static final long BASE_BACKOFF_MILLIS = 25;
+
+    private DynamoBatchGet() {
+    }
+
+    public static List<Map<String, AttributeValue>> getItems(DynamoDbClient dynamoDbClient,
+                                                             String tableName,
+                                                             List<Map<String, AttributeValue>> keys,
+                                                             String projectionExpression,
+                                                             Map<String, String> expressionAttributeNames) {
+        List<Map<String, AttributeValue>> items = new ArrayList<>(keys.size());
+        for (int i = 0; i < keys.size(); i += MAX_KEYS_PER_REQUEST) {
+            KeysAndAttributes.Builder keysAndAttributes = KeysAndAttributes.builder()
+                                                                           .keys(keys.subList(i,
+                                                                                              Math.min(keys.size(),
+                                                                                                       i + MAX_KEYS_PER_REQUEST)))
+                                                                           .projectionExpression(projectionExpression);
+            if (!expressionAttributeNames.isEmpty()) {
+                keysAndAttributes.expressionAttributeNames(expressionAttributeNames);
+            }
+            items.addAll(getItems(dynamoDbClient, tableName, keysAndAttributes.build()));
+        }
+        return items;
+    }
+
+    private static List<Map<String, AttributeValue>> getItems(DynamoDbClient dynamoDbClient,
+                                                              String tableName,
+                                                              KeysAndAttributes keysAndAttributes) {
+        List<Map<String, AttributeValue>> items = new ArrayList<>();
+        Map<String, KeysAndAttributes> requestItems = Map.of(tableName, keysAndAttributes);
+        for (int attempt = 1; ; attempt++) {
+            BatchGetItemResponse response = dynamoDbClient.batchGetItem(BatchGetItemRequest.builder()
+                                                                                           .requestItems(requestItems)
+                                                                                           .build());
+            items.addAll(response.responses().getOrDefault(tableName, List.of()));
+
+            if (!response.hasUnprocessedKeys() || response.unprocessedKeys().isEmpty()) {
+                return items;
+            }
+            if (attempt == MAX_ATTEMPTS) {
+                throw new IllegalStateException("Could not read all items from " + tableName + ", " + response.unprocessedKeys()
+                                                                                                                 .get(tableName)
+                                                                                                                 .keys()
+                                                                                                                 .size() + " keys were left unprocessed");
+            }
+            requestItems = response.unprocessedKeys();
+            logger.info("Retrying " + requestItems.get(tableName).keys().size() + " unprocessed keys from " + tableName);
+            backoff(attempt);
+        }
+    }
+
+    private static void backoff(int attempt) {
+        try {
+            Thread.sleep(BASE_BACKOFF_MILLIS << attempt);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting to retry unprocessed keys", e);
+        }
+    }
+}
@@ -1,7 +1,12 @@
 package attini.deploy.origin.system;
 
+import java.util.Optional;
+
 import org.jboss.logging.Logger;
 
+import attini.deploy.origin.PublishMode;
+import attini.deploy.origin.lifecycle.RetentionMode;
+
 public class EnvironmentVariables {
 
     private final static Logger logger = Logger.getLogger(EnvironmentVariables.class);
@@ -70,6 +75,56 @@ public class EnvironmentVariables {
 
     }
 
+    public int getUploadMaxInFlightRequests() {
+        return (int) getOptionalPositiveNumber("ATTINI_UPLOAD_MAX_IN_FLIGHT_REQUESTS", 256);
+    }
+
+    public long getUploadMaxInFlightBytes() {
+        return getOptionalPositiveNumber("ATTINI_UPLOAD_MAX_IN_FLIGHT_BYTES", 256L * 1024 * 1024);
+    }
+
+    /**
+     * The publish mode to use for every distribution, empty if the mode should be picked from the size of each
+     * distribution.
+     */
+    public Optional<PublishMode> getPublishMode() {
+        String publishMode = System.getenv("ATTINI_PUBLISH_MODE");
+        if (publishMode == null || publishMode.isBlank()) {
+            return Optional.empty();
+        }
+        try {
+            return Optional.of(PublishMode.valueOf(publishMode.trim().toUpperCase()));
+        } catch (IllegalArgumentException e) {
+            logger.error("ATTINI_PUBLISH_MODE environment variable must be one of IN_MEMORY, STAGED, PARALLEL or DIRECT", e);
+            throw new IllegalEnvironmentVariableException("ATTINI_PUBLISH_MODE value is invalid");
+        }
+    }
+
+    /**
+     * The largest distribution, counting both the zip and the extracted files, that is published in memory when no
+     * publish mode is configured.
+     */
+    public long getInMemoryPublishMaxBytes() {
+        return getOptionalPositiveNumber("ATTINI_IN_MEMORY_PUBLISH_MAX_BYTES", Runtime.getRuntime().maxMemory() / 4);
+    }
+
+    public RetentionMode getRetentionMode() {
+        String retentionMode = System.getenv("ATTINI_RETENTION_MODE");
+        if (retentionMode == null || retentionMode.isBlank()) {
+            return RetentionMode.INLINE;
+        }
+        try {
+            return RetentionMode.valueOf(retentionMode.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            logger.error("ATTINI_RETENTION_MODE environment variable must be one of INLINE, SWEEPER or TTL", e);
+            throw new IllegalEnvironmentVariableException("ATTINI_RETENTION_MODE value is invalid");
+        }
+    }
+
+    public String getDeploymentOriginBucket() {
+        return System.getenv("ATTINI_DEPLOYMENT_ORIGIN_BUCKET");
+    }
+
     public String getDeployDataTableName(){
         return System.getenv("ATTINI_DEPLOYMENT_ORIGIN_TABLE");
     }
@@ -78,4 +133,22 @@ public class EnvironmentVariables {
         return System.getenv("DEPLOYMENT_STATUS_TOPIC");
     }
 
+
+    private static long getOptionalPositiveNumber(String name, long defaultValue) {
+        String value = System.getenv(name);
+        if (value == null || value.isBlank()) {
+            return defaultValue;
+        }
+        try {
+            long number = Long.parseLong(value.trim());
+            if (number < 1) {
+                logger.error(name + " environment variable must be a number greater then zero");
+                throw new IllegalEnvironmentVariableException(name + " value is invalid");
+            }
+            return number;
+        } catch (NumberFormatException e) {
+            logger.error(name + " environment variable must be a number", e);
+            throw new IllegalEnvironmentVariableException(name + " value is invalid");
+        }
+    }
 }
@@ -0,0 +1,77 @@
+package attini.deploy.origin.zip;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.MessageDigest;
+
+import org.apache.commons.codec.digest.DigestUtils;
+
+/**
+ * Computes the MD5 and SHA-256 digests of content as it passes through.
+ */
+public class ContentDigest {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final MessageDigest md5 = DigestUtils.getMd5Digest();
+    private final MessageDigest sha256 = DigestUtils.getSha256Digest();
+    private long size;
+
+    public void update(byte[] bytes, int offset, int length) {
+        md5.update(bytes, offset, length);
+        sha256.update(bytes, offset, length);
+        size += length;
+    }
+
+    public FileDigest toFileDigest() {
+        return new FileDigest(md5.digest(), sha256.digest(), size);
+    }
+
+    public static FileDigest of(byte[] bytes) {
+        ContentDigest contentDigest = new ContentDigest();
+        contentDigest.update(bytes, 0, bytes.length);
+        return contentDigest.toFileDigest();
+    }
+
+    /**
+     * Copies the input to the output and digests the content on the way, neither stream is closed.
+     */
+    public static FileDigest copy(InputStream inputStream, OutputStream outputStream) throws IOException {
+        ContentDigest contentDigest = new ContentDigest();
+        byte[] buffer = new byte[BUFFER_SIZE];
+        int length;
+        while ((length = inputStream.read(buffer, 0, buffer.length)) > 0) {
+            outputStream.write(buffer, 0, length);
+            contentDigest.update(buffer, 0, length);
+        }
+        return contentDigest.toFileDigest();
+    }
+
+    /**
+     * Wraps the stream so that everything read from it is digested, {@link #toFileDigest()} should be called once the
+     * stream has been fully read.
+     */
+    public InputStream wrap(InputStream inputStream) {
+        return new FilterInputStream(inputStream) {
+            @Override
+            public int read() throws IOException {
+                int value = super.read();
+                if (value != -1) {
+                    update(new byte[]{(byte) value}, 0, 1);
+                }
+                return value;
+            }
+
+            @Override
+            public int read(byte[] bytes, int offset, int length) throws IOException {
+                int read = super.read(bytes, offset, length);
+                if (read > 0) {
+                    update(bytes, offset, read);
+                }
+                return read;
+            }
+        };
+    }
+}
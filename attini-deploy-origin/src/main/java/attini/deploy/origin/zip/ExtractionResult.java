@@ -0,0 +1,57 @@
+package attini.deploy.origin.zip;
+
+import static java.util.Objects.requireNonNull;
+
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * The directory a distribution was extracted to together with an index of every extracted file, keyed on the path
+ * relative to the directory.
+ */
+public class ExtractionResult {
+
+    private final Path directory;
+    private final Map<String, IndexedFile> files;
+
+    public ExtractionResult(Path directory, Map<String, IndexedFile> files) {
+        this.directory = requireNonNull(directory, "directory");
+        this.files = Collections.unmodifiableMap(requireNonNull(files, "files"));
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    public Map<String, IndexedFile> getFiles() {
+        return files;
+    }
+
+    public Optional<FileDigest> getDigest(String path) {
+        return Optional.ofNullable(files.get(toRelativePath(path))).map(IndexedFile::digest);
+    }
+
+    public List<String> getAttiniConfigFiles() {
+        return files.values().stream().filter(IndexedFile::attiniConfig).map(IndexedFile::path).sorted().toList();
+    }
+
+    public List<String> getFilesWithIllegalCharacters() {
+        return files.values()
+                    .stream()
+                    .filter(IndexedFile::illegalCharacters)
+                    .map(IndexedFile::path)
+                    .sorted()
+                    .toList();
+    }
+
+    /**
+     * Normalizes a path from the distribution, for example a template path in the attini-config, to the format
+     * used as key for the extracted files.
+     */
+    public static String toRelativePath(String path) {
+        return Path.of("/", path).normalize().toString().substring(1);
+    }
+}
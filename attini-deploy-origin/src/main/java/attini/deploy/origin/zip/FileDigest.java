@@ -0,0 +1,28 @@
+package attini.deploy.origin.zip;
+
+import java.util.Base64;
+
+import org.apache.commons.codec.binary.Hex;
+
+/**
+ * Digests of a file computed while the file was decoded, so that the content never has to be read again to detect
+ * changes or to verify uploads.
+ */
+public record FileDigest(byte[] md5, byte[] sha256, long size) {
+
+    public String md5Hex() {
+        return Hex.encodeHexString(md5);
+    }
+
+    public String md5Base64() {
+        return Base64.getEncoder().encodeToString(md5);
+    }
+
+    public String sha256Hex() {
+        return Hex.encodeHexString(sha256);
+    }
+
+    public String sha256Base64() {
+        return Base64.getEncoder().encodeToString(sha256);
+    }
+}
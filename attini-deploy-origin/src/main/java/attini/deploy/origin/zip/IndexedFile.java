@@ -0,0 +1,36 @@
+package attini.deploy.origin.zip;
+
+import java.util.function.Predicate;
+
+import org.apache.commons.lang3.StringUtils;
+
+/**
+ * A file in an extracted distribution together with everything later stages need to know about it, so that the
+ * extraction directory never has to be walked again.
+ */
+public record IndexedFile(String path, FileDigest digest, boolean attiniConfig, boolean illegalCharacters) {
+
+    private static final String ILLEGAL_CHARS = "*[#%{}`~<>|^ &;?$,+=@]";
+
+    /**
+     * @param path         the path relative to the extraction directory
+     * @param isConfigFile decides if a file in the root of the distribution is an attini-config file
+     */
+    public static IndexedFile of(String path, FileDigest digest, Predicate<String> isConfigFile) {
+        return new IndexedFile(path,
+                               digest,
+                               !path.contains("/") && isConfigFile.test(path),
+                               hasIllegalCharacters(path));
+    }
+
+    public long size() {
+        return digest.size();
+    }
+
+    /**
+     * Characters that are not allowed in the keys of the artifact store.
+     */
+    public static boolean hasIllegalCharacters(String path) {
+        return StringUtils.containsAny(path, ILLEGAL_CHARS);
+    }
+}
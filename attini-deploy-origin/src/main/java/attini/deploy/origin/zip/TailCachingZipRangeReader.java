@@ -0,0 +1,60 @@
+package attini.deploy.origin.zip;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.Arrays;
+
+/**
+ * Keeps the bytes of reads that end at the end of the archive. Reading the central directory starts with such a
+ * read, so later reads of the end of the archive, often including the whole central directory, are served from
+ * memory and downloading the whole archive only has to fetch the bytes before the cached tail.
+ */
+public class TailCachingZipRangeReader implements ZipRangeReader {
+
+    // The largest byte array the JVM reliably allocates
+    private static final long MAX_ARRAY_SIZE = Integer.MAX_VALUE - 8;
+
+    private final ZipRangeReader delegate;
+    private long tailOffset;
+    private byte[] tail = new byte[0];
+
+    public TailCachingZipRangeReader(ZipRangeReader delegate) {
+        this.delegate = requireNonNull(delegate, "delegate");
+        this.tailOffset = delegate.size();
+    }
+
+    @Override
+    public long size() {
+        return delegate.size();
+    }
+
+    @Override
+    public synchronized byte[] read(long offset, int length) {
+        if (offset >= tailOffset) {
+            return Arrays.copyOfRange(tail, (int) (offset - tailOffset), (int) (offset - tailOffset) + length);
+        }
+        byte[] bytes = delegate.read(offset, length);
+        if (offset + length == size()) {
+            tailOffset = offset;
+            tail = bytes;
+        }
+        return bytes;
+    }
+
+    /**
+     * Reads the whole archive, fetching only the bytes that are not already cached.
+     *
+     * @throws IllegalStateException if the archive does not fit in a byte array
+     */
+    public synchronized byte[] readAll() {
+        if (size() > MAX_ARRAY_SIZE) {
+            throw new IllegalStateException("Archive of " + size() + " bytes is too large to be read into memory");
+        }
+        byte[] archive = new byte[(int) size()];
+        if (tailOffset > 0) {
+            System.arraycopy(delegate.read(0, (int) tailOffset), 0, archive, 0, (int) tailOffset);
+        }
+        System.arraycopy(tail, 0, archive, (int) tailOffset, tail.length);
+        return archive;
+    }
+}
@@ -0,0 +1,185 @@
+package attini.deploy.origin.zip;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+
+/**
+ * Reads the central directory of a zip archive using a small number of range reads, so that the content of an
+ * archive can be inspected without downloading or decompressing it.
+ */
+public class ZipCentralDirectory {
+
+    private static final int END_OF_CENTRAL_DIRECTORY_SIGNATURE = 0x06054b50;
+    private static final int ZIP64_END_OF_CENTRAL_DIRECTORY_SIGNATURE = 0x06064b50;
+    private static final int ZIP64_LOCATOR_SIGNATURE = 0x07064b50;
+    private static final int CENTRAL_DIRECTORY_HEADER_SIGNATURE = 0x02014b50;
+    private static final int LOCAL_FILE_HEADER_SIGNATURE = 0x04034b50;
+    private static final int END_OF_CENTRAL_DIRECTORY_SIZE = 22;
+    private static final int ZIP64_LOCATOR_SIZE = 20;
+    private static final int ZIP64_END_OF_CENTRAL_DIRECTORY_SIZE = 56;
+    private static final int LOCAL_FILE_HEADER_SIZE = 30;
+    private static final int MAX_COMMENT_SIZE = 0xFFFF;
+    private static final int ZIP64_EXTRA_FIELD_ID = 0x0001;
+    private static final long ZIP64_MAGIC_VALUE = 0xFFFFFFFFL;
+
+    private final List<ZipDirectoryEntry> entries;
+
+    private ZipCentralDirectory(List<ZipDirectoryEntry> entries) {
+        this.entries = Collections.unmodifiableList(entries);
+    }
+
+    public static ZipCentralDirectory read(ZipRangeReader reader) {
+        try {
+            long archiveSize = reader.size();
+            int tailLength = (int) Math.min(archiveSize, END_OF_CENTRAL_DIRECTORY_SIZE + MAX_COMMENT_SIZE);
+            long tailOffset = archiveSize - tailLength;
+            ByteBuffer tail = littleEndian(reader.read(tailOffset, tailLength));
+
+            int eocdPosition = findEndOfCentralDirectory(tail);
+
+            long entryCount = tail.getShort(eocdPosition + 10) & 0xFFFF;
+            long directorySize = tail.getInt(eocdPosition + 12) & ZIP64_MAGIC_VALUE;
+            long directoryOffset = tail.getInt(eocdPosition + 16) & ZIP64_MAGIC_VALUE;
+
+            int locatorPosition = eocdPosition - ZIP64_LOCATOR_SIZE;
+            if (locatorPosition >= 0 && tail.getInt(locatorPosition) == ZIP64_LOCATOR_SIGNATURE) {
+                long zip64EocdOffset = tail.getLong(locatorPosition + 8);
+                ByteBuffer zip64Eocd = littleEndian(reader.read(zip64EocdOffset, ZIP64_END_OF_CENTRAL_DIRECTORY_SIZE));
+                if (zip64Eocd.getInt(0) != ZIP64_END_OF_CENTRAL_DIRECTORY_SIGNATURE) {
+                    throw new ZipException("Invalid zip64 end of central directory record");
+                }
+                entryCount = zip64Eocd.getLong(32);
+                directorySize = zip64Eocd.getLong(40);
+                directoryOffset = zip64Eocd.getLong(48);
+            }
+
+            if (directorySize > Integer.MAX_VALUE) {
+                throw new ZipException("Central directory is too large: " + directorySize + " bytes");
+            }
+
+            ByteBuffer directory = directoryOffset >= tailOffset
+                                   ? littleEndian(slice(tail, (int) (directoryOffset - tailOffset), (int) directorySize))
+                                   : littleEndian(reader.read(directoryOffset, (int) directorySize));
+
+            return new ZipCentralDirectory(parseEntries(directory, entryCount));
+        } catch (ZipException e) {
+            throw new IllegalArgumentException("Could not read zip central directory: " + e.getMessage(), e);
+        }
+    }
+
+    public List<ZipDirectoryEntry> getEntries() {
+        return entries;
+    }
+
+    public Optional<ZipDirectoryEntry> getEntry(String name) {
+        return entries.stream().filter(entry -> entry.name().equals(name)).findAny();
+    }
+
+    /**
+     * Reads and decompresses a single entry, intended for small entries such as configuration files since the
+     * compressed content is held in memory.
+     */
+    public static InputStream openEntry(ZipRangeReader reader, ZipDirectoryEntry entry) {
+        try {
+            ByteBuffer localHeader = littleEndian(reader.read(entry.localHeaderOffset(), LOCAL_FILE_HEADER_SIZE));
+            if (localHeader.getInt(0) != LOCAL_FILE_HEADER_SIGNATURE) {
+                throw new ZipException("Invalid local file header for entry: " + entry.name());
+            }
+            int nameLength = localHeader.getShort(26) & 0xFFFF;
+            int extraLength = localHeader.getShort(28) & 0xFFFF;
+            long dataOffset = entry.localHeaderOffset() + LOCAL_FILE_HEADER_SIZE + nameLength + extraLength;
+
+            if (entry.compressedSize() > Integer.MAX_VALUE) {
+                throw new ZipException("Entry is too large to be read in memory: " + entry.name());
+            }
+
+            ByteArrayInputStream data = new ByteArrayInputStream(reader.read(dataOffset,
+                                                                             (int) entry.compressedSize()));
+            return switch (entry.method()) {
+                case ZipEntry.STORED -> data;
+                case ZipEntry.DEFLATED -> new InflaterInputStream(data, new Inflater(true));
+                default -> throw new ZipException("Unsupported compression method " + entry.method() + " for entry: " + entry.name());
+            };
+        } catch (ZipException e) {
+            throw new IllegalArgumentException(e.getMessage(), e);
+        }
+    }
+
+    private static List<ZipDirectoryEntry> parseEntries(ByteBuffer directory, long entryCount) throws ZipException {
+        List<ZipDirectoryEntry> entries = new ArrayList<>((int) Math.min(entryCount, 100_000));
+        int position = 0;
+        while (position < directory.limit()) {
+            if (directory.getInt(position) != CENTRAL_DIRECTORY_HEADER_SIGNATURE) {
+                throw new ZipException("Invalid central directory header at position " + position);
+            }
+            int method = directory.getShort(position + 10) & 0xFFFF;
+            long crc = directory.getInt(position + 16) & ZIP64_MAGIC_VALUE;
+            long compressedSize = directory.getInt(position + 20) & ZIP64_MAGIC_VALUE;
+            long size = directory.getInt(position + 24) & ZIP64_MAGIC_VALUE;
+            int nameLength = directory.getShort(position + 28) & 0xFFFF;
+            int extraLength = directory.getShort(position + 30) & 0xFFFF;
+            int commentLength = directory.getShort(position + 32) & 0xFFFF;
+            long localHeaderOffset = directory.getInt(position + 42) & ZIP64_MAGIC_VALUE;
+
+            byte[] nameBytes = new byte[nameLength];
+            directory.get(position + 46, nameBytes);
+            String name = new String(nameBytes, StandardCharsets.UTF_8);
+
+            int extraPosition = position + 46 + nameLength;
+            int extraEnd = extraPosition + extraLength;
+            while (extraPosition + 4 <= extraEnd) {
+                int headerId = directory.getShort(extraPosition) & 0xFFFF;
+                int dataSize = directory.getShort(extraPosition + 2) & 0xFFFF;
+                if (headerId == ZIP64_EXTRA_FIELD_ID) {
+                    int valuePosition = extraPosition + 4;
+                    if (size == ZIP64_MAGIC_VALUE) {
+                        size = directory.getLong(valuePosition);
+                        valuePosition += 8;
+                    }
+                    if (compressedSize == ZIP64_MAGIC_VALUE) {
+                        compressedSize = directory.getLong(valuePosition);
+                        valuePosition += 8;
+                    }
+                    if (localHeaderOffset == ZIP64_MAGIC_VALUE) {
+                        localHeaderOffset = directory.getLong(valuePosition);
+                    }
+                }
+                extraPosition += 4 + dataSize;
+            }
+
+            entries.add(new ZipDirectoryEntry(name, method, crc, compressedSize, size, localHeaderOffset));
+            position = extraEnd + commentLength;
+        }
+        return entries;
+    }
+
+    private static int findEndOfCentralDirectory(ByteBuffer tail) throws ZipException {
+        for (int position = tail.limit() - END_OF_CENTRAL_DIRECTORY_SIZE; position >= 0; position--) {
+            if (tail.getInt(position) == END_OF_CENTRAL_DIRECTORY_SIGNATURE) {
+                return position;
+            }
+        }
+        throw new ZipException("No end of central directory record found, the file is not a valid zip archive");
+    }
+
+    private static byte[] slice(ByteBuffer buffer, int offset, int length) {
+        byte[] bytes = new byte[length];
+        buffer.get(offset, bytes);
+        return bytes;
+    }
+
+    private static ByteBuffer littleEndian(byte[] bytes) {
+        return ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+    }
+}
@@ -0,0 +1,13 @@
+package attini.deploy.origin.zip;
+
+public record ZipDirectoryEntry(String name,
+                                int method,
+                                long crc,
+                                long compressedSize,
+                                long size,
+                                long localHeaderOffset) {
+
+    public boolean isDirectory() {
+        return name.endsWith("/");
+    }
+}
@@ -0,0 +1,27 @@
+package attini.deploy.origin.zip;
+
+import java.util.Arrays;
+
+/**
+ * Random access to the bytes of a zip archive that is not necessarily present on local disk.
+ */
+public interface ZipRangeReader {
+
+    long size();
+
+    byte[] read(long offset, int length);
+
+    static ZipRangeReader of(byte[] bytes) {
+        return new ZipRangeReader() {
+            @Override
+            public long size() {
+                return bytes.length;
+            }
+
+            @Override
+            public byte[] read(long offset, int length) {
+                return Arrays.copyOfRange(bytes, (int) offset, (int) offset + length);
+            }
+        };
+    }
+}
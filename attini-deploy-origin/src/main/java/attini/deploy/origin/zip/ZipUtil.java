@@ -1,46 +1,153 @@
 package attini.deploy.origin.zip;
 
-import java.io.ByteArrayInputStream;
 import java.io.File;
-import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Predicate;
 import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
 import java.util.zip.ZipInputStream;
 
 public class ZipUtil {
 
-    public static Path unzip(byte[] bytes) {
-        try {
+    /**
+     * Decodes the zip while it is being read, the stream is never buffered in full so memory usage
+     * does not depend on the size of the distribution. The MD5 and SHA-256 digests of every file are
+     * computed while the file is written.
+     */
+    public static ExtractionResult unzip(InputStream inputStream) {
+        return unzip(inputStream, path -> false);
+    }
+
+    /**
+     * Same as {@link #unzip(InputStream)} but also flags the attini-config files in the index.
+     */
+    public static ExtractionResult unzip(InputStream inputStream, Predicate<String> isConfigFile) {
+        try (ZipInputStream zis = new ZipInputStream(inputStream)) {
             Path zip_destination = Files.createTempDirectory("");
+            Map<String, IndexedFile> files = new HashMap<>();
 
-            byte[] buffer = new byte[1024];
-            ZipInputStream zis = new ZipInputStream(new ByteArrayInputStream(bytes));
             ZipEntry zipEntry = zis.getNextEntry();
             while (zipEntry != null) {
                 File newFile = newFile(zip_destination.toFile(), zipEntry);
                 if (zipEntry.getName().trim().endsWith("/")) {
-                    Files.createDirectory(newFile.toPath());
+                    Files.createDirectories(newFile.toPath());
                 } else {
-                    FileOutputStream fos = new FileOutputStream(newFile);
-                    int len;
-                    while ((len = zis.read(buffer, 0, buffer.length)) > 0) {
-                        fos.write(buffer, 0, len);
+                    Files.createDirectories(newFile.toPath().getParent());
+                    try (OutputStream fos = Files.newOutputStream(newFile.toPath())) {
+                        String path = zip_destination.relativize(newFile.toPath()).toString();
+                        files.put(path, IndexedFile.of(path, ContentDigest.copy(zis, fos), isConfigFile));
                     }
-                    fos.close();
                 }
 
                 zipEntry = zis.getNextEntry();
             }
             zis.closeEntry();
-            zis.close();
-            return zip_destination;
+            return new ExtractionResult(zip_destination, files);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Extracts a zip file on local disk by reading its central directory and inflating the entries concurrently on a
+     * pool with the given number of threads. Produces the same result as {@link #unzip(InputStream, Predicate)}.
+     */
+    public static ExtractionResult unzipParallel(Path zipFile, int threads, Predicate<String> isConfigFile) {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try (ZipFile zip = new ZipFile(zipFile.toFile())) {
+            Path zip_destination = Files.createTempDirectory("");
+
+            Map<ZipEntry, File> entries = new LinkedHashMap<>();
+            for (ZipEntry zipEntry : Collections.list(zip.entries())) {
+                entries.put(zipEntry, newFile(zip_destination.toFile(), zipEntry));
+            }
+
+            List<Future<IndexedFile>> extractions = new ArrayList<>();
+            for (Map.Entry<ZipEntry, File> entry : entries.entrySet()) {
+                Path newFile = entry.getValue().toPath();
+                if (entry.getKey().getName().trim().endsWith("/")) {
+                    Files.createDirectories(newFile);
+                } else {
+                    String path = zip_destination.relativize(newFile).toString();
+                    extractions.add(executor.submit(() -> IndexedFile.of(path,
+                                                                         extractEntry(zip, entry.getKey(), newFile),
+                                                                         isConfigFile)));
+                }
+            }
+
+            Map<String, IndexedFile> files = new HashMap<>();
+            for (Future<IndexedFile> extraction : extractions) {
+                IndexedFile file = extraction.get();
+                files.put(file.path(), file);
+            }
+            return new ExtractionResult(zip_destination, files);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static FileDigest extractEntry(ZipFile zip, ZipEntry zipEntry, Path destination) throws IOException {
+        Files.createDirectories(destination.getParent());
+        try (InputStream inputStream = zip.getInputStream(zipEntry);
+             OutputStream outputStream = Files.newOutputStream(destination)) {
+            return ContentDigest.copy(inputStream, outputStream);
+        }
+    }
+
+    /**
+     * Decodes the zip entry by entry and hands every file entry to the consumer. The content stream is only valid
+     * during the call and must not be closed by the consumer. Every entry name is validated with
+     * {@link #validateEntryName(String)} before it is handed over.
+     */
+    public static void forEachFile(InputStream inputStream, ZipEntryConsumer consumer) {
+        try (ZipInputStream zis = new ZipInputStream(inputStream)) {
+            ZipEntry zipEntry = zis.getNextEntry();
+            while (zipEntry != null) {
+                validateEntryName(zipEntry.getName());
+                if (!zipEntry.getName().trim().endsWith("/")) {
+                    consumer.accept(zipEntry, zis);
+                }
+                zipEntry = zis.getNextEntry();
+            }
+            zis.closeEntry();
         } catch (IOException e) {
             throw new RuntimeException(e);
         }
     }
 
+    /**
+     * Same check as {@link #newFile(File, ZipEntry)} but without touching the file system, used when entries are
+     * never written to disk.
+     */
+    public static void validateEntryName(String entryName) throws IOException {
+        Path root = Paths.get("/distribution");
+        if (!root.resolve(entryName).normalize().startsWith(root)) {
+            throw new IOException("Entry is outside of the target dir: " + entryName);
+        }
+    }
+
     public static File newFile(File destinationDir, ZipEntry zipEntry) throws IOException {
         File destFile = new File(destinationDir, zipEntry.getName());
 
@@ -53,4 +160,9 @@ public class ZipUtil {
 
         return destFile;
     }
+
+    @FunctionalInterface
+    public interface ZipEntryConsumer {
+        void accept(ZipEntry zipEntry, InputStream content) throws IOException;
+    }
 }
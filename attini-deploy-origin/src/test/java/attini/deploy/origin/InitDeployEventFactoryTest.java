@@ -0,0 +1,66 @@
+package attini.deploy.origin;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import org.junit.jupiter.api.Test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+class InitDeployEventFactoryTest {
+
+    private final InitDeployEventFactory initDeployEventFactory = new InitDeployEventFactory(new ObjectMapper());
+
+    @Test
+    void create_shouldCreateOneEventPerRecord() {
+        List<InitDeployEvent> events = initDeployEventFactory.create(Map.of("Records",
+                                                                            List.of(record("dev/network/network.zip",
+                                                                                           "v1"),
+                                                                                    record("prod/database/database.zip",
+                                                                                           "v2"))))
+                                                             .stream()
+                                                             .map(InitDeployEventFactory.ConvertedRecord::event)
+                                                             .toList();
+
+        assertEquals(2, events.size());
+        assertEquals("origin-bucket", events.get(0).getS3Bucket());
+        assertEquals("dev/network/network.zip#v1", events.get(0).getObjectIdentifier().asString());
+        assertEquals("AWS:user", events.get(0).getUserIdentity());
+        assertEquals("prod", events.get(1).getEnvironmentName().asString());
+        assertEquals(Optional.of("v2"), events.get(1).getS3ObjectVersion());
+    }
+
+    @Test
+    void create_shouldReturnRecordsThatCanNotBeConvertedWithoutFailingTheOthers() {
+        List<InitDeployEventFactory.ConvertedRecord> records =
+                initDeployEventFactory.create(Map.of("Records",
+                                                     List.of(Map.of("eventSource", "aws:s3",
+                                                                    "s3", Map.of("object", "not-an-object")),
+                                                             record("dev/network/network.zip", "v1"))));
+
+        assertEquals(2, records.size());
+        assertFalse(records.get(0).isConverted());
+        assertEquals("record 1", records.get(0).record());
+        assertTrue(records.get(1).isConverted());
+        assertEquals("dev/network/network.zip#v1", records.get(1).record());
+    }
+
+    @Test
+    void create_shouldFailWithoutRecords() {
+        assertThrows(IllegalArgumentException.class, () -> initDeployEventFactory.create(Map.of("Records", List.of())));
+    }
+
+    private static Map<String, Object> record(String key, String versionId) {
+        return Map.of("eventSource", "aws:s3",
+                      "eventName", "ObjectCreated:Put",
+                      "userIdentity", Map.of("principalId", "AWS:user"),
+                      "s3", Map.of("bucket", Map.of("name", "origin-bucket", "arn", "arn:aws:s3:::origin-bucket"),
+                                   "object", Map.of("key", key, "versionId", versionId, "size", 1024)));
+    }
+}
@@ -0,0 +1,143 @@
+package attini.deploy.origin;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.verify;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import attini.deploy.origin.InitDeployEventFactory.ConvertedRecord;
+import attini.domain.ObjectIdentifier;
+
+@ExtendWith(MockitoExtension.class)
+class InitDeployEventProcessorTest {
+
+    @Mock
+    InitDeployService initDeployService;
+
+    InitDeployEventProcessor initDeployEventProcessor;
+
+    @BeforeEach
+    void setUp() {
+        initDeployEventProcessor = new InitDeployEventProcessor(initDeployService, Executors.newFixedThreadPool(4));
+    }
+
+    @Test
+    void process_shouldKeepOrderWithinDistribution() {
+        List<String> deployed = Collections.synchronizedList(new ArrayList<>());
+        doAnswer(invocation -> {
+            InitDeployEvent event = invocation.getArgument(0);
+            deployed.add(event.getObjectIdentifier().asString());
+            return null;
+        }).when(initDeployService).initDeploy(any());
+
+        List<InitDeployEvent> events = List.of(event("dev/network/network.zip", "1"),
+                                               event("dev/database/database.zip", "1"),
+                                               event("dev/network/network.zip", "2"),
+                                               event("prod/network/network.zip", "1"),
+                                               event("dev/network/network.zip", "3"));
+
+        List<InitDeployEventProcessor.RecordResult> results = initDeployEventProcessor.process(converted(events));
+
+        assertEquals(5, results.size());
+        assertTrue(results.stream().allMatch(InitDeployEventProcessor.RecordResult::isSuccess));
+        List<String> devNetwork = deployed.stream().filter(id -> id.startsWith("dev/network")).toList();
+        assertEquals(List.of("dev/network/network.zip#1", "dev/network/network.zip#2", "dev/network/network.zip#3"),
+                     devNetwork);
+    }
+
+    @Test
+    void process_shouldDeployAllRecordsAndReturnFailedOnes() {
+        InitDeployEvent failing = event("dev/network/network.zip", "1");
+        InitDeployEvent next = event("dev/network/network.zip", "2");
+        InitDeployEvent other = event("dev/database/database.zip", "1");
+        doAnswer(invocation -> {
+            if (invocation.getArgument(0) == failing) {
+                throw new InitDeployException("failed");
+            }
+            return null;
+        }).when(initDeployService).initDeploy(any());
+
+        List<InitDeployEventProcessor.RecordResult> results = initDeployEventProcessor.process(converted(List.of(failing,
+                                                                                                                 next,
+                                                                                                                 other)));
+
+        assertEquals(List.of(failing),
+                     results.stream()
+                            .filter(result -> !result.isSuccess())
+                            .map(InitDeployEventProcessor.RecordResult::event)
+                            .toList());
+        assertEquals("failed", results.get(0).error().getMessage());
+        verify(initDeployService).initDeploy(next);
+        verify(initDeployService).initDeploy(other);
+    }
+
+    @Test
+    void process_shouldFailIfOnlyRecordFails() {
+        InitDeployEvent failing = event("dev/network/network.zip", "1");
+        doAnswer(invocation -> {
+            throw new InitDeployException("failed");
+        }).when(initDeployService).initDeploy(any());
+
+        assertThrows(InitDeployException.class,
+                     () -> initDeployEventProcessor.process(converted(List.of(failing))));
+    }
+
+    @Test
+    void process_shouldDeployValidRecordAndReturnRecordThatCouldNotBeConverted() {
+        Map<String, Object> invalidRecord = Map.of("eventSource", "aws:s3",
+                                                   "s3", Map.of("bucket", Map.of("name", "bucket")));
+        Map<String, Object> validRecord = Map.of("eventSource", "aws:s3",
+                                                 "userIdentity", Map.of("principalId", "user"),
+                                                 "s3", Map.of("bucket", Map.of("name", "bucket"),
+                                                              "object", Map.of("key", "dev/network/network.zip",
+                                                                               "versionId", "1")));
+        List<ConvertedRecord> records = new InitDeployEventFactory(new ObjectMapper()).create(Map.of("Records",
+                                                                                                     List.of(invalidRecord,
+                                                                                                             validRecord)));
+
+        List<InitDeployEventProcessor.RecordResult> results = initDeployEventProcessor.process(records);
+
+        verify(initDeployService).initDeploy(records.get(1).event());
+        assertEquals(2, results.size());
+        InitDeployEventProcessor.RecordResult failed = results.stream()
+                                                              .filter(result -> !result.isSuccess())
+                                                              .findAny()
+                                                              .orElseThrow();
+        assertEquals("record 1", failed.record());
+        assertEquals("No s3 object key in init deploy event", failed.error().getMessage());
+    }
+
+    @Test
+    void process_shouldFailIfOnlyRecordCanNotBeConverted() {
+        IllegalArgumentException conversionError = new IllegalArgumentException("No s3 object key in init deploy event");
+
+        assertThrows(IllegalArgumentException.class,
+                     () -> initDeployEventProcessor.process(List.of(new ConvertedRecord("record 1",
+                                                                                        null,
+                                                                                        conversionError))));
+    }
+
+    private static List<ConvertedRecord> converted(List<InitDeployEvent> events) {
+        return events.stream().map(ConvertedRecord::of).toList();
+    }
+
+    private static InitDeployEvent event(String key, String version) {
+        return new InitDeployEvent("bucket", key, ObjectIdentifier.of(key + "#" + version), "user");
+    }
+}
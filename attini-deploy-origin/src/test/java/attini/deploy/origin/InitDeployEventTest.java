@@ -0,0 +1,27 @@
+package attini.deploy.origin;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Optional;
+
+import org.junit.jupiter.api.Test;
+
+import attini.domain.ObjectIdentifier;
+
+class InitDeployEventTest {
+
+    @Test
+    void getS3ObjectVersion_shouldReturnVersionFromObjectIdentifier() {
+        assertEquals(Optional.of("v1"), event("dev/network/network.zip#v1").getS3ObjectVersion());
+    }
+
+    @Test
+    void getS3ObjectVersion_shouldBeEmptyIfObjectIdentifierHasNoVersion() {
+        assertEquals(Optional.empty(), event("dev/network/network.zip").getS3ObjectVersion());
+        assertEquals(Optional.empty(), event("dev/network/network.zip#").getS3ObjectVersion());
+    }
+
+    private static InitDeployEvent event(String objectIdentifier) {
+        return new InitDeployEvent("bucket", "dev/network/network.zip", ObjectIdentifier.of(objectIdentifier), "user");
+    }
+}
@@ -6,30 +6,50 @@
 package attini.deploy.origin;
 
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import attini.deploy.origin.appdeployment.AppConfig;
 import attini.deploy.origin.appdeployment.AppDeploymentFacade;
 import attini.deploy.origin.config.AttiniConfig;
 import attini.deploy.origin.config.AttiniConfigTestBuilder;
+import attini.deploy.origin.config.DistributionDependency;
+import attini.deploy.origin.deploystack.DeployData;
 import attini.deploy.origin.deploystack.DeployDataFacade;
 import attini.deploy.origin.deploystack.DeployInitStackException;
 import attini.deploy.origin.deploystack.DeployInitStackService;
 import attini.deploy.origin.deploystack.DynamoInitDeployStackFacade;
 import attini.deploy.origin.deploystack.InitDeployError;
 import attini.deploy.origin.lifecycle.LifeCycleService;
+import attini.deploy.origin.metrics.EmfMetricsPublisher;
 import attini.deploy.origin.stepguard.StepGuardFacade;
 import attini.domain.DistributionContext;
 import attini.domain.DistributionContextImpl;
@@ -37,6 +57,7 @@ import attini.domain.DistributionId;
 import attini.domain.DistributionName;
 import attini.domain.Environment;
 import attini.domain.ObjectIdentifier;
+import attini.domain.Version;
 import software.amazon.awssdk.awscore.exception.AwsErrorDetails;
 import software.amazon.awssdk.services.cloudformation.model.CloudFormationException;
 
@@ -91,6 +112,8 @@ class InitDeployServiceTest {
     @Mock
     AppDeploymentFacade appDeploymentFacade;
 
+    List<String> publishedMetrics = new CopyOnWriteArrayList<>();
+
     InitDeployService initDeployService;
 
     @BeforeEach
@@ -107,7 +130,9 @@ class InitDeployServiceTest {
                                                   systemClockFacade,
                                                   stepGuardFacade,
                                                   distributionDataFacade,
-                                                  appDeploymentFacade);
+                                                  appDeploymentFacade,
+                                                  Executors.newFixedThreadPool(4),
+                                                  new EmfMetricsPublisher(new ObjectMapper(), publishedMetrics::add));
     }
 
     @Test
@@ -118,19 +143,21 @@ class InitDeployServiceTest {
                                                            .build();
         DistributionData distributionData = new DistributionData(attiniConfig,
                                                                  BUCKET_PATH, TEMPlATE_MD5_HEX);
-        when(publishArtifactService.publishDistribution(EVENT)).thenReturn(distributionData);
+        when(publishArtifactService.publishDistribution(eq(EVENT), any())).thenReturn(distributionData);
 
-        when(lifeCycleService.cleanup(any(DistributionName.class), any(Environment.class), anyString())).thenReturn(
+        when(lifeCycleService.cleanupAfterDeploy(any(DistributionName.class), any(Environment.class), anyString())).thenReturn(
                 CompletableFuture.allOf());
         initDeployService.initDeploy(EVENT);
 
 
-        verify(publishArtifactService).publishDistribution(EVENT);
+        verify(publishArtifactService).publishDistribution(eq(EVENT), any());
         verify(putLatestDistributionReferenceParameter).putParameter(attiniConfig, EVENT.getEnvironmentName());
+        assertTrue(publishedMetrics.stream().anyMatch(metric -> metric.contains("\"Stage\":\"handleInitDeployStack\"")));
         verify(deployInitStackService).deployInitStack(DISTRIBUTION_CONTEXT,
                                                        attiniConfig.getAttiniInitDeployStackConfig().get(),
                                                        BUCKET_PATH,
-                                                       attiniConfig.getAttiniDistributionTags());
+                                                       attiniConfig.getAttiniDistributionTags(),
+                                                       Optional.empty());
         verify(deployDataFacade).savePlatformDeployment(DeployDataFacade.SaveDeploymentDataRequest.builder()
                                                                                                   .deployTime(DEPLOY_TIME)
                                                                                                   .distributionContext(
@@ -140,6 +167,43 @@ class InitDeployServiceTest {
                                                                                                   .build());
     }
 
+    @Test
+    void shouldSavePlatformDeploymentAfterAppDeploymentPlan() {
+        AttiniConfig attiniConfig = AttiniConfigTestBuilder.aConfig()
+                                                           .distributionId(DISTRIBUTION_CONTEXT.getDistributionId())
+                                                           .distributionName(DISTRIBUTION_CONTEXT.getDistributionName())
+                                                           .appConfig(new AppConfig(null,
+                                                                                    new ObjectMapper(),
+                                                                                    "app-deployment-plan",
+                                                                                    Environment.of("dev")))
+                                                           .build();
+        DistributionData distributionData = new DistributionData(attiniConfig,
+                                                                 BUCKET_PATH, TEMPlATE_MD5_HEX);
+        when(publishArtifactService.publishDistribution(eq(EVENT), any())).thenReturn(distributionData);
+        when(lifeCycleService.cleanupAfterDeploy(any(DistributionName.class), any(Environment.class), anyString())).thenReturn(
+                CompletableFuture.allOf());
+        // A slow app deployment plan would be overtaken by the platform deployment if they ran concurrently
+        doAnswer(invocation -> {
+            Thread.sleep(100);
+            return null;
+        }).when(appDeploymentFacade).runAppDeploymentPlan(any(), any(), any(), anyLong());
+
+        initDeployService.initDeploy(EVENT);
+
+        InOrder inOrder = inOrder(appDeploymentFacade, deployDataFacade);
+        inOrder.verify(appDeploymentFacade).runAppDeploymentPlan(attiniConfig.getAppConfig().get(),
+                                                                 DISTRIBUTION_CONTEXT,
+                                                                 distributionData,
+                                                                 DEPLOY_TIME);
+        inOrder.verify(deployDataFacade).savePlatformDeployment(DeployDataFacade.SaveDeploymentDataRequest.builder()
+                                                                                                          .deployTime(DEPLOY_TIME)
+                                                                                                          .distributionContext(
+                                                                                                                  DISTRIBUTION_CONTEXT)
+                                                                                                          .distributionData(distributionData)
+                                                                                                          .isUnchanged(false)
+                                                                                                          .build());
+    }
+
     @Test
     void shouldOnlyPublishArtifact() {
         AttiniConfig attiniConfig = AttiniConfigTestBuilder.aConfig()
@@ -149,19 +213,20 @@ class InitDeployServiceTest {
                                                            .build();
         DistributionData distributionData = new DistributionData(attiniConfig,
                                                                  BUCKET_PATH, TEMPlATE_MD5_HEX);
-        when(publishArtifactService.publishDistribution(EVENT)).thenReturn(distributionData);
-        when(lifeCycleService.cleanup(any(DistributionName.class), any(Environment.class), anyString())).thenReturn(
+        when(publishArtifactService.publishDistribution(eq(EVENT), any())).thenReturn(distributionData);
+        when(lifeCycleService.cleanupAfterDeploy(any(DistributionName.class), any(Environment.class), anyString())).thenReturn(
                 CompletableFuture.allOf());
 
         initDeployService.initDeploy(EVENT);
 
-        verify(publishArtifactService).publishDistribution(EVENT);
+        verify(publishArtifactService).publishDistribution(eq(EVENT), any());
         verify(putLatestDistributionReferenceParameter).putParameter(attiniConfig, EVENT.getEnvironmentName());
         verify(deployInitStackService, never()).deployInitStack(DISTRIBUTION_CONTEXT,
                                                                 attiniConfig.getAttiniInitDeployStackConfig()
                                                                             .orElse(null),
                                                                 BUCKET_PATH,
-                                                                attiniConfig.getAttiniDistributionTags());
+                                                                attiniConfig.getAttiniDistributionTags(),
+                                                       Optional.empty());
         verify(deployDataFacade).savePlatformDeployment(DeployDataFacade.SaveDeploymentDataRequest.builder()
                                                                                                   .deployTime(DEPLOY_TIME)
                                                                                                   .distributionContext(
@@ -173,13 +238,15 @@ class InitDeployServiceTest {
 
     @Test
     void shouldSaveErrorIfDeployStackFails() {
+        when(lifeCycleService.cleanupAfterDeploy(any(DistributionName.class), any(Environment.class), anyString())).thenReturn(
+                CompletableFuture.allOf());
         AttiniConfig attiniConfig = AttiniConfigTestBuilder.aConfig()
                                                            .distributionId(DISTRIBUTION_CONTEXT.getDistributionId())
                                                            .distributionName(DISTRIBUTION_CONTEXT.getDistributionName())
                                                            .build();
         DistributionData distributionData = new DistributionData(attiniConfig,
                                                                  BUCKET_PATH, TEMPlATE_MD5_HEX);
-        when(publishArtifactService.publishDistribution(EVENT)).thenReturn(distributionData);
+        when(publishArtifactService.publishDistribution(eq(EVENT), any())).thenReturn(distributionData);
 
         DeployInitStackException stackException =
                 new DeployInitStackException(CloudFormationException.builder()
@@ -195,16 +262,18 @@ class InitDeployServiceTest {
                 .deployInitStack(DISTRIBUTION_CONTEXT,
                                  attiniConfig.getAttiniInitDeployStackConfig().get(),
                                  BUCKET_PATH,
-                                 attiniConfig.getAttiniDistributionTags());
+                                 attiniConfig.getAttiniDistributionTags(),
+                                 Optional.empty());
 
         assertThrows(InitDeployException.class, () -> initDeployService.initDeploy(EVENT));
 
-        verify(publishArtifactService).publishDistribution(EVENT);
+        verify(publishArtifactService).publishDistribution(eq(EVENT), any());
         verify(putLatestDistributionReferenceParameter).putParameter(attiniConfig, EVENT.getEnvironmentName());
         verify(deployInitStackService).deployInitStack(DISTRIBUTION_CONTEXT,
                                                        attiniConfig.getAttiniInitDeployStackConfig().get(),
                                                        BUCKET_PATH,
-                                                       attiniConfig.getAttiniDistributionTags());
+                                                       attiniConfig.getAttiniDistributionTags(),
+                                                       Optional.empty());
         verify(deployDataFacade).savePlatformDeployment(DeployDataFacade.SaveDeploymentDataRequest.builder()
                                                                                                   .deployTime(DEPLOY_TIME)
                                                                                                   .distributionContext(
@@ -223,16 +292,113 @@ class InitDeployServiceTest {
                                                  DistributionId.of("dist-id"),
                                                  new RuntimeException()))
                 .when(publishArtifactService)
-                .publishDistribution(EVENT);
+                .publishDistribution(eq(EVENT), any());
         assertThrows(InitDeployException.class, () -> initDeployService.initDeploy(EVENT));
 
-        verify(publishArtifactService).publishDistribution(EVENT);
+        verify(publishArtifactService).publishDistribution(eq(EVENT), any());
         verify(putLatestDistributionReferenceParameter, never()).putParameter(attiniConfig, EVENT.getEnvironmentName());
         verify(deployInitStackService, never()).deployInitStack(DISTRIBUTION_CONTEXT,
                                                                 attiniConfig.getAttiniInitDeployStackConfig()
                                                                             .orElse(null),
                                                                 BUCKET_PATH,
-                                                                attiniConfig.getAttiniDistributionTags());
+                                                                attiniConfig.getAttiniDistributionTags(),
+                                                       Optional.empty());
         verify(deployDataFacade).savePlatformDeployment(any(DeployDataFacade.SaveDeploymentDataRequest.class));
     }
+
+    @Test
+    void shouldNotDeployInitStackIfDependencyIsMissing() {
+        when(lifeCycleService.cleanupAfterDeploy(any(DistributionName.class), any(Environment.class), anyString())).thenReturn(
+                CompletableFuture.allOf());
+        DistributionName dependencyName = DistributionName.of("network");
+        AttiniConfig attiniConfig = AttiniConfigTestBuilder.aConfig()
+                                                           .distributionId(DISTRIBUTION_CONTEXT.getDistributionId())
+                                                           .distributionName(DISTRIBUTION_CONTEXT.getDistributionName())
+                                                           .dependencies(List.of(new DistributionDependency(dependencyName,
+                                                                                                            null)))
+                                                           .build();
+        DistributionData distributionData = new DistributionData(attiniConfig,
+                                                                 BUCKET_PATH, TEMPlATE_MD5_HEX);
+        when(publishArtifactService.publishDistribution(eq(EVENT), any())).thenReturn(distributionData);
+        when(distributionDataFacade.getDistributions(List.of(dependencyName), EVENT.getEnvironmentName())).thenReturn(Map.of());
+
+        assertThrows(InitDeployException.class, () -> initDeployService.initDeploy(EVENT));
+
+        verify(putLatestDistributionReferenceParameter).putParameter(attiniConfig, EVENT.getEnvironmentName());
+        verify(distributionDataFacade).saveDistributionData(attiniConfig, EVENT, BUCKET_PATH);
+        verify(deployInitStackService, never()).deployInitStack(any(), any(), any(), any(), any());
+        verify(monitoringFacade, never()).sendInitDeployEvent(any(), any());
+
+        InOrder inOrder = inOrder(deployDataFacade);
+        inOrder.verify(deployDataFacade).savePlatformDeployment(DeployDataFacade.SaveDeploymentDataRequest.builder()
+                                                                                                          .deployTime(DEPLOY_TIME)
+                                                                                                          .distributionContext(DISTRIBUTION_CONTEXT)
+                                                                                                          .distributionData(distributionData)
+                                                                                                          .isUnchanged(false)
+                                                                                                          .build());
+        inOrder.verify(deployDataFacade)
+               .savePlatformDeployment(argThat(request -> request.getError().isPresent()));
+    }
+
+    @Test
+    void shouldPublishCleanupMetricsIfAStageFails() {
+        when(lifeCycleService.cleanupAfterDeploy(any(DistributionName.class), any(Environment.class), anyString())).thenReturn(
+                CompletableFuture.runAsync(() -> {}, CompletableFuture.delayedExecutor(200, TimeUnit.MILLISECONDS)));
+        DistributionName dependencyName = DistributionName.of("network");
+        AttiniConfig attiniConfig = AttiniConfigTestBuilder.aConfig()
+                                                           .distributionId(DISTRIBUTION_CONTEXT.getDistributionId())
+                                                           .distributionName(DISTRIBUTION_CONTEXT.getDistributionName())
+                                                           .dependencies(List.of(new DistributionDependency(dependencyName,
+                                                                                                            null)))
+                                                           .build();
+        when(publishArtifactService.publishDistribution(eq(EVENT), any())).thenReturn(new DistributionData(attiniConfig,
+                                                                                                BUCKET_PATH,
+                                                                                                TEMPlATE_MD5_HEX));
+        when(distributionDataFacade.getDistributions(List.of(dependencyName), EVENT.getEnvironmentName())).thenReturn(Map.of());
+
+        assertThrows(InitDeployException.class, () -> initDeployService.initDeploy(EVENT));
+
+        assertTrue(publishedMetrics.stream().anyMatch(metric -> metric.contains("\"Stage\":\"cleanup\"")));
+    }
+
+    @Test
+    void shouldReportAllUnsatisfiedDependenciesAtOnce() {
+        when(lifeCycleService.cleanupAfterDeploy(any(DistributionName.class), any(Environment.class), anyString())).thenReturn(
+                CompletableFuture.allOf());
+        DistributionName missing = DistributionName.of("network");
+        DistributionName outdated = DistributionName.of("database");
+        DistributionName failed = DistributionName.of("queue");
+        AttiniConfig attiniConfig = AttiniConfigTestBuilder.aConfig()
+                                                           .distributionId(DISTRIBUTION_CONTEXT.getDistributionId())
+                                                           .distributionName(DISTRIBUTION_CONTEXT.getDistributionName())
+                                                           .dependencies(List.of(new DistributionDependency(missing, null),
+                                                                                 new DistributionDependency(outdated, ">=2.0.0"),
+                                                                                 new DistributionDependency(failed, null)))
+                                                           .build();
+        when(publishArtifactService.publishDistribution(eq(EVENT), any())).thenReturn(new DistributionData(attiniConfig,
+                                                                                                BUCKET_PATH,
+                                                                                                TEMPlATE_MD5_HEX));
+        List<DistributionName> dependencyNames = List.of(missing, outdated, failed);
+        when(distributionDataFacade.getDistributions(dependencyNames, EVENT.getEnvironmentName()))
+                .thenReturn(Map.of(outdated, new Distribution(outdated, DistributionId.of("1"), null, Version.of("1.2.0")),
+                                   failed, new Distribution(failed, DistributionId.of("2"), null, null)));
+        when(deployDataFacade.getLatestDeployData(dependencyNames, EVENT.getEnvironmentName()))
+                .thenReturn(Map.of(failed, DeployData.builder()
+                                                     .setDeployName("dev-queue")
+                                                     .setDeployTime(Instant.ofEpochMilli(DEPLOY_TIME))
+                                                     .setDistributionId(DistributionId.of("2"))
+                                                     .setDeploymentSourceBucket(BUCKET_PATH)
+                                                     .setObjectIdentifier(ObjectIdentifier.of("dev/queue.zip#1"))
+                                                     .setErrorMessage("stack rollback")
+                                                     .build()));
+
+        assertThrows(InitDeployException.class, () -> initDeployService.initDeploy(EVENT));
+
+        verify(deployDataFacade).savePlatformDeployment(argThat(request -> request.getError()
+                                                                                  .map(InitDeployError::getErrorMessage)
+                                                                                  .filter(message -> message.contains("network") && message.contains(
+                                                                                          "database") && message.contains("stack rollback"))
+                                                                                  .isPresent()));
+        verify(deployInitStackService, never()).deployInitStack(any(), any(), any(), any(), any());
+    }
 }
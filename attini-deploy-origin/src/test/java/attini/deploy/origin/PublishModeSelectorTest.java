@@ -0,0 +1,99 @@
+package attini.deploy.origin;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Random;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import attini.deploy.origin.zip.ZipCentralDirectory;
+import attini.deploy.origin.zip.ZipRangeReader;
+
+class PublishModeSelectorTest {
+
+    private static final int EXTRACTED_SIZE = 10_000;
+
+    // Random content does not compress, so the zip is a little larger than the extracted file
+    private static byte[] zip;
+    private static ZipCentralDirectory centralDirectory;
+
+    @BeforeAll
+    static void createDistribution() throws IOException {
+        byte[] content = new byte[EXTRACTED_SIZE];
+        new Random(1).nextBytes(content);
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        try (ZipOutputStream zipOutputStream = new ZipOutputStream(outputStream)) {
+            zipOutputStream.putNextEntry(new ZipEntry("templates/template.yaml"));
+            zipOutputStream.write(content);
+            zipOutputStream.closeEntry();
+        }
+        zip = outputStream.toByteArray();
+        centralDirectory = ZipCentralDirectory.read(ZipRangeReader.of(zip));
+    }
+
+    @Test
+    void select_shouldPublishInMemoryIfDistributionFitsMemoryBudget() {
+        PublishModeSelector selector = new PublishModeSelector(1024 * 1024, () -> 0);
+
+        assertEquals(PublishMode.IN_MEMORY, selector.select(zip.length, centralDirectory).getPublishMode());
+    }
+
+    @Test
+    void select_shouldExtractInParallelIfZipAndFilesFitOnDisk() {
+        PublishModeSelector selector = new PublishModeSelector(EXTRACTED_SIZE, () -> 3 * EXTRACTED_SIZE);
+
+        assertEquals(PublishMode.PARALLEL, selector.select(zip.length, centralDirectory).getPublishMode());
+    }
+
+    @Test
+    void select_shouldStageIfOnlyFilesFitOnDisk() {
+        PublishModeSelector selector = new PublishModeSelector(EXTRACTED_SIZE, () -> 3 * EXTRACTED_SIZE / 2);
+
+        assertEquals(PublishMode.STAGED, selector.select(zip.length, centralDirectory).getPublishMode());
+    }
+
+    @Test
+    void select_shouldStreamIfFilesDoNotFitOnDisk() {
+        PublishModeSelector selector = new PublishModeSelector(EXTRACTED_SIZE, () -> EXTRACTED_SIZE);
+
+        assertEquals(PublishMode.DIRECT, selector.select(zip.length, centralDirectory).getPublishMode());
+    }
+
+    @Test
+    void select_shouldNotHandOutMemoryReservedByRunningPublish() {
+        PublishModeSelector selector = new PublishModeSelector(3 * EXTRACTED_SIZE, () -> 0);
+
+        try (PublishModeSelector.Reservation running = selector.select(zip.length, centralDirectory)) {
+            assertEquals(PublishMode.IN_MEMORY, running.getPublishMode());
+            assertEquals(PublishMode.DIRECT, selector.select(zip.length, centralDirectory).getPublishMode());
+        }
+    }
+
+    @Test
+    void select_shouldNotHandOutTempSpaceReservedByRunningPublish() {
+        PublishModeSelector selector = new PublishModeSelector(0, () -> 4 * EXTRACTED_SIZE);
+
+        try (PublishModeSelector.Reservation running = selector.select(zip.length, centralDirectory)) {
+            assertEquals(PublishMode.PARALLEL, running.getPublishMode());
+            assertEquals(PublishMode.STAGED, selector.select(zip.length, centralDirectory).getPublishMode());
+        }
+    }
+
+    @Test
+    void select_shouldReleaseReservationOnce() {
+        PublishModeSelector selector = new PublishModeSelector(3 * EXTRACTED_SIZE, () -> 0);
+        PublishModeSelector.Reservation first = selector.select(zip.length, centralDirectory);
+        first.close();
+        first.close();
+
+        try (PublishModeSelector.Reservation second = selector.select(zip.length, centralDirectory)) {
+            assertEquals(PublishMode.IN_MEMORY, second.getPublishMode());
+            assertEquals(PublishMode.DIRECT, selector.select(zip.length, centralDirectory).getPublishMode());
+        }
+    }
+}
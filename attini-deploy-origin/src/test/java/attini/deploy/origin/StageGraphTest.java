@@ -0,0 +1,100 @@
+package attini.deploy.origin;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import attini.deploy.origin.metrics.StageMeasurement;
+import attini.deploy.origin.metrics.StageMetrics;
+import attini.domain.DistributionName;
+import attini.domain.Environment;
+
+class StageGraphTest {
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(4);
+    private final StageMetrics stageMetrics = new StageMetrics(Environment.of("dev"), DistributionName.of("infra"));
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void stage_shouldRunIndependentStagesConcurrently() {
+        StageGraph stages = new StageGraph(executor, stageMetrics);
+        CountDownLatch bothStarted = new CountDownLatch(2);
+
+        stages.stage("first", () -> awaitOther(bothStarted));
+        stages.stage("second", () -> awaitOther(bothStarted));
+
+        stages.awaitAll();
+    }
+
+    @Test
+    void stage_shouldRunAfterDependencies() {
+        StageGraph stages = new StageGraph(executor, stageMetrics);
+        List<String> completed = new CopyOnWriteArrayList<>();
+
+        CompletableFuture<Boolean> first = stages.stage("first", () -> completed.add("first"));
+        CompletableFuture<String> second = stages.stage("second", () -> {
+            completed.add("second");
+            return "value";
+        });
+        stages.stage("third", () -> completed.add("third:" + second.join()), first, second);
+
+        stages.awaitAll();
+
+        assertEquals(3, completed.size());
+        assertEquals("third:value", completed.get(2));
+        assertEquals(Set.of("first", "second", "third"),
+                     stageMetrics.getMeasurements()
+                                 .stream()
+                                 .map(StageMeasurement::stage)
+                                 .collect(Collectors.toSet()));
+    }
+
+    @Test
+    void awaitAll_shouldRethrowFirstFailureAndSkipDependents() {
+        StageGraph stages = new StageGraph(executor, stageMetrics);
+        IllegalStateException failure = new IllegalStateException("first failed");
+        AtomicBoolean dependentRan = new AtomicBoolean();
+        AtomicBoolean independentRan = new AtomicBoolean();
+
+        CompletableFuture<Void> first = stages.stage("first", () -> {
+            throw failure;
+        });
+        stages.stage("independent", () -> independentRan.set(true));
+        stages.stage("dependent", () -> dependentRan.set(true), first);
+
+        IllegalStateException thrown = assertThrows(IllegalStateException.class, stages::awaitAll);
+
+        assertSame(failure, thrown);
+        assertTrue(independentRan.get());
+        assertFalse(dependentRan.get());
+    }
+
+    private static void awaitOther(CountDownLatch bothStarted) {
+        bothStarted.countDown();
+        try {
+            assertTrue(bothStarted.await(5, TimeUnit.SECONDS));
+        } catch (InterruptedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
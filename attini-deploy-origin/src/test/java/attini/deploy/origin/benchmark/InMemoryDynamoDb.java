@@ -0,0 +1,54 @@
+package attini.deploy.origin.benchmark;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.GetItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.GetItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.PutItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.PutItemResponse;
+
+/**
+ * A DynamoDB stand-in that supports reading and writing single items. Every table is assumed to use the given key
+ * attributes.
+ */
+class InMemoryDynamoDb implements DynamoDbClient {
+
+    private final List<String> keyAttributes;
+    private final Map<String, Map<String, AttributeValue>> items = new ConcurrentHashMap<>();
+
+    InMemoryDynamoDb(String... keyAttributes) {
+        this.keyAttributes = List.of(keyAttributes);
+    }
+
+    @Override
+    public GetItemResponse getItem(GetItemRequest request) {
+        Map<String, AttributeValue> item = items.get(itemKey(request.tableName(), request.key()));
+        return item == null ? GetItemResponse.builder().build() : GetItemResponse.builder().item(item).build();
+    }
+
+    @Override
+    public PutItemResponse putItem(PutItemRequest request) {
+        items.put(itemKey(request.tableName(), request.item()), Map.copyOf(request.item()));
+        return PutItemResponse.builder().build();
+    }
+
+    @Override
+    public String serviceName() {
+        return SERVICE_NAME;
+    }
+
+    @Override
+    public void close() {
+    }
+
+    private String itemKey(String tableName, Map<String, AttributeValue> attributes) {
+        return keyAttributes.stream()
+                            .map(name -> String.valueOf(attributes.get(name)))
+                            .collect(Collectors.joining("|", tableName + "|", ""));
+    }
+}
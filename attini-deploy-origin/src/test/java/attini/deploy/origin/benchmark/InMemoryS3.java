@@ -0,0 +1,257 @@
+package attini.deploy.origin.benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import org.apache.commons.io.input.BoundedInputStream;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+import software.amazon.awssdk.core.async.AsyncRequestBody;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.core.sync.ResponseTransformer;
+import software.amazon.awssdk.http.AbortableInputStream;
+import software.amazon.awssdk.services.s3.S3AsyncClient;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.CopyObjectRequest;
+import software.amazon.awssdk.services.s3.model.CopyObjectResponse;
+import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+import software.amazon.awssdk.services.s3.model.GetObjectResponse;
+import software.amazon.awssdk.services.s3.model.HeadObjectRequest;
+import software.amazon.awssdk.services.s3.model.HeadObjectResponse;
+import software.amazon.awssdk.services.s3.model.NoSuchKeyException;
+import software.amazon.awssdk.services.s3.model.PutObjectRequest;
+import software.amazon.awssdk.services.s3.model.PutObjectResponse;
+import software.amazon.awssdk.services.s3.model.PutObjectTaggingRequest;
+import software.amazon.awssdk.services.s3.model.PutObjectTaggingResponse;
+
+/**
+ * An S3 stand-in for the operations used when publishing a distribution. Objects registered from disk are served
+ * from their file, uploaded objects only keep their content if it is small enough to be read back, such as the
+ * manifest, so that the heap used by the stand-in does not grow with the size of the distribution. Every request
+ * can be given a fixed latency to get closer to the behaviour of the real service.
+ */
+class InMemoryS3 {
+
+    private static final int MAX_RETAINED_CONTENT = 1024 * 1024;
+
+    private final Map<String, StoredObject> objects = new ConcurrentHashMap<>();
+    private final AtomicLong requests = new AtomicLong();
+    private final long latencyMillis;
+
+    InMemoryS3(long latencyMillis) {
+        this.latencyMillis = latencyMillis;
+    }
+
+    void putFile(String bucket, String key, Path file) {
+        try {
+            objects.put(bucket + "/" + key, new StoredObject(file, null, Files.size(file)));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    long objectCount(String bucket) {
+        return objects.keySet().stream().filter(key -> key.startsWith(bucket + "/")).count();
+    }
+
+    long requestCount() {
+        return requests.get();
+    }
+
+    void clear(String bucket) {
+        objects.keySet().removeIf(key -> key.startsWith(bucket + "/"));
+    }
+
+    S3Client syncClient() {
+        return new S3Client() {
+            @Override
+            public <T> T getObject(GetObjectRequest request,
+                                   ResponseTransformer<GetObjectResponse, T> responseTransformer) {
+                request();
+                StoredObject object = get(request.bucket(), request.key());
+                long first = 0;
+                long last = object.size() - 1;
+                if (request.range() != null) {
+                    String[] range = request.range().substring("bytes=".length()).split("-");
+                    first = Long.parseLong(range[0]);
+                    last = Math.min(last, Long.parseLong(range[1]));
+                }
+                try {
+                    InputStream content = object.open();
+                    content.skipNBytes(first);
+                    long length = last - first + 1;
+                    return responseTransformer.transform(GetObjectResponse.builder().contentLength(length).build(),
+                                                         AbortableInputStream.create(new BoundedInputStream(content,
+                                                                                                            length)));
+                } catch (Exception e) {
+                    throw new IllegalStateException("Could not read " + request.key(), e);
+                }
+            }
+
+            @Override
+            public HeadObjectResponse headObject(HeadObjectRequest request) {
+                request();
+                return HeadObjectResponse.builder().contentLength(get(request.bucket(), request.key()).size()).build();
+            }
+
+            @Override
+            public CopyObjectResponse copyObject(CopyObjectRequest request) {
+                request();
+                return copy(request);
+            }
+
+            @Override
+            public PutObjectResponse putObject(PutObjectRequest request, RequestBody requestBody) {
+                request();
+                try (InputStream content = requestBody.contentStreamProvider().newStream()) {
+                    byte[] retained = new byte[MAX_RETAINED_CONTENT + 1];
+                    int retainedLength = content.readNBytes(retained, 0, retained.length);
+                    long size = retainedLength + content.transferTo(OutputStream.nullOutputStream());
+                    put(request.bucket(),
+                        request.key(),
+                        size <= MAX_RETAINED_CONTENT ? Arrays.copyOf(retained, retainedLength) : null,
+                        size);
+                    return PutObjectResponse.builder().build();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+
+            @Override
+            public PutObjectTaggingResponse putObjectTagging(PutObjectTaggingRequest request) {
+                request();
+                return PutObjectTaggingResponse.builder().build();
+            }
+
+            @Override
+            public String serviceName() {
+                return SERVICE_NAME;
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+    }
+
+    S3AsyncClient asyncClient() {
+        return new S3AsyncClient() {
+            @Override
+            public CompletableFuture<PutObjectResponse> putObject(PutObjectRequest request,
+                                                                  AsyncRequestBody requestBody) {
+                CompletableFuture<PutObjectResponse> response = new CompletableFuture<>();
+                requestBody.subscribe(new Subscriber<>() {
+                    private long size;
+
+                    @Override
+                    public void onSubscribe(Subscription subscription) {
+                        subscription.request(Long.MAX_VALUE);
+                    }
+
+                    @Override
+                    public void onNext(ByteBuffer byteBuffer) {
+                        size += byteBuffer.remaining();
+                    }
+
+                    @Override
+                    public void onError(Throwable throwable) {
+                        response.completeExceptionally(throwable);
+                    }
+
+                    @Override
+                    public void onComplete() {
+                        complete(response, () -> {
+                            put(request.bucket(), request.key(), null, size);
+                            return PutObjectResponse.builder().build();
+                        });
+                    }
+                });
+                return response;
+            }
+
+            @Override
+            public CompletableFuture<CopyObjectResponse> copyObject(CopyObjectRequest request) {
+                CompletableFuture<CopyObjectResponse> response = new CompletableFuture<>();
+                complete(response, () -> copy(request));
+                return response;
+            }
+
+            @Override
+            public String serviceName() {
+                return SERVICE_NAME;
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+    }
+
+    private <T> void complete(CompletableFuture<T> response, Supplier<T> action) {
+        requests.incrementAndGet();
+        CompletableFuture.delayedExecutor(latencyMillis, TimeUnit.MILLISECONDS).execute(() -> {
+            try {
+                response.complete(action.get());
+            } catch (RuntimeException e) {
+                response.completeExceptionally(e);
+            }
+        });
+    }
+
+    private StoredObject get(String bucket, String key) {
+        StoredObject object = objects.get(bucket + "/" + key);
+        if (object == null) {
+            throw NoSuchKeyException.builder().message("No such key " + key).build();
+        }
+        return object;
+    }
+
+    private void put(String bucket, String key, byte[] content, long size) {
+        objects.put(bucket + "/" + key, new StoredObject(null, content, size));
+    }
+
+    private CopyObjectResponse copy(CopyObjectRequest request) {
+        StoredObject source = get(request.sourceBucket(), request.sourceKey());
+        objects.put(request.destinationBucket() + "/" + request.destinationKey(), source);
+        return CopyObjectResponse.builder().build();
+    }
+
+    private void request() {
+        requests.incrementAndGet();
+        if (latencyMillis > 0) {
+            try {
+                Thread.sleep(latencyMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+
+    private record StoredObject(Path file, byte[] content, long size) {
+
+        InputStream open() throws IOException {
+            if (file != null) {
+                return Files.newInputStream(file);
+            }
+            if (content != null) {
+                return new ByteArrayInputStream(content);
+            }
+            throw new IllegalStateException("The content of uploaded objects larger than " + MAX_RETAINED_CONTENT + " bytes is not kept");
+        }
+    }
+}
@@ -0,0 +1,290 @@
+package attini.deploy.origin.benchmark;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import attini.deploy.origin.DistributionData;
+import attini.deploy.origin.DistributionDataFacade;
+import attini.deploy.origin.InitDeployEvent;
+import attini.deploy.origin.PublishArtifactService;
+import attini.deploy.origin.PublishMode;
+import attini.deploy.origin.PublishModeSelector;
+import attini.deploy.origin.config.AttiniConfigFactory;
+import attini.deploy.origin.config.ConfigFileResolver;
+import attini.deploy.origin.config.InitDeployParameterService;
+import attini.deploy.origin.manifest.DistributionManifestFacade;
+import attini.deploy.origin.metrics.StageMeasurement;
+import attini.deploy.origin.metrics.StageMetrics;
+import attini.deploy.origin.s3.AimdConcurrencyLimit;
+import attini.deploy.origin.s3.S3Facade;
+import attini.deploy.origin.s3.TagOriginObjectService;
+import attini.deploy.origin.system.EnvironmentVariables;
+import attini.domain.DistributionName;
+import attini.domain.Environment;
+import attini.domain.ObjectIdentifier;
+
+/**
+ * Publishes synthetic distributions end to end with {@link PublishArtifactService} against in-process S3 and
+ * DynamoDB stand-ins, so it runs without network or AWS credentials. Every distribution is published once to an
+ * empty artifact bucket and then once more unchanged. Run with
+ * {@code mvn test -Dattini.benchmark=true -Dtest=PublishBenchmarkTest}.
+ *
+ * <p>Optional properties:
+ * <ul>
+ *     <li>{@code attini.benchmark.modes} comma separated publish modes, where AUTO lets the publish mode selector
+ *     pick the mode, all modes by default</li>
+ *     <li>{@code attini.benchmark.s3LatencyMillis} latency added to every S3 request, 0 by default</li>
+ *     <li>{@code attini.benchmark.files} and {@code attini.benchmark.bytes} publish a distribution of the given
+ *     size in addition to the fixed scenarios</li>
+ * </ul>
+ */
+@EnabledIfSystemProperty(named = "attini.benchmark", matches = "true")
+class PublishBenchmarkTest {
+
+    private static final String SOURCE_BUCKET = "deployment-origin";
+    private static final String ARTIFACT_BUCKET = "artifact-store";
+    private static final String RESOURCE_STATES_TABLE = "resource-states";
+    private static final String AUTO = "AUTO";
+    private static final long KB = 1024;
+    private static final long MB = 1024 * KB;
+    private static final long GB = 1024 * MB;
+
+    @Test
+    void tenFiles() throws IOException {
+        benchmark(10, 100 * KB);
+    }
+
+    @Test
+    void thousandFiles() throws IOException {
+        benchmark(1_000, 16 * MB);
+    }
+
+    @Test
+    void fiftyThousandFiles() throws IOException {
+        benchmark(50_000, 200 * MB);
+    }
+
+    @Test
+    void fewLargeFiles() throws IOException {
+        benchmark(4, GB);
+    }
+
+    @Test
+    @EnabledIfSystemProperty(named = "attini.benchmark.files", matches = "\\d+")
+    void customDistribution() throws IOException {
+        benchmark(Integer.getInteger("attini.benchmark.files"), Long.getLong("attini.benchmark.bytes", 100 * MB));
+    }
+
+    private static void benchmark(int files, long totalBytes) throws IOException {
+        Path zipFile = createDistribution(files, totalBytes / files);
+        try {
+            for (Optional<PublishMode> publishMode : publishModes()) {
+                Harness harness = new Harness(publishMode, zipFile);
+                String name = "%d files, %s".formatted(files, formatBytes(totalBytes));
+                harness.publish(name, "first", files, totalBytes);
+                assertEquals(files + 2, harness.s3.objectCount(ARTIFACT_BUCKET),
+                             "every file, the distribution zip and the manifest should be published");
+                harness.publish(name, "unchanged", files, totalBytes);
+            }
+        } finally {
+            Files.delete(zipFile);
+        }
+    }
+
+    private static List<Optional<PublishMode>> publishModes() {
+        String modes = System.getProperty("attini.benchmark.modes");
+        if (modes == null || modes.isBlank()) {
+            return Stream.concat(Stream.of(Optional.<PublishMode>empty()),
+                                 Arrays.stream(PublishMode.values()).map(Optional::of))
+                         .toList();
+        }
+        return Arrays.stream(modes.split(","))
+                     .map(String::trim)
+                     .map(mode -> mode.equals(AUTO)
+                                  ? Optional.<PublishMode>empty()
+                                  : Optional.of(PublishMode.valueOf(mode)))
+                     .toList();
+    }
+
+    /**
+     * Wires the publish path the way the bean config does, with the AWS clients replaced by the stand-ins.
+     */
+    private static class Harness {
+
+        private final Optional<PublishMode> publishMode;
+        private final InMemoryS3 s3 = new InMemoryS3(Long.getLong("attini.benchmark.s3LatencyMillis", 0));
+        private final InMemoryDynamoDb dynamoDb = new InMemoryDynamoDb("resourceType", "name");
+        private final DistributionDataFacade distributionDataFacade;
+        private final PublishArtifactService publishArtifactService;
+        private final InitDeployEvent event = new InitDeployEvent(SOURCE_BUCKET,
+                                                                  "benchmark/infra/infra.zip",
+                                                                  ObjectIdentifier.of("benchmark/infra/infra.zip#v1"),
+                                                                  "benchmark");
+
+        Harness(Optional<PublishMode> publishMode, Path zipFile) {
+            this.publishMode = publishMode;
+            s3.putFile(SOURCE_BUCKET, event.getS3Key(), zipFile);
+
+            EnvironmentVariables environmentVariables = new BenchmarkEnvironmentVariables(publishMode);
+            S3Facade s3Facade = new S3Facade(s3.syncClient(),
+                                             s3.asyncClient(),
+                                             environmentVariables,
+                                             new AimdConcurrencyLimit(32,
+                                                                      1,
+                                                                      environmentVariables.getUploadMaxInFlightRequests()));
+            ConfigFileResolver configFileResolver = new ConfigFileResolver(environmentVariables);
+            distributionDataFacade = new DistributionDataFacade(dynamoDb, environmentVariables);
+            publishArtifactService = new PublishArtifactService(s3Facade,
+                                                                new AttiniConfigFactory(configFileResolver,
+                                                                                        new InitDeployParameterService(
+                                                                                                distributionDataFacade,
+                                                                                                s3Facade,
+                                                                                                environmentVariables,
+                                                                                                ForkJoinPool.commonPool())),
+                                                                environmentVariables,
+                                                                new TagOriginObjectService(s3.syncClient()),
+                                                                configFileResolver,
+                                                                distributionDataFacade,
+                                                                new DistributionManifestFacade(s3.syncClient(),
+                                                                                               new ObjectMapper()),
+                                                                new PublishModeSelector(environmentVariables.getInMemoryPublishMaxBytes(),
+                                                                                        PublishModeSelector::usableTempSpace));
+        }
+
+        void publish(String name, String round, int files, long totalBytes) {
+            StageMetrics stageMetrics = new StageMetrics(Environment.of("benchmark"), DistributionName.of("infra"));
+            long requestsBefore = s3.requestCount();
+            long elapsedMillis;
+            long peakHeap;
+            long peakTemp;
+            try (ResourceMonitor monitor = new ResourceMonitor(Path.of(System.getProperty("java.io.tmpdir")))) {
+                long start = System.nanoTime();
+                DistributionData distributionData = publishArtifactService.publishDistribution(event, stageMetrics);
+                elapsedMillis = Math.max(1, (System.nanoTime() - start) / 1_000_000);
+                peakHeap = monitor.peakHeapBytes();
+                peakTemp = monitor.peakTempBytes();
+                distributionDataFacade.saveDistributionData(distributionData.getAttiniConfig(),
+                                                            event,
+                                                            distributionData.getArtifactPath());
+            }
+
+            System.out.printf("%s, %s, %s publish: %d ms, %.1f MB/s, %.0f files/s, peak heap %s, peak temp disk %s, %d S3 requests%n",
+                              name,
+                              publishMode.map(PublishMode::name).orElse(AUTO),
+                              round,
+                              elapsedMillis,
+                              (double) totalBytes / MB / elapsedMillis * 1000,
+                              (double) files / elapsedMillis * 1000,
+                              formatBytes(peakHeap),
+                              formatBytes(peakTemp),
+                              s3.requestCount() - requestsBefore);
+            System.out.println("    " + stageMetrics.getMeasurements()
+                                                    .stream()
+                                                    .map(PublishBenchmarkTest::formatStage)
+                                                    .collect(Collectors.joining(", ")));
+        }
+    }
+
+    private static class BenchmarkEnvironmentVariables extends EnvironmentVariables {
+
+        private final Optional<PublishMode> publishMode;
+
+        BenchmarkEnvironmentVariables(Optional<PublishMode> publishMode) {
+            this.publishMode = publishMode;
+        }
+
+        @Override
+        public String getAttiniConfigFile() {
+            return "attini-config";
+        }
+
+        @Override
+        public String getArtifactBucket() {
+            return ARTIFACT_BUCKET;
+        }
+
+        @Override
+        public String getResourceStatesTableName() {
+            return RESOURCE_STATES_TABLE;
+        }
+
+        @Override
+        public String getAwsRegion() {
+            return "eu-west-1";
+        }
+
+        @Override
+        public Optional<PublishMode> getPublishMode() {
+            return publishMode;
+        }
+    }
+
+    private static String formatStage(StageMeasurement measurement) {
+        StringBuilder stage = new StringBuilder(measurement.stage()).append(' ')
+                                                                    .append(measurement.durationMillis())
+                                                                    .append(" ms");
+        if (measurement.retries() != null && measurement.retries() > 0) {
+            stage.append(" (").append(measurement.retries()).append(" retries)");
+        }
+        return stage.toString();
+    }
+
+    private static String formatBytes(long bytes) {
+        if (bytes >= GB) {
+            return "%.1f GB".formatted((double) bytes / GB);
+        }
+        if (bytes >= MB) {
+            return "%.1f MB".formatted((double) bytes / MB);
+        }
+        return "%d KB".formatted(bytes / KB);
+    }
+
+    private static Path createDistribution(int files, long fileSize) throws IOException {
+        Random random = new Random(42);
+        Path zipFile = Files.createTempFile("publish-benchmark", ".zip");
+        byte[] chunk = new byte[(int) Math.min(fileSize, MB)];
+        try (OutputStream outputStream = Files.newOutputStream(zipFile);
+             ZipOutputStream zipOutputStream = new ZipOutputStream(outputStream)) {
+            zipOutputStream.putNextEntry(new ZipEntry("attini-config.yaml"));
+            zipOutputStream.write("""
+                                          distributionName: infra
+                                          distributionId: benchmark
+                                          """.getBytes(StandardCharsets.UTF_8));
+            zipOutputStream.closeEntry();
+
+            // One file less than requested since the attini-config is also part of the distribution
+            for (int i = 0; i < files - 1; i++) {
+                zipOutputStream.putNextEntry(new ZipEntry("files/" + (i % 100) + "/file-" + i + ".bin"));
+                for (long written = 0; written < fileSize; written += chunk.length) {
+                    // Half random and half repeated bytes so the content compresses like a typical template or asset
+                    random.nextBytes(chunk);
+                    for (int j = 0; j < chunk.length / 2; j++) {
+                        chunk[j] = (byte) (j % 64);
+                    }
+                    zipOutputStream.write(chunk, 0, (int) Math.min(chunk.length, fileSize - written));
+                }
+                zipOutputStream.closeEntry();
+            }
+        }
+        return zipFile;
+    }
+}
@@ -0,0 +1,80 @@
+package attini.deploy.origin.benchmark;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.file.FileStore;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Tracks the peak heap and the peak disk usage of the temp directory while a benchmark runs. The peak heap is the sum
+ * of the peaks of the heap pools, which can be a little higher than the real peak since the pools do not peak at the
+ * same time. Disk usage is sampled from the free space of the file store, so anything else writing to the same disk
+ * is included.
+ */
+class ResourceMonitor implements AutoCloseable {
+
+    private static final long SAMPLE_INTERVAL_MILLIS = 10;
+
+    private final List<MemoryPoolMXBean> heapPools = ManagementFactory.getMemoryPoolMXBeans()
+                                                                      .stream()
+                                                                      .filter(pool -> pool.getType() == MemoryType.HEAP)
+                                                                      .toList();
+    private final FileStore fileStore;
+    private final long baselineUsableSpace;
+    private final AtomicLong minUsableSpace;
+    private final Thread sampler;
+    private volatile boolean running = true;
+
+    ResourceMonitor(Path tempDirectory) {
+        try {
+            this.fileStore = Files.getFileStore(tempDirectory);
+            System.gc();
+            heapPools.forEach(MemoryPoolMXBean::resetPeakUsage);
+            this.baselineUsableSpace = fileStore.getUsableSpace();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        this.minUsableSpace = new AtomicLong(baselineUsableSpace);
+        this.sampler = new Thread(this::sample, "benchmark-disk-sampler");
+        this.sampler.setDaemon(true);
+        this.sampler.start();
+    }
+
+    long peakHeapBytes() {
+        return heapPools.stream().mapToLong(pool -> pool.getPeakUsage().getUsed()).sum();
+    }
+
+    long peakTempBytes() {
+        return Math.max(0, baselineUsableSpace - minUsableSpace.get());
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        try {
+            sampler.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void sample() {
+        while (running) {
+            try {
+                minUsableSpace.accumulateAndGet(fileStore.getUsableSpace(), Math::min);
+                Thread.sleep(SAMPLE_INTERVAL_MILLIS);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+}
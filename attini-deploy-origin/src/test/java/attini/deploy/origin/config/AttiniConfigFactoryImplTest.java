@@ -6,10 +6,10 @@ import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.when;
 
-import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -18,6 +18,7 @@ import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import attini.deploy.origin.InitDeployEvent;
+import attini.deploy.origin.zip.ExtractionResult;
 import attini.domain.ObjectIdentifier;
 
 @ExtendWith(MockitoExtension.class)
@@ -45,10 +46,11 @@ class AttiniConfigFactoryImplTest {
 
     @Test
     void createAttiniConfig() {
-        Path testConfigDirectoryPath = Paths.get("src", "test", "resources", "attiniconfig");
+        ExtractionResult extraction = new ExtractionResult(Paths.get("src", "test", "resources", "attiniconfig"),
+                                                           Map.of());
         when(initDeployParameterService.resolveParameters(any(),any(), any())).thenReturn(Collections.emptyMap());
-        when(configFileResolver.getAttiniConfigFiles(testConfigDirectoryPath)).thenReturn(List.of("attiniconfig.json"));
-        AttiniConfig attiniConfig = attiniConfigFactory.createAttiniConfig(testConfigDirectoryPath,
+        when(configFileResolver.getAttiniConfigFiles(extraction)).thenReturn(List.of("attiniconfig.json"));
+        AttiniConfig attiniConfig = attiniConfigFactory.createAttiniConfig(extraction,
                                                                            new InitDeployEvent(BUCKET,
                                                                                                OBJECT_KEY,
                                                                                                SOME_OBJECT_IDENTIFIER,
@@ -62,9 +64,10 @@ class AttiniConfigFactoryImplTest {
 
     @Test
     void createAttiniConfig_yaml() {
-        Path testConfigDirectoryPath = Paths.get("src", "test", "resources", "attiniconfig");
-        when(configFileResolver.getAttiniConfigFiles(testConfigDirectoryPath)).thenReturn(List.of("attiniconfig.json"));
-        AttiniConfig attiniConfig = attiniConfigFactory.createAttiniConfig(testConfigDirectoryPath,
+        ExtractionResult extraction = new ExtractionResult(Paths.get("src", "test", "resources", "attiniconfig"),
+                                                           Map.of());
+        when(configFileResolver.getAttiniConfigFiles(extraction)).thenReturn(List.of("attiniconfig.json"));
+        AttiniConfig attiniConfig = attiniConfigFactory.createAttiniConfig(extraction,
                                                                            new InitDeployEvent(BUCKET,
                                                                                                OBJECT_KEY,
                                                                                                SOME_OBJECT_IDENTIFIER,
@@ -78,10 +81,11 @@ class AttiniConfigFactoryImplTest {
 
     @Test
     void createAttiniConfig_failIfMoreThenOneConfigFile() {
-        Path testConfigDirectoryPath = Paths.get("src", "test", "resources", "attiniconfig");
-        when(configFileResolver.getAttiniConfigFiles(testConfigDirectoryPath)).thenReturn(List.of("attini-config.json",
+        ExtractionResult extraction = new ExtractionResult(Paths.get("src", "test", "resources", "attiniconfig"),
+                                                           Map.of());
+        when(configFileResolver.getAttiniConfigFiles(extraction)).thenReturn(List.of("attini-config.json",
                                                                                                   "attini-config.yaml"));
-        assertThrows(IllegalStateException.class, () -> attiniConfigFactory.createAttiniConfig(testConfigDirectoryPath,
+        assertThrows(IllegalStateException.class, () -> attiniConfigFactory.createAttiniConfig(extraction,
                                                                                                new InitDeployEvent(
                                                                                                        BUCKET,
                                                                                                        OBJECT_KEY,
@@ -92,9 +96,10 @@ class AttiniConfigFactoryImplTest {
 
     @Test
     void createAttiniConfig_will_set_distname_if_not_present() {
-        Path testConfigDirectoryPath = Paths.get("src", "test", "resources", "attiniconfig");
-        when(configFileResolver.getAttiniConfigFiles(testConfigDirectoryPath)).thenReturn(List.of("attiniconfig.json"));
-        AttiniConfig attiniConfig = attiniConfigFactory.createAttiniConfig(testConfigDirectoryPath,
+        ExtractionResult extraction = new ExtractionResult(Paths.get("src", "test", "resources", "attiniconfig"),
+                                                           Map.of());
+        when(configFileResolver.getAttiniConfigFiles(extraction)).thenReturn(List.of("attiniconfig.json"));
+        AttiniConfig attiniConfig = attiniConfigFactory.createAttiniConfig(extraction,
                                                                            new InitDeployEvent(BUCKET,
                                                                                                OBJECT_KEY,
                                                                                                SOME_OBJECT_IDENTIFIER,
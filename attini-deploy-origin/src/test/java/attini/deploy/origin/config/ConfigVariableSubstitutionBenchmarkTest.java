@@ -0,0 +1,108 @@
+package attini.deploy.origin.config;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.UnaryOperator;
+
+import org.apache.commons.text.StringSubstitutor;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Compares the tree walking substitution with the previous serialize, replace and parse approach on synthetic
+ * configs. Run with {@code mvn test -Dattini.benchmark=true -Dtest=ConfigVariableSubstitutionBenchmarkTest}.
+ */
+@EnabledIfSystemProperty(named = "attini.benchmark", matches = "true")
+class ConfigVariableSubstitutionBenchmarkTest {
+
+    private static final int WARMUP_ROUNDS = 200;
+    private static final int ROUNDS = 1000;
+    private static final Map<String, String> VARIABLES = Map.of("environment", "dev",
+                                                                "distributionName", "my-dist",
+                                                                "distributionId", "f7c4b1a2");
+
+    @Test
+    void smallConfig() {
+        benchmark("50 parameters", 50);
+    }
+
+    @Test
+    void largeConfig() {
+        benchmark("5000 parameters", 5000);
+    }
+
+    private static void benchmark(String name, int parameters) {
+        ConfigVariableSubstitutor substitutor = new ConfigVariableSubstitutor(VARIABLES);
+        assertEquals(serializeAndReplace(createConfig(parameters)), substitutor.apply(createConfig(parameters)));
+
+        long serialized = time(ConfigVariableSubstitutionBenchmarkTest::serializeAndReplace, parameters);
+        long treeWalk = time(substitutor::apply, parameters);
+        System.out.printf("%s: serialize and replace %d us, tree walk %d us, speedup %.2fx%n",
+                          name,
+                          serialized,
+                          treeWalk,
+                          (double) serialized / treeWalk);
+    }
+
+    /**
+     * @return the average time per substitution in microseconds, the config is not part of the measured time
+     */
+    private static long time(UnaryOperator<Map<String, Object>> substitution, int parameters) {
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            substitution.apply(createConfig(parameters));
+        }
+        long total = 0;
+        for (int i = 0; i < ROUNDS; i++) {
+            Map<String, Object> config = createConfig(parameters);
+            long start = System.nanoTime();
+            substitution.apply(config);
+            total += System.nanoTime() - start;
+        }
+        return total / ROUNDS / 1000;
+    }
+
+    private static Map<String, Object> serializeAndReplace(Map<String, Object> config) {
+        try {
+            StringSubstitutor sub = new StringSubstitutor(VARIABLES);
+            ObjectMapper objectMapper = new ObjectMapper();
+            return objectMapper.readValue(sub.replace(objectMapper.writeValueAsString(config)), new TypeReference<>() {
+            });
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static Map<String, Object> createConfig(int parameters) {
+        Map<String, Object> parameterMap = new LinkedHashMap<>();
+        for (int i = 0; i < parameters; i++) {
+            // One in ten values is templated, which is more than a typical config has
+            parameterMap.put("Parameter" + i, i % 10 == 0 ? "${environment}-${distributionName}-" + i : "value-" + i);
+        }
+        List<Object> tags = new ArrayList<>();
+        for (int i = 0; i < parameters / 10; i++) {
+            Map<String, Object> tag = new LinkedHashMap<>();
+            tag.put("key", "tag" + i);
+            tag.put("value", i % 2 == 0 ? "${distributionId}" : i);
+            tags.add(tag);
+        }
+        Map<String, Object> initDeployConfig = new LinkedHashMap<>();
+        initDeployConfig.put("stackName", "${environment}-${distributionName}");
+        initDeployConfig.put("template", "/deployment-plan.yaml");
+        initDeployConfig.put("parameters", new LinkedHashMap<>(Map.of("default", parameterMap)));
+        initDeployConfig.put("tags", tags);
+        initDeployConfig.put("forceUpdate", false);
+
+        Map<String, Object> config = new LinkedHashMap<>();
+        config.put("distributionName", "my-dist");
+        config.put("version", "1.2.3");
+        config.put("initDeployConfig", initDeployConfig);
+        return config;
+    }
+}
@@ -0,0 +1,64 @@
+package attini.deploy.origin.config;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+class ConfigVariableSubstitutorTest {
+
+    private final ConfigVariableSubstitutor substitutor = new ConfigVariableSubstitutor(Map.of("environment",
+                                                                                               "dev",
+                                                                                               "distributionName",
+                                                                                               "my \"quoted\" dist"));
+
+    @Test
+    void apply_shouldReplacePlaceholdersInNestedStrings() {
+        Map<String, Object> stackConfig = new LinkedHashMap<>();
+        stackConfig.put("stackName", "${environment}-stack");
+        stackConfig.put("tags", new ArrayList<>(List.of("${distributionName}", "static", 5)));
+        stackConfig.put("forceUpdate", true);
+        Map<String, Object> config = new LinkedHashMap<>();
+        config.put("initDeployConfig", stackConfig);
+        config.put("version", "1.0.0");
+
+        Map<String, Object> result = substitutor.apply(config);
+
+        assertEquals(Map.of("initDeployConfig",
+                            Map.of("stackName", "dev-stack",
+                                   "tags", List.of("my \"quoted\" dist", "static", 5),
+                                   "forceUpdate", true),
+                            "version", "1.0.0"),
+                     result);
+    }
+
+    @Test
+    void apply_shouldKeepEscapedAndUnknownPlaceholders() {
+        Map<String, Object> config = new LinkedHashMap<>();
+        config.put("escaped", "$${environment}");
+        config.put("unknown", "${unknown}");
+
+        Map<String, Object> result = substitutor.apply(config);
+
+        assertSame(config, result);
+        assertEquals("${environment}", result.get("escaped"));
+        assertEquals("${unknown}", result.get("unknown"));
+    }
+
+    @Test
+    void apply_shouldReplacePlaceholdersInKeys() {
+        Map<String, Object> variables = new LinkedHashMap<>();
+        variables.put("${environment}-bucket", "${environment}");
+        Map<String, Object> config = new LinkedHashMap<>();
+        config.put("variables", variables);
+
+        Map<String, Object> result = substitutor.apply(config);
+
+        assertEquals(Map.of("variables", Map.of("dev-bucket", "dev")), result);
+    }
+}
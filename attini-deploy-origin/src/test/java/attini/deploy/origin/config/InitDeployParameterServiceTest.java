@@ -0,0 +1,101 @@
+package attini.deploy.origin.config;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import attini.deploy.origin.Distribution;
+import attini.deploy.origin.DistributionDataFacade;
+import attini.deploy.origin.s3.S3Facade;
+import attini.deploy.origin.system.EnvironmentVariables;
+import attini.domain.DistributionId;
+import attini.domain.DistributionName;
+import attini.domain.Environment;
+
+@ExtendWith(MockitoExtension.class)
+class InitDeployParameterServiceTest {
+
+    private static final String ARTIFACT_BUCKET = "artifact-bucket";
+    private static final Environment ENVIRONMENT = Environment.of("dev");
+    private static final DistributionName NETWORK = DistributionName.of("network");
+
+    @Mock
+    DistributionDataFacade distributionDataFacade;
+
+    @Mock
+    S3Facade s3Facade;
+
+    @Mock
+    EnvironmentVariables environmentVariables;
+
+    InitDeployParameterService initDeployParameterService;
+
+    @BeforeEach
+    void setUp() {
+        initDeployParameterService = new InitDeployParameterService(distributionDataFacade,
+                                                                    s3Facade,
+                                                                    environmentVariables,
+                                                                    Executors.newFixedThreadPool(2));
+    }
+
+    @Test
+    void resolveParameters_shouldDownloadEachDistributionOutputOnce() throws JsonProcessingException {
+        when(environmentVariables.getArtifactBucket()).thenReturn(ARTIFACT_BUCKET);
+        when(distributionDataFacade.getDistributions(Set.of(NETWORK), ENVIRONMENT))
+                .thenReturn(Map.of(NETWORK, new Distribution(NETWORK,
+                                                             DistributionId.of("1"),
+                                                             "https://artifact-bucket.s3.amazonaws.com/outputs/network.json",
+                                                             null)));
+        when(s3Facade.downloadS3File(ARTIFACT_BUCKET, "outputs/network.json"))
+                .thenReturn("{\"vpc\": {\"id\": \"vpc-1\", \"cidr\": \"10.0.0.0/16\"}}".getBytes(StandardCharsets.UTF_8));
+
+        Map<String, String> parameters = initDeployParameterService.resolveParameters(parameters("""
+                {"default": {
+                    "VpcId": {"sourceType": "Distribution", "source": {"name": "network", "mapping": "$.vpc.id"}},
+                    "Cidr": {"sourceType": "Distribution", "source": {"name": "network", "mapping": "$.vpc.cidr"}},
+                    "Static": "value"
+                }}
+                """), ENVIRONMENT, Set.of(NETWORK));
+
+        assertEquals(Map.of("VpcId", "vpc-1", "Cidr", "10.0.0.0/16", "Static", "value"), parameters);
+        verify(s3Facade, times(1)).downloadS3File(ARTIFACT_BUCKET, "outputs/network.json");
+    }
+
+    @Test
+    void resolveParameters_shouldFailIfDistributionIsMissing() {
+        when(distributionDataFacade.getDistributions(Set.of(NETWORK), ENVIRONMENT)).thenReturn(Map.of());
+
+        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class,
+                                                          () -> initDeployParameterService.resolveParameters(
+                                                                  parameters("""
+                                                                          {"default": {
+                                                                              "VpcId": {"sourceType": "Distribution", "source": {"name": "network", "mapping": "$.vpc.id"}}
+                                                                          }}
+                                                                          """),
+                                                                  ENVIRONMENT,
+                                                                  Set.of(NETWORK)));
+
+        assertEquals("Distribution: network not found in environment", exception.getMessage());
+    }
+
+    private static JsonNode parameters(String json) throws JsonProcessingException {
+        return new ObjectMapper().readTree(json);
+    }
+}
@@ -1,14 +1,23 @@
 package attini.deploy.origin.deploystack;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
@@ -23,13 +32,20 @@ import attini.domain.Environment;
 import attini.domain.ObjectIdentifier;
 import software.amazon.awssdk.awscore.exception.AwsErrorDetails;
 import software.amazon.awssdk.awscore.exception.AwsServiceException;
+import software.amazon.awssdk.core.exception.SdkClientException;
+import software.amazon.awssdk.core.waiters.WaiterOverrideConfiguration;
 import software.amazon.awssdk.services.cloudformation.CloudFormationClient;
 import software.amazon.awssdk.services.cloudformation.model.AlreadyExistsException;
 import software.amazon.awssdk.services.cloudformation.model.CloudFormationException;
 import software.amazon.awssdk.services.cloudformation.model.CreateStackRequest;
+import software.amazon.awssdk.services.cloudformation.model.CreateStackResponse;
+import software.amazon.awssdk.services.cloudformation.model.DeleteStackRequest;
+import software.amazon.awssdk.services.cloudformation.model.DescribeStacksRequest;
 import software.amazon.awssdk.services.cloudformation.model.GetTemplateSummaryRequest;
 import software.amazon.awssdk.services.cloudformation.model.GetTemplateSummaryResponse;
+import software.amazon.awssdk.services.cloudformation.model.Parameter;
 import software.amazon.awssdk.services.cloudformation.model.UpdateStackRequest;
+import software.amazon.awssdk.services.cloudformation.waiters.CloudFormationWaiter;
 
 @ExtendWith(MockitoExtension.class)
 class DeployInitStackServiceTest {
@@ -54,6 +70,9 @@ class DeployInitStackServiceTest {
     @Mock
     EnvironmentVariables environmentVariables;
 
+    @Mock
+    CloudFormationWaiter cloudFormationWaiter;
+
     DeployInitStackService deployInitStackService;
 
     @BeforeEach
@@ -68,7 +87,7 @@ class DeployInitStackServiceTest {
         AttiniConfig attiniConfig = AttiniConfigTestBuilder.aConfig().build();
         String deployPrefix = "dev/platform";
         when(cloudFormationClient.createStack(any(CreateStackRequest.class))).thenThrow(AlreadyExistsException.class);
-        deployInitStackService.deployInitStack(DISTRIBUTION_CONTEXT, attiniConfig.getAttiniInitDeployStackConfig().get(), deployPrefix, attiniConfig.getAttiniDistributionTags());
+        deployInitStackService.deployInitStack(DISTRIBUTION_CONTEXT, attiniConfig.getAttiniInitDeployStackConfig().get(), deployPrefix, attiniConfig.getAttiniDistributionTags(), Optional.empty());
         verify(cloudFormationClient).updateStack(any(UpdateStackRequest.class));
     }
 
@@ -78,7 +97,7 @@ class DeployInitStackServiceTest {
                 .thenReturn(GetTemplateSummaryResponse.builder().build());
         AttiniConfig attiniConfig = AttiniConfigTestBuilder.aConfig().build();
         String deployPrefix = "dev/platform";
-        deployInitStackService.deployInitStack(DISTRIBUTION_CONTEXT, attiniConfig.getAttiniInitDeployStackConfig().get(), deployPrefix, attiniConfig.getAttiniDistributionTags());
+        deployInitStackService.deployInitStack(DISTRIBUTION_CONTEXT, attiniConfig.getAttiniInitDeployStackConfig().get(), deployPrefix, attiniConfig.getAttiniDistributionTags(), Optional.empty());
         verify(cloudFormationClient).createStack(any(CreateStackRequest.class));
         verify(cloudFormationClient, never()).updateStack(any(UpdateStackRequest.class));
 
@@ -101,9 +120,84 @@ class DeployInitStackServiceTest {
         String deployPrefix = "dev/platform";
 
         Assertions.assertThrows(DeployInitStackException.class,
-                                () -> deployInitStackService.deployInitStack(DISTRIBUTION_CONTEXT, attiniConfig.getAttiniInitDeployStackConfig().get(), deployPrefix, attiniConfig.getAttiniDistributionTags()));
+                                () -> deployInitStackService.deployInitStack(DISTRIBUTION_CONTEXT, attiniConfig.getAttiniInitDeployStackConfig().get(), deployPrefix, attiniConfig.getAttiniDistributionTags(), Optional.empty()));
         verify(cloudFormationClient).updateStack(any(UpdateStackRequest.class));
 
     }
 
+    @Test
+    void deployInitStack_shouldUseLocallyParsedParameters() {
+        when(environmentVariables.getEnvironmentParameterName()).thenReturn("AttiniEnvironmentName");
+        AttiniConfig attiniConfig = AttiniConfigTestBuilder.aConfig().build();
+        deployInitStackService.deployInitStack(DISTRIBUTION_CONTEXT,
+                                               attiniConfig.getAttiniInitDeployStackConfig().get(),
+                                               "dev/platform",
+                                               attiniConfig.getAttiniDistributionTags(),
+                                               Optional.of(Set.of("AttiniDistributionName")));
+
+        ArgumentCaptor<CreateStackRequest> captor = ArgumentCaptor.forClass(CreateStackRequest.class);
+        verify(cloudFormationClient).createStack(captor.capture());
+        verify(cloudFormationClient, never()).getTemplateSummary(any(GetTemplateSummaryRequest.class));
+        assertEquals(List.of("AttiniDistributionName"),
+                     captor.getValue().parameters().stream().map(Parameter::parameterKey).toList());
+    }
+
+    @Test
+    void deployInitStack_shouldReCreateStackOnceDeleted() {
+        when(cloudFormationClient.getTemplateSummary(any(GetTemplateSummaryRequest.class)))
+                .thenReturn(GetTemplateSummaryResponse.builder().build());
+        when(cloudFormationClient.createStack(any(CreateStackRequest.class))).thenThrow(AlreadyExistsException.class)
+                                                                              .thenReturn(CreateStackResponse.builder()
+                                                                                                             .build());
+        when(cloudFormationClient.updateStack(any(UpdateStackRequest.class))).thenThrow(rollbackCompleteException());
+        when(cloudFormationClient.waiter()).thenReturn(cloudFormationWaiter);
+        AttiniConfig attiniConfig = AttiniConfigTestBuilder.aConfig().build();
+
+        deployInitStackService.deployInitStack(DISTRIBUTION_CONTEXT,
+                                               attiniConfig.getAttiniInitDeployStackConfig().get(),
+                                               "dev/platform",
+                                               attiniConfig.getAttiniDistributionTags(),
+                                               Optional.empty());
+
+        InOrder inOrder = inOrder(cloudFormationClient, cloudFormationWaiter);
+        inOrder.verify(cloudFormationClient).deleteStack(any(DeleteStackRequest.class));
+        inOrder.verify(cloudFormationWaiter)
+               .waitUntilStackDeleteComplete(any(DescribeStacksRequest.class), any(WaiterOverrideConfiguration.class));
+        inOrder.verify(cloudFormationClient).createStack(any(CreateStackRequest.class));
+        verify(cloudFormationClient, times(2)).createStack(any(CreateStackRequest.class));
+    }
+
+    @Test
+    void deployInitStack_shouldFailIfStackIsNotDeleted() {
+        when(cloudFormationClient.getTemplateSummary(any(GetTemplateSummaryRequest.class)))
+                .thenReturn(GetTemplateSummaryResponse.builder().build());
+        when(cloudFormationClient.createStack(any(CreateStackRequest.class))).thenThrow(AlreadyExistsException.class);
+        when(cloudFormationClient.updateStack(any(UpdateStackRequest.class))).thenThrow(rollbackCompleteException());
+        when(cloudFormationClient.waiter()).thenReturn(cloudFormationWaiter);
+        when(cloudFormationWaiter.waitUntilStackDeleteComplete(any(DescribeStacksRequest.class),
+                                                               any(WaiterOverrideConfiguration.class)))
+                .thenThrow(SdkClientException.create("A waiter acceptor was matched and transitioned the waiter to failure state"));
+        AttiniConfig attiniConfig = AttiniConfigTestBuilder.aConfig().build();
+
+        DeployInitStackException exception =
+                Assertions.assertThrows(DeployInitStackException.class,
+                                        () -> deployInitStackService.deployInitStack(DISTRIBUTION_CONTEXT,
+                                                                                     attiniConfig.getAttiniInitDeployStackConfig()
+                                                                                                 .get(),
+                                                                                     "dev/platform",
+                                                                                     attiniConfig.getAttiniDistributionTags(),
+                                                                                     Optional.empty()));
+        assertEquals("InitStackDeleteFailed", exception.getAwsErrorCode());
+        verify(cloudFormationClient).createStack(any(CreateStackRequest.class));
+    }
+
+    private static AwsServiceException rollbackCompleteException() {
+        return CloudFormationException.builder()
+                                      .awsErrorDetails(AwsErrorDetails.builder()
+                                                                      .errorCode("ValidationError")
+                                                                      .errorMessage(
+                                                                              "Stack:my-stack is in ROLLBACK_COMPLETE state and can not be updated.")
+                                                                      .build())
+                                      .build();
+    }
 }
@@ -0,0 +1,298 @@
+package attini.deploy.origin.deploystack;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import attini.deploy.origin.DistributionData;
+import attini.deploy.origin.config.AttiniConfigTestBuilder;
+import attini.deploy.origin.lifecycle.RetentionMode;
+import attini.deploy.origin.system.EnvironmentVariables;
+import attini.domain.DistributionContext;
+import attini.domain.DistributionContextImpl;
+import attini.domain.DistributionId;
+import attini.domain.DistributionName;
+import attini.domain.Environment;
+import attini.domain.ObjectIdentifier;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.ConditionalCheckFailedException;
+import software.amazon.awssdk.services.dynamodb.model.GetItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.ProvisionedThroughputExceededException;
+import software.amazon.awssdk.services.dynamodb.model.PutItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.QueryRequest;
+import software.amazon.awssdk.services.dynamodb.model.QueryResponse;
+import software.amazon.awssdk.services.dynamodb.model.Select;
+import software.amazon.awssdk.services.dynamodb.model.TransactWriteItem;
+import software.amazon.awssdk.services.dynamodb.model.TransactWriteItemsRequest;
+import software.amazon.awssdk.services.dynamodb.model.UpdateItemRequest;
+import software.amazon.awssdk.services.dynamodb.paginators.QueryIterable;
+
+@ExtendWith(MockitoExtension.class)
+class DynamoDeployDataFacadeTest {
+
+    private static final String DEPLOY_DATA_TABLE = "AttiniDeployDataV1";
+    private static final String ARTIFACT_BUCKET = "attini-artifact-store";
+    private static final long DEPLOY_TIME = 1000L;
+    private static final DistributionContext DISTRIBUTION_CONTEXT = DistributionContextImpl.builder()
+                                                                                           .distributionName(
+                                                                                                   DistributionName.of(
+                                                                                                           "my-dist"))
+                                                                                           .objectIdentifier(
+                                                                                                   ObjectIdentifier.of(
+                                                                                                           "someObjectIdentifier"))
+                                                                                           .distributionId(
+                                                                                                   DistributionId.of(
+                                                                                                           "dist-id"))
+                                                                                           .environment(Environment.of(
+                                                                                                   "dev"))
+                                                                                           .build();
+
+    @Mock
+    DynamoDbClient dynamoDbClient;
+
+    @Mock
+    EnvironmentVariables environmentVariables;
+
+    DynamoDeployDataFacade dynamoDeployDataFacade;
+
+    @BeforeEach
+    void setUp() {
+        when(environmentVariables.getDeployDataTableName()).thenReturn(DEPLOY_DATA_TABLE);
+        dynamoDeployDataFacade = new DynamoDeployDataFacade(dynamoDbClient, environmentVariables);
+    }
+
+    @Test
+    void savePlatformDeployment_shouldWriteLatestAndTimestampedRecordInOneTransaction() {
+        when(environmentVariables.getArtifactBucket()).thenReturn(ARTIFACT_BUCKET);
+        DistributionData distributionData = new DistributionData(AttiniConfigTestBuilder.aConfig().build(),
+                                                                 "my/path",
+                                                                 "md5");
+
+        dynamoDeployDataFacade.savePlatformDeployment(DeployDataFacade.SaveDeploymentDataRequest.builder()
+                                                                                                .distributionContext(
+                                                                                                        DISTRIBUTION_CONTEXT)
+                                                                                                .distributionData(
+                                                                                                        distributionData)
+                                                                                                .deployTime(DEPLOY_TIME)
+                                                                                                .build());
+
+        ArgumentCaptor<TransactWriteItemsRequest> captor = ArgumentCaptor.forClass(TransactWriteItemsRequest.class);
+        verify(dynamoDbClient).transactWriteItems(captor.capture());
+        verify(dynamoDbClient, never()).putItem(any(PutItemRequest.class));
+
+        List<TransactWriteItem> transactItems = captor.getValue().transactItems();
+        assertEquals(2, transactItems.size());
+        Map<String, AttributeValue> latest = transactItems.get(0).put().item();
+        Map<String, AttributeValue> timestamped = transactItems.get(1).put().item();
+        assertEquals(DEPLOY_DATA_TABLE, transactItems.get(0).put().tableName());
+        assertEquals("0", latest.get("deploymentTime").n());
+        assertEquals(String.valueOf(DEPLOY_TIME), timestamped.get("deploymentTime").n());
+        assertEquals("dev-my-dist", timestamped.get("deploymentName").s());
+        assertEquals(latest.get("deploymentSource"), timestamped.get("deploymentSource"));
+    }
+
+    @Test
+    void saveAppDeployment_shouldUseGivenPlanStepsWithoutLookup() {
+        when(environmentVariables.getArtifactBucket()).thenReturn(ARTIFACT_BUCKET);
+        AttributeValue steps = AttributeValue.fromL(List.of(AttributeValue.fromS("step")));
+
+        dynamoDeployDataFacade.saveAppDeployment(DeployDataFacade.SaveDeploymentDataRequest.builder()
+                                                                                           .distributionContext(
+                                                                                                   DISTRIBUTION_CONTEXT)
+                                                                                           .distributionData(new DistributionData(
+                                                                                                   AttiniConfigTestBuilder.aConfig()
+                                                                                                                          .build(),
+                                                                                                   "my/path",
+                                                                                                   "md5"))
+                                                                                           .deployTime(DEPLOY_TIME)
+                                                                                           .build(),
+                                                 "app-stack",
+                                                 new DeploymentPlanSteps(steps));
+
+        ArgumentCaptor<TransactWriteItemsRequest> captor = ArgumentCaptor.forClass(TransactWriteItemsRequest.class);
+        verify(dynamoDbClient).transactWriteItems(captor.capture());
+        verify(dynamoDbClient, never()).getItem(any(GetItemRequest.class));
+
+        Map<String, AttributeValue> timestamped = captor.getValue().transactItems().get(1).put().item();
+        assertEquals(steps, timestamped.get("attiniSteps"));
+        assertEquals("app-stack", timestamped.get("stackName").s());
+        assertFalse(timestamped.containsKey("errorMessage"));
+    }
+
+    @Test
+    void savePlatformDeployment_shouldExpireDeployPushedOutOfRetainedVersions() {
+        when(environmentVariables.getArtifactBucket()).thenReturn(ARTIFACT_BUCKET);
+        when(environmentVariables.getRetentionMode()).thenReturn(RetentionMode.TTL);
+        when(environmentVariables.getRetainDistributionVersions()).thenReturn(2);
+        when(environmentVariables.getRetainDistributionDays()).thenReturn(0);
+        when(dynamoDbClient.query(any(QueryRequest.class))).thenReturn(QueryResponse.builder()
+                                                                                    .items(historyItem(900),
+                                                                                           historyItem(800))
+                                                                                    .build());
+
+        dynamoDeployDataFacade.savePlatformDeployment(DeployDataFacade.SaveDeploymentDataRequest.builder()
+                                                                                                .distributionContext(
+                                                                                                        DISTRIBUTION_CONTEXT)
+                                                                                                .deployTime(DEPLOY_TIME)
+                                                                                                .build());
+
+        ArgumentCaptor<QueryRequest> queryCaptor = ArgumentCaptor.forClass(QueryRequest.class);
+        verify(dynamoDbClient).query(queryCaptor.capture());
+        assertEquals(2, queryCaptor.getValue().limit());
+
+        ArgumentCaptor<TransactWriteItemsRequest> captor = ArgumentCaptor.forClass(TransactWriteItemsRequest.class);
+        verify(dynamoDbClient).transactWriteItems(captor.capture());
+        List<TransactWriteItem> transactItems = captor.getValue().transactItems();
+        assertEquals(2, transactItems.size());
+        assertFalse(transactItems.get(1).put().item().containsKey("expiresAt"));
+
+        ArgumentCaptor<UpdateItemRequest> updateCaptor = ArgumentCaptor.forClass(UpdateItemRequest.class);
+        verify(dynamoDbClient).updateItem(updateCaptor.capture());
+        assertEquals("800", updateCaptor.getValue().key().get("deploymentTime").n());
+        assertEquals("1", updateCaptor.getValue().expressionAttributeValues().get(":v_expiresAt").n());
+        assertEquals("attribute_exists(deploymentName)", updateCaptor.getValue().conditionExpression());
+    }
+
+    @Test
+    void savePlatformDeployment_shouldSaveDeployWhenPushedOutDeployIsAlreadyRemoved() {
+        when(environmentVariables.getArtifactBucket()).thenReturn(ARTIFACT_BUCKET);
+        when(environmentVariables.getRetentionMode()).thenReturn(RetentionMode.TTL);
+        when(environmentVariables.getRetainDistributionVersions()).thenReturn(2);
+        when(environmentVariables.getRetainDistributionDays()).thenReturn(0);
+        when(dynamoDbClient.query(any(QueryRequest.class))).thenReturn(QueryResponse.builder()
+                                                                                    .items(historyItem(900),
+                                                                                           historyItem(800))
+                                                                                    .build());
+        when(dynamoDbClient.updateItem(any(UpdateItemRequest.class)))
+                .thenThrow(ConditionalCheckFailedException.builder().message("The conditional request failed").build());
+
+        dynamoDeployDataFacade.savePlatformDeployment(DeployDataFacade.SaveDeploymentDataRequest.builder()
+                                                                                                .distributionContext(
+                                                                                                        DISTRIBUTION_CONTEXT)
+                                                                                                .deployTime(DEPLOY_TIME)
+                                                                                                .build());
+
+        InOrder inOrder = inOrder(dynamoDbClient);
+        inOrder.verify(dynamoDbClient).transactWriteItems(any(TransactWriteItemsRequest.class));
+        inOrder.verify(dynamoDbClient).updateItem(any(UpdateItemRequest.class));
+    }
+
+    @Test
+    void savePlatformDeployment_shouldSaveDeployWhenExpiryCanNotBeWritten() {
+        when(environmentVariables.getArtifactBucket()).thenReturn(ARTIFACT_BUCKET);
+        when(environmentVariables.getRetentionMode()).thenReturn(RetentionMode.TTL);
+        when(environmentVariables.getRetainDistributionVersions()).thenReturn(2);
+        when(environmentVariables.getRetainDistributionDays()).thenReturn(0);
+        when(dynamoDbClient.query(any(QueryRequest.class))).thenReturn(QueryResponse.builder()
+                                                                                    .items(historyItem(900),
+                                                                                           historyItem(800))
+                                                                                    .build());
+        when(dynamoDbClient.updateItem(any(UpdateItemRequest.class)))
+                .thenThrow(ProvisionedThroughputExceededException.builder().message("Rate exceeded").build());
+
+        dynamoDeployDataFacade.savePlatformDeployment(DeployDataFacade.SaveDeploymentDataRequest.builder()
+                                                                                                .distributionContext(
+                                                                                                        DISTRIBUTION_CONTEXT)
+                                                                                                .deployTime(DEPLOY_TIME)
+                                                                                                .build());
+
+        verify(dynamoDbClient).transactWriteItems(any(TransactWriteItemsRequest.class));
+    }
+
+    @Test
+    void savePlatformDeployment_shouldSaveDeployWhenRetainedVersionsCanNotBeRead() {
+        when(environmentVariables.getArtifactBucket()).thenReturn(ARTIFACT_BUCKET);
+        when(environmentVariables.getRetentionMode()).thenReturn(RetentionMode.TTL);
+        when(environmentVariables.getRetainDistributionVersions()).thenReturn(2);
+        when(environmentVariables.getRetainDistributionDays()).thenReturn(0);
+        when(dynamoDbClient.query(any(QueryRequest.class)))
+                .thenThrow(ProvisionedThroughputExceededException.builder().message("Rate exceeded").build());
+
+        dynamoDeployDataFacade.savePlatformDeployment(DeployDataFacade.SaveDeploymentDataRequest.builder()
+                                                                                                .distributionContext(
+                                                                                                        DISTRIBUTION_CONTEXT)
+                                                                                                .deployTime(DEPLOY_TIME)
+                                                                                                .build());
+
+        verify(dynamoDbClient).transactWriteItems(any(TransactWriteItemsRequest.class));
+        verify(dynamoDbClient, never()).updateItem(any(UpdateItemRequest.class));
+    }
+
+    @Test
+    void savePlatformDeployment_shouldExpireNewRecordWhenOnlyDaysAreRetained() {
+        when(environmentVariables.getArtifactBucket()).thenReturn(ARTIFACT_BUCKET);
+        when(environmentVariables.getRetentionMode()).thenReturn(RetentionMode.TTL);
+        when(environmentVariables.getRetainDistributionVersions()).thenReturn(0);
+        when(environmentVariables.getRetainDistributionDays()).thenReturn(1);
+
+        dynamoDeployDataFacade.savePlatformDeployment(DeployDataFacade.SaveDeploymentDataRequest.builder()
+                                                                                                .distributionContext(
+                                                                                                        DISTRIBUTION_CONTEXT)
+                                                                                                .deployTime(DEPLOY_TIME)
+                                                                                                .build());
+
+        ArgumentCaptor<TransactWriteItemsRequest> captor = ArgumentCaptor.forClass(TransactWriteItemsRequest.class);
+        verify(dynamoDbClient).transactWriteItems(captor.capture());
+        verify(dynamoDbClient, never()).query(any(QueryRequest.class));
+        List<TransactWriteItem> transactItems = captor.getValue().transactItems();
+        assertEquals(2, transactItems.size());
+        assertFalse(transactItems.get(0).put().item().containsKey("expiresAt"));
+        assertEquals("86401", transactItems.get(1).put().item().get("expiresAt").n());
+    }
+
+    @Test
+    void getExpiredDeployData_shouldSkipVersionsToRetainAndReadAllPages() {
+        LocalDate cutOffDate = LocalDate.now().minusDays(10);
+        when(dynamoDbClient.queryPaginator(any(QueryRequest.class)))
+                .thenAnswer(invocation -> new QueryIterable(dynamoDbClient, invocation.getArgument(0)));
+        when(dynamoDbClient.query(any(QueryRequest.class))).thenAnswer(invocation -> {
+            QueryRequest request = invocation.getArgument(0);
+            if (request.select() == Select.COUNT) {
+                assertEquals(5, request.limit());
+                return QueryResponse.builder().count(3).build();
+            }
+            assertFalse(request.scanIndexForward());
+            if (!request.hasExclusiveStartKey()) {
+                return QueryResponse.builder()
+                                    .items(historyItem(400), historyItem(300))
+                                    .lastEvaluatedKey(Map.of("deploymentTime", AttributeValue.fromN("300")))
+                                    .build();
+            }
+            return QueryResponse.builder().items(historyItem(200), historyItem(100)).build();
+        });
+
+        List<DeployData> expired = dynamoDeployDataFacade.getExpiredDeployData(DistributionName.of("my-dist"),
+                                                                               Environment.of("dev"),
+                                                                               cutOffDate,
+                                                                               5);
+
+        assertEquals(List.of(200L, 100L), expired.stream().map(data -> data.getDeployTime().toEpochMilli()).toList());
+        assertEquals(ARTIFACT_BUCKET, expired.get(0).getDeploymentSourceBucket());
+    }
+
+    private static Map<String, AttributeValue> historyItem(long deployTime) {
+        return Map.of("deploymentName", AttributeValue.fromS("dev-my-dist"),
+                      "deploymentTime", AttributeValue.fromN(String.valueOf(deployTime)),
+                      "distributionId", AttributeValue.fromS("dist-" + deployTime),
+                      "objectIdentifier", AttributeValue.fromS("dev/my-dist.zip#" + deployTime),
+                      "deploymentSource", AttributeValue.fromM(Map.of("deploymentSourceBucket",
+                                                                      AttributeValue.fromS(ARTIFACT_BUCKET))));
+    }
+}
@@ -0,0 +1,68 @@
+package attini.deploy.origin.deploystack;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Optional;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class TemplateParameterParserTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void parseParameterKeys_shouldReadYamlWithShortFormIntrinsics() throws IOException {
+        Path template = write("template.yaml", """
+                AWSTemplateFormatVersion: "2010-09-09"
+                Transform: AttiniDeploymentPlan
+                Parameters:
+                  AttiniEnvironmentName:
+                    Type: String
+                  VpcId:
+                    Type: AWS::EC2::VPC::Id
+                Conditions:
+                  IsProd: !Equals [!Ref AttiniEnvironmentName, prod]
+                Resources:
+                  Bucket:
+                    Type: AWS::S3::Bucket
+                    Properties:
+                      BucketName: !Sub ${AttiniEnvironmentName}-bucket
+                      Tags:
+                        - Key: vpc
+                          Value: !If [IsProd, !Ref VpcId, !GetAtt Other.Arn]
+                """);
+
+        assertEquals(Optional.of(Set.of("AttiniEnvironmentName", "VpcId")),
+                     TemplateParameterParser.parseParameterKeys(template));
+    }
+
+    @Test
+    void parseParameterKeys_shouldReadJson() throws IOException {
+        Path template = write("template.json", """
+                {
+                \t"Parameters": {"AttiniDistributionId": {"Type": "String"}},
+                \t"Resources": {}
+                }
+                """);
+
+        assertEquals(Optional.of(Set.of("AttiniDistributionId")),
+                     TemplateParameterParser.parseParameterKeys(template));
+    }
+
+    @Test
+    void parseParameterKeys_shouldBeEmptyForInvalidTemplate() throws IOException {
+        Path template = write("template.yaml", "Resources: [unclosed");
+
+        assertEquals(Optional.empty(), TemplateParameterParser.parseParameterKeys(template));
+    }
+
+    private Path write(String name, String content) throws IOException {
+        return Files.writeString(tempDir.resolve(name), content);
+    }
+}
@@ -0,0 +1,111 @@
+package attini.deploy.origin.lifecycle;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import attini.deploy.origin.deploystack.DeployData;
+import attini.deploy.origin.system.EnvironmentVariables;
+import attini.domain.DistributionName;
+import attini.domain.Environment;
+
+@ExtendWith(MockitoExtension.class)
+class ExpiredDeployDataHandlerTest {
+
+    private static final String DEPLOYMENT_ORIGIN_BUCKET = "origin-bucket";
+
+    @Mock
+    LifeCycleService lifeCycleService;
+
+    @Mock
+    EnvironmentVariables environmentVariables;
+
+    ExpiredDeployDataHandler expiredDeployDataHandler;
+
+    @BeforeEach
+    void setUp() {
+        expiredDeployDataHandler = new ExpiredDeployDataHandler(lifeCycleService,
+                                                                environmentVariables,
+                                                                new ObjectMapper());
+    }
+
+    @Test
+    void handle_shouldDeleteArtifactsOfRemovedHistoryRows() {
+        when(environmentVariables.getDeploymentOriginBucket()).thenReturn(DEPLOYMENT_ORIGIN_BUCKET);
+        when(lifeCycleService.deleteArtifacts(any(), any(), any(), any())).thenReturn(new DeletionResult(3, List.of()));
+
+        Map<String, Object> event = Map.of("Records", List.of(removeRecord(100),
+                                                              removeRecord(0),
+                                                              Map.of("eventSource", "aws:dynamodb",
+                                                                     "eventName", "MODIFY")));
+
+        DeletionResult result = expiredDeployDataHandler.handle(event);
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<DeployData>> captor = ArgumentCaptor.forClass(List.class);
+        verify(lifeCycleService).deleteArtifacts(captor.capture(),
+                                                 eq(Environment.of("dev")),
+                                                 eq(DistributionName.of("my-dist")),
+                                                 eq(DEPLOYMENT_ORIGIN_BUCKET));
+        assertEquals(1, captor.getValue().size());
+        assertEquals("dist-100", captor.getValue().get(0).getDistributionId().asString());
+        assertEquals(3, result.deleted());
+    }
+
+    @Test
+    void handle_shouldFailSoThatTheBatchIsRetriedIfArtifactsCouldNotBeDeleted() {
+        when(environmentVariables.getDeploymentOriginBucket()).thenReturn(DEPLOYMENT_ORIGIN_BUCKET);
+        when(lifeCycleService.deleteArtifacts(any(), any(), any(), any()))
+                .thenReturn(new DeletionResult(2,
+                                               List.of(new DeletionResult.DeletionFailure("dev/my-dist.zip",
+                                                                                          "v100",
+                                                                                          "SlowDown"))));
+
+        ArtifactDeletionException exception = assertThrows(ArtifactDeletionException.class,
+                                                           () -> expiredDeployDataHandler.handle(Map.of("Records",
+                                                                                                        List.of(removeRecord(
+                                                                                                                100)))));
+
+        assertEquals(1, exception.getFailures().size());
+    }
+
+    @Test
+    void isStreamEvent_shouldOnlyMatchDynamoRecords() {
+        assertTrue(ExpiredDeployDataHandler.isStreamEvent(Map.of("Records", List.of(removeRecord(100)))));
+        assertFalse(ExpiredDeployDataHandler.isStreamEvent(Map.of("Records",
+                                                                  List.of(Map.of("eventSource", "aws:s3")))));
+        assertFalse(ExpiredDeployDataHandler.isStreamEvent(Map.of("source", "aws.events")));
+    }
+
+    private static Map<String, Object> removeRecord(long deployTime) {
+        Map<String, Object> oldImage = Map.of("deploymentName", Map.of("S", "dev-my-dist"),
+                                              "deploymentTime", Map.of("N", String.valueOf(deployTime)),
+                                              "distributionId", Map.of("S", "dist-" + deployTime),
+                                              "objectIdentifier", Map.of("S", "dev/my-dist.zip#v" + deployTime),
+                                              "environment", Map.of("S", "dev"),
+                                              "distributionName", Map.of("S", "my-dist"),
+                                              "deploymentSource", Map.of("M",
+                                                                         Map.of("deploymentSourceBucket",
+                                                                                Map.of("S", "artifact-bucket"))));
+        return Map.of("eventSource", "aws:dynamodb",
+                      "eventName", "REMOVE",
+                      "dynamodb", Map.of("OldImage", oldImage));
+    }
+}
@@ -1,6 +1,7 @@
 package attini.deploy.origin.lifecycle;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
@@ -10,8 +11,11 @@ import java.time.LocalDate;
 import java.time.ZoneId;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -21,6 +25,9 @@ import org.mockito.junit.jupiter.MockitoExtension;
 
 import attini.deploy.origin.deploystack.DeployData;
 import attini.deploy.origin.deploystack.DeployDataFacade;
+import attini.deploy.origin.manifest.DistributionManifest;
+import attini.deploy.origin.manifest.DistributionManifest.ManifestEntry;
+import attini.deploy.origin.manifest.DistributionManifestFacade;
 import attini.deploy.origin.system.EnvironmentVariables;
 import attini.domain.DistributionId;
 import attini.domain.DistributionName;
@@ -31,13 +38,12 @@ import software.amazon.awssdk.services.dynamodb.model.DeleteItemRequest;
 import software.amazon.awssdk.services.dynamodb.model.DeleteItemResponse;
 import software.amazon.awssdk.services.s3.S3AsyncClient;
 import software.amazon.awssdk.services.s3.model.DeleteObjectRequest;
-import software.amazon.awssdk.services.s3.model.DeleteObjectResponse;
 import software.amazon.awssdk.services.s3.model.DeleteObjectsRequest;
 import software.amazon.awssdk.services.s3.model.DeleteObjectsResponse;
 import software.amazon.awssdk.services.s3.model.ListObjectVersionsRequest;
 import software.amazon.awssdk.services.s3.model.ListObjectVersionsResponse;
-import software.amazon.awssdk.services.s3.model.ListObjectsRequest;
-import software.amazon.awssdk.services.s3.model.ListObjectsResponse;
+import software.amazon.awssdk.services.s3.model.ListObjectsV2Request;
+import software.amazon.awssdk.services.s3.model.ListObjectsV2Response;
 import software.amazon.awssdk.services.s3.model.ObjectVersion;
 import software.amazon.awssdk.services.s3.model.S3Object;
 
@@ -47,6 +53,7 @@ class LifeCycleServiceTest {
     private final static DistributionName DISTRIBUTION_NAME = DistributionName.of("infraTest");
     private final static Environment ENVIRONMENT = Environment.of("dev");
     private final static String DEPLOYMENT_ORIGIN_BUCKET = "my-bucket";
+    private final static String ARTIFACT_BUCKET = "a-bucket";
 
 
     @Mock
@@ -57,6 +64,8 @@ class LifeCycleServiceTest {
     DynamoDbAsyncClient dynamoDbAsyncClient;
     @Mock
     S3AsyncClient s3AsyncClient;
+    @Mock
+    DistributionManifestFacade distributionManifestFacade;
 
     LifeCycleService lifeCycleService;
 
@@ -65,34 +74,21 @@ class LifeCycleServiceTest {
         lifeCycleService = new LifeCycleService(environmentVariables,
                                                 deployDataFacade,
                                                 dynamoDbAsyncClient,
-                                                s3AsyncClient);
+                                                new S3BatchDeleter(s3AsyncClient, 4),
+                                                distributionManifestFacade,
+                                                Executors.newFixedThreadPool(2));
     }
 
     @Test
     void shouldDeleteAllArtifacts() throws ExecutionException, InterruptedException {
-        when(environmentVariables.getRetainDistributionDays()).thenReturn(10);
-        when(environmentVariables.getRetainDistributionVersions()).thenReturn(10);
-        LocalDate toDate = LocalDate.now().minusDays(10);
-        when(deployDataFacade.countDeployDataAfterDate(DISTRIBUTION_NAME, ENVIRONMENT, toDate)).thenReturn(10);
-        when(deployDataFacade.getDeployData(DISTRIBUTION_NAME, ENVIRONMENT, toDate))
-                .thenReturn(List.of(DeployData.builder().setDistributionId(DistributionId.of("1222-1223"))
-                                              .setObjectIdentifier(ObjectIdentifier.of("test/test.zip#12221-1222"))
-                                              .setDeployTime(LocalDate.now()
-                                                                      .minusDays(20)
-                                                                      .atStartOfDay()
-                                                                      .atZone(ZoneId.systemDefault())
-                                                                      .toInstant())
-                                              .setDeploymentSourceBucket("a-bucket")
-                                              .setDeployName("dev-IinfraTest").build()));
-        when(s3AsyncClient.listObjects(any(ListObjectsRequest.class)))
-                .thenReturn(CompletableFuture.supplyAsync(() -> ListObjectsResponse.builder().contents(List.of(S3Object.builder().key("test/test/artifact").build())).build()));
+        mockExpiredDeployment();
+        when(s3AsyncClient.listObjectsV2(any(ListObjectsV2Request.class)))
+                .thenReturn(CompletableFuture.supplyAsync(() -> ListObjectsV2Response.builder().contents(List.of(S3Object.builder().key("test/test/artifact").build())).build()));
         when(s3AsyncClient.listObjectVersions(any(ListObjectVersionsRequest.class)))
                 .thenReturn(CompletableFuture.supplyAsync(() -> ListObjectVersionsResponse.builder().versions(List.of(
                         ObjectVersion.builder().key("attini/test/artifact").versionId("123234").build())).build()));
 
         when(s3AsyncClient.deleteObjects(any(DeleteObjectsRequest.class))).thenReturn(CompletableFuture.supplyAsync(() -> DeleteObjectsResponse.builder().build()));
-        when(s3AsyncClient.deleteObject(any(DeleteObjectRequest.class))).thenReturn(CompletableFuture.supplyAsync(() -> DeleteObjectResponse
-                .builder().build()));
         when(dynamoDbAsyncClient.deleteItem(any(DeleteItemRequest.class))).thenReturn(CompletableFuture.supplyAsync(() -> DeleteItemResponse.builder().build()));
 
 
@@ -102,36 +98,53 @@ class LifeCycleServiceTest {
 
 
         cleanup.get();
-        verify(s3AsyncClient).listObjects(any(ListObjectsRequest.class));
-        verify(s3AsyncClient, times(2)).deleteObjects(any(DeleteObjectsRequest.class));
-        verify(s3AsyncClient).deleteObject(any(DeleteObjectRequest.class));
+        verify(s3AsyncClient).listObjectsV2(any(ListObjectsV2Request.class));
+        verify(s3AsyncClient, times(2)).deleteObjects(argThat((DeleteObjectsRequest request) -> request.bucket().equals(ARTIFACT_BUCKET)));
+        verify(s3AsyncClient).deleteObjects(argThat((DeleteObjectsRequest request) -> request.bucket().equals(DEPLOYMENT_ORIGIN_BUCKET)
+                                                                                      && request.delete().objects().get(0).versionId().equals("12221-1222")));
+        verify(s3AsyncClient, never()).deleteObject(any(DeleteObjectRequest.class));
         verify(dynamoDbAsyncClient).deleteItem(any(DeleteItemRequest.class));
 
     }
 
+    @Test
+    void shouldDeleteKeysInManifestWithoutListing() throws ExecutionException, InterruptedException {
+        mockExpiredDeployment();
+        when(distributionManifestFacade.getManifest(ARTIFACT_BUCKET,
+                                                    "dev/infraTest/1222-1223/distribution-manifest.json"))
+                .thenReturn(Optional.of(new DistributionManifest("dev/infraTest/1222-1223/distribution-origin",
+                                                                 "dev/infraTest/1222-1223/distribution-origin/test.zip",
+                                                                 10,
+                                                                 Map.of("template.yaml",
+                                                                        new ManifestEntry("abc123", 10)))));
+        when(s3AsyncClient.listObjectVersions(any(ListObjectVersionsRequest.class)))
+                .thenReturn(CompletableFuture.supplyAsync(() -> ListObjectVersionsResponse.builder().build()));
+        when(s3AsyncClient.deleteObjects(any(DeleteObjectsRequest.class))).thenReturn(CompletableFuture.supplyAsync(() -> DeleteObjectsResponse.builder().build()));
+        when(dynamoDbAsyncClient.deleteItem(any(DeleteItemRequest.class))).thenReturn(CompletableFuture.supplyAsync(() -> DeleteItemResponse.builder().build()));
+
+        lifeCycleService.cleanup(DISTRIBUTION_NAME, ENVIRONMENT, DEPLOYMENT_ORIGIN_BUCKET).get();
+
+        verify(s3AsyncClient, never()).listObjectsV2(any(ListObjectsV2Request.class));
+        verify(s3AsyncClient).deleteObjects(argThat((DeleteObjectsRequest request) -> request.bucket().equals(ARTIFACT_BUCKET)
+                                                                                      && request.delete()
+                                                                                                .objects()
+                                                                                                .stream()
+                                                                                                .map(software.amazon.awssdk.services.s3.model.ObjectIdentifier::key)
+                                                                                                .toList()
+                                                                                                .equals(List.of("dev/infraTest/1222-1223/distribution-origin/template.yaml",
+                                                                                                                "dev/infraTest/1222-1223/distribution-origin/test.zip",
+                                                                                                                "dev/infraTest/1222-1223/distribution-manifest.json"))));
+    }
+
     @Test
     void shouldContinueIfListFails() throws ExecutionException, InterruptedException {
-        when(environmentVariables.getRetainDistributionDays()).thenReturn(10);
-        when(environmentVariables.getRetainDistributionVersions()).thenReturn(10);
-        LocalDate toDate = LocalDate.now().minusDays(10);
-        when(deployDataFacade.countDeployDataAfterDate(DISTRIBUTION_NAME, ENVIRONMENT, toDate)).thenReturn(10);
-        when(deployDataFacade.getDeployData(DISTRIBUTION_NAME, ENVIRONMENT, toDate))
-                .thenReturn(List.of(DeployData.builder().setDistributionId(DistributionId.of("1222-1223"))
-                                              .setObjectIdentifier(ObjectIdentifier.of("test/test.zip#12221-1222"))
-                                              .setDeployTime(LocalDate.now()
-                                                                      .minusDays(20)
-                                                                      .atStartOfDay()
-                                                                      .atZone(ZoneId.systemDefault())
-                                                                      .toInstant())
-                                              .setDeploymentSourceBucket("a-bucket")
-                                              .setDeployName("dev-IinfraTest").build()));
-        when(s3AsyncClient.listObjects(any(ListObjectsRequest.class)))
+        mockExpiredDeployment();
+        when(s3AsyncClient.listObjectsV2(any(ListObjectsV2Request.class)))
                 .thenReturn(CompletableFuture.supplyAsync(() -> {
                     throw new RuntimeException();
                 }));
 
-        when(s3AsyncClient.deleteObject(any(DeleteObjectRequest.class))).thenReturn(CompletableFuture.supplyAsync(() -> DeleteObjectResponse
-                .builder().build()));
+        when(s3AsyncClient.deleteObjects(any(DeleteObjectsRequest.class))).thenReturn(CompletableFuture.supplyAsync(() -> DeleteObjectsResponse.builder().build()));
         when(dynamoDbAsyncClient.deleteItem(any(DeleteItemRequest.class))).thenReturn(CompletableFuture.supplyAsync(() -> DeleteItemResponse.builder().build()));
 
 
@@ -145,36 +158,28 @@ class LifeCycleServiceTest {
                                                                    DEPLOYMENT_ORIGIN_BUCKET);
 
         cleanup.get();
-        verify(s3AsyncClient).listObjects(any(ListObjectsRequest.class));
-        verify(s3AsyncClient, never()).deleteObjects(any(DeleteObjectsRequest.class));
-        verify(s3AsyncClient).deleteObject(any(DeleteObjectRequest.class));
+        verify(s3AsyncClient).listObjectsV2(any(ListObjectsV2Request.class));
+        verify(s3AsyncClient, never()).deleteObjects(argThat((DeleteObjectsRequest request) -> request.bucket().equals(ARTIFACT_BUCKET)));
+        verify(s3AsyncClient).deleteObjects(argThat((DeleteObjectsRequest request) -> request.bucket().equals(DEPLOYMENT_ORIGIN_BUCKET)));
         verify(dynamoDbAsyncClient).deleteItem(any(DeleteItemRequest.class));
 
     }
 
     @Test
     void shouldContinueIfDeleteVersionFails() throws ExecutionException, InterruptedException {
-        when(environmentVariables.getRetainDistributionDays()).thenReturn(10);
-        when(environmentVariables.getRetainDistributionVersions()).thenReturn(10);
-        LocalDate toDate = LocalDate.now().minusDays(10);
-        when(deployDataFacade.countDeployDataAfterDate(DISTRIBUTION_NAME, ENVIRONMENT, toDate)).thenReturn(10);
-        when(deployDataFacade.getDeployData(DISTRIBUTION_NAME, ENVIRONMENT, toDate))
-                .thenReturn(List.of(DeployData.builder().setDistributionId(DistributionId.of("1222-1223"))
-                                              .setObjectIdentifier(ObjectIdentifier.of("test/test.zip#12221-1222"))
-                                              .setDeployTime(LocalDate.now()
-                                                                      .minusDays(20)
-                                                                      .atStartOfDay()
-                                                                      .atZone(ZoneId.systemDefault())
-                                                                      .toInstant())
-                                              .setDeploymentSourceBucket("a-bucket")
-                                              .setDeployName("dev-IinfraTest").build()));
-        when(s3AsyncClient.listObjects(any(ListObjectsRequest.class)))
-                .thenReturn(CompletableFuture.supplyAsync(() -> ListObjectsResponse.builder().contents(List.of(S3Object.builder().key("test/test/artifact").build())).build()));
-
-        when(s3AsyncClient.deleteObjects(any(DeleteObjectsRequest.class))).thenReturn(CompletableFuture.supplyAsync(() -> DeleteObjectsResponse.builder().build()));
-        when(s3AsyncClient.deleteObject(any(DeleteObjectRequest.class))).thenReturn(CompletableFuture.supplyAsync(() -> {
-            throw new RuntimeException();
-        }));
+        mockExpiredDeployment();
+        when(s3AsyncClient.listObjectsV2(any(ListObjectsV2Request.class)))
+                .thenReturn(CompletableFuture.supplyAsync(() -> ListObjectsV2Response.builder().contents(List.of(S3Object.builder().key("test/test/artifact").build())).build()));
+
+        when(s3AsyncClient.deleteObjects(any(DeleteObjectsRequest.class))).thenAnswer(invocation -> {
+            DeleteObjectsRequest request = invocation.getArgument(0);
+            if (request.bucket().equals(DEPLOYMENT_ORIGIN_BUCKET)) {
+                return CompletableFuture.supplyAsync(() -> {
+                    throw new RuntimeException();
+                });
+            }
+            return CompletableFuture.supplyAsync(() -> DeleteObjectsResponse.builder().build());
+        });
         when(dynamoDbAsyncClient.deleteItem(any(DeleteItemRequest.class))).thenReturn(CompletableFuture.supplyAsync(() -> DeleteItemResponse.builder().build()));
 
 
@@ -188,9 +193,8 @@ class LifeCycleServiceTest {
                                                                    DEPLOYMENT_ORIGIN_BUCKET);
 
         cleanup.get();
-        verify(s3AsyncClient).listObjects(any(ListObjectsRequest.class));
-        verify(s3AsyncClient, times(2)).deleteObjects(any(DeleteObjectsRequest.class));
-        verify(s3AsyncClient).deleteObject(any(DeleteObjectRequest.class));
+        verify(s3AsyncClient).listObjectsV2(any(ListObjectsV2Request.class));
+        verify(s3AsyncClient, times(3)).deleteObjects(any(DeleteObjectsRequest.class));
         verify(dynamoDbAsyncClient).deleteItem(any(DeleteItemRequest.class));
 
     }
@@ -204,10 +208,26 @@ class LifeCycleServiceTest {
                                                                    ENVIRONMENT,
                                                                    DEPLOYMENT_ORIGIN_BUCKET);
         cleanup.get();
-        verify(s3AsyncClient, never()).listObjects(any(ListObjectsRequest.class));
+        verify(s3AsyncClient, never()).listObjectsV2(any(ListObjectsV2Request.class));
         verify(s3AsyncClient, never()).deleteObjects(any(DeleteObjectsRequest.class));
         verify(s3AsyncClient, never()).deleteObject(any(DeleteObjectRequest.class));
         verify(dynamoDbAsyncClient, never()).deleteItem(any(DeleteItemRequest.class));
 
     }
+
+    private void mockExpiredDeployment() {
+        when(environmentVariables.getRetainDistributionDays()).thenReturn(10);
+        when(environmentVariables.getRetainDistributionVersions()).thenReturn(10);
+        LocalDate toDate = LocalDate.now().minusDays(10);
+        when(deployDataFacade.getExpiredDeployData(DISTRIBUTION_NAME, ENVIRONMENT, toDate, 10))
+                .thenReturn(List.of(DeployData.builder().setDistributionId(DistributionId.of("1222-1223"))
+                                              .setObjectIdentifier(ObjectIdentifier.of("test/test.zip#12221-1222"))
+                                              .setDeployTime(LocalDate.now()
+                                                                      .minusDays(20)
+                                                                      .atStartOfDay()
+                                                                      .atZone(ZoneId.systemDefault())
+                                                                      .toInstant())
+                                              .setDeploymentSourceBucket(ARTIFACT_BUCKET)
+                                              .setDeployName("dev-IinfraTest").build()));
+    }
 }
@@ -0,0 +1,106 @@
+package attini.deploy.origin.lifecycle;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import attini.deploy.origin.lifecycle.RetentionSweepFacade.DistributionPage;
+import attini.deploy.origin.lifecycle.RetentionSweepFacade.SweepTarget;
+import attini.deploy.origin.system.EnvironmentVariables;
+import attini.domain.DistributionName;
+import attini.domain.Environment;
+
+@ExtendWith(MockitoExtension.class)
+class RetentionSweeperTest {
+
+    private static final long PLENTY_OF_TIME = 600_000;
+
+    @Mock
+    LifeCycleService lifeCycleService;
+
+    @Mock
+    RetentionSweepFacade retentionSweepFacade;
+
+    @Mock
+    EnvironmentVariables environmentVariables;
+
+    RetentionSweeper retentionSweeper;
+
+    @BeforeEach
+    void setUp() {
+        retentionSweeper = new RetentionSweeper(lifeCycleService, retentionSweepFacade, environmentVariables);
+    }
+
+    @Test
+    void sweep_shouldSkipIfRetentionIsNotHandledBySweep() {
+        when(environmentVariables.getRetentionMode()).thenReturn(RetentionMode.TTL);
+
+        RetentionSweeper.SweepResult result = retentionSweeper.sweep(() -> PLENTY_OF_TIME);
+
+        assertEquals(0, result.swept());
+        verify(retentionSweepFacade, never()).getDistributions(any());
+        verify(lifeCycleService, never()).cleanup(any(DistributionName.class), any(Environment.class), anyString());
+    }
+
+    @Test
+    void sweep_shouldResumeFromCheckpointAndClearItWhenDone() {
+        when(environmentVariables.getRetentionMode()).thenReturn(RetentionMode.SWEEPER);
+        when(retentionSweepFacade.getCheckpoint()).thenReturn(Optional.of("dev-a"));
+        when(retentionSweepFacade.getDistributions("dev-a")).thenReturn(new DistributionPage(List.of(target("b")),
+                                                                                             "dev-b"));
+        when(retentionSweepFacade.getDistributions("dev-b")).thenReturn(new DistributionPage(List.of(target("c")), null));
+        when(lifeCycleService.cleanup(any(DistributionName.class), any(Environment.class), anyString()))
+                .thenReturn(CompletableFuture.allOf());
+
+        RetentionSweeper.SweepResult result = retentionSweeper.sweep(() -> PLENTY_OF_TIME);
+
+        assertTrue(result.complete());
+        assertEquals(2, result.swept());
+        verify(lifeCycleService).cleanup(DistributionName.of("b"), Environment.of("dev"), "origin-bucket");
+        verify(lifeCycleService).cleanup(DistributionName.of("c"), Environment.of("dev"), "origin-bucket");
+        verify(retentionSweepFacade).saveCheckpoint("dev-c");
+        verify(retentionSweepFacade).clearCheckpoint();
+    }
+
+    @Test
+    void sweep_shouldStopNearTimeLimitAndKeepCheckpoint() {
+        when(environmentVariables.getRetentionMode()).thenReturn(RetentionMode.SWEEPER);
+        when(retentionSweepFacade.getCheckpoint()).thenReturn(Optional.empty());
+        when(retentionSweepFacade.getDistributions(null)).thenReturn(new DistributionPage(List.of(target("a"),
+                                                                                                  target("b")),
+                                                                                          null));
+        when(lifeCycleService.cleanup(any(DistributionName.class), any(Environment.class), anyString()))
+                .thenReturn(CompletableFuture.allOf());
+        AtomicLong remaining = new AtomicLong(RetentionSweeper.STOP_MARGIN_MILLIS + 1000);
+
+        RetentionSweeper.SweepResult result = retentionSweeper.sweep(() -> remaining.getAndAdd(-2000));
+
+        assertFalse(result.complete());
+        assertEquals(1, result.swept());
+        verify(lifeCycleService, never()).cleanup(DistributionName.of("b"), Environment.of("dev"), "origin-bucket");
+        verify(retentionSweepFacade, never()).clearCheckpoint();
+    }
+
+    private static SweepTarget target(String distributionName) {
+        return new SweepTarget("dev-" + distributionName,
+                               DistributionName.of(distributionName),
+                               Environment.of("dev"),
+                               "origin-bucket");
+    }
+}
@@ -0,0 +1,119 @@
+package attini.deploy.origin.lifecycle;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import software.amazon.awssdk.services.s3.S3AsyncClient;
+import software.amazon.awssdk.services.s3.model.DeleteObjectsRequest;
+import software.amazon.awssdk.services.s3.model.DeleteObjectsResponse;
+import software.amazon.awssdk.services.s3.model.ListObjectsV2Request;
+import software.amazon.awssdk.services.s3.model.ListObjectsV2Response;
+import software.amazon.awssdk.services.s3.model.ObjectIdentifier;
+import software.amazon.awssdk.services.s3.model.S3Error;
+import software.amazon.awssdk.services.s3.model.S3Object;
+
+@ExtendWith(MockitoExtension.class)
+class S3BatchDeleterTest {
+
+    private static final String BUCKET = "attini-artifact-store";
+
+    @Mock
+    S3AsyncClient s3AsyncClient;
+
+    @Test
+    void deletePrefix_shouldListAllPagesAndFillBatches() {
+        when(s3AsyncClient.listObjectsV2(any(ListObjectsV2Request.class))).thenAnswer(invocation -> {
+            ListObjectsV2Request request = invocation.getArgument(0);
+            if (request.continuationToken() == null) {
+                return CompletableFuture.completedFuture(listPage(0, 1500, "next"));
+            }
+            return CompletableFuture.completedFuture(listPage(1500, 1000, null));
+        });
+        when(s3AsyncClient.deleteObjects(any(DeleteObjectsRequest.class)))
+                .thenReturn(CompletableFuture.completedFuture(DeleteObjectsResponse.builder().build()));
+
+        DeletionResult result = new S3BatchDeleter(s3AsyncClient, 2).deletePrefix(BUCKET, "dev/platform/1");
+
+        ArgumentCaptor<DeleteObjectsRequest> captor = ArgumentCaptor.forClass(DeleteObjectsRequest.class);
+        verify(s3AsyncClient, times(3)).deleteObjects(captor.capture());
+        assertEquals(List.of(1000, 1000, 500),
+                     captor.getAllValues().stream().map(request -> request.delete().objects().size()).toList());
+        assertEquals(2500, result.deleted());
+    }
+
+    @Test
+    void deleteObjects_shouldReportPartialFailures() {
+        when(s3AsyncClient.deleteObjects(any(DeleteObjectsRequest.class)))
+                .thenReturn(CompletableFuture.completedFuture(DeleteObjectsResponse.builder()
+                                                                                   .errors(S3Error.builder()
+                                                                                                  .key("key-1")
+                                                                                                  .code("AccessDenied")
+                                                                                                  .message("Access Denied")
+                                                                                                  .build())
+                                                                                   .build()));
+
+        DeletionResult result = new S3BatchDeleter(s3AsyncClient, 2).deleteObjects(BUCKET, identifiers(0, 3));
+
+        assertFalse(result.isComplete());
+        assertEquals(2, result.deleted());
+        assertEquals("key-1", result.failures().get(0).key());
+    }
+
+    @Test
+    void deleteObjects_shouldCapConcurrentRequests() {
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+        when(s3AsyncClient.deleteObjects(any(DeleteObjectsRequest.class))).thenAnswer(invocation -> {
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            return CompletableFuture.supplyAsync(() -> {
+                sleep();
+                inFlight.decrementAndGet();
+                return DeleteObjectsResponse.builder().build();
+            });
+        });
+
+        DeletionResult result = new S3BatchDeleter(s3AsyncClient, 2).deleteObjects(BUCKET, identifiers(0, 6000));
+
+        assertEquals(6000, result.deleted());
+        assertEquals(2, maxInFlight.get());
+    }
+
+    private static ListObjectsV2Response listPage(int from, int count, String nextToken) {
+        return ListObjectsV2Response.builder()
+                                    .contents(IntStream.range(from, from + count)
+                                                       .mapToObj(i -> S3Object.builder().key("key-" + i).build())
+                                                       .toList())
+                                    .isTruncated(nextToken != null)
+                                    .nextContinuationToken(nextToken)
+                                    .build();
+    }
+
+    private static List<ObjectIdentifier> identifiers(int from, int count) {
+        return IntStream.range(from, from + count)
+                        .mapToObj(i -> ObjectIdentifier.builder().key("key-" + i).build())
+                        .toList();
+    }
+
+    private static void sleep() {
+        try {
+            Thread.sleep(20);
+        } catch (InterruptedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package attini.deploy.origin.manifest;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import org.junit.jupiter.api.Test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import attini.deploy.origin.manifest.DistributionManifest.ManifestEntry;
+import attini.domain.DistributionId;
+import attini.domain.DistributionName;
+import attini.domain.Environment;
+
+class DistributionManifestTest {
+
+    private static final DistributionManifest MANIFEST = new DistributionManifest("dev/infra/v1/distribution-origin",
+                                                                                  "dev/infra/v1/distribution-origin/infra.zip",
+                                                                                  10,
+                                                                                  Map.of("templates/template.yaml",
+                                                                                         new ManifestEntry("abc123", 10)));
+
+    @Test
+    void findUnchangedKey_shouldReturnPreviousKey() {
+        assertEquals(Optional.of("dev/infra/v1/distribution-origin/templates/template.yaml"),
+                     MANIFEST.findUnchangedKey("templates/template.yaml", "abc123", 10));
+    }
+
+    @Test
+    void findUnchangedKey_shouldReturnEmptyIfContentChanged() {
+        assertTrue(MANIFEST.findUnchangedKey("templates/template.yaml", "def456", 10).isEmpty());
+        assertTrue(MANIFEST.findUnchangedKey("templates/template.yaml", "abc123", 11).isEmpty());
+        assertTrue(MANIFEST.findUnchangedKey("templates/other.yaml", "abc123", 10).isEmpty());
+    }
+
+    @Test
+    void manifest_shouldSurviveJsonRoundTrip() throws IOException {
+        ObjectMapper objectMapper = new ObjectMapper();
+
+        DistributionManifest manifest = objectMapper.readValue(objectMapper.writeValueAsBytes(MANIFEST),
+                                                               DistributionManifest.class);
+
+        assertEquals(MANIFEST, manifest);
+    }
+
+    @Test
+    void manifestKey_shouldBeInDistributionPrefix() {
+        assertEquals("dev/infra/v1/distribution-manifest.json",
+                     DistributionManifest.manifestKey(Environment.of("dev"),
+                                                      DistributionName.of("infra"),
+                                                      DistributionId.of("v1")));
+    }
+
+    @Test
+    void objectKeys_shouldContainFilesAndDistribution() {
+        assertEquals(Optional.of(List.of("dev/infra/v1/distribution-origin/templates/template.yaml",
+                                         "dev/infra/v1/distribution-origin/infra.zip")),
+                     MANIFEST.objectKeys());
+    }
+
+    @Test
+    void objectKeys_shouldBeEmptyForManifestWithoutDistributionKey() throws IOException {
+        DistributionManifest manifest = new ObjectMapper().readValue("""
+                                                                             {"artifactPrefix": "dev/infra/v1/distribution-origin",
+                                                                              "files": {"templates/template.yaml": {"sha256": "abc123", "size": 10}}}
+                                                                             """,
+                                                                     DistributionManifest.class);
+
+        assertTrue(manifest.objectKeys().isEmpty());
+        assertTrue(manifest.findUnchangedKey("templates/template.yaml", "abc123", 10).isPresent());
+    }
+}
@@ -0,0 +1,69 @@
+package attini.deploy.origin.metrics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import attini.domain.DistributionName;
+import attini.domain.Environment;
+
+class EmfMetricsPublisherTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final List<String> lines = new ArrayList<>();
+    private final EmfMetricsPublisher publisher = new EmfMetricsPublisher(objectMapper, lines::add);
+
+    @Test
+    void publish_shouldWriteOneDocumentPerStage() throws Exception {
+        StageMetrics stageMetrics = new StageMetrics(Environment.of("dev"), DistributionName.of("folder"));
+        stageMetrics.recordDuration("uploadDirectory", 100);
+        stageMetrics.recordDuration("uploadDirectory", 50);
+        stageMetrics.recordBytes("uploadDirectory", 2048);
+        stageMetrics.recordObjects("uploadDirectory", 3);
+        stageMetrics.recordRetries("uploadDirectory", 1);
+        stageMetrics.recordDuration("parseConfig", 5);
+        stageMetrics.setDistributionName(DistributionName.of("infra"));
+
+        publisher.publish(stageMetrics);
+
+        assertEquals(2, lines.size());
+        JsonNode upload = objectMapper.readTree(lines.get(0));
+        assertEquals("dev", upload.get("Environment").asText());
+        assertEquals("infra", upload.get("DistributionName").asText());
+        assertEquals("uploadDirectory", upload.get("Stage").asText());
+        assertEquals(150, upload.get("Duration").asLong());
+        assertEquals(2048, upload.get("Bytes").asLong());
+        assertEquals(3, upload.get("Objects").asLong());
+        assertEquals(1, upload.get("Retries").asLong());
+
+        JsonNode directive = upload.get("_aws").get("CloudWatchMetrics").get(0);
+        assertEquals(EmfMetricsPublisher.NAMESPACE, directive.get("Namespace").asText());
+        assertEquals("[[\"Environment\",\"DistributionName\",\"Stage\"]]", directive.get("Dimensions").toString());
+        assertEquals(4, directive.get("Metrics").size());
+        assertTrue(upload.get("_aws").get("Timestamp").isNumber());
+    }
+
+    @Test
+    void publish_shouldOnlyDeclareRecordedMetrics() throws Exception {
+        StageMetrics stageMetrics = new StageMetrics(Environment.of("dev"), DistributionName.of("infra"));
+        stageMetrics.measure("tagOrigin", () -> {
+        });
+
+        publisher.publish(stageMetrics);
+
+        JsonNode document = objectMapper.readTree(lines.get(0));
+        assertFalse(document.has("Bytes"));
+        JsonNode metrics = document.get("_aws").get("CloudWatchMetrics").get(0).get("Metrics");
+        assertEquals(1, metrics.size());
+        assertEquals("Duration", metrics.get(0).get("Name").asText());
+        assertEquals("Milliseconds", metrics.get(0).get("Unit").asText());
+    }
+}
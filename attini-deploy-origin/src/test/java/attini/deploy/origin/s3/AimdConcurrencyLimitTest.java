@@ -0,0 +1,96 @@
+package attini.deploy.origin.s3;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+class AimdConcurrencyLimitTest {
+
+    private static final long HEALTHY_LATENCY = TimeUnit.MILLISECONDS.toNanos(50);
+    private static final long SMALL_OBJECT = 1024;
+
+    @Test
+    void onSuccess_shouldDoubleLimitDuringSlowStart() {
+        AimdConcurrencyLimit concurrencyLimit = new AimdConcurrencyLimit(10, 1, 100);
+
+        completeWindow(concurrencyLimit, HEALTHY_LATENCY);
+        assertEquals(20, concurrencyLimit.getLimit());
+
+        completeWindow(concurrencyLimit, HEALTHY_LATENCY);
+        assertEquals(40, concurrencyLimit.getLimit());
+    }
+
+    @Test
+    void onThrottle_shouldHalveLimitOncePerWindowAndThenGrowAdditively() {
+        AimdConcurrencyLimit concurrencyLimit = new AimdConcurrencyLimit(40, 1, 100);
+
+        concurrencyLimit.onThrottle();
+        concurrencyLimit.onThrottle();
+        assertEquals(20, concurrencyLimit.getLimit());
+
+        completeWindow(concurrencyLimit, HEALTHY_LATENCY);
+        assertEquals(20, concurrencyLimit.getLimit());
+
+        completeWindow(concurrencyLimit, HEALTHY_LATENCY);
+        assertEquals(21, concurrencyLimit.getLimit());
+    }
+
+    @Test
+    void onSuccess_shouldBackOffWhenP99Rises() {
+        AimdConcurrencyLimit concurrencyLimit = new AimdConcurrencyLimit(20, 1, 100);
+
+        completeWindow(concurrencyLimit, HEALTHY_LATENCY);
+        assertEquals(40, concurrencyLimit.getLimit());
+
+        completeWindow(concurrencyLimit, HEALTHY_LATENCY * 5);
+        assertEquals(20, concurrencyLimit.getLimit());
+    }
+
+    @Test
+    void limit_shouldStayWithinBounds() {
+        AimdConcurrencyLimit concurrencyLimit = new AimdConcurrencyLimit(60, 2, 100);
+
+        completeWindow(concurrencyLimit, HEALTHY_LATENCY);
+        assertEquals(100, concurrencyLimit.getLimit());
+
+        for (int i = 0; i < 10; i++) {
+            completeWindow(concurrencyLimit, HEALTHY_LATENCY);
+            concurrencyLimit.onThrottle();
+        }
+        assertEquals(2, concurrencyLimit.getLimit());
+    }
+
+    @Test
+    void onSuccess_shouldNotBackOffWhenLargerObjectsTakeLonger() {
+        AimdConcurrencyLimit concurrencyLimit = new AimdConcurrencyLimit(20, 1, 100);
+
+        completeWindow(concurrencyLimit, HEALTHY_LATENCY, SMALL_OBJECT);
+        assertEquals(40, concurrencyLimit.getLimit());
+
+        // 16 MiB takes 17 times as long as a request without a body
+        completeWindow(concurrencyLimit, HEALTHY_LATENCY * 17, 16 * 1024 * 1024);
+        assertEquals(80, concurrencyLimit.getLimit());
+    }
+
+    @Test
+    void onSuccess_shouldIgnoreCopies() {
+        AimdConcurrencyLimit concurrencyLimit = new AimdConcurrencyLimit(20, 1, 100);
+
+        completeWindow(concurrencyLimit, HEALTHY_LATENCY, SMALL_OBJECT);
+        completeWindow(concurrencyLimit, HEALTHY_LATENCY * 100, 0);
+        assertEquals(40, concurrencyLimit.getLimit());
+    }
+
+    private static void completeWindow(AimdConcurrencyLimit concurrencyLimit, long latencyNanos) {
+        completeWindow(concurrencyLimit, latencyNanos, SMALL_OBJECT);
+    }
+
+    private static void completeWindow(AimdConcurrencyLimit concurrencyLimit, long latencyNanos, long bytes) {
+        int windowSize = Math.max(20, concurrencyLimit.getLimit());
+        for (int i = 0; i < windowSize; i++) {
+            concurrencyLimit.onSuccess(latencyNanos, bytes);
+        }
+    }
+}
@@ -0,0 +1,227 @@
+package attini.deploy.origin.s3;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.ArgumentMatchers;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import attini.deploy.origin.system.EnvironmentVariables;
+import software.amazon.awssdk.core.ResponseBytes;
+import software.amazon.awssdk.core.sync.ResponseTransformer;
+import software.amazon.awssdk.services.s3.S3AsyncClient;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.AbortMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CompleteMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CompletedPart;
+import software.amazon.awssdk.services.s3.model.CopyObjectRequest;
+import software.amazon.awssdk.services.s3.model.CopyPartResult;
+import software.amazon.awssdk.services.s3.model.CreateMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CreateMultipartUploadResponse;
+import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+import software.amazon.awssdk.services.s3.model.GetObjectResponse;
+import software.amazon.awssdk.services.s3.model.HeadObjectRequest;
+import software.amazon.awssdk.services.s3.model.HeadObjectResponse;
+import software.amazon.awssdk.services.s3.model.S3Exception;
+import software.amazon.awssdk.services.s3.model.TaggingDirective;
+import software.amazon.awssdk.services.s3.model.UploadPartCopyRequest;
+import software.amazon.awssdk.services.s3.model.UploadPartCopyResponse;
+
+@ExtendWith(MockitoExtension.class)
+class S3FacadeTest {
+
+    private static final String SOURCE_BUCKET = "attini-deployment-origin";
+    private static final String SOURCE_KEY = "dev/platform/platform.zip";
+    private static final String VERSION_ID = "someVersion";
+    private static final String ARTIFACT_BUCKET = "attini-artifact-store";
+    private static final String DESTINATION_KEY = "dev/platform/v1/distribution-origin/platform.zip";
+    private static final long MEGABYTE = 1024L * 1024;
+    private static final long GIGABYTE = 1024 * MEGABYTE;
+
+    @Mock
+    S3Client s3Client;
+
+    @Mock
+    S3AsyncClient s3AsyncClient;
+
+    @Mock
+    EnvironmentVariables environmentVariables;
+
+    S3Facade s3Facade;
+
+    @BeforeEach
+    void setUp() {
+        s3Facade = new S3Facade(s3Client, s3AsyncClient, environmentVariables, ConcurrencyLimit.fixed(10));
+    }
+
+    @Test
+    void copyFile_shouldUseSingleCopyForSmallObjects() {
+        mockObjectSize(200 * MEGABYTE);
+
+        s3Facade.copyFile(SOURCE_BUCKET, SOURCE_KEY, Optional.of(VERSION_ID), ARTIFACT_BUCKET, DESTINATION_KEY);
+
+        verify(s3Client).copyObject(CopyObjectRequest.builder()
+                                                     .sourceBucket(SOURCE_BUCKET)
+                                                     .sourceKey(SOURCE_KEY)
+                                                     .sourceVersionId(VERSION_ID)
+                                                     .destinationBucket(ARTIFACT_BUCKET)
+                                                     .destinationKey(DESTINATION_KEY)
+                                                     .taggingDirective(TaggingDirective.REPLACE)
+                                                     .build());
+        verify(s3Client, never()).createMultipartUpload(any(CreateMultipartUploadRequest.class));
+    }
+
+    @Test
+    void copyFile_shouldUseMultipartCopyAboveSingleCopyLimit() {
+        long size = GIGABYTE;
+        mockObjectSize(size);
+        mockCreateMultipartUpload();
+        when(s3AsyncClient.uploadPartCopy(any(UploadPartCopyRequest.class)))
+                .thenAnswer(invocation -> CompletableFuture.completedFuture(copyPartResponse()));
+
+        s3Facade.copyFile(SOURCE_BUCKET, SOURCE_KEY, Optional.of(VERSION_ID), ARTIFACT_BUCKET, DESTINATION_KEY);
+
+        ArgumentCaptor<UploadPartCopyRequest> partCaptor = ArgumentCaptor.forClass(UploadPartCopyRequest.class);
+        verify(s3AsyncClient, times(8)).uploadPartCopy(partCaptor.capture());
+        List<UploadPartCopyRequest> parts = partCaptor.getAllValues();
+        assertEquals("bytes=0-" + (128 * MEGABYTE - 1), parts.get(0).copySourceRange());
+        assertEquals("bytes=" + (size - 128 * MEGABYTE) + "-" + (size - 1), parts.get(7).copySourceRange());
+
+        ArgumentCaptor<CompleteMultipartUploadRequest> completeCaptor = ArgumentCaptor.forClass(
+                CompleteMultipartUploadRequest.class);
+        verify(s3Client).completeMultipartUpload(completeCaptor.capture());
+        assertEquals(List.of(1, 2, 3, 4, 5, 6, 7, 8),
+                     completeCaptor.getValue()
+                                   .multipartUpload()
+                                   .parts()
+                                   .stream()
+                                   .map(CompletedPart::partNumber)
+                                   .toList());
+    }
+
+    @Test
+    void copyFile_shouldLimitPartsInFlight() throws Exception {
+        mockObjectSize(2 * GIGABYTE);
+        mockCreateMultipartUpload();
+        BlockingQueue<CompletableFuture<UploadPartCopyResponse>> pendingParts = new LinkedBlockingQueue<>();
+        when(s3AsyncClient.uploadPartCopy(any(UploadPartCopyRequest.class))).thenAnswer(invocation -> {
+            CompletableFuture<UploadPartCopyResponse> part = new CompletableFuture<>();
+            pendingParts.add(part);
+            return part;
+        });
+
+        CompletableFuture<Long> copy = CompletableFuture.supplyAsync(
+                () -> s3Facade.copyFile(SOURCE_BUCKET, SOURCE_KEY, Optional.of(VERSION_ID), ARTIFACT_BUCKET, DESTINATION_KEY));
+
+        int copiedParts = 0;
+        while (copiedParts < 16) {
+            CompletableFuture<UploadPartCopyResponse> part = pendingParts.poll(5, TimeUnit.SECONDS);
+            assertNotNull(part, "part copy was never started");
+            assertTrue(pendingParts.size() < 8, "more than 8 parts in flight");
+            part.complete(copyPartResponse());
+            copiedParts++;
+        }
+
+        assertEquals(2 * GIGABYTE, copy.get(5, TimeUnit.SECONDS));
+        verify(s3Client).completeMultipartUpload(any(CompleteMultipartUploadRequest.class));
+    }
+
+    @Test
+    void copyFile_shouldRetryFailedParts() {
+        mockObjectSize(512 * MEGABYTE);
+        mockCreateMultipartUpload();
+        when(s3AsyncClient.uploadPartCopy(any(UploadPartCopyRequest.class)))
+                .thenReturn(CompletableFuture.failedFuture(S3Exception.builder().statusCode(500).build()))
+                .thenAnswer(invocation -> CompletableFuture.completedFuture(copyPartResponse()));
+
+        s3Facade.copyFile(SOURCE_BUCKET, SOURCE_KEY, Optional.of(VERSION_ID), ARTIFACT_BUCKET, DESTINATION_KEY);
+
+        verify(s3AsyncClient, times(5)).uploadPartCopy(any(UploadPartCopyRequest.class));
+        verify(s3Client).completeMultipartUpload(any(CompleteMultipartUploadRequest.class));
+        verify(s3Client, never()).abortMultipartUpload(any(AbortMultipartUploadRequest.class));
+    }
+
+    @Test
+    void copyFile_shouldAbortIfPartKeepsFailing() {
+        mockObjectSize(512 * MEGABYTE);
+        mockCreateMultipartUpload();
+        when(s3AsyncClient.uploadPartCopy(any(UploadPartCopyRequest.class)))
+                .thenAnswer(invocation -> CompletableFuture.failedFuture(S3Exception.builder().statusCode(500).build()));
+
+        assertThrows(UploadFailedException.class,
+                     () -> s3Facade.copyFile(SOURCE_BUCKET, SOURCE_KEY, Optional.of(VERSION_ID), ARTIFACT_BUCKET, DESTINATION_KEY));
+
+        verify(s3Client).abortMultipartUpload(any(AbortMultipartUploadRequest.class));
+        verify(s3Client, never()).completeMultipartUpload(any(CompleteMultipartUploadRequest.class));
+    }
+
+    @Test
+    void rangeReader_shouldReadGivenVersion() {
+        when(s3Client.headObject(HeadObjectRequest.builder()
+                                                  .bucket(SOURCE_BUCKET)
+                                                  .key(SOURCE_KEY)
+                                                  .versionId(VERSION_ID)
+                                                  .build()))
+                .thenReturn(HeadObjectResponse.builder().contentLength(100L).eTag("eTag").build());
+        when(s3Client.getObject(any(GetObjectRequest.class), ArgumentMatchers.<ResponseTransformer<GetObjectResponse, ResponseBytes<GetObjectResponse>>>any()))
+                .thenReturn(ResponseBytes.fromByteArray(GetObjectResponse.builder().build(), new byte[10]));
+
+        s3Facade.rangeReader(SOURCE_BUCKET, SOURCE_KEY, Optional.of(VERSION_ID)).read(90, 10);
+
+        ArgumentCaptor<GetObjectRequest> captor = ArgumentCaptor.forClass(GetObjectRequest.class);
+        verify(s3Client).getObject(captor.capture(), ArgumentMatchers.<ResponseTransformer<GetObjectResponse, ResponseBytes<GetObjectResponse>>>any());
+        assertEquals(VERSION_ID, captor.getValue().versionId());
+        assertEquals("eTag", captor.getValue().ifMatch());
+        assertEquals("bytes=90-99", captor.getValue().range());
+    }
+
+    @Test
+    void openS3File_shouldOpenGivenVersion() {
+        s3Facade.openS3File(SOURCE_BUCKET, SOURCE_KEY, Optional.of(VERSION_ID));
+
+        verify(s3Client).getObject(GetObjectRequest.builder()
+                                                   .bucket(SOURCE_BUCKET)
+                                                   .key(SOURCE_KEY)
+                                                   .versionId(VERSION_ID)
+                                                   .build());
+    }
+
+    private void mockCreateMultipartUpload() {
+        when(s3Client.createMultipartUpload(any(CreateMultipartUploadRequest.class)))
+                .thenReturn(CreateMultipartUploadResponse.builder().uploadId("uploadId").build());
+    }
+
+    private static UploadPartCopyResponse copyPartResponse() {
+        return UploadPartCopyResponse.builder()
+                                     .copyPartResult(CopyPartResult.builder().eTag("eTag").build())
+                                     .build();
+    }
+
+    private void mockObjectSize(long size) {
+        when(s3Client.headObject(HeadObjectRequest.builder()
+                                                  .bucket(SOURCE_BUCKET)
+                                                  .key(SOURCE_KEY)
+                                                  .versionId(VERSION_ID)
+                                                  .build()))
+                .thenReturn(HeadObjectResponse.builder().contentLength(size).build());
+    }
+}
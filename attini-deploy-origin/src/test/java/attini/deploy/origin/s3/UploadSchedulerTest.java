@@ -0,0 +1,111 @@
+package attini.deploy.origin.s3;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+import software.amazon.awssdk.services.s3.model.S3Exception;
+
+class UploadSchedulerTest {
+
+    @Test
+    void submit_shouldNotExceedRequestWindow() {
+        UploadScheduler uploadScheduler = new UploadScheduler(2, 1000, 1);
+        List<CompletableFuture<Void>> pending = new CopyOnWriteArrayList<>();
+        AtomicInteger maxInFlight = new AtomicInteger();
+
+        CompletableFuture<Void> producer = CompletableFuture.runAsync(() -> {
+            for (int i = 0; i < 10; i++) {
+                uploadScheduler.submit("key" + i, 1, () -> {
+                    CompletableFuture<Void> upload = new CompletableFuture<>();
+                    pending.add(upload);
+                    maxInFlight.accumulateAndGet((int) pending.stream().filter(f -> !f.isDone()).count(), Math::max);
+                    return upload;
+                });
+            }
+        });
+
+        int completed = 0;
+        while (completed < 10) {
+            CompletableFuture<Void> next = pending.stream().filter(f -> !f.isDone()).findFirst().orElse(null);
+            if (next != null) {
+                next.complete(null);
+                completed++;
+            }
+        }
+        producer.join();
+        uploadScheduler.awaitCompletion();
+
+        assertEquals(2, maxInFlight.get());
+    }
+
+    @Test
+    void submit_shouldRetryFailedObject() {
+        UploadScheduler uploadScheduler = new UploadScheduler(10, 1000, 3);
+        AtomicInteger attempts = new AtomicInteger();
+
+        uploadScheduler.submit("key", 1, () -> attempts.incrementAndGet() < 3
+                                               ? CompletableFuture.failedFuture(new RuntimeException("SlowDown"))
+                                               : CompletableFuture.completedFuture(null));
+        uploadScheduler.awaitCompletion();
+
+        assertEquals(3, attempts.get());
+    }
+
+    @Test
+    void submit_shouldRunCallbackOnceAfterLastAttempt() {
+        UploadScheduler uploadScheduler = new UploadScheduler(10, 1000, 3);
+        AtomicInteger attempts = new AtomicInteger();
+        AtomicInteger callbacks = new AtomicInteger();
+
+        uploadScheduler.submit("key", 1, () -> {
+            attempts.incrementAndGet();
+            return CompletableFuture.failedFuture(new RuntimeException("SlowDown"));
+        }, callbacks::incrementAndGet);
+
+        assertThrows(UploadFailedException.class, uploadScheduler::awaitCompletion);
+        assertEquals(3, attempts.get());
+        assertEquals(1, callbacks.get());
+    }
+
+    @Test
+    void submit_shouldReportEachThrottledAttemptToConcurrencyLimit() {
+        ConcurrencyLimit concurrencyLimit = mock(ConcurrencyLimit.class);
+        when(concurrencyLimit.getLimit()).thenReturn(10);
+        UploadScheduler uploadScheduler = new UploadScheduler(concurrencyLimit, 1000, 3);
+        AtomicInteger attempts = new AtomicInteger();
+
+        uploadScheduler.submit("key", 1, () -> attempts.incrementAndGet() < 3
+                                               ? CompletableFuture.failedFuture(S3Exception.builder()
+                                                                                           .statusCode(503)
+                                                                                           .build())
+                                               : CompletableFuture.completedFuture(null));
+        uploadScheduler.awaitCompletion();
+
+        verify(concurrencyLimit, times(2)).onThrottle();
+    }
+
+    @Test
+    void awaitCompletion_shouldReportFailedObjects() {
+        UploadScheduler uploadScheduler = new UploadScheduler(10, 1000, 2);
+
+        uploadScheduler.submit("ok", 1, () -> CompletableFuture.completedFuture(null));
+        uploadScheduler.submit("broken", 1, () -> CompletableFuture.failedFuture(new RuntimeException("Access denied")));
+
+        UploadFailedException exception = assertThrows(UploadFailedException.class, uploadScheduler::awaitCompletion);
+        assertEquals(1, exception.getFailures().size());
+        assertEquals("broken", exception.getFailures().get(0).key());
+        assertTrue(exception.getMessage().contains("Access denied"));
+    }
+}
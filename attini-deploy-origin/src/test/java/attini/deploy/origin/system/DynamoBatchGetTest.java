@@ -0,0 +1,63 @@
+package attini.deploy.origin.system;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.BatchGetItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.BatchGetItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.KeysAndAttributes;
+
+@ExtendWith(MockitoExtension.class)
+class DynamoBatchGetTest {
+
+    private static final String TABLE = "AttiniResourceStatesV1";
+
+    @Mock
+    DynamoDbClient dynamoDbClient;
+
+    @Test
+    void getItems_shouldSplitKeysAndRetryUnprocessedKeys() {
+        List<Map<String, AttributeValue>> keys = IntStream.range(0, 150).mapToObj(DynamoBatchGetTest::key).toList();
+        when(dynamoDbClient.batchGetItem(any(BatchGetItemRequest.class)))
+                .thenReturn(BatchGetItemResponse.builder()
+                                                .responses(Map.of(TABLE, keys.subList(0, 99)))
+                                                .unprocessedKeys(Map.of(TABLE,
+                                                                        KeysAndAttributes.builder()
+                                                                                         .keys(keys.get(99))
+                                                                                         .build()))
+                                                .build())
+                .thenReturn(BatchGetItemResponse.builder().responses(Map.of(TABLE, List.of(keys.get(99)))).build())
+                .thenReturn(BatchGetItemResponse.builder().responses(Map.of(TABLE, keys.subList(100, 150))).build());
+
+        List<Map<String, AttributeValue>> items = DynamoBatchGet.getItems(dynamoDbClient, TABLE, keys, "#name", Map.of(
+                "#name",
+                "name"));
+
+        assertEquals(150, items.size());
+        ArgumentCaptor<BatchGetItemRequest> captor = ArgumentCaptor.forClass(BatchGetItemRequest.class);
+        verify(dynamoDbClient, times(3)).batchGetItem(captor.capture());
+        List<BatchGetItemRequest> requests = captor.getAllValues();
+        assertEquals(100, requests.get(0).requestItems().get(TABLE).keys().size());
+        assertEquals(List.of(keys.get(99)), requests.get(1).requestItems().get(TABLE).keys());
+        assertEquals(50, requests.get(2).requestItems().get(TABLE).keys().size());
+    }
+
+    private static Map<String, AttributeValue> key(int i) {
+        return Map.of("resourceType", AttributeValue.fromS("Distribution"), "name", AttributeValue.fromS("dev-" + i));
+    }
+}
@@ -0,0 +1,74 @@
+package attini.deploy.origin.zip;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+class TailCachingZipRangeReaderTest {
+
+    @Test
+    void readAll_shouldOnlyFetchBytesBeforeCachedTail() {
+        byte[] archive = new byte[200_000];
+        new Random(1).nextBytes(archive);
+        RecordingReader delegate = new RecordingReader(archive);
+        TailCachingZipRangeReader reader = new TailCachingZipRangeReader(delegate);
+
+        byte[] tail = reader.read(150_000, 50_000);
+        assertArrayEquals(new byte[]{archive[160_000], archive[160_001]}, reader.read(160_000, 2));
+
+        assertArrayEquals(archive, reader.readAll());
+        assertEquals(List.of("150000+50000", "0+150000"), delegate.reads);
+        assertEquals(50_000, tail.length);
+    }
+
+    @Test
+    void readAll_shouldFetchWholeArchiveIfNothingIsCached() {
+        byte[] archive = new byte[1000];
+        new Random(1).nextBytes(archive);
+        RecordingReader delegate = new RecordingReader(archive);
+        TailCachingZipRangeReader reader = new TailCachingZipRangeReader(delegate);
+
+        reader.read(0, 100);
+
+        assertArrayEquals(archive, reader.readAll());
+        assertEquals(List.of("0+100", "0+1000"), delegate.reads);
+    }
+
+    @Test
+    void read_shouldServeCentralDirectoryFromCachedTail() throws IOException {
+        byte[] zip = ZipUtilTest.createZip(Map.of("attini-config.yaml", "distributionName: test"));
+        RecordingReader delegate = new RecordingReader(zip);
+
+        ZipCentralDirectory.read(new TailCachingZipRangeReader(delegate));
+
+        assertEquals(List.of("0+" + zip.length), delegate.reads);
+    }
+
+    private static class RecordingReader implements ZipRangeReader {
+
+        private final ZipRangeReader bytes;
+        private final List<String> reads = new ArrayList<>();
+
+        RecordingReader(byte[] bytes) {
+            this.bytes = ZipRangeReader.of(bytes);
+        }
+
+        @Override
+        public long size() {
+            return bytes.size();
+        }
+
+        @Override
+        public byte[] read(long offset, int length) {
+            reads.add(offset + "+" + length);
+            return bytes.read(offset, length);
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package attini.deploy.origin.zip;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+
+class ZipCentralDirectoryTest {
+
+    @Test
+    void read_shouldListAllEntries() throws IOException {
+        byte[] zip = ZipUtilTest.createZip(Map.of("attini-config.yaml", "distributionName: test",
+                                                  "templates/template.yaml", "Resources: {}"));
+
+        ZipCentralDirectory centralDirectory = ZipCentralDirectory.read(ZipRangeReader.of(zip));
+
+        Set<String> names = centralDirectory.getEntries()
+                                            .stream()
+                                            .map(ZipDirectoryEntry::name)
+                                            .collect(Collectors.toSet());
+        assertEquals(Set.of("attini-config.yaml", "templates/template.yaml"), names);
+        assertEquals("Resources: {}".length(), centralDirectory.getEntry("templates/template.yaml").orElseThrow().size());
+    }
+
+    @Test
+    void openEntry_shouldInflateContent() throws IOException {
+        String content = "distributionName: test\n".repeat(100);
+        byte[] zip = ZipUtilTest.createZip(Map.of("attini-config.yaml", content));
+        ZipRangeReader reader = ZipRangeReader.of(zip);
+
+        ZipDirectoryEntry entry = ZipCentralDirectory.read(reader).getEntry("attini-config.yaml").orElseThrow();
+
+        try (InputStream inputStream = ZipCentralDirectory.openEntry(reader, entry)) {
+            assertArrayEquals(content.getBytes(StandardCharsets.UTF_8), inputStream.readAllBytes());
+        }
+        assertTrue(entry.compressedSize() < entry.size());
+    }
+
+    @Test
+    void read_shouldFailIfNotZip() {
+        byte[] notZip = "this is not a zip".getBytes(StandardCharsets.UTF_8);
+
+        assertThrows(IllegalArgumentException.class,
+                     () -> ZipCentralDirectory.read(ZipRangeReader.of(notZip)));
+    }
+}
@@ -0,0 +1,95 @@
+package attini.deploy.origin.zip;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+/**
+ * Compares sequential and parallel extraction on synthetic distributions. Run with
+ * {@code mvn test -Dattini.benchmark=true -Dtest=ZipExtractionBenchmarkTest}.
+ */
+@EnabledIfSystemProperty(named = "attini.benchmark", matches = "true")
+class ZipExtractionBenchmarkTest {
+
+    private static final int ROUNDS = 3;
+    private static final int THREADS = Math.max(2, Runtime.getRuntime().availableProcessors());
+
+    @Test
+    void manySmallFiles() throws IOException {
+        benchmark("10000 files of 4 KB", 10_000, 4 * 1024);
+    }
+
+    @Test
+    void fewLargeFiles() throws IOException {
+        benchmark("8 files of 64 MB", 8, 64 * 1024 * 1024);
+    }
+
+    private static void benchmark(String name, int files, int fileSize) throws IOException {
+        Path zipFile = createDistribution(files, fileSize);
+        try {
+            long sequential = Long.MAX_VALUE;
+            long parallel = Long.MAX_VALUE;
+            for (int round = 0; round < ROUNDS; round++) {
+                sequential = Math.min(sequential, time(() -> {
+                    try (InputStream inputStream = Files.newInputStream(zipFile)) {
+                        return ZipUtil.unzip(inputStream);
+                    }
+                }, files));
+                parallel = Math.min(parallel, time(() -> ZipUtil.unzipParallel(zipFile, THREADS, path -> false), files));
+            }
+            System.out.printf("%s: sequential %d ms, parallel (%d threads) %d ms, speedup %.2fx%n",
+                              name,
+                              sequential,
+                              THREADS,
+                              parallel,
+                              (double) sequential / parallel);
+        } finally {
+            Files.delete(zipFile);
+        }
+    }
+
+    private static long time(Extraction extraction, int expectedFiles) throws IOException {
+        long start = System.nanoTime();
+        ExtractionResult result = extraction.extract();
+        long elapsed = (System.nanoTime() - start) / 1_000_000;
+        assertEquals(expectedFiles, result.getFiles().size());
+        FileUtils.deleteDirectory(result.getDirectory().toFile());
+        return elapsed;
+    }
+
+    private static Path createDistribution(int files, int fileSize) throws IOException {
+        Random random = new Random(42);
+        Path zipFile = Files.createTempFile("benchmark", ".zip");
+        byte[] content = new byte[fileSize];
+        try (OutputStream outputStream = Files.newOutputStream(zipFile);
+             ZipOutputStream zipOutputStream = new ZipOutputStream(outputStream)) {
+            for (int i = 0; i < files; i++) {
+                // Half random and half repeated bytes so the content compresses like a typical template or asset
+                random.nextBytes(content);
+                for (int j = 0; j < fileSize / 2; j++) {
+                    content[j] = (byte) (j % 64);
+                }
+                zipOutputStream.putNextEntry(new ZipEntry("files/" + (i % 100) + "/file-" + i + ".bin"));
+                zipOutputStream.write(content);
+                zipOutputStream.closeEntry();
+            }
+        }
+        return zipFile;
+    }
+
+    @FunctionalInterface
+    private interface Extraction {
+        ExtractionResult extract() throws IOException;
+    }
+}
@@ -0,0 +1,132 @@
+package attini.deploy.origin.zip;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.io.FileUtils;
+import org.junit.jupiter.api.Test;
+
+class ZipUtilTest {
+
+    @Test
+    void unzip_shouldExtractNestedFilesFromStream() throws IOException {
+        byte[] zip = createZip(Map.of("attini-config.yaml", "distributionName: test",
+                                      "templates/nested/template.yaml", "Resources: {}"));
+
+        Path zipDir = ZipUtil.unzip(new ByteArrayInputStream(zip)).getDirectory();
+        try {
+            assertEquals("distributionName: test", Files.readString(zipDir.resolve("attini-config.yaml")));
+            assertEquals("Resources: {}", Files.readString(zipDir.resolve("templates/nested/template.yaml")));
+        } finally {
+            FileUtils.deleteDirectory(zipDir.toFile());
+        }
+    }
+
+    @Test
+    void unzip_shouldDigestFilesWhileExtracting() throws IOException {
+        byte[] zip = createZip(Map.of("templates/nested/template.yaml", "Resources: {}"));
+
+        ExtractionResult extraction = ZipUtil.unzip(new ByteArrayInputStream(zip));
+        try {
+            FileDigest digest = extraction.getDigest("./templates/nested/template.yaml").orElseThrow();
+            assertEquals(DigestUtils.md5Hex("Resources: {}"), digest.md5Hex());
+            assertEquals(DigestUtils.sha256Hex("Resources: {}"), digest.sha256Hex());
+            assertEquals(13, digest.size());
+            assertEquals(1, extraction.getFiles().size());
+        } finally {
+            FileUtils.deleteDirectory(extraction.getDirectory().toFile());
+        }
+    }
+
+    @Test
+    void unzip_shouldIndexConfigFilesAndIllegalNames() throws IOException {
+        byte[] zip = createZip(Map.of("attini-config.yaml", "distributionName: test",
+                                      "templates/attini-config.yaml", "distributionName: nested",
+                                      "templates/bad name.yaml", "Resources: {}"));
+
+        ExtractionResult extraction = ZipUtil.unzip(new ByteArrayInputStream(zip),
+                                                    path -> path.endsWith("attini-config.yaml"));
+        try {
+            assertEquals(List.of("attini-config.yaml"), extraction.getAttiniConfigFiles());
+            assertEquals(List.of("templates/bad name.yaml"), extraction.getFilesWithIllegalCharacters());
+            assertTrue(extraction.getFiles().get("templates/bad name.yaml").illegalCharacters());
+        } finally {
+            FileUtils.deleteDirectory(extraction.getDirectory().toFile());
+        }
+    }
+
+    @Test
+    void unzip_shouldRejectEntriesOutsideOfTargetDir() throws IOException {
+        byte[] zip = createZip(Map.of("../evil.sh", "rm -rf /"));
+
+        assertThrows(RuntimeException.class, () -> ZipUtil.unzip(new ByteArrayInputStream(zip)));
+    }
+
+    @Test
+    void forEachFile_shouldRejectEntriesOutsideOfTargetDir() throws IOException {
+        byte[] zip = createZip(Map.of("templates/../../evil.sh", "rm -rf /"));
+
+        assertThrows(RuntimeException.class,
+                     () -> ZipUtil.forEachFile(new ByteArrayInputStream(zip), (zipEntry, content) -> {
+                     }));
+    }
+
+    @Test
+    void unzipParallel_shouldGiveSameResultAsUnzip() throws IOException {
+        byte[] zip = createZip(Map.of("attini-config.yaml", "distributionName: test",
+                                      "templates/a.yaml", "Resources: {}",
+                                      "templates/nested/b.yaml", "Resources: { Bucket: {} }"));
+        Path zipFile = Files.createTempFile("distribution", ".zip");
+        Files.write(zipFile, zip);
+
+        ExtractionResult sequential = ZipUtil.unzip(new ByteArrayInputStream(zip));
+        ExtractionResult parallel = ZipUtil.unzipParallel(zipFile, 2, path -> false);
+        try {
+            assertEquals(sequential.getFiles().keySet(), parallel.getFiles().keySet());
+            sequential.getFiles().forEach((path, file) -> assertEquals(file.digest().sha256Hex(),
+                                                                       parallel.getFiles().get(path).digest().sha256Hex()));
+            assertEquals("Resources: { Bucket: {} }",
+                         Files.readString(parallel.getDirectory().resolve("templates/nested/b.yaml")));
+        } finally {
+            FileUtils.deleteDirectory(sequential.getDirectory().toFile());
+            FileUtils.deleteDirectory(parallel.getDirectory().toFile());
+            Files.delete(zipFile);
+        }
+    }
+
+    @Test
+    void unzipParallel_shouldRejectEntriesOutsideOfTargetDir() throws IOException {
+        Path zipFile = Files.createTempFile("distribution", ".zip");
+        Files.write(zipFile, createZip(Map.of("../evil.sh", "rm -rf /")));
+        try {
+            assertThrows(RuntimeException.class, () -> ZipUtil.unzipParallel(zipFile, 2, path -> false));
+        } finally {
+            Files.delete(zipFile);
+        }
+    }
+
+    static byte[] createZip(Map<String, String> files) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        try (ZipOutputStream zipOutputStream = new ZipOutputStream(outputStream)) {
+            for (Map.Entry<String, String> file : files.entrySet()) {
+                zipOutputStream.putNextEntry(new ZipEntry(file.getKey()));
+                zipOutputStream.write(file.getValue().getBytes(StandardCharsets.UTF_8));
+                zipOutputStream.closeEntry();
+            }
+        }
+        return outputStream.toByteArray();
+    }
+}